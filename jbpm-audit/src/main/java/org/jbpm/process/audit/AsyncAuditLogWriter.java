@@ -0,0 +1,372 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.transaction.Status;
+import javax.transaction.UserTransaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes audit log records in the background on behalf of <code>JPAWorkingMemoryDbLogger</code> so they
+ * are not persisted as part of the engine transaction.
+ * <br/>
+ * Records are kept in a bounded in memory buffer that is drained by a single writer thread, in batches of
+ * up to flush size records that are written in one transaction - together with <code>hibernate.jdbc.batch_size</code>
+ * set on the persistence unit inserts are sent to the data base as JDBC batches. A batch is written as soon as it is
+ * full or the flush latency elapsed since its first record was buffered. When the buffer is full loggers block
+ * until the writer catches up. As there is one writer that preserves the order in which records were buffered,
+ * records of a process instance are always written in the order they were logged.
+ * <br/>
+ * Records still in the buffer are lost when the JVM terminates abnormally, when a batch fails to be written
+ * its records are written one by one so only the failing ones are lost (and logged). Ids generated for records
+ * in a transaction that was rolled back are cleared so the records are inserted as new ones when retried.
+ * <br/>
+ * Following system properties are supported:
+ * <ul>
+ *  <li>org.jbpm.audit.async.buffer.size - maximum number of buffered records (default 10000)</li>
+ *  <li>org.jbpm.audit.async.flush.size - maximum number of records written in one transaction (default 100)</li>
+ *  <li>org.jbpm.audit.async.flush.latency - maximum time in milliseconds records are buffered before written (default 500)</li>
+ * </ul>
+ * Writer is meant to be shared by all loggers that write to the same data base and must be closed when no longer needed.
+ */
+public class AsyncAuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncAuditLogWriter.class);
+
+    private final EntityManagerFactory emf;
+    private final boolean isJTA;
+    private final int flushSize;
+    private final long flushLatency;
+    private final BlockingQueue<AuditLogOperation> buffer;
+
+    private final Thread writerThread;
+    private volatile boolean active = true;
+
+    private final Object flushLock = new Object();
+    private long submitted;
+    private long completed;
+
+    public AsyncAuditLogWriter(EntityManagerFactory emf, boolean isJTA) {
+        this(emf, isJTA,
+                Integer.parseInt(System.getProperty("org.jbpm.audit.async.buffer.size", "10000")),
+                Integer.parseInt(System.getProperty("org.jbpm.audit.async.flush.size", "100")),
+                Long.parseLong(System.getProperty("org.jbpm.audit.async.flush.latency", "500")));
+    }
+
+    public AsyncAuditLogWriter(EntityManagerFactory emf, boolean isJTA, int bufferSize, int flushSize, long flushLatency) {
+        if (emf == null) {
+            throw new IllegalArgumentException("EntityManagerFactory cannot be null");
+        }
+        this.emf = emf;
+        this.isJTA = isJTA;
+        this.flushSize = Math.max(flushSize, 1);
+        this.flushLatency = Math.max(flushLatency, 1);
+        this.buffer = new LinkedBlockingQueue<AuditLogOperation>(Math.max(bufferSize, 1));
+
+        this.writerThread = new Thread(new Writer(), "jBPM-AuditLogWriter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Buffers given operations in order, blocks while the buffer is full.
+     */
+    public void submit(List<AuditLogOperation> operations) {
+        if (!active) {
+            throw new IllegalStateException("Audit log writer is closed, " + operations.size() + " audit log records were not written");
+        }
+        for (AuditLogOperation operation : operations) {
+            synchronized (flushLock) {
+                submitted++;
+            }
+            try {
+                buffer.put(operation);
+            } catch (InterruptedException e) {
+                operationsCompleted(1);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for space in audit log buffer", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until all records buffered before this call are written.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long target = submitted;
+            while (completed < target) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes all buffered records and stops the writer.
+     */
+    public void close() {
+        active = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getBufferedRecords() {
+        return buffer.size();
+    }
+
+    protected void write(List<AuditLogOperation> batch) {
+        if (!writeInTransaction(batch) && batch.size() > 1) {
+            for (AuditLogOperation operation : batch) {
+                writeInTransaction(Collections.singletonList(operation));
+            }
+        }
+    }
+
+    private boolean writeInTransaction(List<AuditLogOperation> batch) {
+        EntityManager em = emf.createEntityManager();
+        UserTransaction ut = null;
+        EntityTransaction tx = null;
+        try {
+            if (isJTA) {
+                ut = JPAWorkingMemoryDbLogger.findUserTransaction();
+                if (ut == null) {
+                    throw new IllegalStateException("No user transaction found to write audit log records");
+                }
+                ut.begin();
+                em.joinTransaction();
+            } else {
+                tx = em.getTransaction();
+                tx.begin();
+            }
+            for (AuditLogOperation operation : batch) {
+                operation.apply(em);
+            }
+            if (ut != null) {
+                ut.commit();
+            } else {
+                tx.commit();
+            }
+            return true;
+        } catch (Exception e) {
+            logger.error("Unable to write {} audit log records: {}", batch.size(), batch, e);
+            try {
+                if (ut != null && ut.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                    ut.rollback();
+                } else if (tx != null && tx.isActive()) {
+                    tx.rollback();
+                }
+            } catch (Exception ex) {
+                logger.error("Unable to rollback audit log transaction", ex);
+            }
+            for (AuditLogOperation operation : batch) {
+                operation.rolledBack();
+            }
+            return false;
+        } finally {
+            try {
+                em.close();
+            } catch (Exception e) {
+                logger.error("Unable to close created EntityManager: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void operationsCompleted(int count) {
+        synchronized (flushLock) {
+            completed += count;
+            flushLock.notifyAll();
+        }
+    }
+
+    private class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            List<AuditLogOperation> batch = new ArrayList<AuditLogOperation>(flushSize);
+            while (active || !buffer.isEmpty()) {
+                try {
+                    AuditLogOperation first = buffer.poll(flushLatency, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + flushLatency;
+                    while (batch.size() < flushSize) {
+                        long wait = deadline - System.currentTimeMillis();
+                        AuditLogOperation next = wait > 0 && active ? buffer.poll(wait, TimeUnit.MILLISECONDS) : buffer.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    write(batch);
+                } catch (InterruptedException e) {
+                    logger.debug("Audit log writer interrupted, continues until closed");
+                } catch (Throwable e) {
+                    logger.error("Unexpected error while writing audit log records", e);
+                } finally {
+                    if (!batch.isEmpty()) {
+                        operationsCompleted(batch.size());
+                        batch.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Single change of the audit log applied by the writer.
+     */
+    public abstract static class AuditLogOperation {
+
+        protected abstract void apply(EntityManager em);
+
+        /**
+         * Called when the transaction the operation was applied in was rolled back, before it is retried.
+         */
+        protected void rolledBack() {
+        }
+    }
+
+    /**
+     * Inserts a new audit log record.
+     */
+    public static class PersistLog extends AuditLogOperation {
+
+        private final Object log;
+
+        public PersistLog(Object log) {
+            this.log = log;
+        }
+
+        @Override
+        protected void apply(EntityManager em) {
+            em.persist(log);
+        }
+
+        @Override
+        protected void rolledBack() {
+            // id generated when persisted is not valid anymore, persisting an entity with id fails as detached
+            if (log instanceof ProcessInstanceLog) {
+                ((ProcessInstanceLog) log).setId(0);
+            } else if (log instanceof NodeInstanceLog) {
+                ((NodeInstanceLog) log).setId(0);
+            } else if (log instanceof VariableInstanceLog) {
+                ((VariableInstanceLog) log).setId(0);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(log);
+        }
+    }
+
+    /**
+     * Records the completion of a process instance in its process instance log that is either given
+     * (when logged by this JVM) or looked up.
+     */
+    public static class CompleteProcessLog extends AuditLogOperation {
+
+        private final ProcessInstanceLog startLog;
+        private final ProcessInstanceLog completedLog;
+
+        public CompleteProcessLog(ProcessInstanceLog startLog, ProcessInstanceLog completedLog) {
+            this.startLog = startLog;
+            this.completedLog = completedLog;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected void apply(EntityManager em) {
+            ProcessInstanceLog log = startLog;
+            if (log == null || (log.getId() == 0 && !em.contains(log))) {
+                log = null;
+                List<ProcessInstanceLog> result = em.createQuery(
+                        "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                        .setParameter("piId", completedLog.getProcessInstanceId()).getResultList();
+                if (result != null && result.size() != 0) {
+                    log = result.get(result.size() - 1);
+                }
+            }
+            if (log != null) {
+                log.setOutcome(completedLog.getOutcome());
+                log.setStatus(completedLog.getStatus());
+                log.setEnd(completedLog.getEnd());
+                log.setDuration(log.getEnd().getTime() - log.getStart().getTime());
+                log.setProcessInstanceDescription(completedLog.getProcessInstanceDescription());
+                if (!em.contains(log)) {
+                    em.merge(log);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(completedLog);
+        }
+    }
+
+    /**
+     * Records the work item of a node instance that was assigned after its node instance log was buffered.
+     */
+    public static class UpdateWorkItemId extends AuditLogOperation {
+
+        private final NodeInstanceLog log;
+        private final Long workItemId;
+
+        public UpdateWorkItemId(NodeInstanceLog log, Long workItemId) {
+            this.log = log;
+            this.workItemId = workItemId;
+        }
+
+        @Override
+        protected void apply(EntityManager em) {
+            if (em.contains(log)) {
+                log.setWorkItemId(workItemId);
+            } else if (log.getId() != 0) {
+                log.setWorkItemId(workItemId);
+                em.merge(log);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return log + " work item " + workItemId;
+        }
+    }
+}
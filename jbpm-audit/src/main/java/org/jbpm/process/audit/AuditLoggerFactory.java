@@ -129,7 +129,21 @@ public class AuditLoggerFactory {
     public static AbstractAuditLogger newJPAInstance(Environment env) {
         return new JPAWorkingMemoryDbLogger(env);
     }
-    
+
+    /**
+     * Creates new instance of JPA audit logger that writes audit log records in the background with given writer
+     * NOTE: this will build the logger but it is not registered directly on a session: once received,
+     * it will need to be registered as an event listener
+     * @param env Environment instance to be used
+     * @param asyncWriter writer shared by all loggers of the same data base
+     * @return new instance of JPA audit logger
+     */
+    public static AbstractAuditLogger newJPAInstance(Environment env, AsyncAuditLogWriter asyncWriter) {
+        JPAWorkingMemoryDbLogger logger = new JPAWorkingMemoryDbLogger(env);
+        logger.setAsyncWriter(asyncWriter);
+        return logger;
+    }
+
     /**
      * Creates new instance of JMS audit logger based on given parameters.
      * Supported parameters are as follows:
@@ -139,6 +153,9 @@ public class AuditLoggerFactory {
      * <li>jbpm.audit.jms.queue - JMS queue instance - type javax.jms.Queue</li>
      * <li>jbpm.audit.jms.connection.factory.jndi - JNDI name of the connection factory to look up - type String</li>
      * <li>jbpm.audit.jms.queue.jndi - JNDI name of the queue to look up - type String</li>
+     * <li>jbpm.audit.jms.pooled - reuses connection, sessions and producers - default false - type Boolean</li>
+     * <li>jbpm.audit.jms.binary - sends events in compact binary format instead of XML - default false - type Boolean</li>
+     * <li>jbpm.audit.jms.batched - sends all events of a transaction as one message - default false - type Boolean</li>
      * </ul>
      * NOTE: this will build the logger but it is not registered directly on a session: once received, 
      * it will need to be registered as an event listener
@@ -158,6 +175,9 @@ public class AuditLoggerFactory {
         }
         
         logger.setTransacted(transacted);
+        logger.setPooled(getBooleanProperty(properties, "jbpm.audit.jms.pooled"));
+        logger.setBinary(getBooleanProperty(properties, "jbpm.audit.jms.binary"));
+        logger.setBatched(getBooleanProperty(properties, "jbpm.audit.jms.batched"));
         
         // set connection factory and queue if given as property
         if (properties.containsKey("jbpm.audit.jms.connection.factory")) {
@@ -186,6 +206,14 @@ public class AuditLoggerFactory {
         return logger;
     }
     
+    private static boolean getBooleanProperty(Map<String, Object> properties, String name) {
+        Object value = properties.get(name);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value != null && Boolean.parseBoolean(value.toString());
+    }
+    
     /**
      * Creates new instance of JMS audit logger based on given connection factory and queue.
      * NOTE: this will build the logger but it is not registered directly on a session: once received, 
@@ -16,7 +16,10 @@
 
 package org.jbpm.process.audit;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -32,9 +35,14 @@ import javax.transaction.UserTransaction;
 import org.drools.core.WorkingMemory;
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.runtime.process.InternalProcessRuntime;
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
+import org.jbpm.process.audit.AsyncAuditLogWriter.AuditLogOperation;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.jbpm.workflow.instance.node.WorkItemNodeInstance;
 import org.kie.api.event.KieRuntimeEvent;
 import org.kie.api.event.process.ProcessCompletedEvent;
 import org.kie.api.event.process.ProcessEventListener;
@@ -51,7 +59,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Enables history log via JPA.
- * 
+ * <br/>
+ * By default audit log records are persisted as part of the engine transaction. When an
+ * {@link AsyncAuditLogWriter} is set, records logged within a transaction are handed over to the writer
+ * once the transaction commits (and discarded when it rolls back) and written in the background.
  */
 public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
 
@@ -65,6 +76,10 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     private EntityManagerFactory emf;
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
+    
+    private AsyncAuditLogWriter asyncWriter;
+    // key of the audit log operations pending in the current transaction
+    private final Object pendingOperationsKey = new Object();
 
     /*
      * for backward compatibility
@@ -141,6 +156,12 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
+        if (asyncWriter != null) {
+            ProcessInstanceLog log = (ProcessInstanceLog) ((ProcessInstanceImpl) event.getProcessInstance()).getMetaData().get("ProcessInstanceLog");
+            ProcessInstanceLog completedLog = (ProcessInstanceLog) builder.buildEvent(event, null);
+            submit(new AsyncAuditLogWriter.CompleteProcessLog(log, completedLog), event);
+            return;
+        }
         long processInstanceId = event.getProcessInstance().getId();
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
@@ -165,6 +186,14 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     public void afterNodeTriggered(ProcessNodeTriggeredEvent event) {
     	// trigger this to record some of the data (like work item id) after activity was triggered
     	NodeInstanceLog log = (NodeInstanceLog) ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().get("NodeInstanceLog");
+    	if (asyncWriter != null) {
+    	    // log is owned by the writer once handed over so it is updated by the writer
+    	    if (log != null && event.getNodeInstance() instanceof WorkItemNodeInstance
+    	            && ((WorkItemNodeInstance) event.getNodeInstance()).getWorkItem() != null) {
+    	        submit(new AsyncAuditLogWriter.UpdateWorkItemId(log, ((WorkItemNodeInstance) event.getNodeInstance()).getWorkItem().getId()), event);
+    	    }
+    	    return;
+    	}
     	builder.buildEvent(event, log);
         
     }
@@ -190,6 +219,14 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
     public void dispose() {
     }
 
+    public AsyncAuditLogWriter getAsyncWriter() {
+        return asyncWriter;
+    }
+
+    public void setAsyncWriter(AsyncAuditLogWriter asyncWriter) {
+        this.asyncWriter = asyncWriter;
+    }
+
     /**
      * This method persists the entity given to it. 
      * </p>
@@ -197,12 +234,85 @@ public class JPAWorkingMemoryDbLogger extends AbstractAuditLogger {
      * @param entity An entity to be persisted.
      */
     private void persist(Object entity, KieRuntimeEvent event) { 
+        if (asyncWriter != null) {
+            submit(new AsyncAuditLogWriter.PersistLog(entity), event);
+            return;
+        }
         EntityManager em = getEntityManager(event);
         Object tx = joinTransaction(em);
         em.persist(entity);
         leaveTransaction(em, tx);
     }
     
+    /**
+     * Hands given operation over to the asynchronous writer once the active transaction (if any) is committed,
+     * operations of a transaction are handed over together and in order.
+     */
+    protected void submit(AuditLogOperation operation, KieRuntimeEvent event) {
+        TransactionManager tm = getTransactionManager(event);
+        if (tm != null && tm.getStatus() != TransactionManager.STATUS_NO_TRANSACTION
+                && tm.getStatus() != TransactionManager.STATUS_ROLLEDBACK
+                && tm.getStatus() != TransactionManager.STATUS_COMMITTED) {
+            SubmitOnCommitSynchronization pending = (SubmitOnCommitSynchronization) tm.getResource(pendingOperationsKey);
+            // resource might outlive the transaction it was registered in with some transaction managers
+            if (pending == null || pending.isCompleted()) {
+                pending = new SubmitOnCommitSynchronization(asyncWriter);
+                tm.putResource(pendingOperationsKey, pending);
+                TransactionManagerHelper.registerTransactionSyncInContainer(tm, pending);
+            }
+            pending.add(operation);
+        } else {
+            asyncWriter.submit(Collections.singletonList(operation));
+        }
+    }
+
+    private TransactionManager getTransactionManager(KieRuntimeEvent event) {
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env != null) {
+            Object tm = env.get(EnvironmentName.TRANSACTION_MANAGER);
+            if (tm instanceof TransactionManager) {
+                return (TransactionManager) tm;
+            }
+        }
+        return null;
+    }
+
+    private static class SubmitOnCommitSynchronization extends OrderedTransactionSynchronization {
+
+        private static final AtomicLong counter = new AtomicLong();
+
+        private AsyncAuditLogWriter asyncWriter;
+        private List<AuditLogOperation> pending = new ArrayList<AuditLogOperation>();
+        private volatile boolean completed;
+
+        SubmitOnCommitSynchronization(AsyncAuditLogWriter asyncWriter) {
+            super(5, "JPAWorkingMemoryDbLogger-" + counter.incrementAndGet());
+            this.asyncWriter = asyncWriter;
+        }
+
+        void add(AuditLogOperation operation) {
+            pending.add(operation);
+        }
+
+        boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            completed = true;
+            if (status == TransactionManager.STATUS_COMMITTED) {
+                asyncWriter.submit(pending);
+            } else {
+                logger.debug("Transaction not committed, discarding {} audit log records", pending.size());
+            }
+        }
+    }
+
     /**
      * This method creates a entity manager. 
      */
@@ -15,32 +15,45 @@
 
 package org.jbpm.process.audit.jms;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.jms.BytesMessage;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
+import org.drools.persistence.OrderedTransactionSynchronization;
+import org.drools.persistence.TransactionManager;
+import org.drools.persistence.TransactionManagerHelper;
 import org.jbpm.process.audit.AbstractAuditLogger;
 import org.jbpm.process.audit.NodeInstanceLog;
 import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.jms.AuditLogMessageCodec.AuditLogRecord;
 import org.jbpm.process.audit.variable.ProcessIndexerManager;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.kie.api.event.KieRuntimeEvent;
 import org.kie.api.event.process.ProcessCompletedEvent;
 import org.kie.api.event.process.ProcessNodeLeftEvent;
 import org.kie.api.event.process.ProcessNodeTriggeredEvent;
 import org.kie.api.event.process.ProcessStartedEvent;
 import org.kie.api.event.process.ProcessVariableChangedEvent;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.KieSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.thoughtworks.xstream.XStream;
-
 /**
  * Asynchronous log producer that puts audit log events into JMS queue.
  * It expects to have following objects available before it is fully operational:
@@ -59,16 +72,41 @@ import com.thoughtworks.xstream.XStream;
  * </ul>
  * 
  * Default receiver is <code>AsyncAuditLogReceiver</code> class
+ * <br/>
+ * Following modes can be enabled in addition:
+ * <ul>
+ *  <li>pooled - single connection is kept open and sessions and producers are reused instead of created
+ *  for every message, meant for connection factories that are not pooled by the container already. Pooled sessions
+ *  are not bound to the container transaction, so events of a transaction are held back and sent, one message
+ *  per event, once the transaction is committed (and discarded when it is rolled back). Events logged outside
+ *  of a transaction are sent as they are generated</li>
+ *  <li>binary - events are sent as BytesMessages in compact binary format (see <code>AuditLogMessageCodec</code>)
+ *  instead of Xstream serialized XML</li>
+ *  <li>batched - all events of a transaction are sent as one BytesMessage once the transaction is committed
+ *  (and discarded when it is rolled back), events logged outside of a transaction are sent as they are generated</li>
+ * </ul>
  */
 public class AsyncAuditLogProducer extends AbstractAuditLogger {
     
     private static final Logger logger = LoggerFactory.getLogger(AsyncAuditLogProducer.class);
+    
+    private static final AtomicLong syncCounter = new AtomicLong();
 
     private ConnectionFactory connectionFactory;    
     private Queue queue;
     private boolean transacted = true;
+    private boolean pooled = false;
+    private boolean binary = false;
+    private boolean batched = false;
+    private int poolSize = 10;
     
     private ProcessIndexerManager indexManager = ProcessIndexerManager.get();
+    
+    private Connection pooledConnection;
+    private final ConcurrentLinkedQueue<PooledProducer> producers = new ConcurrentLinkedQueue<PooledProducer>();
+    private final AtomicInteger idleProducers = new AtomicInteger();
+    // key of the events pending in the current transaction
+    private final Object pendingEventsKey = new Object();
 
     public AsyncAuditLogProducer() {
         
@@ -99,35 +137,35 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     @Override
     public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_NODE_ENTER_EVENT_TYPE);
+        sendMessage(event, log, BEFORE_NODE_ENTER_EVENT_TYPE);
         ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().put("NodeInstanceLog", log);
     }
 
     @Override
     public void afterNodeLeft(ProcessNodeLeftEvent event) {
         NodeInstanceLog log = (NodeInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_NODE_LEFT_EVENT_TYPE);   
+        sendMessage(event, log, AFTER_NODE_LEFT_EVENT_TYPE);   
     }
 
     @Override
     public void afterVariableChanged(ProcessVariableChangedEvent event) {
         List<org.kie.api.runtime.manager.audit.VariableInstanceLog> variables = indexManager.index(getBuilder(), event);
         for (org.kie.api.runtime.manager.audit.VariableInstanceLog log : variables) {  
-            sendMessage(log, AFTER_VAR_CHANGE_EVENT_TYPE);   
+            sendMessage(event, log, AFTER_VAR_CHANGE_EVENT_TYPE);   
         }
     }
 
     @Override
     public void beforeProcessStarted(ProcessStartedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event);
-        sendMessage(log, BEFORE_START_EVENT_TYPE);
+        sendMessage(event, log, BEFORE_START_EVENT_TYPE);
         
     }
 
     @Override
     public void afterProcessCompleted(ProcessCompletedEvent event) {
         ProcessInstanceLog log = (ProcessInstanceLog) builder.buildEvent(event, null);
-        sendMessage(log, AFTER_COMPLETE_EVENT_TYPE);
+        sendMessage(event, log, AFTER_COMPLETE_EVENT_TYPE);
     }
     
     @Override
@@ -136,7 +174,7 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     	NodeInstanceLog log = (NodeInstanceLog) ((NodeInstanceImpl) event.getNodeInstance()).getMetaData().get("NodeInstanceLog");
     	NodeInstanceLog logUpdated = (NodeInstanceLog) builder.buildEvent(event, log);
     	if (logUpdated != null) {
-    		sendMessage(log, AFTER_NODE_ENTER_EVENT_TYPE);
+    		sendMessage(event, log, AFTER_NODE_ENTER_EVENT_TYPE);
     	}
     }
 
@@ -158,7 +196,49 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
     public void beforeProcessCompleted(ProcessCompletedEvent event) {
     }
     
+    /**
+     * Sends given event, or adds it to the events of the active transaction in batched or pooled mode.
+     */
+    protected void sendMessage(KieRuntimeEvent event, Object messageContent, Integer eventType) {
+        if (batched || pooled) {
+            TransactionManager tm = getTransactionManager(event);
+            if (tm != null && tm.getStatus() != TransactionManager.STATUS_NO_TRANSACTION
+                    && tm.getStatus() != TransactionManager.STATUS_ROLLEDBACK
+                    && tm.getStatus() != TransactionManager.STATUS_COMMITTED) {
+                SendOnCommitSynchronization pending = (SendOnCommitSynchronization) tm.getResource(pendingEventsKey);
+                // resource might outlive the transaction it was registered in with some transaction managers
+                if (pending == null || pending.isCompleted()) {
+                    pending = new SendOnCommitSynchronization();
+                    tm.putResource(pendingEventsKey, pending);
+                    TransactionManagerHelper.registerTransactionSyncInContainer(tm, pending);
+                }
+                pending.add(new AuditLogRecord(eventType, messageContent));
+                return;
+            }
+        }
+        sendMessage(messageContent, eventType);
+    }
+    
     protected void sendMessage(Object messageContent, Integer eventType) {
+        if (binary || batched) {
+            sendMessages(Collections.singletonList(new AuditLogRecord(eventType, messageContent)));
+            return;
+        }
+        if (pooled) {
+            PooledProducer pooledProducer = borrowProducer();
+            boolean sent = false;
+            try {
+                TextMessage message = pooledProducer.session.createTextMessage(AuditLogMessageCodec.toXML(messageContent));
+                message.setIntProperty("EventType", eventType);
+                pooledProducer.send(message);
+                sent = true;
+            } catch (Exception e) {
+                throw new RuntimeException("Error when sending JMS message with working memory event", e);
+            } finally {
+                releaseProducer(pooledProducer, sent);
+            }
+            return;
+        }
         if (connectionFactory == null && queue == null) {
             throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
         }
@@ -169,8 +249,7 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
             queueConnection = connectionFactory.createConnection();
             queueSession = queueConnection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
            
-            XStream xstream = new XStream();
-            String eventXml = xstream.toXML(messageContent);
+            String eventXml = AuditLogMessageCodec.toXML(messageContent);
             TextMessage message = queueSession.createTextMessage(eventXml);
             message.setIntProperty("EventType", eventType);
             producer = queueSession.createProducer(queue);            
@@ -204,6 +283,160 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
         }
     }
 
+    /**
+     * Sends given events as single BytesMessage, single event messages carry the event type as EventType property
+     * and batches the number of events as EventCount property.
+     */
+    protected void sendMessages(List<AuditLogRecord> records) {
+        sendMessages(records, false);
+    }
+
+    /**
+     * @param afterCompletion true when sent after the transaction completed, transacted sessions are then
+     * not bound to any transaction and must be committed
+     */
+    private void sendMessages(List<AuditLogRecord> records, boolean afterCompletion) {
+        byte[] content = AuditLogMessageCodec.encode(records);
+        if (pooled) {
+            PooledProducer pooledProducer = borrowProducer();
+            boolean sent = false;
+            try {
+                pooledProducer.send(createBytesMessage(pooledProducer.session, content, records));
+                sent = true;
+            } catch (Exception e) {
+                throw new RuntimeException("Error when sending JMS message with working memory event", e);
+            } finally {
+                releaseProducer(pooledProducer, sent);
+            }
+            return;
+        }
+        if (connectionFactory == null && queue == null) {
+            throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
+        }
+        Connection queueConnection = null;
+        try {
+            queueConnection = connectionFactory.createConnection();
+            Session queueSession = queueConnection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            queueSession.createProducer(queue).send(createBytesMessage(queueSession, content, records));
+            if (transacted && afterCompletion) {
+                queueSession.commit();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error when sending JMS message with working memory event", e);
+        } finally {
+            if (queueConnection != null) {
+                try {
+                    // closes its sessions and producers as well
+                    queueConnection.close();
+                } catch (JMSException e) {
+                    logger.warn("Error when closing queue connection", e);
+                }
+            }
+        }
+    }
+    
+    private Message createBytesMessage(Session session, byte[] content, List<AuditLogRecord> records) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(content);
+        if (records.size() == 1) {
+            message.setIntProperty("EventType", records.get(0).getEventType());
+        }
+        message.setIntProperty("EventCount", records.size());
+        return message;
+    }
+    
+    protected TransactionManager getTransactionManager(KieRuntimeEvent event) {
+        Environment env = event.getKieRuntime().getEnvironment();
+        if (env != null) {
+            Object tm = env.get(EnvironmentName.TRANSACTION_MANAGER);
+            if (tm instanceof TransactionManager) {
+                return (TransactionManager) tm;
+            }
+        }
+        return null;
+    }
+    
+    private synchronized Connection getPooledConnection() throws JMSException {
+        if (pooledConnection == null) {
+            if (connectionFactory == null && queue == null) {
+                throw new IllegalStateException("ConnectionFactory and Queue cannot be null");
+            }
+            final Connection connection = connectionFactory.createConnection();
+            connection.setExceptionListener(new ExceptionListener() {
+                @Override
+                public void onException(JMSException exception) {
+                    logger.warn("Pooled JMS connection failed, it will be recreated", exception);
+                    discardConnection(connection);
+                }
+            });
+            pooledConnection = connection;
+        }
+        return pooledConnection;
+    }
+    
+    private void discardConnection(Connection connection) {
+        synchronized (this) {
+            if (pooledConnection != connection) {
+                return;
+            }
+            pooledConnection = null;
+        }
+        PooledProducer pooledProducer = producers.poll();
+        while (pooledProducer != null) {
+            idleProducers.decrementAndGet();
+            pooledProducer.close();
+            pooledProducer = producers.poll();
+        }
+        try {
+            connection.close();
+        } catch (JMSException e) {
+            logger.debug("Error when closing failed queue connection", e);
+        }
+    }
+    
+    private PooledProducer borrowProducer() {
+        PooledProducer pooledProducer = producers.poll();
+        if (pooledProducer != null) {
+            idleProducers.decrementAndGet();
+            return pooledProducer;
+        }
+        try {
+            Connection connection = getPooledConnection();
+            Session session = connection.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            return new PooledProducer(connection, session, session.createProducer(queue));
+        } catch (JMSException e) {
+            throw new RuntimeException("Error when creating JMS session for working memory events", e);
+        }
+    }
+    
+    private void releaseProducer(PooledProducer pooledProducer, boolean reusable) {
+        boolean connectionValid;
+        synchronized (this) {
+            connectionValid = pooledProducer.connection == pooledConnection;
+        }
+        if (reusable && connectionValid && idleProducers.incrementAndGet() <= poolSize) {
+            producers.offer(pooledProducer);
+        } else {
+            if (reusable && connectionValid) {
+                idleProducers.decrementAndGet();
+            }
+            pooledProducer.close();
+        }
+    }
+    
+    /**
+     * Closes pooled connection, sessions and producers, applies to pooled mode only.
+     */
+    public void close() {
+        Connection connection;
+        synchronized (this) {
+            connection = pooledConnection;
+        }
+        if (connection != null) {
+            discardConnection(connection);
+        }
+    }
+
     public boolean isTransacted() {
         return transacted;
     }
@@ -212,5 +445,107 @@ public class AsyncAuditLogProducer extends AbstractAuditLogger {
         this.transacted = transacted;
     }
 
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    public void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    public boolean isBatched() {
+        return batched;
+    }
+
+    public void setBatched(boolean batched) {
+        this.batched = batched;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    private class PooledProducer {
+
+        private final Connection connection;
+        private final Session session;
+        private final MessageProducer producer;
+
+        PooledProducer(Connection connection, Session session, MessageProducer producer) {
+            this.connection = connection;
+            this.session = session;
+            this.producer = producer;
+        }
+
+        void send(Message message) throws JMSException {
+            producer.send(message);
+            if (transacted) {
+                // session is not bound to a container transaction so it must be committed
+                session.commit();
+            }
+        }
+
+        void close() {
+            try {
+                session.close();
+            } catch (JMSException e) {
+                logger.warn("Error when closing queue session", e);
+            }
+        }
+    }
+
+    private class SendOnCommitSynchronization extends OrderedTransactionSynchronization {
+
+        private final List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+        private volatile boolean completed;
+
+        SendOnCommitSynchronization() {
+            super(5, "AsyncAuditLogProducer-" + syncCounter.incrementAndGet());
+        }
+
+        void add(AuditLogRecord record) {
+            records.add(record);
+        }
+
+        boolean isCompleted() {
+            return completed;
+        }
+
+        @Override
+        public void beforeCompletion() {
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            completed = true;
+            if (status == TransactionManager.STATUS_COMMITTED && !records.isEmpty()) {
+                try {
+                    if (batched) {
+                        sendMessages(records, true);
+                    } else {
+                        // pooled producers commit every message they send
+                        for (AuditLogRecord record : records) {
+                            sendMessage(record.getEvent(), record.getEventType());
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Unable to send {} audit log events of committed transaction", records.size(), e);
+                }
+            }
+        }
+    }
+
 
 }
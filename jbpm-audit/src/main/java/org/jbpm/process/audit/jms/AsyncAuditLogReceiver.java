@@ -17,6 +17,7 @@ package org.jbpm.process.audit.jms;
 
 import java.util.List;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
@@ -27,8 +28,7 @@ import javax.persistence.EntityManagerFactory;
 import org.jbpm.process.audit.AbstractAuditLogger;
 import org.jbpm.process.audit.NodeInstanceLog;
 import org.jbpm.process.audit.ProcessInstanceLog;
-
-import com.thoughtworks.xstream.XStream;
+import org.jbpm.process.audit.jms.AuditLogMessageCodec.AuditLogRecord;
 
 /**
  * Asynchronous audit event receiver. Receives messages from JMS queue
@@ -37,7 +37,9 @@ import com.thoughtworks.xstream.XStream;
  * (producer is provide by <code>AsyncAuditLogProducer</code> class).
  * Thus it shares the same message format that is TextMessage with 
  * Xstream serialized *Log classes (ProcessInstanceLog,
- * NodeInstanceLog, VaraiableInstanceLog) as content.
+ * NodeInstanceLog, VaraiableInstanceLog) as content, or BytesMessage with one or more
+ * (batched) events encoded by <code>AuditLogMessageCodec</code>. All events of a BytesMessage are
+ * persisted with single entity manager and flushed at once.
  * 
  * by default it uses entity manager factory and creates entity manager for each message
  * although it provides getEntityManager method that can be overloaded by extensions to supply 
@@ -58,7 +60,6 @@ public class AsyncAuditLogReceiver implements MessageListener {
         this.entityManagerFactory = entityManagerFactory;
     }
     
-    @SuppressWarnings("unchecked")
     @Override
     public void onMessage(Message message) {
         if (message instanceof TextMessage) {
@@ -67,57 +68,76 @@ public class AsyncAuditLogReceiver implements MessageListener {
             try {
                 String messageContent = textMessage.getText();
                 Integer eventType = textMessage.getIntProperty("EventType");
-                XStream xstram = new XStream();
-                Object event = xstram.fromXML(messageContent);
+                Object event = AuditLogMessageCodec.fromXML(messageContent);
                 
-                switch (eventType) {
-                case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
-                    NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
-                    if (nodeAfterEnterEvent.getWorkItemId() != null) {
-                    List<NodeInstanceLog> result = em.createQuery(
-                            "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
-                            .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                            	NodeInstanceLog log = result.get(result.size() - 1);
-                               log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
-                               
-                               
-                               em.merge(log);   
-                           }
-                    }
-                    break;
+                processEvent(em, eventType, event);
+                em.flush();
+                em.close();
+            } catch (JMSException e) {
+                e.printStackTrace();
+                throw new RuntimeException("Exception when receiving audit event event", e);
+            }
+        } else if (message instanceof BytesMessage) {
+            EntityManager em = getEntityManager();
+            BytesMessage bytesMessage = (BytesMessage) message;
+            try {
+                byte[] content = new byte[(int) bytesMessage.getBodyLength()];
+                bytesMessage.readBytes(content);
                 
-                case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
-                    ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
-                    List<ProcessInstanceLog> result = em.createQuery(
-                            "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
-                            .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
-                            
-                            if (result != null && result.size() != 0) {
-                               ProcessInstanceLog log = result.get(result.size() - 1);
-                               log.setOutcome(processCompletedEvent.getOutcome());
-                               log.setStatus(processCompletedEvent.getStatus());
-                               log.setEnd(processCompletedEvent.getEnd());
-                               log.setDuration(processCompletedEvent.getDuration());
-                               
-                               em.merge(log);   
-                           }
-                    break;
-                default:
-                    em.persist(event);
-                    break;
+                for (AuditLogRecord record : AuditLogMessageCodec.decode(content)) {
+                    processEvent(em, record.getEventType(), record.getEvent());
                 }
                 em.flush();
                 em.close();
             } catch (JMSException e) {
-                e.printStackTrace();
                 throw new RuntimeException("Exception when receiving audit event event", e);
             }
         }
 
     }
 
+    @SuppressWarnings("unchecked")
+    protected void processEvent(EntityManager em, int eventType, Object event) {
+        switch (eventType) {
+        case AbstractAuditLogger.AFTER_NODE_ENTER_EVENT_TYPE:
+            NodeInstanceLog nodeAfterEnterEvent = (NodeInstanceLog) event;
+            if (nodeAfterEnterEvent.getWorkItemId() != null) {
+            List<NodeInstanceLog> result = em.createQuery(
+                    "from NodeInstanceLog as log where log.nodeInstanceId = :nodeId and log.type = 0")
+                    .setParameter("nodeId", nodeAfterEnterEvent.getNodeInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                    	NodeInstanceLog log = result.get(result.size() - 1);
+                       log.setWorkItemId(nodeAfterEnterEvent.getWorkItemId());
+                       
+                       
+                       em.merge(log);   
+                   }
+            }
+            break;
+        
+        case AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE:
+            ProcessInstanceLog processCompletedEvent = (ProcessInstanceLog) event;
+            List<ProcessInstanceLog> result = em.createQuery(
+                    "from ProcessInstanceLog as log where log.processInstanceId = :piId and log.end is null")
+                    .setParameter("piId", processCompletedEvent.getProcessInstanceId()).getResultList();
+                    
+                    if (result != null && result.size() != 0) {
+                       ProcessInstanceLog log = result.get(result.size() - 1);
+                       log.setOutcome(processCompletedEvent.getOutcome());
+                       log.setStatus(processCompletedEvent.getStatus());
+                       log.setEnd(processCompletedEvent.getEnd());
+                       log.setDuration(processCompletedEvent.getDuration());
+                       
+                       em.merge(log);   
+                   }
+            break;
+        default:
+            em.persist(event);
+            break;
+        }
+    }
+
     public EntityManagerFactory getEntityManagerFactory() {
         return entityManagerFactory;
     }
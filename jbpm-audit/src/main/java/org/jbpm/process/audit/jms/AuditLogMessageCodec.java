@@ -0,0 +1,274 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Encodes audit log events exchanged by <code>AsyncAuditLogProducer</code> and <code>AsyncAuditLogReceiver</code>.
+ * <br/>
+ * Events are sent either as Xstream serialized XML (one event per TextMessage) or in a compact binary
+ * format (one or more events per BytesMessage): a version byte and the number of events followed by the
+ * event type and the fields of each event. ProcessInstanceLog, NodeInstanceLog and VariableInstanceLog are
+ * written field by field, other events (e.g. produced by custom audit event builders) as Xstream serialized XML.
+ * <br/>
+ * All methods are thread safe.
+ */
+public class AuditLogMessageCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte XML_EVENT = 0;
+    private static final byte PROCESS_INSTANCE_EVENT = 1;
+    private static final byte NODE_INSTANCE_EVENT = 2;
+    private static final byte VARIABLE_INSTANCE_EVENT = 3;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Xstream is thread safe once configured so single instance is used for all events
+    private static final XStream xstream = new XStream();
+
+    public static String toXML(Object event) {
+        return xstream.toXML(event);
+    }
+
+    public static Object fromXML(String xml) {
+        return xstream.fromXML(xml);
+    }
+
+    public static byte[] encode(List<AuditLogRecord> records) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 * records.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeInt(records.size());
+            for (AuditLogRecord record : records) {
+                out.writeInt(record.getEventType());
+                writeEvent(out, record.getEvent());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode audit log events", e);
+        }
+    }
+
+    public static List<AuditLogRecord> decode(byte[] data) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported audit log message version " + version);
+            }
+            int size = in.readInt();
+            List<AuditLogRecord> records = new ArrayList<AuditLogRecord>(size);
+            for (int i = 0; i < size; i++) {
+                int eventType = in.readInt();
+                records.add(new AuditLogRecord(eventType, readEvent(in)));
+            }
+            return records;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to decode audit log events", e);
+        }
+    }
+
+    private static void writeEvent(DataOutputStream out, Object event) throws IOException {
+        if (event != null && event.getClass() == ProcessInstanceLog.class) {
+            ProcessInstanceLog log = (ProcessInstanceLog) event;
+            out.writeByte(PROCESS_INSTANCE_EVENT);
+            out.writeLong(log.getProcessInstanceId());
+            writeString(out, log.getProcessId());
+            writeDate(out, log.getStart());
+            writeDate(out, log.getEnd());
+            writeLong(out, log.getStatus() == null ? null : log.getStatus().longValue());
+            writeLong(out, log.getParentProcessInstanceId());
+            writeString(out, log.getOutcome());
+            writeLong(out, log.getDuration());
+            writeString(out, log.getIdentity());
+            writeString(out, log.getProcessVersion());
+            writeString(out, log.getProcessName());
+            writeString(out, log.getCorrelationKey());
+            writeString(out, log.getExternalId());
+            writeString(out, log.getProcessInstanceDescription());
+        } else if (event != null && event.getClass() == NodeInstanceLog.class) {
+            NodeInstanceLog log = (NodeInstanceLog) event;
+            out.writeByte(NODE_INSTANCE_EVENT);
+            out.writeInt(log.getType());
+            out.writeLong(log.getProcessInstanceId());
+            writeString(out, log.getProcessId());
+            writeDate(out, log.getDate());
+            writeString(out, log.getNodeInstanceId());
+            writeString(out, log.getNodeId());
+            writeString(out, log.getNodeName());
+            writeString(out, log.getNodeType());
+            writeLong(out, log.getWorkItemId());
+            writeString(out, log.getConnection());
+            writeString(out, log.getExternalId());
+        } else if (event != null && event.getClass() == VariableInstanceLog.class) {
+            VariableInstanceLog log = (VariableInstanceLog) event;
+            out.writeByte(VARIABLE_INSTANCE_EVENT);
+            out.writeLong(log.getProcessInstanceId());
+            writeString(out, log.getProcessId());
+            writeDate(out, log.getDate());
+            writeString(out, log.getVariableInstanceId());
+            writeString(out, log.getVariableId());
+            writeString(out, log.getValue());
+            writeString(out, log.getOldValue());
+            writeString(out, log.getExternalId());
+        } else {
+            out.writeByte(XML_EVENT);
+            writeString(out, toXML(event));
+        }
+    }
+
+    private static Object readEvent(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case PROCESS_INSTANCE_EVENT:
+            ProcessInstanceLog processInstanceLog = new ProcessInstanceLog();
+            processInstanceLog.setProcessInstanceId(in.readLong());
+            processInstanceLog.setProcessId(readString(in));
+            processInstanceLog.setStart(readDate(in));
+            processInstanceLog.setEnd(readDate(in));
+            Long status = readLong(in);
+            if (status != null) {
+                processInstanceLog.setStatus(status.intValue());
+            }
+            Long parentProcessInstanceId = readLong(in);
+            if (parentProcessInstanceId != null) {
+                processInstanceLog.setParentProcessInstanceId(parentProcessInstanceId);
+            }
+            processInstanceLog.setOutcome(readString(in));
+            processInstanceLog.setDuration(readLong(in));
+            processInstanceLog.setIdentity(readString(in));
+            processInstanceLog.setProcessVersion(readString(in));
+            processInstanceLog.setProcessName(readString(in));
+            processInstanceLog.setCorrelationKey(readString(in));
+            processInstanceLog.setExternalId(readString(in));
+            processInstanceLog.setProcessInstanceDescription(readString(in));
+            return processInstanceLog;
+        case NODE_INSTANCE_EVENT:
+            NodeInstanceLog nodeInstanceLog = new NodeInstanceLog();
+            nodeInstanceLog.setType(in.readInt());
+            nodeInstanceLog.setProcessInstanceId(in.readLong());
+            nodeInstanceLog.setProcessId(readString(in));
+            nodeInstanceLog.setDate(readDate(in));
+            nodeInstanceLog.setNodeInstanceId(readString(in));
+            nodeInstanceLog.setNodeId(readString(in));
+            nodeInstanceLog.setNodeName(readString(in));
+            nodeInstanceLog.setNodeType(readString(in));
+            nodeInstanceLog.setWorkItemId(readLong(in));
+            nodeInstanceLog.setConnection(readString(in));
+            nodeInstanceLog.setExternalId(readString(in));
+            return nodeInstanceLog;
+        case VARIABLE_INSTANCE_EVENT:
+            VariableInstanceLog variableInstanceLog = new VariableInstanceLog();
+            variableInstanceLog.setProcessInstanceId(in.readLong());
+            variableInstanceLog.setProcessId(readString(in));
+            variableInstanceLog.setDate(readDate(in));
+            variableInstanceLog.setVariableInstanceId(readString(in));
+            variableInstanceLog.setVariableId(readString(in));
+            variableInstanceLog.setValue(readString(in));
+            variableInstanceLog.setOldValue(readString(in));
+            variableInstanceLog.setExternalId(readString(in));
+            return variableInstanceLog;
+        case XML_EVENT:
+            return fromXML(readString(in));
+        default:
+            throw new IllegalArgumentException("Unknown audit log event kind " + kind);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readLong();
+        }
+        return null;
+    }
+
+    private static void writeDate(DataOutputStream out, Date value) throws IOException {
+        writeLong(out, value == null ? null : value.getTime());
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        Long time = readLong(in);
+        return time == null ? null : new Date(time);
+    }
+
+    /**
+     * Audit log event together with its type (one of the event type constants of <code>AbstractAuditLogger</code>).
+     */
+    public static class AuditLogRecord {
+
+        private final int eventType;
+        private final Object event;
+
+        public AuditLogRecord(int eventType, Object event) {
+            this.eventType = eventType;
+            this.event = event;
+        }
+
+        public int getEventType() {
+            return eventType;
+        }
+
+        public Object getEvent() {
+            return event;
+        }
+    }
+}
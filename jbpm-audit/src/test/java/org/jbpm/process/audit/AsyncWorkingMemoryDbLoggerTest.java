@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit;
+
+import static org.jbpm.persistence.util.PersistenceUtil.createEnvironment;
+import static org.jbpm.process.audit.AbstractAuditLogServiceTest.createKieSession;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.naming.InitialContext;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.transaction.UserTransaction;
+
+import org.jbpm.process.instance.impl.demo.SystemOutWorkItemHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessInstance;
+
+/**
+ * This class tests the following classes:
+ * <ul>
+ * <li>JPAWorkingMemoryDbLogger with AsyncAuditLogWriter</li>
+ * </ul>
+ */
+public class AsyncWorkingMemoryDbLoggerTest extends AbstractWorkingMemoryDbLoggerTest {
+
+    private KieSession ksession = null;
+
+    private EntityManagerFactory emf;
+    private AsyncAuditLogWriter asyncWriter;
+    // small buffer so loggers are blocked by the writer
+    private int bufferSize = 5;
+
+    @Before
+    public void beforeThis() {
+        emf = Persistence.createEntityManagerFactory("org.jbpm.logging.jta");
+        logService = new JPAAuditLogService(emf);
+    }
+
+    @After
+    public void afterThis() {
+        if (asyncWriter != null) {
+            asyncWriter.close();
+        }
+        if( emf != null && emf.isOpen() ) {
+            emf.close();
+        }
+        emf = null;
+    }
+
+    @Override
+    public ProcessInstance startProcess(String processName) {
+        if( ksession == null ) {
+            KieBase kbase = createKnowledgeBase();
+
+            Environment env = createEnvironment(context);
+            ksession = createKieSession(kbase, env);
+
+            asyncWriter = new AsyncAuditLogWriter(emf, true, bufferSize, 3, 100);
+            JPAWorkingMemoryDbLogger dbLogger = new JPAWorkingMemoryDbLogger(emf);
+            dbLogger.setAsyncWriter(asyncWriter);
+            ksession.addEventListener(dbLogger);
+            ksession.getWorkItemManager().registerWorkItemHandler("Human Task", new SystemOutWorkItemHandler());
+        }
+        ProcessInstance processInstance = ksession.startProcess(processName);
+        asyncWriter.flush();
+        return processInstance;
+    }
+
+    @Test
+    public void testRecordsWrittenInOrder() {
+        bufferSize = 1;
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            processInstanceIds.add(startProcess("com.sample.ruleflow").getId());
+        }
+        assertEquals(0, asyncWriter.getBufferedRecords());
+
+        for (Long processInstanceId : processInstanceIds) {
+            ProcessInstanceLog processInstance = logService.findProcessInstance(processInstanceId);
+            assertNotNull(processInstance.getEnd());
+            assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getStatus().intValue());
+
+            List<NodeInstanceLog> nodeInstances = logService.findNodeInstances(processInstanceId);
+            assertEquals(6, nodeInstances.size());
+            // records are inserted in the order they were logged
+            long lastId = 0;
+            for (NodeInstanceLog nodeInstance : nodeInstances) {
+                assertTrue(nodeInstance.getId() > lastId);
+                lastId = nodeInstance.getId();
+            }
+            assertEquals(NodeInstanceLog.TYPE_ENTER, nodeInstances.get(0).getType().intValue());
+            assertEquals(NodeInstanceLog.TYPE_EXIT, nodeInstances.get(nodeInstances.size() - 1).getType().intValue());
+        }
+        logService.clear();
+    }
+
+    @Test
+    public void testRecordsDiscardedOnRollback() throws Exception {
+        long committed = startProcess("com.sample.ruleflow").getId();
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        long rolledBack = ksession.startProcess("com.sample.ruleflow").getId();
+        ut.rollback();
+        asyncWriter.flush();
+
+        assertNotNull(logService.findProcessInstance(committed));
+        assertNull(logService.findProcessInstance(rolledBack));
+        assertEquals(1, logService.findProcessInstances("com.sample.ruleflow").size());
+        logService.clear();
+    }
+
+    @Test
+    public void testFailedBatchWrittenOneByOne() {
+        asyncWriter = new AsyncAuditLogWriter(emf, true, 10, 10, 100);
+        ProcessInstanceLog first = new ProcessInstanceLog(1001, "org.jbpm.async.first");
+        ProcessInstanceLog second = new ProcessInstanceLog(1002, "org.jbpm.async.second");
+        List<AsyncAuditLogWriter.AuditLogOperation> operations = new ArrayList<AsyncAuditLogWriter.AuditLogOperation>();
+        operations.add(new AsyncAuditLogWriter.PersistLog(first));
+        operations.add(new AsyncAuditLogWriter.AuditLogOperation() {
+            @Override
+            protected void apply(EntityManager em) {
+                throw new IllegalStateException("failed on purpose");
+            }
+        });
+        operations.add(new AsyncAuditLogWriter.PersistLog(second));
+        // completion refers to the log persisted in the same (failing) batch
+        ProcessInstanceLog completed = new ProcessInstanceLog(1001, "org.jbpm.async.first");
+        completed.setStatus(ProcessInstance.STATE_COMPLETED);
+        completed.setEnd(new Date());
+        operations.add(new AsyncAuditLogWriter.CompleteProcessLog(first, completed));
+
+        asyncWriter.submit(operations);
+        asyncWriter.flush();
+
+        // records of the failed batch are written one by one, only the failing one is lost
+        ProcessInstanceLog firstLog = logService.findProcessInstance(1001);
+        assertNotNull(firstLog);
+        assertEquals(ProcessInstance.STATE_COMPLETED, firstLog.getStatus().intValue());
+        assertNotNull(firstLog.getEnd());
+        assertNotNull(logService.findProcessInstance(1002));
+        assertEquals(1, logService.findProcessInstances("org.jbpm.async.first").size());
+        logService.clear();
+    }
+}
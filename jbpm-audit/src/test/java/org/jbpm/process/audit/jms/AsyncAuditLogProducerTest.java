@@ -287,6 +287,123 @@ public class AsyncAuditLogProducerTest extends AbstractBaseTest {
         assertTrue(processInstances.isEmpty());
     }
     
+    @Test
+    public void testAsyncAuditLoggerCompletePooledBinaryBatched() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KnowledgeBase kbase = createKnowledgeBase();
+        // create a new session
+        StatefulKnowledgeSession session = createSession(kbase, env);
+
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", false);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        jmsProps.put("jbpm.audit.jms.pooled", true);
+        jmsProps.put("jbpm.audit.jms.binary", true);
+        jmsProps.put("jbpm.audit.jms.batched", true);
+        AbstractAuditLogger logger = AuditLoggerFactory.newJMSInstance(jmsProps);
+        assertNotNull(logger);
+        assertTrue((logger instanceof AsyncAuditLogProducer));
+        session.addEventListener(logger);
+
+        // start process instance
+        ProcessInstance processInstance = session.startProcess("com.sample.ruleflow");
+        ((AsyncAuditLogProducer) logger).close();
+
+        MessageReceiver receiver = new MessageReceiver();
+        receiver.receiveAndProcess(queue, ((EntityManagerFactory)env.get(EnvironmentName.ENTITY_MANAGER_FACTORY)));
+
+        // validate if everything is stored in db
+        AuditLogService logService = new JPAAuditLogService(env);
+        List<ProcessInstanceLog> processInstances = logService.findProcessInstances("com.sample.ruleflow");
+        assertEquals(1, processInstances.size());
+        assertNotNull(processInstances.get(0).getEnd());
+        List<NodeInstanceLog> nodeInstances = logService.findNodeInstances(processInstance.getId());
+        assertEquals(6, nodeInstances.size());
+        for (NodeInstanceLog nodeInstance: nodeInstances) {
+
+            assertEquals(processInstance.getId(), nodeInstance.getProcessInstanceId().longValue());
+            assertEquals("com.sample.ruleflow", nodeInstance.getProcessId());
+            assertNotNull(nodeInstance.getDate());
+        }
+        logService.clear();
+        processInstances = logService.findProcessInstances("com.sample.ruleflow");
+        logService.dispose();
+        assertTrue(processInstances.isEmpty());
+    }
+
+    @Test
+    public void testAsyncAuditProducerTransactionalBatched() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KnowledgeBase kbase = createKnowledgeBase();
+        // create a new session
+        StatefulKnowledgeSession session = createSession(kbase, env);
+
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        jmsProps.put("jbpm.audit.jms.batched", true);
+        AbstractAuditLogger logger = AuditLoggerFactory.newJMSInstance(jmsProps);
+        assertNotNull(logger);
+        assertTrue((logger instanceof AsyncAuditLogProducer));
+        session.addEventListener(logger);
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        session.startProcess("com.sample.ruleflow");
+        ut.commit();
+
+        // batch is sent once the transaction completed, the session must have been committed
+        MessageReceiver receiver = new MessageReceiver();
+        List<Message> messages = receiver.receive(queue);
+        assertNotNull(messages);
+        assertEquals(1, messages.size());
+        assertEquals(11, messages.get(0).getIntProperty("EventCount"));
+    }
+
+    @Test
+    public void testAsyncAuditProducerTransactionalPooled() throws Exception {
+        Environment env = createEnvironment(context);
+        // load the process
+        KnowledgeBase kbase = createKnowledgeBase();
+        // create a new session
+        StatefulKnowledgeSession session = createSession(kbase, env);
+
+        Map<String, Object> jmsProps = new HashMap<String, Object>();
+        jmsProps.put("jbpm.audit.jms.transacted", true);
+        jmsProps.put("jbpm.audit.jms.connection.factory", factory);
+        jmsProps.put("jbpm.audit.jms.queue", queue);
+        jmsProps.put("jbpm.audit.jms.pooled", true);
+        AbstractAuditLogger logger = AuditLoggerFactory.newJMSInstance(jmsProps);
+        assertNotNull(logger);
+        assertTrue((logger instanceof AsyncAuditLogProducer));
+        session.addEventListener(logger);
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        session.startProcess("com.sample.ruleflow");
+        ut.rollback();
+
+        // events of rolled back transaction are discarded
+        MessageReceiver receiver = new MessageReceiver();
+        List<Message> messages = receiver.receive(queue);
+        assertNotNull(messages);
+        assertEquals(0, messages.size());
+
+        ut.begin();
+        session.startProcess("com.sample.ruleflow");
+        ut.commit();
+        ((AsyncAuditLogProducer) logger).close();
+
+        // one message per event once the transaction is committed
+        messages = receiver.receive(queue);
+        assertNotNull(messages);
+        assertEquals(11, messages.size());
+    }
+
     @Test
     public void testAsyncAuditLoggerCompleteWithVariables() throws Exception {
         Environment env = createEnvironment(context);
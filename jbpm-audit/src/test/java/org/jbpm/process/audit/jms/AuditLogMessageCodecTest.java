@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.audit.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.jbpm.process.audit.AbstractAuditLogger;
+import org.jbpm.process.audit.NodeInstanceLog;
+import org.jbpm.process.audit.ProcessInstanceLog;
+import org.jbpm.process.audit.VariableInstanceLog;
+import org.jbpm.process.audit.jms.AuditLogMessageCodec.AuditLogRecord;
+import org.junit.Test;
+
+public class AuditLogMessageCodecTest {
+
+    @Test
+    public void testEncodeDecodeBatch() {
+        Date date = new Date();
+
+        ProcessInstanceLog processInstanceLog = new ProcessInstanceLog(1, "com.sample.ruleflow");
+        processInstanceLog.setStart(date);
+        processInstanceLog.setStatus(1);
+        processInstanceLog.setProcessName("ruleflow");
+        processInstanceLog.setProcessVersion("1.0");
+        processInstanceLog.setIdentity("john");
+        processInstanceLog.setExternalId("deployment");
+        processInstanceLog.setProcessInstanceDescription("description éè");
+
+        NodeInstanceLog nodeInstanceLog = new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 1, "com.sample.ruleflow", "2", "1", "Start");
+        nodeInstanceLog.setNodeType("StartNode");
+        nodeInstanceLog.setWorkItemId(10L);
+
+        VariableInstanceLog variableInstanceLog = new VariableInstanceLog(1, "com.sample.ruleflow", "x", "x", "new", null);
+
+        List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+        records.add(new AuditLogRecord(AbstractAuditLogger.BEFORE_START_EVENT_TYPE, processInstanceLog));
+        records.add(new AuditLogRecord(AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE, nodeInstanceLog));
+        records.add(new AuditLogRecord(AbstractAuditLogger.AFTER_VAR_CHANGE_EVENT_TYPE, variableInstanceLog));
+        // not one of the known log types so sent as XML
+        records.add(new AuditLogRecord(AbstractAuditLogger.AFTER_COMPLETE_EVENT_TYPE, "custom event"));
+
+        List<AuditLogRecord> decoded = AuditLogMessageCodec.decode(AuditLogMessageCodec.encode(records));
+        assertEquals(4, decoded.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).getEventType(), decoded.get(i).getEventType());
+        }
+
+        ProcessInstanceLog decodedProcessInstanceLog = (ProcessInstanceLog) decoded.get(0).getEvent();
+        assertEquals(1, decodedProcessInstanceLog.getProcessInstanceId().longValue());
+        assertEquals("com.sample.ruleflow", decodedProcessInstanceLog.getProcessId());
+        assertEquals(date, decodedProcessInstanceLog.getStart());
+        assertNull(decodedProcessInstanceLog.getEnd());
+        assertEquals(1, decodedProcessInstanceLog.getStatus().intValue());
+        assertEquals("ruleflow", decodedProcessInstanceLog.getProcessName());
+        assertEquals("1.0", decodedProcessInstanceLog.getProcessVersion());
+        assertEquals("john", decodedProcessInstanceLog.getIdentity());
+        assertEquals("deployment", decodedProcessInstanceLog.getExternalId());
+        assertEquals("description éè", decodedProcessInstanceLog.getProcessInstanceDescription());
+
+        NodeInstanceLog decodedNodeInstanceLog = (NodeInstanceLog) decoded.get(1).getEvent();
+        assertEquals(NodeInstanceLog.TYPE_ENTER, decodedNodeInstanceLog.getType().intValue());
+        assertEquals("2", decodedNodeInstanceLog.getNodeInstanceId());
+        assertEquals("1", decodedNodeInstanceLog.getNodeId());
+        assertEquals("Start", decodedNodeInstanceLog.getNodeName());
+        assertEquals("StartNode", decodedNodeInstanceLog.getNodeType());
+        assertEquals(10L, decodedNodeInstanceLog.getWorkItemId().longValue());
+        assertNull(decodedNodeInstanceLog.getConnection());
+
+        VariableInstanceLog decodedVariableInstanceLog = (VariableInstanceLog) decoded.get(2).getEvent();
+        assertEquals("x", decodedVariableInstanceLog.getVariableId());
+        assertEquals("new", decodedVariableInstanceLog.getValue());
+        assertNull(decodedVariableInstanceLog.getOldValue());
+
+        assertEquals("custom event", decoded.get(3).getEvent());
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanXML() {
+        NodeInstanceLog nodeInstanceLog = new NodeInstanceLog(NodeInstanceLog.TYPE_ENTER, 1, "com.sample.ruleflow", "2", "1", "Start");
+        List<AuditLogRecord> records = new ArrayList<AuditLogRecord>();
+        records.add(new AuditLogRecord(AbstractAuditLogger.BEFORE_NODE_ENTER_EVENT_TYPE, nodeInstanceLog));
+
+        assertTrue(AuditLogMessageCodec.encode(records).length < AuditLogMessageCodec.toXML(nodeInstanceLog).length());
+    }
+}
@@ -17,6 +17,7 @@
 package org.jbpm.bpmn2.xml;
 
 import java.util.List;
+import java.util.Map;
 
 import org.drools.core.xml.ExtensibleXmlParser;
 import org.jbpm.bpmn2.core.SequenceFlow;
@@ -67,8 +68,9 @@ public class AdHocSubProcessHandler extends CompositeContextNodeHandler {
         }
     	List<SequenceFlow> connections = (List<SequenceFlow>)
 			dynamicNode.getMetaData(ProcessHandler.CONNECTIONS);
-    	ProcessHandler.linkConnections(dynamicNode, connections);
-    	ProcessHandler.linkBoundaryEvents(dynamicNode);
+    	Map<String, org.kie.api.definition.process.Node> nodes = ProcessHandler.indexNodesByUniqueId(dynamicNode);
+    	ProcessHandler.linkConnections(dynamicNode, connections, nodes);
+    	ProcessHandler.linkBoundaryEvents(dynamicNode, nodes);
     	
         handleScript(dynamicNode, element, "onEntry");
         handleScript(dynamicNode, element, "onExit");
@@ -176,18 +176,19 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 		parser.endElementBuilder();
 		
 		RuleFlowProcess process = (RuleFlowProcess) parser.getCurrent();
+		Map<String, Node> nodes = indexNodesByUniqueId(process);
 		 List<IntermediateLink> throwLinks = (List<IntermediateLink>) process
          .getMetaData(LINKS);
-        linkIntermediateLinks(process, throwLinks);
+        linkIntermediateLinks(process, throwLinks, nodes);
 
  		List<SequenceFlow> connections = (List<SequenceFlow>) process.getMetaData(CONNECTIONS);
- 		linkConnections(process, connections);
-		linkBoundaryEvents(process);
+ 		linkConnections(process, connections, nodes);
+		linkBoundaryEvents(process, nodes);
 		
         // This must be done *after* linkConnections(process, connections)
 		//  because it adds hidden connections for compensations
  		List<Association> associations = (List<Association>) process.getMetaData(ASSOCIATIONS);
-		linkAssociations((Definitions) process.getMetaData("Definitions"), process, associations);
+		linkAssociations((Definitions) process.getMetaData("Definitions"), process, associations, nodes);
 		
         List<Lane> lanes = (List<Lane>)
             process.getMetaData(LaneHandler.LANES);
@@ -196,8 +197,33 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 		return process;
 	}
 	
+	 /**
+	  * Returns nodes of given container by their "UniqueId" (in metadata). Linking passes look nodes up in it
+	  * instead of scanning all nodes of the container for every connection, link, association or boundary event,
+	  * so it should be created once per container and shared by the passes (they do not add nodes).
+	  */
+	 public static Map<String, Node> indexNodesByUniqueId(NodeContainer nodeContainer) {
+	     Node[] containerNodes = nodeContainer.getNodes();
+	     Map<String, Node> nodes = new HashMap<String, Node>(containerNodes.length * 2);
+	     for (Node containerNode : containerNodes) {
+	         Object uniqueId = containerNode.getMetaData().get("UniqueId");
+	         // keep the first node found when unique ids are duplicated, same as lookup by scanning did
+	         if (uniqueId instanceof String && !nodes.containsKey(uniqueId)) {
+	             nodes.put((String) uniqueId, containerNode);
+	         }
+	     }
+	     return nodes;
+	 }
+
 	 public static void linkIntermediateLinks(NodeContainer process,
 	            List<IntermediateLink> links) {
+	     if (links != null) {
+	         linkIntermediateLinks(process, links, indexNodesByUniqueId(process));
+	     }
+	 }
+
+	 public static void linkIntermediateLinks(NodeContainer process,
+	            List<IntermediateLink> links, Map<String, Node> nodes) {
 
 	        if (null != links) {
 
@@ -227,13 +253,13 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 	                linksWithSharedNames.remove(throwLink);
 
 	                // Make the connections
-	                Node t = findNodeByIdOrUniqueIdInMetadata(process,
+	                Node t = findNodeByIdOrUniqueIdInMetadata(nodes,
 	                        throwLink.getUniqueId());
 
 	                // connect throw to catch
 	                for (IntermediateLink catchLink : linksWithSharedNames) {
 
-	                    Node c = findNodeByIdOrUniqueIdInMetadata(process,
+	                    Node c = findNodeByIdOrUniqueIdInMetadata(nodes,
 	                            catchLink.getUniqueId());
 	                    if (t != null && c != null) {
 	                        Connection result = new ConnectionImpl(t,
@@ -256,7 +282,7 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 	        }
 	 }
 
-	 private static Object findNodeOrDataStoreByUniqueId(Definitions definitions, NodeContainer nodeContainer, final String nodeRef, String errorMsg) { 
+	 private static Object findNodeOrDataStoreByUniqueId(Definitions definitions, Map<String, Node> nodes, final String nodeRef, String errorMsg) { 
 	     if( definitions !=  null ) { 
 	         List<DataStore> dataStores = definitions.getDataStores();
 	         if( dataStores != null ) { 
@@ -267,23 +293,17 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 	             }
 	         }
 	     }
-	     return findNodeByIdOrUniqueIdInMetadata(nodeContainer, nodeRef, errorMsg);
+	     return findNodeByIdOrUniqueIdInMetadata(nodes, nodeRef, errorMsg);
      } 
 	 
 	 private static Node findNodeByIdOrUniqueIdInMetadata(
-	         NodeContainer nodeContainer, String targetRef) {
-	     return findNodeByIdOrUniqueIdInMetadata(nodeContainer, targetRef, "Could not find target node for connection:" + targetRef);
+	         Map<String, Node> nodes, String targetRef) {
+	     return findNodeByIdOrUniqueIdInMetadata(nodes, targetRef, "Could not find target node for connection:" + targetRef);
 	 }
 
-	 private static Node findNodeByIdOrUniqueIdInMetadata(NodeContainer nodeContainer, final String nodeRef, String errorMsg) { 
-	     Node node = null;
-	     // try looking for a node with same "UniqueId" (in metadata)
-	     for (Node containerNode: nodeContainer.getNodes()) {
-	         if (nodeRef.equals(containerNode.getMetaData().get("UniqueId"))) {
-	             node = containerNode;
-	             break;
-	         }
-	     }
+	 private static Node findNodeByIdOrUniqueIdInMetadata(Map<String, Node> nodes, final String nodeRef, String errorMsg) { 
+	     // look for a node with same "UniqueId" (in metadata)
+	     Node node = nodeRef == null ? null : nodes.get(nodeRef);
 	     if (node == null) {
 	         throw new IllegalArgumentException(errorMsg);
 	     }
@@ -295,10 +315,16 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 	}
 	
 	public static void linkConnections(NodeContainer nodeContainer, List<SequenceFlow> connections) {
+		if (connections != null) {
+			linkConnections(nodeContainer, connections, indexNodesByUniqueId(nodeContainer));
+		}
+	}
+
+	public static void linkConnections(NodeContainer nodeContainer, List<SequenceFlow> connections, Map<String, Node> nodes) {
 		if (connections != null) {
 			for (SequenceFlow connection: connections) {
 				String sourceRef = connection.getSourceRef();
-                Node source = findNodeByIdOrUniqueIdInMetadata(nodeContainer, sourceRef, "Could not find source node for connection:" + sourceRef);
+                Node source = findNodeByIdOrUniqueIdInMetadata(nodes, sourceRef, "Could not find source node for connection:" + sourceRef);
                 
                 if (source instanceof EventNode) {
                     for (EventFilter eventFilter : ((EventNode) source).getEventFilters()) {
@@ -314,7 +340,7 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
                 }
                 
                 String targetRef = connection.getTargetRef();
-                Node target = findNodeByIdOrUniqueIdInMetadata(nodeContainer, targetRef, "Could not find target node for connection:" + targetRef);
+                Node target = findNodeByIdOrUniqueIdInMetadata(nodes, targetRef, "Could not find target node for connection:" + targetRef);
 
 				
 				Connection result = new ConnectionImpl(
@@ -344,13 +370,17 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
 
 	   
     public static void linkBoundaryEvents(NodeContainer nodeContainer) {
+        linkBoundaryEvents(nodeContainer, indexNodesByUniqueId(nodeContainer));
+    }
+
+    public static void linkBoundaryEvents(NodeContainer nodeContainer, Map<String, Node> nodes) {
         for (Node node: nodeContainer.getNodes()) {
             if (node instanceof EventNode) {
                 final String attachedTo = (String) node.getMetaData().get("AttachedTo");
                 if (attachedTo != null) {
                     for( EventFilter filter : ((EventNode) node).getEventFilters() ) {
                         String type = ((EventTypeFilter) filter).getType();
-                        Node attachedNode = findNodeByIdOrUniqueIdInMetadata(nodeContainer, attachedTo, "Could not find node to attach to: " + attachedTo);
+                        Node attachedNode = findNodeByIdOrUniqueIdInMetadata(nodes, attachedTo, "Could not find node to attach to: " + attachedTo);
 
                         // 
                         if (!(attachedNode instanceof StateBasedNode) && !type.equals("Compensation")) {
@@ -544,12 +574,18 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
     }
     
     public static void linkAssociations(Definitions definitions, NodeContainer nodeContainer, List<Association> associations) {
+        if( associations != null ) { 
+            linkAssociations(definitions, nodeContainer, associations, indexNodesByUniqueId(nodeContainer));
+        }
+    }
+
+    public static void linkAssociations(Definitions definitions, NodeContainer nodeContainer, List<Association> associations, Map<String, Node> nodes) {
         if( associations != null ) { 
             for( Association association : associations ) { 
                String sourceRef = association.getSourceRef();
                Object source = null;
                try {
-            	   source = findNodeOrDataStoreByUniqueId(definitions, nodeContainer, sourceRef,
+            	   source = findNodeOrDataStoreByUniqueId(definitions, nodes, sourceRef,
                        "Could not find source [" + sourceRef + "] for association " + association.getId() + "]" );
                } catch (IllegalArgumentException e) {
             	   // source not found
@@ -557,7 +593,7 @@ public class ProcessHandler extends BaseAbstractHandler implements Handler {
                String targetRef = association.getTargetRef();
                Object target = null;
                try {
-            	   target = findNodeOrDataStoreByUniqueId(definitions, nodeContainer, targetRef, 
+            	   target = findNodeOrDataStoreByUniqueId(definitions, nodes, targetRef, 
                        "Could not find target [" + targetRef + "] for association [" + association.getId() + "]" );
                } catch (IllegalArgumentException e) {
             	   // target not found
@@ -17,6 +17,7 @@
 package org.jbpm.bpmn2.xml;
 
 import java.util.List;
+import java.util.Map;
 
 import org.drools.core.xml.ExtensibleXmlParser;
 import org.jbpm.bpmn2.core.Association;
@@ -120,16 +121,17 @@ public class SubProcessHandler extends AbstractNodeHandler {
     	handleScript(compositeNode, element, "onEntry");
         handleScript(compositeNode, element, "onExit");
     	
+    	Map<String, org.kie.api.definition.process.Node> nodes = ProcessHandler.indexNodesByUniqueId(compositeNode);
     	List<IntermediateLink> throwLinks = (List<IntermediateLink>) compositeNode.getMetaData(ProcessHandler.LINKS);
-    	ProcessHandler.linkIntermediateLinks(compositeNode, throwLinks);	
+    	ProcessHandler.linkIntermediateLinks(compositeNode, throwLinks, nodes);	
     	
-    	ProcessHandler.linkConnections(compositeNode, connections);
-    	ProcessHandler.linkBoundaryEvents(compositeNode);
+    	ProcessHandler.linkConnections(compositeNode, connections, nodes);
+    	ProcessHandler.linkBoundaryEvents(compositeNode, nodes);
     	
         // This must be done *after* linkConnections(process, connections)
         //  because it adds hidden connections for compensations
         List<Association> associations = (List<Association>) compositeNode.getMetaData(ProcessHandler.ASSOCIATIONS);
-        ProcessHandler.linkAssociations((Definitions) compositeNode.getMetaData("Definitions"), compositeNode, associations);
+        ProcessHandler.linkAssociations((Definitions) compositeNode.getMetaData("Definitions"), compositeNode, associations, nodes);
         
         // TODO: do we fully support interruping ESP's? 
         /** 
@@ -168,14 +170,15 @@ public class SubProcessHandler extends AbstractNodeHandler {
         
     	List<SequenceFlow> connections = (List<SequenceFlow>)
 			forEachNode.getMetaData(ProcessHandler.CONNECTIONS);
-    	ProcessHandler.linkConnections(forEachNode, connections);
-    	ProcessHandler.linkBoundaryEvents(forEachNode);
+    	Map<String, org.kie.api.definition.process.Node> nodes = ProcessHandler.indexNodesByUniqueId(forEachNode);
+    	ProcessHandler.linkConnections(forEachNode, connections, nodes);
+    	ProcessHandler.linkBoundaryEvents(forEachNode, nodes);
     
     	
         // This must be done *after* linkConnections(process, connections)
         //  because it adds hidden connections for compensations
         List<Association> associations = (List<Association>) forEachNode.getMetaData(ProcessHandler.ASSOCIATIONS);
-        ProcessHandler.linkAssociations((Definitions) forEachNode.getMetaData("Definitions"), forEachNode, associations);
+        ProcessHandler.linkAssociations((Definitions) forEachNode.getMetaData("Definitions"), forEachNode, associations, nodes);
         applyAsync(node, isAsync);
     }  
     
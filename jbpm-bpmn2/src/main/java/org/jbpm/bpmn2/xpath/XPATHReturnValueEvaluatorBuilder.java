@@ -42,6 +42,8 @@ public class XPATHReturnValueEvaluatorBuilder
         try {
             XPATHReturnValueEvaluator expr = new XPATHReturnValueEvaluator( text,
                                                                           null );
+            // compile up front, invalid expressions are reported as build errors
+            expr.compile();
 
             constraintNode.setEvaluator( expr );
             
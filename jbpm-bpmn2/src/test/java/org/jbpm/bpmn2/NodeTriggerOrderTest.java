@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.bpmn2.objects.TestWorkItemHandler;
+import org.jbpm.process.instance.impl.demo.DoNothingWorkItemHandler;
+import org.jbpm.workflow.instance.impl.NodeTriggerQueue;
+import org.junit.After;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.event.process.DefaultProcessEventListener;
+import org.kie.api.event.process.ProcessNodeLeftEvent;
+import org.kie.api.event.process.ProcessNodeTriggeredEvent;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.WorkItem;
+
+/**
+ * Verifies process event listeners see the same order of node events whether
+ * node instances are triggered recursively or through the node trigger queue.
+ */
+public class NodeTriggerOrderTest extends JbpmBpmn2TestCase {
+
+    public NodeTriggerOrderTest() {
+        super(false);
+    }
+
+    @After
+    public void disableQueue() {
+        NodeTriggerQueue.setEnabled(false);
+    }
+
+    @Test
+    public void testSignalBoundaryEventOrder() throws Exception {
+        assertSameOrder(runSignalBoundaryEvent(false), runSignalBoundaryEvent(true));
+    }
+
+    @Test
+    public void testErrorBoundaryEventOrder() throws Exception {
+        assertSameOrder(runErrorBoundaryEvent(false), runErrorBoundaryEvent(true));
+    }
+
+    @Test
+    public void testJoinOrder() throws Exception {
+        assertSameOrder(runInclusiveSplitAndJoin(false), runInclusiveSplitAndJoin(true));
+    }
+
+    private List<String> runSignalBoundaryEvent(boolean queued) throws Exception {
+        NodeTriggerQueue.setEnabled(queued);
+        KieBase kbase = createKnowledgeBase("BPMN2-SignalBoundaryEventInterrupting.bpmn2");
+        ksession = createKnowledgeSession(kbase);
+        List<String> events = recordEvents();
+        ksession.getWorkItemManager().registerWorkItemHandler("MyTask", new DoNothingWorkItemHandler());
+
+        ProcessInstance processInstance = ksession.startProcess("SignalBoundaryEvent");
+        assertProcessInstanceActive(processInstance);
+        ksession.signalEvent("MyMessage", null);
+        assertProcessInstanceFinished(processInstance, ksession);
+        ksession.dispose();
+        return events;
+    }
+
+    private List<String> runErrorBoundaryEvent(boolean queued) throws Exception {
+        NodeTriggerQueue.setEnabled(queued);
+        KieBase kbase = createKnowledgeBase("BPMN2-ErrorBoundaryEventOnTask.bpmn2");
+        ksession = createKnowledgeSession(kbase);
+        List<String> events = recordEvents();
+        TestWorkItemHandler handler = new TestWorkItemHandler();
+        ksession.getWorkItemManager().registerWorkItemHandler("Human Task", handler);
+
+        ProcessInstance processInstance = ksession.startProcess("BPMN2-ErrorBoundaryEventOnTask");
+        List<WorkItem> workItems = handler.getWorkItems();
+        assertEquals(2, workItems.size());
+        WorkItem workItem = workItems.get(0);
+        if (!"john".equalsIgnoreCase((String) workItem.getParameter("ActorId"))) {
+            workItem = workItems.get(1);
+        }
+        ksession.getWorkItemManager().completeWorkItem(workItem.getId(), null);
+        assertProcessInstanceAborted(processInstance);
+        ksession.dispose();
+        return events;
+    }
+
+    private List<String> runInclusiveSplitAndJoin(boolean queued) throws Exception {
+        NodeTriggerQueue.setEnabled(queued);
+        KieBase kbase = createKnowledgeBase("BPMN2-InclusiveSplitAndJoin.bpmn2");
+        ksession = createKnowledgeSession(kbase);
+        List<String> events = recordEvents();
+        TestWorkItemHandler handler = new TestWorkItemHandler();
+        ksession.getWorkItemManager().registerWorkItemHandler("Human Task", handler);
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("x", 15);
+        ProcessInstance processInstance = ksession.startProcess("com.sample.test", params);
+        List<WorkItem> workItems = handler.getWorkItems();
+        assertEquals(2, workItems.size());
+        for (WorkItem workItem : workItems) {
+            ksession.getWorkItemManager().completeWorkItem(workItem.getId(), null);
+        }
+        assertProcessInstanceFinished(processInstance, ksession);
+        ksession.dispose();
+        return events;
+    }
+
+    private List<String> recordEvents() {
+        final List<String> events = new ArrayList<String>();
+        ksession.addEventListener(new DefaultProcessEventListener() {
+            @Override
+            public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
+                events.add("beforeNodeTriggered " + event.getNodeInstance().getNodeName());
+            }
+            @Override
+            public void afterNodeTriggered(ProcessNodeTriggeredEvent event) {
+                events.add("afterNodeTriggered " + event.getNodeInstance().getNodeName());
+            }
+            @Override
+            public void beforeNodeLeft(ProcessNodeLeftEvent event) {
+                events.add("beforeNodeLeft " + event.getNodeInstance().getNodeName());
+            }
+            @Override
+            public void afterNodeLeft(ProcessNodeLeftEvent event) {
+                events.add("afterNodeLeft " + event.getNodeInstance().getNodeName());
+            }
+        });
+        return events;
+    }
+
+    private void assertSameOrder(List<String> recursive, List<String> queued) {
+        assertFalse(recursive.isEmpty());
+        assertEquals(recursive, queued);
+    }
+}
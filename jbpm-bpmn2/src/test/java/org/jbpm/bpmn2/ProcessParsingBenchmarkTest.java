@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.drools.core.xml.SemanticModules;
+import org.jbpm.bpmn2.xml.BPMNDISemanticModule;
+import org.jbpm.bpmn2.xml.BPMNExtensionsSemanticModule;
+import org.jbpm.bpmn2.xml.BPMNSemanticModule;
+import org.jbpm.bpmn2.xml.XmlBPMNProcessDumper;
+import org.jbpm.compiler.xml.XmlProcessReader;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.ruleflow.core.RuleFlowProcessFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.definition.process.Process;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures parsing time of generated processes with growing number of nodes.
+ */
+public class ProcessParsingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessParsingBenchmarkTest.class);
+
+    private static final int WARMUP = 5;
+
+    @Test
+    @Ignore("benchmark, run manually")
+    public void testParseProcesses() throws Exception {
+        benchmark(100);
+        benchmark(1000);
+        benchmark(10000);
+    }
+
+    private void benchmark(int nodes) throws Exception {
+        String xml = generateProcess(nodes);
+        SemanticModules modules = new SemanticModules();
+        modules.addSemanticModule(new BPMNSemanticModule());
+        modules.addSemanticModule(new BPMNExtensionsSemanticModule());
+        modules.addSemanticModule(new BPMNDISemanticModule());
+
+        for (int i = 0; i < WARMUP; i++) {
+            parse(modules, xml, nodes);
+        }
+        int iterations = Math.max(100000 / nodes, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parse(modules, xml, nodes);
+        }
+        long duration = System.nanoTime() - start;
+        logger.info("{} nodes: {} processes parsed in {} ms, {} us per process",
+                nodes, iterations, duration / 1000000, duration / 1000 / iterations);
+    }
+
+    private void parse(SemanticModules modules, String xml, int nodes) throws Exception {
+        XmlProcessReader processReader = new XmlProcessReader(modules, getClass().getClassLoader());
+        List<Process> processes = processReader.read(new StringReader(xml));
+        assertEquals(1, processes.size());
+        assertEquals(nodes, ((RuleFlowProcess) processes.get(0)).getNodes().length);
+    }
+
+    /**
+     * Generates a process with a start node, script tasks and an end node connected in sequence.
+     */
+    private String generateProcess(int nodes) {
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess("org.jbpm.benchmark.parsing");
+        factory.name("Parsing " + nodes).packageName("org.jbpm");
+        factory.startNode(1).name("Start").done();
+        for (int i = 2; i < nodes; i++) {
+            factory.actionNode(i).name("Script " + i).action("java", "System.out.println(\"" + i + "\");").done();
+        }
+        factory.endNode(nodes).name("End").done();
+        for (int i = 1; i < nodes; i++) {
+            factory.connection(i, i + 1);
+        }
+        // process is not validated, validation is not part of parsing
+        return XmlBPMNProcessDumper.INSTANCE.dump(factory.getProcess());
+    }
+}
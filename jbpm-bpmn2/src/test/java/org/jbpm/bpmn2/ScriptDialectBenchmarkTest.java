@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.drools.core.process.core.datatype.impl.type.StringDataType;
+import org.jbpm.bpmn2.xml.XmlBPMNProcessDumper;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.ruleflow.core.RuleFlowProcessFactory;
+import org.jbpm.workflow.instance.WorkflowProcessInstance;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.Resource;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.runtime.StatefulKnowledgeSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares execution time of script tasks written in the supported dialects.
+ */
+public class ScriptDialectBenchmarkTest extends JbpmBpmn2TestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScriptDialectBenchmarkTest.class);
+
+    private static final int WARMUP = 1000;
+    private static final int ITERATIONS = 10000;
+
+    public ScriptDialectBenchmarkTest() {
+        super(false);
+    }
+
+    @Test
+    @Ignore("benchmark, run manually")
+    public void testScriptDialects() throws Exception {
+        benchmark("java", "kcontext.setVariable(\"y\", kcontext.getVariable(\"x\") + \"!\");");
+        benchmark("mvel", "kcontext.setVariable(\"y\", kcontext.getVariable(\"x\") + \"!\");");
+        benchmark("JavaScript", "kcontext.setVariable('y', x + '!');");
+    }
+
+    private void benchmark(String dialect, String script) throws Exception {
+        String processId = "org.jbpm.benchmark." + dialect;
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess(processId);
+        factory
+            // header
+            .name("Script " + dialect).packageName("org.jbpm")
+            .variable("x", new StringDataType())
+            .variable("y", new StringDataType())
+            // nodes
+            .startNode(1).name("Start").done()
+            .actionNode(2).name("Script").action(dialect, script).done()
+            .endNode(3).name("End").done()
+            // connections
+            .connection(1, 2)
+            .connection(2, 3);
+        RuleFlowProcess process = factory.validate().getProcess();
+        Resource res = ResourceFactory.newByteArrayResource(XmlBPMNProcessDumper.INSTANCE.dump(process).getBytes());
+        res.setSourcePath("/tmp/" + processId + ".bpmn2");
+        KieBase kbase = createKnowledgeBaseFromResources(res);
+        StatefulKnowledgeSession ksession = createKnowledgeSession(kbase);
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("x", "value");
+        for (int i = 0; i < WARMUP; i++) {
+            ksession.startProcess(processId, params);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.startProcess(processId, params);
+            assertEquals("value!", processInstance.getVariable("y"));
+        }
+        long duration = System.nanoTime() - start;
+        logger.info("{} script task: {} process instances in {} ms, {} us per instance",
+                dialect, ITERATIONS, duration / 1000000, duration / 1000 / ITERATIONS);
+        ksession.dispose();
+    }
+}
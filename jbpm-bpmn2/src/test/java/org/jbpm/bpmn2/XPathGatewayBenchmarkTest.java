@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.api.runtime.process.WorkItem;
+import org.kie.api.runtime.process.WorkItemHandler;
+import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.internal.runtime.StatefulKnowledgeSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Measures execution time of exclusive gateways with XPath conditions.
+ */
+public class XPathGatewayBenchmarkTest extends JbpmBpmn2TestCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(XPathGatewayBenchmarkTest.class);
+
+    private static final int WARMUP = 1000;
+    private static final int ITERATIONS = 10000;
+
+    public XPathGatewayBenchmarkTest() {
+        super(false);
+    }
+
+    @Test
+    @Ignore("benchmark, run manually")
+    public void testExclusiveSplitXPathVariables() throws Exception {
+        benchmark("BPMN2-ExclusiveSplitXPath-advanced-with-vars.bpmn2");
+    }
+
+    @Test
+    @Ignore("benchmark, run manually")
+    public void testExclusiveSplitXPathFunctions() throws Exception {
+        benchmark("BPMN2-ExclusiveSplitXPath-advanced.bpmn2");
+    }
+
+    private void benchmark(String resource) throws Exception {
+        KieBase kbase = createKnowledgeBase(resource);
+        StatefulKnowledgeSession ksession = createKnowledgeSession(kbase);
+        ksession.getWorkItemManager().registerWorkItemHandler("Email", new CompletingWorkItemHandler());
+
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element hi = doc.createElement("hi");
+        Element ho = doc.createElement("ho");
+        hi.appendChild(ho);
+        Attr attr = doc.createAttribute("value");
+        ho.setAttributeNode(attr);
+        attr.setValue("a");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("x", hi);
+        params.put("y", "Second");
+
+        for (int i = 0; i < WARMUP; i++) {
+            ksession.startProcess("com.sample.test", params);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            ProcessInstance processInstance = ksession.startProcess("com.sample.test", params);
+            assertProcessInstanceCompleted(processInstance);
+        }
+        long duration = System.nanoTime() - start;
+        logger.info("{}: {} process instances in {} ms, {} us per instance",
+                resource, ITERATIONS, duration / 1000000, duration / 1000 / ITERATIONS);
+        ksession.dispose();
+    }
+
+    private static class CompletingWorkItemHandler implements WorkItemHandler {
+
+        @Override
+        public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+            manager.completeWorkItem(workItem.getId(), null);
+        }
+
+        @Override
+        public void abortWorkItem(WorkItem workItem, WorkItemManager manager) {
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.bpmn2;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.jbpm.process.instance.impl.demo.DoNothingWorkItemHandler;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.event.process.DefaultProcessEventListener;
+import org.kie.api.event.process.ProcessNodeTriggeredEvent;
+import org.kie.api.io.Resource;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.internal.io.ResourceFactory;
+import org.kie.internal.runtime.StatefulKnowledgeSession;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Verifies XPath conditions are compiled when the process is built and can be evaluated concurrently.
+ */
+public class XPathGatewayTest extends JbpmBpmn2TestCase {
+
+    private static final String PROCESS = "BPMN2-ExclusiveSplitXPath-advanced-with-vars.bpmn2";
+
+    public XPathGatewayTest() {
+        super(false);
+    }
+
+    @Test
+    public void testInvalidXPathConditionFailsBuild() throws Exception {
+        Scanner scanner = new Scanner(getClass().getResourceAsStream("/" + PROCESS), "UTF-8");
+        String xml = scanner.useDelimiter("\\A").next();
+        scanner.close();
+        String invalid = xml.replace("not($x//@value = 'a')", "not($x//@value = 'a'");
+        assertFalse(invalid.equals(xml));
+
+        Resource resource = ResourceFactory.newByteArrayResource(invalid.getBytes("UTF-8"));
+        resource.setSourcePath("BPMN2-ExclusiveSplitXPath-invalid.bpmn2");
+        try {
+            createKnowledgeBaseFromResources(resource);
+            fail("Invalid XPath condition should fail the build");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Unable to build expression for 'constraint'"));
+        }
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws Exception {
+        KieBase kbase = createKnowledgeBase(PROCESS);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < 4; t++) {
+                // sessions are created upfront, evaluator of the condition is shared through the kbase
+                final StatefulKnowledgeSession session = createKnowledgeSession(kbase);
+                results.add(threads.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        return evaluate(session, 100);
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                // process instances that took the wrong branch
+                assertTrue(result.get().toString(), result.get().isEmpty());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private List<String> evaluate(StatefulKnowledgeSession session, int count) throws Exception {
+        session.getWorkItemManager().registerWorkItemHandler("Email", new DoNothingWorkItemHandler());
+        final List<String> triggered = new ArrayList<String>();
+        session.addEventListener(new DefaultProcessEventListener() {
+            @Override
+            public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
+                triggered.add(event.getNodeInstance().getNodeName());
+            }
+        });
+
+        List<String> failures = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            String value = i % 2 == 0 ? "a" : "b";
+            triggered.clear();
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("x", createElement(value));
+            params.put("y", "Second");
+            ProcessInstance processInstance = session.startProcess("com.sample.test", params);
+            String expected = "a".equals(value) ? "Script1" : "Script2";
+            if (!triggered.contains(expected) || processInstance.getState() != ProcessInstance.STATE_ACTIVE) {
+                failures.add(value + " -> " + triggered);
+            }
+            session.abortProcessInstance(processInstance.getId());
+        }
+        session.dispose();
+        return failures;
+    }
+
+    private Element createElement(String value) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        Element hi = doc.createElement("hi");
+        Element ho = doc.createElement("ho");
+        hi.appendChild(ho);
+        ho.setAttribute("value", value);
+        return hi;
+    }
+}
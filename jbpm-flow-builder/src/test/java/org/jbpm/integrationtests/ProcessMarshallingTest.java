@@ -21,6 +21,9 @@ import org.jbpm.process.core.context.variable.VariableScope;
 import org.jbpm.process.instance.ProcessInstance;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.instance.NodeInstance;
+import org.jbpm.workflow.instance.NodeInstanceContainer;
+import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.kie.api.io.ResourceType;
@@ -47,6 +50,8 @@ import java.util.Map;
 
 import static org.jbpm.integrationtests.JbpmSerializationHelper.getSerialisedStatefulKnowledgeSession;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class ProcessMarshallingTest extends AbstractBaseTest {
@@ -480,6 +485,94 @@ public class ProcessMarshallingTest extends AbstractBaseTest {
         }
         assertEquals(0, session.getProcessInstances().size());
     }
+
+    @Test
+    public void testMarshallingIndexedNodeInstances() throws Exception {
+        String process =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<process xmlns=\"http://drools.org/drools-5.0/process\"\n" +
+            "  xmlns:xs=\"http://www.w3.org/2001/XMLSchema-instance\"\n" +
+            "  xs:schemaLocation=\"http://drools.org/drools-5.0/process drools-processes-5.0.xsd\"\n" +
+            "  type=\"RuleFlow\" name=\"ruleflow\" id=\"com.sample.ruleflow\" package-name=\"com.sample\" >\n" +
+            "    <header>\n" +
+            "      <variables>\n" +
+            "        <variable name=\"list\" >\n" +
+            "          <type name=\"org.drools.core.process.core.datatype.impl.type.ObjectDataType\" className=\"java.util.List\" />\n" +
+            "        </variable>\n" +
+            "      </variables>\n" +
+            "    </header>\n" +
+            "    <nodes>\n" +
+            "      <forEach id=\"4\" name=\"ForEach\" variableName=\"item\" collectionExpression=\"list\" >\n" +
+            "        <nodes>\n" +
+            "          <workItem id=\"1\" name=\"Work\" >\n" +
+            "            <work name=\"Human Task\" >\n" +
+            "              <parameter name=\"TaskName\" >\n" +
+            "                <type name=\"org.drools.core.process.core.datatype.impl.type.StringDataType\" />\n" +
+            "                <value>Do something: #{item}</value>\n" +
+            "              </parameter>\n" +
+            "            </work>\n" +
+            "          </workItem>\n" +
+            "        </nodes>\n" +
+            "        <in-ports>\n" +
+            "          <in-port type=\"DROOLS_DEFAULT\" nodeId=\"1\" nodeInType=\"DROOLS_DEFAULT\" />\n" +
+            "        </in-ports>\n" +
+            "        <out-ports>\n" +
+            "          <out-port type=\"DROOLS_DEFAULT\" nodeId=\"1\" nodeOutType=\"DROOLS_DEFAULT\" />\n" +
+            "        </out-ports>\n" +
+            "      </forEach>\n" +
+            "      <start id=\"1\" name=\"Start\" />\n" +
+            "      <end id=\"3\" name=\"End\" />\n" +
+            "    </nodes>\n" +
+            "    <connections>\n" +
+            "      <connection from=\"1\" to=\"4\" />\n" +
+            "      <connection from=\"4\" to=\"3\" />\n" +
+            "    </connections>\n" +
+            "</process>\n";
+        builder.addProcessFromXml( new StringReader( process ));
+
+        StatefulKnowledgeSession session = createKieSession(builder.getPackage());
+
+        TestListWorkItemHandler handler = new TestListWorkItemHandler();
+        session.getWorkItemManager().registerWorkItemHandler("Human Task", handler);
+        List<String> list = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            list.add("item " + i);
+        }
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("list", list);
+        long processInstanceId = session.startProcess("com.sample.ruleflow", parameters).getId();
+        assertEquals(50, handler.getWorkItems().size());
+
+        Map<Long, Long> nodeIds = collectNodeIds(
+                (WorkflowProcessInstanceImpl) session.getProcessInstance(processInstanceId));
+
+        session = getSerialisedStatefulKnowledgeSession(session);
+
+        // ids are restored by the marshaller after the node instances were added to their containers,
+        // lookups by id and node id must still find every node instance
+        WorkflowProcessInstanceImpl processInstance = (WorkflowProcessInstanceImpl) session.getProcessInstance(processInstanceId);
+        assertEquals(nodeIds, collectNodeIds(processInstance));
+        for (NodeInstance nodeInstance: processInstance.getNodeInstances(true)) {
+            assertSame(nodeInstance, processInstance.getNodeInstance(nodeInstance.getId(), true));
+            NodeInstanceContainer container = (NodeInstanceContainer) nodeInstance.getNodeInstanceContainer();
+            assertSame(nodeInstance, container.getNodeInstance(nodeInstance.getId()));
+            assertNotNull(container.getFirstNodeInstance(nodeInstance.getNodeId()));
+        }
+
+        session.getWorkItemManager().registerWorkItemHandler("Human Task", handler);
+        for (WorkItem workItem: new ArrayList<WorkItem>(handler.getWorkItems())) {
+            session.getWorkItemManager().completeWorkItem(workItem.getId(), null);
+        }
+        assertEquals(0, session.getProcessInstances().size());
+    }
+
+    private static Map<Long, Long> collectNodeIds(WorkflowProcessInstanceImpl processInstance) {
+        Map<Long, Long> nodeIds = new HashMap<Long, Long>();
+        for (NodeInstance nodeInstance: processInstance.getNodeInstances(true)) {
+            nodeIds.put(nodeInstance.getId(), nodeInstance.getNodeId());
+        }
+        return nodeIds;
+    }
     
     @Test @Ignore
     public void testMarshallingProcessInstanceWithTimer() throws Exception {
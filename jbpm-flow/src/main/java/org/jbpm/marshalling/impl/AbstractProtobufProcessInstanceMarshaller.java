@@ -78,6 +78,19 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
     // Output methods
     public JBPMMessages.ProcessInstance writeProcessInstance(MarshallerWriteContext context,
                                                              ProcessInstance processInstance) throws IOException {
+        return writeProcessInstance( context,
+                                     processInstance,
+                                     true );
+    }
+
+    /**
+     * Writes given process instance, optionally without the variables of the process instance
+     * itself (variables of composite and for each node instances are always included) when
+     * those are stored separately.
+     */
+    public JBPMMessages.ProcessInstance writeProcessInstance(MarshallerWriteContext context,
+                                                             ProcessInstance processInstance,
+                                                             boolean includeVariables) throws IOException {
         WorkflowProcessInstanceImpl workFlow = (WorkflowProcessInstanceImpl) processInstance;
         
         JBPMMessages.ProcessInstance.Builder _instance = JBPMMessages.ProcessInstance.newBuilder()
@@ -136,19 +149,21 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
             }
         }
 
-        VariableScopeInstance variableScopeInstance = (VariableScopeInstance) workFlow.getContextInstance( VariableScope.VARIABLE_SCOPE );
-        List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
-        Collections.sort( variables,
-                          new Comparator<Map.Entry<String, Object>>() {
-                              public int compare(Map.Entry<String, Object> o1,
-                                                 Map.Entry<String, Object> o2) {
-                                  return o1.getKey().compareTo( o2.getKey() );
-                              }
-                          } );
+        if ( includeVariables ) {
+            VariableScopeInstance variableScopeInstance = (VariableScopeInstance) workFlow.getContextInstance( VariableScope.VARIABLE_SCOPE );
+            List<Map.Entry<String, Object>> variables = new ArrayList<Map.Entry<String, Object>>( variableScopeInstance.getVariables().entrySet() );
+            Collections.sort( variables,
+                              new Comparator<Map.Entry<String, Object>>() {
+                                  public int compare(Map.Entry<String, Object> o1,
+                                                     Map.Entry<String, Object> o2) {
+                                      return o1.getKey().compareTo( o2.getKey() );
+                                  }
+                              } );
 
-        for ( Map.Entry<String, Object> variable : variables ) {
-            if ( variable.getValue() != null ) {
-                _instance.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
+            for ( Map.Entry<String, Object> variable : variables ) {
+                if ( variable.getValue() != null ) {
+                    _instance.addVariable( ProtobufProcessMarshaller.marshallVariable( context, variable.getKey(), variable.getValue() ) );
+                }
             }
         }
         
@@ -461,6 +476,16 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
 
     // Input methods
     public ProcessInstance readProcessInstance(MarshallerReaderContext context) throws IOException {
+        return readProcessInstance( context,
+                                    null );
+    }
+
+    /**
+     * Reads a process instance, given variables (if any) are set on the process instance on top of the
+     * ones that were read, before the process instance is reconnected.
+     */
+    public ProcessInstance readProcessInstance(MarshallerReaderContext context,
+                                               Map<String, Object> variables) throws IOException {
         InternalKnowledgeBase ruleBase = context.kBase;
         InternalWorkingMemory wm = context.wm;
         
@@ -549,6 +574,17 @@ public abstract class AbstractProtobufProcessInstanceMarshaller
                 }
             }
         }
+
+        if ( variables != null && !variables.isEmpty() ) {
+            Context variableScope = ((org.jbpm.process.core.Process) process)
+                    .getDefaultContext( VariableScope.VARIABLE_SCOPE );
+            VariableScopeInstance variableScopeInstance = (VariableScopeInstance) processInstance
+                    .getContextInstance( variableScope );
+            for ( Map.Entry<String, Object> variable : variables.entrySet() ) {
+                variableScopeInstance.internalSetVariable( variable.getKey(),
+                                                           variable.getValue() );
+            }
+        }
         
         if ( _instance.getIterationLevelsCount() > 0 ) {
             
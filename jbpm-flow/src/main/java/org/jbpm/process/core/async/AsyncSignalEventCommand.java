@@ -15,17 +15,26 @@
 
 package org.jbpm.process.core.async;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.kie.api.executor.Command;
 import org.kie.api.executor.CommandContext;
 import org.kie.api.executor.ExecutionResults;
+import org.kie.api.executor.ExecutorService;
 import org.kie.api.runtime.manager.RuntimeEngine;
 import org.kie.api.runtime.manager.RuntimeManager;
 import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
 import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class AsyncSignalEventCommand implements Command {
 
+    private static final Logger logger = LoggerFactory.getLogger(AsyncSignalEventCommand.class);
+
     @Override
     public ExecutionResults execute(CommandContext ctx) throws Exception {
         String deploymentId = (String) ctx.getData("DeploymentId");
@@ -41,6 +50,10 @@ public class AsyncSignalEventCommand implements Command {
         if (runtimeManager == null) {
             throw new IllegalArgumentException("No runtime manager found for deployment id " + deploymentId);  
         }
+        Object processInstanceIds = ctx.getData("ProcessInstanceIds");
+        if (processInstanceIds != null) {
+            return signalChunk(runtimeManager, ctx, toProcessInstanceIds(processInstanceIds), signal, event);
+        }
         RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));        
         try {
             engine.getKieSession().signalEvent(signal, event, processInstanceId);
@@ -51,4 +64,74 @@ public class AsyncSignalEventCommand implements Command {
         }
     }
 
+    /*
+     * Signals every process instance of the chunk, failure of one of them does not prevent
+     * the others from being signaled. When some of them failed a new request is scheduled for the failed ones only,
+     * so the executor retries them without signaling again those that succeeded. When all of them failed
+     * the command fails, so the request itself is retried by the executor and ends in error when out of retries.
+     */
+    protected ExecutionResults signalChunk(RuntimeManager runtimeManager, CommandContext ctx, List<Long> processInstanceIds, String signal, Object event) {
+        List<Long> failedProcessInstanceIds = new ArrayList<Long>();
+        RuntimeException failure = null;
+        ExecutorService executorService = null;
+        for (Long processInstanceId : processInstanceIds) {
+            RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            try {
+                if (executorService == null) {
+                    executorService = (ExecutorService) engine.getKieSession().getEnvironment().get("ExecutorService");
+                }
+                engine.getKieSession().signalEvent(signal, event, processInstanceId);
+            } catch (RuntimeException e) {
+                failedProcessInstanceIds.add(processInstanceId);
+                failure = e;
+                logger.warn("Unable to signal '{}' to process instance {} due to {}", signal, processInstanceId, e.getMessage());
+            } finally {
+                runtimeManager.disposeRuntimeEngine(engine);
+            }
+        }
+        logger.debug("Signal '{}' delivered to chunk of {} process instances with {} failures",
+                signal, processInstanceIds.size(), failedProcessInstanceIds.size());
+
+        if (!failedProcessInstanceIds.isEmpty()) {
+            if (failedProcessInstanceIds.size() == processInstanceIds.size() || executorService == null) {
+                throw new RuntimeException("Unable to signal '" + signal + "' to process instances " + failedProcessInstanceIds, failure);
+            }
+            CommandContext retryCtx = new CommandContext();
+            retryCtx.setData("DeploymentId", ctx.getData("DeploymentId"));
+            retryCtx.setData("ProcessInstanceIds", failedProcessInstanceIds);
+            retryCtx.setData("Signal", signal);
+            retryCtx.setData("Event", event);
+            executorService.scheduleRequest(AsyncSignalEventCommand.class.getName(), retryCtx);
+            logger.warn("Signal '{}' failed for process instances {}, scheduled to be retried", signal, failedProcessInstanceIds);
+        }
+
+        ExecutionResults results = new ExecutionResults();
+        results.setData("Signaled", processInstanceIds.size() - failedProcessInstanceIds.size());
+        results.setData("Failed", failedProcessInstanceIds.size());
+        results.setData("FailedProcessInstanceIds", failedProcessInstanceIds);
+        return results;
+    }
+
+    protected List<Long> toProcessInstanceIds(Object data) {
+        if (!(data instanceof Collection)) {
+            throw new IllegalArgumentException("ProcessInstanceIds must be a collection of process instance ids, found "
+                    + data.getClass().getName());
+        }
+        List<Long> processInstanceIds = new ArrayList<Long>(((Collection<?>) data).size());
+        for (Object id : (Collection<?>) data) {
+            if (id instanceof Number) {
+                processInstanceIds.add(((Number) id).longValue());
+            } else if (id instanceof String) {
+                try {
+                    processInstanceIds.add(Long.parseLong((String) id));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid process instance id '" + id + "' in ProcessInstanceIds", e);
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid process instance id '" + id + "' in ProcessInstanceIds");
+            }
+        }
+        return processInstanceIds;
+    }
+
 }
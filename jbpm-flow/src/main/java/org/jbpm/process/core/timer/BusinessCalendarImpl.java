@@ -19,12 +19,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,6 +69,8 @@ import org.slf4j.LoggerFactory;
  * Weekend days should be given as integer that corresponds to <code>java.util.Calendar</code> constants.
  * <br/>
  * 
+ * Holidays are indexed by their boundaries when the calendar is created so finding the holiday of a given date
+ * is a binary search instead of a scan of all holiday periods, parsed time expressions are cached.
  */
 public class BusinessCalendarImpl implements BusinessCalendar {
 	
@@ -82,7 +87,10 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     private  String timezone;
     
     private List<TimePeriod> holidays;
+    private HolidayIndex holidayIndex;
     private List<Integer> weekendDays= new ArrayList<Integer>();
+    private boolean[] weekendDaysOfWeek;
+    private TimeZone timeZone;
     private SessionClock clock;
     
     private static final Pattern SIMPLE  = Pattern.compile( "([+-])?\\s*((\\d+)[Ww])?\\s*((\\d+)[Dd])?\\s*((\\d+)[Hh])?\\s*((\\d+)[Mm])?\\s*((\\d+)[Ss])?" );
@@ -91,6 +99,11 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     private static final int     SIM_HOU = 7;
     private static final int     SIM_MIN = 9;
     private static final int     SIM_SEC = 11;
+    
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+    // time expressions (not dependent on current time) as adopted from ISO format and parsed weeks, days, hours, minutes and seconds
+    private static final ConcurrentHashMap<String, String> adoptedExpressions = new ConcurrentHashMap<String, String>();
+    private static final ConcurrentHashMap<String, int[]> parsedExpressions = new ConcurrentHashMap<String, int[]>();
 
     
     public static final String DAYS_PER_WEEK = "business.hours.per.week";
@@ -152,11 +165,47 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         startHour = getPropertyAsInt(START_HOUR, "9"); 
         endHour = getPropertyAsInt(END_HOUR, "17"); 
         holidays = parseHolidays();
+        holidayIndex = holidays.isEmpty() ? null : new HolidayIndex(holidays);
         parseWeekendDays();
+        weekendDaysOfWeek = new boolean[Calendar.SATURDAY + 1];
+        for (Integer day : weekendDays) {
+            if (day >= 0 && day < weekendDaysOfWeek.length) {
+                weekendDaysOfWeek[day] = true;
+            }
+        }
         this.timezone = businessCalendarConfiguration.getProperty(TIMEZONE);
+        if (timezone != null) {
+            this.timeZone = TimeZone.getTimeZone(timezone);
+        }
     }
     
     protected String adoptISOFormat(String timeExpression) {
+        if (timeExpression == null) {
+            return doAdoptISOFormat(timeExpression);
+        }
+        String adopted = adoptedExpressions.get(timeExpression);
+        if (adopted != null) {
+            return adopted;
+        }
+        if (DateTimeUtils.isPeriod(timeExpression) || !isISODateTime(timeExpression)) {
+            // independent of current time so can be reused
+            adopted = doAdoptISOFormat(timeExpression);
+            cache(adoptedExpressions, timeExpression, adopted);
+            return adopted;
+        }
+        return doAdoptISOFormat(timeExpression);
+    }
+    
+    private boolean isISODateTime(String timeExpression) {
+        try {
+            ISODateTimeFormat.dateTimeParser().parseDateTime(timeExpression);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
+    private String doAdoptISOFormat(String timeExpression) {
     	
     	try {
     		Period p = null;
@@ -215,29 +264,15 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         }
         
         
-        String trimmed = timeExpression.trim();
-        int weeks = 0;
-        int days = 0;
-        int hours = 0;
-        int min = 0;
-        int sec = 0;
-        
-        if( trimmed.length() > 0 ) {
-            Matcher mat = SIMPLE.matcher( trimmed );
-            if ( mat.matches() ) {
-                weeks = (mat.group( SIM_WEEK ) != null) ? Integer.parseInt( mat.group( SIM_WEEK ) ) : 0;
-                days = (mat.group( SIM_DAY ) != null) ? Integer.parseInt( mat.group( SIM_DAY ) ) : 0;
-                hours = (mat.group( SIM_HOU ) != null) ? Integer.parseInt( mat.group( SIM_HOU ) ) : 0;
-                min = (mat.group( SIM_MIN ) != null) ? Integer.parseInt( mat.group( SIM_MIN ) ) : 0;
-                sec = (mat.group( SIM_SEC ) != null) ? Integer.parseInt( mat.group( SIM_SEC ) ) : 0;
-            }
-        }
+        int[] parsed = parseTimeExpression(timeExpression);
+        int weeks = parsed[0];
+        int days = parsed[1];
+        int hours = parsed[2];
+        int min = parsed[3];
+        int sec = parsed[4];
         int time = 0;
         
-        Calendar c = new GregorianCalendar();
-        if (timezone != null) {
-            c.setTimeZone(TimeZone.getTimeZone(timezone));
-        }
+        Calendar c = timeZone != null ? new GregorianCalendar(timeZone) : new GregorianCalendar();
         if (this.clock != null) {
             c.setTimeInMillis(this.clock.getCurrentTime());
         }
@@ -318,30 +353,57 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         return c.getTime();
     }
     
+    /**
+     * Parses given time expression into weeks, days, hours, minutes and seconds.
+     */
+    protected int[] parseTimeExpression(String timeExpression) {
+        String trimmed = timeExpression.trim();
+        int[] parsed = parsedExpressions.get(trimmed);
+        if (parsed != null) {
+            return parsed;
+        }
+        parsed = new int[5];
+        if( trimmed.length() > 0 ) {
+            Matcher mat = SIMPLE.matcher( trimmed );
+            if ( mat.matches() ) {
+                parsed[0] = (mat.group( SIM_WEEK ) != null) ? Integer.parseInt( mat.group( SIM_WEEK ) ) : 0;
+                parsed[1] = (mat.group( SIM_DAY ) != null) ? Integer.parseInt( mat.group( SIM_DAY ) ) : 0;
+                parsed[2] = (mat.group( SIM_HOU ) != null) ? Integer.parseInt( mat.group( SIM_HOU ) ) : 0;
+                parsed[3] = (mat.group( SIM_MIN ) != null) ? Integer.parseInt( mat.group( SIM_MIN ) ) : 0;
+                parsed[4] = (mat.group( SIM_SEC ) != null) ? Integer.parseInt( mat.group( SIM_SEC ) ) : 0;
+            }
+        }
+        cache(parsedExpressions, trimmed, parsed);
+        return parsed;
+    }
+    
+    private static <T> void cache(ConcurrentHashMap<String, T> cache, String expression, T value) {
+        if (cache.size() >= MAX_CACHED_EXPRESSIONS) {
+            // expressions built from process variables could grow without bounds
+            cache.clear();
+        }
+        cache.put(expression, value);
+    }
+    
     protected void handleHoliday(Calendar c) {
-        if (!holidays.isEmpty()) {
+        if (holidayIndex != null) {
             Date current = c.getTime();
-            for (TimePeriod holiday : holidays) {
-                // check each holiday if it overlaps current date and break after first match
-                if (current.after(holiday.getFrom()) && current.before(holiday.getTo())) {
+            // first holiday (in order of configuration) that overlaps current date
+            TimePeriod holiday = holidayIndex.find(current.getTime());
+            if (holiday != null) {
                     
-                    Calendar tmp = new GregorianCalendar();
-                    tmp.setTime(holiday.getTo());   
-                    
-                    Calendar tmp2 = new GregorianCalendar();
-                    tmp2.setTime(current);
-                    tmp2.set(Calendar.HOUR_OF_DAY, 0);
-                    tmp2.set(Calendar.MINUTE, 0);
-                    tmp2.set(Calendar.SECOND, 0);
-                    tmp2.set(Calendar.MILLISECOND, 0);
+                Calendar tmp2 = new GregorianCalendar();
+                tmp2.setTime(current);
+                tmp2.set(Calendar.HOUR_OF_DAY, 0);
+                tmp2.set(Calendar.MINUTE, 0);
+                tmp2.set(Calendar.SECOND, 0);
+                tmp2.set(Calendar.MILLISECOND, 0);
 
-                    long difference = tmp.getTimeInMillis() - tmp2.getTimeInMillis();
-                    
-                    c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
-                    
-                    handleWeekend(c);
-                    break;
-                }
+                long difference = holiday.getTo().getTime() - tmp2.getTimeInMillis();
+                
+                c.add(Calendar.HOUR_OF_DAY, (int) (difference/HOUR_IN_MILLIS));
+                
+                handleWeekend(c);
             }
         }
         
@@ -463,7 +525,60 @@ public class BusinessCalendarImpl implements BusinessCalendar {
         }
     }
 
-    private class TimePeriod {
+    /**
+     * Holidays indexed by the sorted boundaries (from and to dates) of all holiday periods, between two
+     * consecutive boundaries and at each boundary the overlapping holidays are the same so the first one
+     * of them is resolved upfront.
+     */
+    private static class HolidayIndex {
+        
+        private final long[] boundaries;
+        // first holiday that overlaps the boundary at given index
+        private final TimePeriod[] atBoundary;
+        // first holiday that overlaps dates between the boundary at given index and the next one
+        private final TimePeriod[] afterBoundary;
+        
+        HolidayIndex(List<TimePeriod> holidays) {
+            TreeSet<Long> sorted = new TreeSet<Long>();
+            for (TimePeriod holiday : holidays) {
+                sorted.add(holiday.getFrom().getTime());
+                sorted.add(holiday.getTo().getTime());
+            }
+            boundaries = new long[sorted.size()];
+            int i = 0;
+            for (Long boundary : sorted) {
+                boundaries[i++] = boundary;
+            }
+            atBoundary = new TimePeriod[boundaries.length];
+            afterBoundary = new TimePeriod[boundaries.length];
+            for (i = 0; i < boundaries.length; i++) {
+                for (TimePeriod holiday : holidays) {
+                    long from = holiday.getFrom().getTime();
+                    long to = holiday.getTo().getTime();
+                    if (atBoundary[i] == null && from < boundaries[i] && boundaries[i] < to) {
+                        atBoundary[i] = holiday;
+                    }
+                    if (afterBoundary[i] == null && i + 1 < boundaries.length && from <= boundaries[i] && boundaries[i + 1] <= to) {
+                        afterBoundary[i] = holiday;
+                    }
+                }
+            }
+        }
+        
+        TimePeriod find(long time) {
+            int index = Arrays.binarySearch(boundaries, time);
+            if (index >= 0) {
+                return atBoundary[index];
+            }
+            int before = -index - 2;
+            if (before < 0) {
+                return null;
+            }
+            return afterBoundary[before];
+        }
+    }
+
+    private static class TimePeriod {
         private Date from;
         private Date to;
 
@@ -490,6 +605,9 @@ public class BusinessCalendarImpl implements BusinessCalendar {
     }
     
     protected boolean isWorkingDay(int day) {
+        if (day >= 0 && day < weekendDaysOfWeek.length) {
+            return !weekendDaysOfWeek[day];
+        }
         if (weekendDays.contains(day)) {
             return false;
         }
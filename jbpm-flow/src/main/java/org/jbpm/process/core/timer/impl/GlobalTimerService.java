@@ -45,9 +45,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class GlobalTimerService implements TimerService, InternalSchedulerService {
@@ -57,7 +55,7 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
     protected TimerJobFactoryManager jobFactoryManager;
     protected GlobalSchedulerService schedulerService;
     protected RuntimeManager manager;
-    protected ConcurrentHashMap<Long, List<GlobalJobHandle>> timerJobsPerSession = new ConcurrentHashMap<Long, List<GlobalJobHandle>>();
+    protected ConcurrentHashMap<Long, SessionJobHandles> timerJobsPerSession = new ConcurrentHashMap<Long, SessionJobHandles>();
     private String timerServiceId;
     
     public GlobalTimerService(RuntimeManager manager, GlobalSchedulerService schedulerService) {
@@ -76,23 +74,21 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
         if (ctx instanceof ProcessJobContext) {
             ProcessJobContext processCtx = (ProcessJobContext) ctx; 
  
-            List<GlobalJobHandle> jobHandles = timerJobsPerSession.get(processCtx.getSessionId());
-            if (jobHandles == null) {
-                jobHandles = new CopyOnWriteArrayList<GlobalJobHandle>();
-                timerJobsPerSession.put(processCtx.getSessionId(), jobHandles);
-            } else {
-                // check if the given job is already scheduled
-                for (GlobalJobHandle handle : jobHandles) {
-                    long timerId = handle.getTimerId();
-                    if (timerId == processCtx.getTimer().getId()) {
-                        // this timer job is already registered
-                        return handle;
-                    }
-                }
+            SessionJobHandles jobHandles = getSessionJobHandles(processCtx.getSessionId());
+            // check if the given job is already scheduled
+            GlobalJobHandle handle = jobHandles.getByTimerId(processCtx.getTimer().getId());
+            if (handle != null) {
+                // this timer job is already registered
+                return handle;
             }
             GlobalJobHandle jobHandle = (GlobalJobHandle) this.schedulerService.scheduleJob(job, ctx, trigger);
             if (jobHandle != null) {
             	jobHandles.add(jobHandle);
+            	// handles might have been discarded meanwhile as empty by a concurrent removal
+            	SessionJobHandles current = timerJobsPerSession.putIfAbsent(processCtx.getSessionId(), jobHandles);
+            	if (current != null && current != jobHandles) {
+            	    current.add(jobHandle);
+            	}
             }
                        
             return jobHandle;
@@ -108,17 +104,16 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
         }
         
         long sessionId = ((GlobalJobHandle) jobHandle).getSessionId();
-        List<GlobalJobHandle> handles = timerJobsPerSession.get(sessionId);
+        SessionJobHandles handles = timerJobsPerSession.get(sessionId);
         if (handles == null) {
         	logger.debug("No known job handles for session {}", sessionId);
             return this.schedulerService.removeJob(jobHandle);
         }       
 
-        if (handles.contains(jobHandle)) {
+        if (handles.remove((GlobalJobHandle) jobHandle)) {
         	logger.debug("Found match so removing job handle {} from sessions {} handles", jobHandle, sessionId);
-            handles.remove(jobHandle);
             if (handles.isEmpty()) {
-                timerJobsPerSession.remove(sessionId);
+                timerJobsPerSession.remove(sessionId, handles);
             }
             return this.schedulerService.removeJob(jobHandle);
         } else {
@@ -139,9 +134,9 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
     }
     
     public void destroy() {
-        Collection<List<GlobalJobHandle>> activeTimers = timerJobsPerSession.values();
-        for (List<GlobalJobHandle> handles : activeTimers) {
-            for (GlobalJobHandle handle : handles) {
+        Collection<SessionJobHandles> activeTimers = timerJobsPerSession.values();
+        for (SessionJobHandles handles : activeTimers) {
+            for (GlobalJobHandle handle : handles.getJobHandles()) {
                 this.schedulerService.removeJob(handle);
             }
         }
@@ -155,9 +150,9 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
     @Override
     public Collection<TimerJobInstance> getTimerJobInstances(long id) {
         Collection<TimerJobInstance> timers = new ArrayList<TimerJobInstance>();
-        List<GlobalJobHandle> jobs = timerJobsPerSession.get(id); {
+        SessionJobHandles jobs = timerJobsPerSession.get(id); {
             if (jobs != null) {
-                for (GlobalJobHandle job : jobs) {
+                for (GlobalJobHandle job : jobs.getJobHandles()) {
                 	if (job != null && schedulerService.isValid(job)) {
                 		timers.add(job.getTimerJobInstance());
                 	}
@@ -243,6 +238,18 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
         return new DisposableCommandService(getCommandService(), manager, runtime, schedulerService.retryEnabled());
     }
 
+    protected SessionJobHandles getSessionJobHandles(long sessionId) {
+        SessionJobHandles jobHandles = timerJobsPerSession.get(sessionId);
+        if (jobHandles == null) {
+            jobHandles = new SessionJobHandles();
+            SessionJobHandles existing = timerJobsPerSession.putIfAbsent(sessionId, jobHandles);
+            if (existing != null) {
+                jobHandles = existing;
+            }
+        }
+        return jobHandles;
+    }
+
     private CommandService getCommandService() {
         return jobFactoryManager instanceof CommandServiceTimerJobFactoryManager ?
                ( (CommandServiceTimerJobFactoryManager) jobFactoryManager ).getCommandService() :
@@ -282,6 +289,50 @@ public class GlobalTimerService implements TimerService, InternalSchedulerServic
 
     }
     
+    /**
+     * Job handles of a single session, keyed by the job handle itself (so by job id or by job name, depending on
+     * the scheduler service) and by timer id, with constant time add and remove and iteration without copying.
+     */
+    public static class SessionJobHandles {
+
+        private final ConcurrentHashMap<GlobalJobHandle, GlobalJobHandle> jobHandles = new ConcurrentHashMap<GlobalJobHandle, GlobalJobHandle>();
+        private final ConcurrentHashMap<Long, GlobalJobHandle> jobHandlesByTimerId = new ConcurrentHashMap<Long, GlobalJobHandle>();
+
+        public void add(GlobalJobHandle jobHandle) {
+            jobHandles.put(jobHandle, jobHandle);
+            jobHandlesByTimerId.put(jobHandle.getTimerId(), jobHandle);
+        }
+
+        public boolean remove(GlobalJobHandle jobHandle) {
+            GlobalJobHandle removed = jobHandles.remove(jobHandle);
+            if (removed == null) {
+                return false;
+            }
+            jobHandlesByTimerId.remove(removed.getTimerId(), removed);
+            return true;
+        }
+
+        public GlobalJobHandle getByTimerId(long timerId) {
+            return jobHandlesByTimerId.get(timerId);
+        }
+
+        /**
+         * Returns a live view of the job handles, iteration reflects the job handles at some point
+         * at or since the creation of the iterator.
+         */
+        public Collection<GlobalJobHandle> getJobHandles() {
+            return jobHandles.values();
+        }
+
+        public boolean isEmpty() {
+            return jobHandles.isEmpty();
+        }
+
+        public int size() {
+            return jobHandles.size();
+        }
+    }
+    
     public static class DisposableCommandService implements CommandService {
 
         private CommandService delegate;
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed hierarchical timing wheel keeping track of pending timeouts with constant time schedule and cancel.
+ * <br/>
+ * Time is divided into ticks of given duration, the wheel is made of 4 levels of 256 slots each, level 0 slots
+ * hold timeouts due within the next 256 ticks, level 1 slots timeouts due within the next 256^2 ticks and so on.
+ * Whenever a lower level completed a full rotation the timeouts of the next slot of the upper level are
+ * redistributed over the lower levels (cascade). Timeouts that are due further than the wheel spans
+ * (256^4 ticks, about 500 days with 10 ms ticks) are kept in the last slot of the upper level until they get
+ * in range.
+ * <br/>
+ * Timeouts never fire before their deadline, but up to one tick later. The wheel does not keep track of time itself,
+ * it is advanced by its owner with {@link #advance(long)} that returns all timeouts that became due.
+ * All operations are thread safe.
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final long tickDuration;
+    private final long startTime;
+    @SuppressWarnings("unchecked")
+    private final Timeout<T>[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+    // last tick that was processed
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickDuration, long startTime) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be greater than 0 but was " + tickDuration);
+        }
+        this.tickDuration = tickDuration;
+        this.startTime = startTime;
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Schedules given task to be returned by {@link #advance(long)} once given deadline (in milliseconds) is reached,
+     * deadlines in the past are due at the next tick.
+     */
+    public synchronized Timeout<T> schedule(long deadline, T task) {
+        Timeout<T> timeout = new Timeout<T>(deadline, task);
+        long deadlineTick = (Math.max(deadline - startTime, 0) + tickDuration - 1) / tickDuration;
+        timeout.deadlineTick = Math.max(deadlineTick, currentTick + 1);
+        add(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels given timeout, returns false if it was already returned as due or cancelled.
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.level < 0) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel up to given time (in milliseconds) and returns the timeouts that became due,
+     * in order of their deadline tick.
+     */
+    public synchronized List<Timeout<T>> advance(long now) {
+        List<Timeout<T>> expired = new ArrayList<Timeout<T>>();
+        long targetTick = Math.max(now - startTime, 0) / tickDuration;
+        if (size == 0 && targetTick > currentTick) {
+            // nothing to cascade or expire, skip the idle period at once
+            currentTick = targetTick;
+            return expired;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            Timeout<T> timeout = detach(0, (int) (currentTick & WHEEL_MASK));
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                if (timeout.deadlineTick <= currentTick) {
+                    size--;
+                    expired.add(timeout);
+                } else {
+                    add(timeout);
+                }
+                timeout = next;
+            }
+            if (size == 0) {
+                currentTick = targetTick;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns time (in milliseconds) at which the next tick is due.
+     */
+    public synchronized long getNextTickTime() {
+        return startTime + (currentTick + 1) * tickDuration;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Timeout<T> timeout = detach(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                add(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private void add(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        long expires = timeout.deadlineTick;
+        if (delta > MAX_DELTA) {
+            delta = MAX_DELTA;
+            expires = currentTick + MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && (delta >>> (WHEEL_BITS * (level + 1))) != 0) {
+            level++;
+        }
+        int slot = (int) ((expires >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timeout<T> head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    private Timeout<T> detach(int level, int slot) {
+        Timeout<T> head = wheels[level][slot];
+        wheels[level][slot] = null;
+        for (Timeout<T> timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.prev = null;
+            timeout.level = -1;
+        }
+        return head;
+    }
+
+    public static class Timeout<T> {
+
+        private final long deadline;
+        private final T task;
+        private long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int level = -1;
+        private int slot;
+
+        Timeout(long deadline, T task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        public T getTask() {
+            return task;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.process.core.timer.impl;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.drools.core.time.InternalSchedulerService;
+import org.drools.core.time.Job;
+import org.drools.core.time.JobContext;
+import org.drools.core.time.JobHandle;
+import org.drools.core.time.SelfRemovalJobContext;
+import org.drools.core.time.TimerService;
+import org.drools.core.time.Trigger;
+import org.drools.core.time.impl.TimerJobInstance;
+import org.jbpm.process.core.timer.GlobalSchedulerService;
+import org.jbpm.process.core.timer.NamedJobContext;
+import org.jbpm.process.core.timer.SchedulerServiceInterceptor;
+import org.jbpm.process.core.timer.impl.GlobalTimerService.GlobalJobHandle;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJobContext;
+import org.jbpm.process.instance.timer.TimerManager.StartProcessJobContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In memory scheduler service backed by a {@link TimingWheel}, an alternative to <code>ThreadPoolSchedulerService</code>
+ * for large numbers of pending timers, e.g. boundary timers that are mostly cancelled before they fire,
+ * as timers are scheduled and cancelled in constant time.
+ * <br/>
+ * A single thread advances the wheel every tick (10 milliseconds by default) and hands the due timers over
+ * to a pool of given size for execution, timers fire up to one tick after their fire time.
+ */
+public class TimingWheelSchedulerService implements GlobalSchedulerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheelSchedulerService.class);
+
+    private AtomicLong idCounter = new AtomicLong();
+    private TimerService globalTimerService;
+    private SchedulerServiceInterceptor interceptor = new DelegateSchedulerServiceInterceptor(this);
+
+    private int poolSize;
+    private long tickDuration;
+
+    private TimingWheel<TimerJobInstance> wheel;
+    private ExecutorService executor;
+    private Thread ticker;
+    private volatile boolean active;
+
+    private ConcurrentHashMap<String, JobHandle> activeTimer = new ConcurrentHashMap<String, JobHandle>();
+
+    public TimingWheelSchedulerService(int poolSize) {
+        this(poolSize, 10);
+    }
+
+    public TimingWheelSchedulerService(int poolSize, long tickDuration) {
+        this.poolSize = poolSize;
+        this.tickDuration = tickDuration;
+    }
+
+    @Override
+    public void initScheduler(TimerService globalTimerService) {
+        this.globalTimerService = globalTimerService;
+
+        this.wheel = new TimingWheel<TimerJobInstance>(tickDuration, System.currentTimeMillis());
+        this.executor = Executors.newFixedThreadPool(poolSize);
+        this.active = true;
+        this.ticker = new Thread(new Ticker(), "jBPM-TimingWheelScheduler");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    @Override
+    public void shutdown() {
+        active = false;
+        if (ticker != null) {
+            ticker.interrupt();
+        }
+        try {
+            this.executor.shutdown();
+            if ( !this.executor.awaitTermination( 10, TimeUnit.SECONDS ) ) {
+                this.executor.shutdownNow();
+            }
+        } catch ( InterruptedException e ) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public JobHandle scheduleJob(Job job, JobContext ctx, Trigger trigger) {
+
+        Date date = trigger.hasNextFireTime();
+        if ( date != null ) {
+            String jobname = null;
+            if (ctx instanceof ProcessJobContext) {
+                jobname = getJobName((ProcessJobContext) ctx);
+                JobHandle existing = activeTimer.get(jobname);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            GlobalWheelJobHandle jobHandle = new GlobalWheelJobHandle( idCounter.getAndIncrement() );
+
+            TimerJobInstance jobInstance = globalTimerService.
+                                 getTimerJobFactoryManager().createTimerJobInstance( job,
+                                                                                     ctx,
+                                                                                     trigger,
+                                                                                     jobHandle,
+                                                                                     (InternalSchedulerService) globalTimerService );
+            jobHandle.setTimerJobInstance( jobInstance );
+            interceptor.internalSchedule( jobInstance );
+            if (jobname != null) {
+                activeTimer.put(jobname, jobHandle);
+            }
+            return jobHandle;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobHandle jobHandle) {
+        if (jobHandle == null) {
+            return false;
+        }
+        jobHandle.setCancel( true );
+        JobContext jobContext = ((GlobalWheelJobHandle) jobHandle).getTimerJobInstance().getJobContext();
+        try {
+            ProcessJobContext processCtx = null;
+            if (jobContext instanceof SelfRemovalJobContext) {
+                processCtx = (ProcessJobContext) ((SelfRemovalJobContext) jobContext).getJobContext();
+            } else {
+                processCtx = (ProcessJobContext) jobContext;
+            }
+            activeTimer.remove(getJobName(processCtx));
+            globalTimerService.getTimerJobFactoryManager().removeTimerJobInstance( ((GlobalWheelJobHandle) jobHandle).getTimerJobInstance() );
+        } catch (ClassCastException e) {
+            // do nothing in case ProcessJobContext was not given
+        }
+        return wheel.cancel( ((GlobalWheelJobHandle) jobHandle).getTimeout() );
+    }
+
+    @Override
+    public void internalSchedule(TimerJobInstance timerJobInstance) {
+        if (!active) {
+            return;
+        }
+        Date date = timerJobInstance.getTrigger().hasNextFireTime();
+
+        GlobalWheelJobHandle jobHandle = (GlobalWheelJobHandle) timerJobInstance.getJobHandle();
+        jobHandle.setTimeout( wheel.schedule( date.getTime(), timerJobInstance ) );
+        globalTimerService.getTimerJobFactoryManager().addTimerJobInstance( timerJobInstance );
+    }
+
+    /**
+     * Returns number of timers waiting to be fired.
+     */
+    public int getPendingTimers() {
+        return wheel.size();
+    }
+
+    protected String getJobName(ProcessJobContext processCtx) {
+        if (processCtx instanceof StartProcessJobContext) {
+            return "StartProcess-"+((StartProcessJobContext) processCtx).getProcessId()+ "-" + processCtx.getTimer().getId();
+        }
+        return processCtx.getSessionId() + "-" + processCtx.getProcessInstanceId() + "-" + processCtx.getTimer().getId();
+    }
+
+    private class Ticker implements Runnable {
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            while (active) {
+                try {
+                    List<TimingWheel.Timeout<TimerJobInstance>> expired = wheel.advance(System.currentTimeMillis());
+                    for (TimingWheel.Timeout<TimerJobInstance> timeout : expired) {
+                        executor.submit((Callable<Void>) timeout.getTask());
+                    }
+                    long sleep = wheel.getNextTickTime() - System.currentTimeMillis();
+                    if (sleep > 0) {
+                        Thread.sleep(sleep);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RejectedExecutionException e) {
+                    logger.debug("Timer rejected as scheduler is shutting down");
+                } catch (Throwable e) {
+                    logger.error("Unexpected error while firing timers", e);
+                }
+            }
+        }
+    }
+
+    public static class GlobalWheelJobHandle extends GlobalJobHandle implements Serializable {
+
+        private static final long     serialVersionUID = 510l;
+
+        private transient TimingWheel.Timeout<TimerJobInstance> timeout;
+
+        public GlobalWheelJobHandle(long id) {
+            super(id);
+        }
+
+        public TimingWheel.Timeout<TimerJobInstance> getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(TimingWheel.Timeout<TimerJobInstance> timeout) {
+            this.timeout = timeout;
+        }
+    }
+
+    @Override
+    public JobHandle buildJobHandleForContext(NamedJobContext ctx) {
+        // this is in memory scheduler and the building of context is required for permanent ScueduleService only
+        return null;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return false;
+    }
+
+    @Override
+    public void setInterceptor(SchedulerServiceInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public boolean retryEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean isValid(GlobalJobHandle jobHandle) {
+        return true;
+    }
+}
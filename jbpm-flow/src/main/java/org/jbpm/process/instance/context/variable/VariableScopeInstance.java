@@ -18,7 +18,9 @@ package org.jbpm.process.instance.context.variable;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.drools.core.event.ProcessEventSupport;
 import org.jbpm.process.core.context.variable.Variable;
@@ -39,6 +41,8 @@ public class VariableScopeInstance extends AbstractContextInstance {
     private Map<String, Object> variables = new HashMap<String, Object>();
     private transient String variableIdPrefix = null;
     private transient String variableInstanceIdPrefix = null;
+    // names of the variables set through setVariable since the last clearChangedVariables
+    private transient Set<String> changedVariables = null;
 
     public String getContextType() {
         return VariableScope.VARIABLE_SCOPE;
@@ -88,6 +92,10 @@ public class VariableScopeInstance extends AbstractContextInstance {
 			oldValue, value, getProcessInstance(),
 			getProcessInstance().getKnowledgeRuntime());
         internalSetVariable(name, value);
+        if (changedVariables == null) {
+            changedVariables = new HashSet<String>();
+        }
+        changedVariables.add(name);
         processEventSupport.fireAfterVariableChanged(
 			(variableIdPrefix == null ? "" : variableIdPrefix + ":") + name,
 			(variableInstanceIdPrefix == null? "" : variableInstanceIdPrefix + ":") + name,
@@ -98,6 +106,21 @@ public class VariableScopeInstance extends AbstractContextInstance {
     public void internalSetVariable(String name, Object value) {
     	variables.put(name, value);
     }
+
+    /**
+     * Returns the names of the variables that were set since the variables were last
+     * stored, values that are modified in place without being set again are not included.
+     */
+    public Set<String> getChangedVariables() {
+        if (changedVariables == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(changedVariables);
+    }
+
+    public void clearChangedVariables() {
+        changedVariables = null;
+    }
     
     public VariableScope getVariableScope() {
     	return (VariableScope) getContext();
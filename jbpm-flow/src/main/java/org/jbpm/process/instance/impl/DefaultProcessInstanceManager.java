@@ -19,7 +19,6 @@ package org.jbpm.process.instance.impl;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -31,6 +30,8 @@ public class DefaultProcessInstanceManager implements ProcessInstanceManager {
 
     private Map<Long, ProcessInstance> processInstances = new ConcurrentHashMap<Long, ProcessInstance>();
     private Map<CorrelationKey, ProcessInstance> processInstancesByCorrelationKey = new ConcurrentHashMap<CorrelationKey, ProcessInstance>();
+    // reverse index so that removal does not have to scan all correlation keys
+    private Map<Long, CorrelationKey> correlationKeysByProcessInstanceId = new ConcurrentHashMap<Long, CorrelationKey>();
     private AtomicLong processCounter = new AtomicLong(0);
 
     public void addProcessInstance(ProcessInstance processInstance, CorrelationKey correlationKey) {
@@ -42,6 +43,7 @@ public class DefaultProcessInstanceManager implements ProcessInstanceManager {
                 throw new RuntimeException(correlationKey + " already exists");
             }
             processInstancesByCorrelationKey.put(correlationKey, processInstance);
+            correlationKeysByProcessInstanceId.put(processInstance.getId(), correlationKey);
         }
     }
     
@@ -67,10 +69,9 @@ public class DefaultProcessInstanceManager implements ProcessInstanceManager {
 
     public void internalRemoveProcessInstance(ProcessInstance processInstance) {
         processInstances.remove(((ProcessInstance)processInstance).getId());
-        for (Entry<CorrelationKey, ProcessInstance> entry : processInstancesByCorrelationKey.entrySet()) {
-            if (entry.getValue().getId() == processInstance.getId()) {
-                processInstancesByCorrelationKey.remove(entry.getKey());
-            }
+        CorrelationKey correlationKey = correlationKeysByProcessInstanceId.remove(processInstance.getId());
+        if (correlationKey != null) {
+            processInstancesByCorrelationKey.remove(correlationKey);
         }
     }
     
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+import javax.script.SimpleScriptContext;
+
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
+import org.jbpm.workflow.instance.WorkflowProcessInstance;
+import org.kie.api.runtime.Globals;
+import org.kie.api.runtime.process.ProcessContext;
+
+/**
+ * Evaluates JavaScript actions and constraints.
+ * <br/>
+ * Script engines are created once per class loader of the process (the root class loader of its kbase, or the
+ * context class loader when there is no kbase), with that class loader set as context class loader so the engine
+ * resolves classes of the process: a single engine is shared when it declares itself thread safe, otherwise
+ * every thread gets its own engine. Expressions are compiled once per engine (when the engine supports
+ * <code>Compilable</code>) and evaluated with their own bindings so evaluations do not see each other's state.
+ * Engines are softly referenced and do not keep class loaders of undeployed kbases from being collected.
+ * Bindings resolve <code>kcontext</code>, process variables and globals on first access instead of copying
+ * all of them up front.
+ * <br/>
+ * Number of compiled expressions kept per engine can be configured with <code>org.jbpm.javascript.cache.size</code>
+ * system property (default 500).
+ */
+public class JavaScriptSupport {
+
+    private static final int CACHE_SIZE = Integer.parseInt(System.getProperty("org.jbpm.javascript.cache.size", "500"));
+
+    private static final Map<ClassLoader, SoftReference<EngineHolder>> sharedEngines = new WeakHashMap<ClassLoader, SoftReference<EngineHolder>>();
+    private static final ThreadLocal<Map<ClassLoader, SoftReference<EngineHolder>>> threadEngines = new ThreadLocal<Map<ClassLoader, SoftReference<EngineHolder>>>() {
+
+        @Override
+        protected Map<ClassLoader, SoftReference<EngineHolder>> initialValue() {
+            return new WeakHashMap<ClassLoader, SoftReference<EngineHolder>>();
+        }
+    };
+
+    public static Object evaluate(String expr, ProcessContext context) throws ScriptException {
+        EngineHolder holder = getEngine(getClassLoader(context));
+
+        ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setBindings(new ProcessContextBindings(context), ScriptContext.ENGINE_SCOPE);
+
+        CompiledScript compiled = holder.getCompiledScript(expr);
+        if (compiled != null) {
+            return compiled.eval(scriptContext);
+        }
+        return holder.engine.eval(expr, scriptContext);
+    }
+
+    static ClassLoader getClassLoader(ProcessContext context) {
+        if (context.getKieRuntime() != null && context.getKieRuntime().getKieBase() instanceof InternalKnowledgeBase) {
+            return ((InternalKnowledgeBase) context.getKieRuntime().getKieBase()).getRootClassLoader();
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader != null ? classLoader : JavaScriptSupport.class.getClassLoader();
+    }
+
+    static EngineHolder getEngine(ClassLoader classLoader) {
+        EngineHolder holder;
+        synchronized (sharedEngines) {
+            holder = dereference(sharedEngines.get(classLoader));
+        }
+        if (holder != null) {
+            return holder;
+        }
+        Map<ClassLoader, SoftReference<EngineHolder>> engines = threadEngines.get();
+        holder = dereference(engines.get(classLoader));
+        if (holder == null) {
+            holder = new EngineHolder(createEngine(classLoader));
+            if (holder.engine.getFactory().getParameter("THREADING") != null) {
+                synchronized (sharedEngines) {
+                    EngineHolder existing = dereference(sharedEngines.get(classLoader));
+                    if (existing != null) {
+                        return existing;
+                    }
+                    sharedEngines.put(classLoader, new SoftReference<EngineHolder>(holder));
+                }
+            } else {
+                engines.put(classLoader, new SoftReference<EngineHolder>(holder));
+            }
+        }
+        return holder;
+    }
+
+    private static ScriptEngine createEngine(ClassLoader classLoader) {
+        // engines keep the context class loader of the creating thread to resolve classes
+        Thread thread = Thread.currentThread();
+        ClassLoader current = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            ScriptEngine engine = new ScriptEngineManager(classLoader).getEngineByName("JavaScript");
+            if (engine == null) {
+                throw new IllegalStateException("No JavaScript engine available");
+            }
+            return engine;
+        } finally {
+            thread.setContextClassLoader(current);
+        }
+    }
+
+    private static EngineHolder dereference(SoftReference<EngineHolder> reference) {
+        return reference == null ? null : reference.get();
+    }
+
+    static class EngineHolder {
+
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> compiledScripts;
+
+        EngineHolder(ScriptEngine engine) {
+            this.engine = engine;
+            this.compiledScripts = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+        }
+
+        CompiledScript getCompiledScript(String expr) throws ScriptException {
+            if (!(engine instanceof Compilable)) {
+                return null;
+            }
+            synchronized (compiledScripts) {
+                CompiledScript compiled = compiledScripts.get(expr);
+                if (compiled == null) {
+                    compiled = ((Compilable) engine).compile(expr);
+                    compiledScripts.put(expr, compiled);
+                }
+                return compiled;
+            }
+        }
+    }
+
+    /**
+     * Bindings that resolve names not explicitly put by the script engine, in following order:
+     * process variables, <code>kcontext</code> and globals.
+     */
+    private static class ProcessContextBindings extends SimpleBindings {
+
+        private final ProcessContext context;
+        private VariableScopeInstance variableScope;
+        private Globals globals;
+        private boolean initialized;
+
+        ProcessContextBindings(ProcessContext context) {
+            this.context = context;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            if (super.containsKey(key)) {
+                return true;
+            }
+            return resolve(key) != null;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (super.containsKey(key)) {
+                return super.get(key);
+            }
+            Object[] resolved = resolve(key);
+            return resolved == null ? null : resolved[0];
+        }
+
+        /**
+         * Returns resolved value wrapped in an array, or null when name is not known.
+         */
+        private Object[] resolve(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+            String name = (String) key;
+            init();
+            if (variableScope != null) {
+                Object value = variableScope.getVariable(name);
+                if (value != null || variableScope.getVariables().containsKey(name)) {
+                    return new Object[] {value};
+                }
+            }
+            if ("kcontext".equals(name)) {
+                return new Object[] {context};
+            }
+            if (globals != null) {
+                Object value = globals.get(name);
+                if (value != null) {
+                    return new Object[] {value};
+                }
+            }
+            return null;
+        }
+
+        private void init() {
+            if (initialized) {
+                return;
+            }
+            initialized = true;
+            if (context.getKieRuntime() != null) {
+                globals = context.getKieRuntime().getGlobals();
+            }
+            if (context.getProcessInstance() != null && context.getProcessInstance().getProcess() != null) {
+                variableScope = (VariableScopeInstance) ((WorkflowProcessInstance) context.getProcessInstance())
+                        .getContextInstance(VariableScope.VARIABLE_SCOPE);
+            }
+        }
+    }
+}
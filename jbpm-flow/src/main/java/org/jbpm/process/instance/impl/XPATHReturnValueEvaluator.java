@@ -22,14 +22,18 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import javax.xml.xpath.XPathFunction;
 import javax.xml.xpath.XPathFunctionException;
@@ -37,6 +41,7 @@ import javax.xml.xpath.XPathFunctionResolver;
 import javax.xml.xpath.XPathVariableResolver;
 
 import org.kie.api.runtime.process.ProcessContext;
+import org.w3c.dom.Document;
 
 public class XPATHReturnValueEvaluator
     implements
@@ -71,68 +76,127 @@ public class XPATHReturnValueEvaluator
         return this.id;
     }
 
-    public Object evaluate(final ProcessContext context) throws Exception {        
-    	XPathFactory factory = XPathFactory.newInstance();
-    	XPath xpathEvaluator = factory.newXPath();
-    	xpathEvaluator.setXPathFunctionResolver( 
-    			new  XPathFunctionResolver() {
-    				public XPathFunction resolveFunction(QName functionName, int arity)
-    				{
-    					String localName = functionName.getLocalPart();
-    					if ("getVariable".equals(localName)) {
-    						return new GetVariableData();
-    					}
-    					else {
-                            throw new IllegalArgumentException("Unknown BPMN function: " + functionName);
-    					}
-    				}
-
-    				class GetVariableData implements XPathFunction {
-    					public Object evaluate(List args) throws XPathFunctionException {
-    						String varname = (String) args.get(0);
-    						return context.getVariable(varname);
-    					}
-    				}
-    			}
-    	);
-    	xpathEvaluator.setXPathVariableResolver(new XPathVariableResolver() {
-            
-            public Object resolveVariable(QName variableName) {
-                return context.getVariable(variableName.getLocalPart());
-            }
-        });
-    	
-    	xpathEvaluator.setNamespaceContext(new NamespaceContext() {
-			private static final String DROOLS_NAMESPACE_URI = "http://www.jboss.org/drools";
-			private String[] prefixes = {"drools", "bpmn2"};
-			@Override
-			public Iterator getPrefixes(String namespaceURI) {
-				return Arrays.asList(prefixes).iterator();
-			}
-			
-			@Override
-			public String getPrefix(String namespaceURI) {
-				if (DROOLS_NAMESPACE_URI.equalsIgnoreCase(namespaceURI)) {
-					return "bpmn2";
-				}
-				return null;
-			}
-			
-			@Override
-			public String getNamespaceURI(String prefix) {
-				if ("bpmn2".equalsIgnoreCase(prefix)) {
-					return DROOLS_NAMESPACE_URI;
-				}
-				return null;
-			}
-		});
-
-		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        return xpathEvaluator.evaluate(this.expression, builder.newDocument(), XPathConstants.BOOLEAN);
+    /**
+     * Compiles the expression on the calling thread, so invalid expressions are reported when the process is built.
+     */
+    public void compile() throws XPathExpressionException {
+        XPathHolder.get().getExpression(this.expression);
+    }
+
+    public Object evaluate(final ProcessContext context) throws Exception {
+        XPathHolder holder = XPathHolder.get();
+        XPathExpression compiled = holder.getExpression(this.expression);
+        ProcessContext previous = holder.context;
+        holder.context = context;
+        try {
+            return compiled.evaluate(holder.document, XPathConstants.BOOLEAN);
+        } finally {
+            holder.context = previous;
+        }
     }
 
     public String toString() {
         return this.expression;
     }
 
+    /**
+     * XPath objects are neither thread safe nor reentrant, so factory, resolvers and compiled expressions are kept
+     * per thread. Resolvers are created once and read variables from the process context of the current evaluation.
+     * Number of compiled expressions kept per thread can be configured with <code>org.jbpm.xpath.cache.size</code>
+     * system property (default 500).
+     */
+    private static class XPathHolder {
+
+        private static final int CACHE_SIZE = Integer.parseInt(System.getProperty("org.jbpm.xpath.cache.size", "500"));
+        private static final String DROOLS_NAMESPACE_URI = "http://www.jboss.org/drools";
+
+        private static final ThreadLocal<XPathHolder> holders = new ThreadLocal<XPathHolder>() {
+            @Override
+            protected XPathHolder initialValue() {
+                return new XPathHolder();
+            }
+        };
+
+        private final XPath xpath;
+        private final Document document;
+        private final Map<String, XPathExpression> expressions;
+        private ProcessContext context;
+
+        private XPathHolder() {
+            this.xpath = XPathFactory.newInstance().newXPath();
+            this.xpath.setXPathFunctionResolver(new XPathFunctionResolver() {
+                private final XPathFunction getVariable = new XPathFunction() {
+                    public Object evaluate(List args) throws XPathFunctionException {
+                        String varname = (String) args.get(0);
+                        return context.getVariable(varname);
+                    }
+                };
+
+                public XPathFunction resolveFunction(QName functionName, int arity) {
+                    String localName = functionName.getLocalPart();
+                    if ("getVariable".equals(localName)) {
+                        return getVariable;
+                    } else {
+                        throw new IllegalArgumentException("Unknown BPMN function: " + functionName);
+                    }
+                }
+            });
+            this.xpath.setXPathVariableResolver(new XPathVariableResolver() {
+                public Object resolveVariable(QName variableName) {
+                    return context.getVariable(variableName.getLocalPart());
+                }
+            });
+            this.xpath.setNamespaceContext(new NamespaceContext() {
+                private String[] prefixes = {"drools", "bpmn2"};
+
+                @Override
+                public Iterator getPrefixes(String namespaceURI) {
+                    return Arrays.asList(prefixes).iterator();
+                }
+
+                @Override
+                public String getPrefix(String namespaceURI) {
+                    if (DROOLS_NAMESPACE_URI.equalsIgnoreCase(namespaceURI)) {
+                        return "bpmn2";
+                    }
+                    return null;
+                }
+
+                @Override
+                public String getNamespaceURI(String prefix) {
+                    if ("bpmn2".equalsIgnoreCase(prefix)) {
+                        return DROOLS_NAMESPACE_URI;
+                    }
+                    return null;
+                }
+            });
+            try {
+                this.document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Unable to create document for XPath evaluation", e);
+            }
+            this.expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+        }
+
+        static XPathHolder get() {
+            return holders.get();
+        }
+
+        XPathExpression getExpression(String expression) throws XPathExpressionException {
+            XPathExpression compiled = expressions.get(expression);
+            if (compiled == null) {
+                compiled = xpath.compile(expression);
+                expressions.put(expression, compiled);
+            }
+            return compiled;
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jbpm.process.core.event.EventFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventNodeInterface;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.kie.api.definition.process.Node;
+
+/**
+ * Immutable index of the event nodes (<code>EventNodeInterface</code>) of a node container by the event type
+ * they can accept. Nodes that only accept a fixed event type are registered under that type, all other nodes
+ * (no type filter, prefix based or expression based types, composite nodes) end up in a fallback bucket that is
+ * part of the candidates of every event type.
+ * <br/>
+ * Candidates are kept in the order of the container's nodes and still need to be checked with
+ * <code>acceptsEvent</code>, the index only narrows down the nodes that could accept given event.
+ */
+public class EventNodeIndex {
+
+    private final Map<String, List<Node>> candidatesByType;
+    private final Set<String> typesWithAttachedNodes;
+    private final List<Node> fallback;
+    private final boolean fallbackHasAttachedNodes;
+
+    public EventNodeIndex(Node[] nodes) {
+        Map<String, List<Node>> candidates = new HashMap<String, List<Node>>();
+        Set<String> attachedTypes = new HashSet<String>();
+        List<Node> fallbackCandidates = new ArrayList<Node>();
+        boolean fallbackAttached = false;
+
+        for (Node node : nodes) {
+            if (!(node instanceof EventNodeInterface)) {
+                continue;
+            }
+            Set<String> types = getAcceptedTypes(node);
+            if (types == null) {
+                fallbackCandidates.add(node);
+                fallbackAttached |= isAttached(node);
+                for (List<Node> typeCandidates : candidates.values()) {
+                    typeCandidates.add(node);
+                }
+            } else {
+                for (String type : types) {
+                    List<Node> typeCandidates = candidates.get(type);
+                    if (typeCandidates == null) {
+                        typeCandidates = new ArrayList<Node>(fallbackCandidates);
+                        candidates.put(type, typeCandidates);
+                    }
+                    typeCandidates.add(node);
+                    if (isAttached(node)) {
+                        attachedTypes.add(type);
+                    }
+                }
+            }
+        }
+        Map<String, List<Node>> immutableCandidates = new HashMap<String, List<Node>>();
+        for (Map.Entry<String, List<Node>> entry : candidates.entrySet()) {
+            immutableCandidates.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.candidatesByType = Collections.unmodifiableMap(immutableCandidates);
+        this.typesWithAttachedNodes = Collections.unmodifiableSet(attachedTypes);
+        this.fallback = Collections.unmodifiableList(fallbackCandidates);
+        this.fallbackHasAttachedNodes = fallbackAttached;
+    }
+
+    /**
+     * Returns event nodes that might accept event of given type, in the order of the indexed nodes.
+     */
+    public List<Node> getCandidates(String type) {
+        List<Node> candidates = candidatesByType.get(type);
+        if (candidates == null) {
+            return fallback;
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns true if any of the candidates for given type is signaled through its existing node instances
+     * (as opposed to event nodes and event sub processes that create a new node instance for each event).
+     */
+    public boolean hasAttachedCandidates(String type) {
+        return fallbackHasAttachedNodes || typesWithAttachedNodes.contains(type);
+    }
+
+    /*
+     * Returns the only event types the node can accept or null if that cannot be determined upfront
+     */
+    private static Set<String> getAcceptedTypes(Node node) {
+        if (node.getClass() == EventSubProcessNode.class) {
+            // event sub process accepts event when any of its filters accepts it, so all of them must be exact
+            Set<String> types = new HashSet<String>();
+            for (EventTypeFilter filter : ((EventSubProcessNode) node).getEventTypeFilters()) {
+                if (filter.getClass() != EventTypeFilter.class || !isIndexable(filter.getType())) {
+                    return null;
+                }
+                types.add(filter.getType());
+            }
+            return types;
+        } else if (node instanceof EventNode) {
+            // event node accepts event only when all of its filters accept it, so a single exact filter is enough
+            for (EventFilter filter : ((EventNode) node).getEventFilters()) {
+                if (filter.getClass() == EventTypeFilter.class && isIndexable(((EventTypeFilter) filter).getType())) {
+                    return Collections.singleton(((EventTypeFilter) filter).getType());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIndexable(String type) {
+        return type != null && !type.contains("#{");
+    }
+
+    private static boolean isAttached(Node node) {
+        if (node instanceof EventNode) {
+            return ((EventNode) node).getFrom() != null;
+        }
+        return !(node instanceof EventSubProcessNode);
+    }
+}
@@ -32,6 +32,7 @@ public class WorkflowProcessImpl extends ProcessImpl implements WorkflowProcess,
     private boolean autoComplete = false;
     private boolean dynamic = false;
     private org.jbpm.workflow.core.NodeContainer nodeContainer;
+    private transient volatile EventNodeIndex eventNodeIndex;
     
     public WorkflowProcessImpl() {
         nodeContainer = (org.jbpm.workflow.core.NodeContainer) createNodeContainer();
@@ -64,11 +65,26 @@ public class WorkflowProcessImpl extends ProcessImpl implements WorkflowProcess,
     public void removeNode(final Node node) {
         nodeContainer.removeNode(node);
         ((org.jbpm.workflow.core.Node) node).setNodeContainer(null);
+        eventNodeIndex = null;
     }
 
     public void addNode(final Node node) {
         nodeContainer.addNode(node);
         ((org.jbpm.workflow.core.Node) node).setNodeContainer(this);
+        eventNodeIndex = null;
+    }
+
+    /**
+     * Returns index of the event nodes of this process by the event type they accept,
+     * the index is built on first use and rebuilt whenever nodes are added or removed.
+     */
+    public EventNodeIndex getEventNodeIndex() {
+        EventNodeIndex index = eventNodeIndex;
+        if (index == null) {
+            index = new EventNodeIndex(getNodes());
+            eventNodeIndex = index;
+        }
+        return index;
     }
     
     public boolean isAutoComplete() {
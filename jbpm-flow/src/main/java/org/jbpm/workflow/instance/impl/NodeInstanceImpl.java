@@ -69,7 +69,11 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     private int level;
 
     public void setId(final long id) {
+        long previousId = this.id;
         this.id = id;
+        if (previousId != id) {
+            nodeInstanceIndexChanged(previousId, this.nodeId);
+        }
     }
 
     public long getId() {
@@ -77,7 +81,25 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     }
 
     public void setNodeId(final long nodeId) {
+        long previousNodeId = this.nodeId;
         this.nodeId = nodeId;
+        if (previousNodeId != nodeId) {
+            nodeInstanceIndexChanged(this.id, previousNodeId);
+        }
+    }
+
+    /*
+     * keeps the lookup structures of the owning container in sync when id or node id change
+     * after the node instance was added to it (e.g. when unmarshalling or migrating)
+     */
+    private void nodeInstanceIndexChanged(long previousId, long previousNodeId) {
+        if (nodeInstanceContainer instanceof WorkflowProcessInstanceImpl) {
+            ((WorkflowProcessInstanceImpl) nodeInstanceContainer).internalGetNodeInstanceIndex()
+                .update(this, previousId, previousNodeId);
+        } else if (nodeInstanceContainer instanceof CompositeNodeInstance) {
+            ((CompositeNodeInstance) nodeInstanceContainer).internalGetNodeInstanceIndex()
+                .update(this, previousId, previousNodeId);
+        }
     }
 
     public long getNodeId() {
@@ -352,17 +374,33 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
     }
     
     protected void triggerNodeInstance(org.jbpm.workflow.instance.NodeInstance nodeInstance, String type) {
-    	boolean hidden = false;
-    	if (getNode().getMetaData().get("hidden") != null) {
-    		hidden = true;
+    	NodeTriggerQueue triggerQueue = ((WorkflowProcessInstanceImpl) getProcessInstance()).internalGetNodeTriggerQueue();
+    	if (triggerQueue != null) {
+    		triggerQueue.triggerNodeInstance(this, nodeInstance, type);
+    	} else {
+    		internalTriggerNodeInstance(nodeInstance, type);
     	}
-    	InternalKnowledgeRuntime kruntime = getProcessInstance().getKnowledgeRuntime();
-    	if (!hidden) {
+    }
+    
+    protected void internalTriggerNodeInstance(org.jbpm.workflow.instance.NodeInstance nodeInstance, String type) {
+    	beforeNodeLeft();
+    	// trigger next node
+        nodeInstance.trigger(this, type);
+        afterNodeLeft(nodeInstance, type);
+    }
+    
+    void beforeNodeLeft() {
+    	if (!isHidden()) {
+    		InternalKnowledgeRuntime kruntime = getProcessInstance().getKnowledgeRuntime();
     		((InternalProcessRuntime) kruntime.getProcessRuntime())
     			.getProcessEventSupport().fireBeforeNodeLeft(this, kruntime);
     	}
-    	// trigger next node
-        nodeInstance.trigger(this, type);
+    }
+    
+    /*
+     * completes triggering given node instance, in queued mode only once the triggers it caused were executed
+     */
+    void afterNodeLeft(org.jbpm.workflow.instance.NodeInstance nodeInstance, String type) {
         Collection<Connection> outgoing = getNode().getOutgoingConnections(type);
         for (Connection conn : outgoing) {
             if (conn.getTo().getId() == nodeInstance.getNodeId()) {
@@ -370,14 +408,24 @@ public abstract class NodeInstanceImpl implements org.jbpm.workflow.instance.Nod
                 break;
             }
         }
-        if (!hidden) {
+        if (!isHidden()) {
+        	InternalKnowledgeRuntime kruntime = getProcessInstance().getKnowledgeRuntime();
         	((InternalProcessRuntime) kruntime.getProcessRuntime())
         		.getProcessEventSupport().fireAfterNodeLeft(this, kruntime);
         }
     }
     
+    private boolean isHidden() {
+    	return getNode().getMetaData().get("hidden") != null;
+    }
+    
     protected void triggerConnection(Connection connection) {
-    	triggerNodeInstance(followConnection(connection), connection.getToType());
+    	NodeTriggerQueue triggerQueue = ((WorkflowProcessInstanceImpl) getProcessInstance()).internalGetNodeTriggerQueue();
+    	if (triggerQueue != null) {
+    		triggerQueue.triggerConnection(this, connection);
+    	} else {
+    		internalTriggerNodeInstance(followConnection(connection), connection.getToType());
+    	}
     }
     
     public void retrigger(boolean remove) {
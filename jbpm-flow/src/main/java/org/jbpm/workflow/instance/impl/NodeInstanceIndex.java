@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.workflow.instance.NodeInstance;
+
+/**
+ * Secondary lookup structure for the active node instances of a node instance container,
+ * by node instance id and by node id. Node instances kept per node id are in the order
+ * they were added to the container, and are looked up by identity so removing one does not
+ * depend on the number of node instances of its node (e.g. many instances of a for each).
+ * <br/>
+ * Containers update the index whenever node instances are added or removed, node instances
+ * notify their container when their id or node id changes (e.g. on unmarshalling or migration).
+ */
+public class NodeInstanceIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Long, NodeInstance> byId = new HashMap<Long, NodeInstance>();
+    private final Map<Long, Map<IdentityKey, NodeInstance>> byNodeId = new HashMap<Long, Map<IdentityKey, NodeInstance>>();
+    // node instances temporarily sharing their id with another one, e.g. while ids are being restored
+    private final List<NodeInstance> displaced = new ArrayList<NodeInstance>(0);
+
+    public void add(NodeInstance nodeInstance) {
+        NodeInstance previous = byId.put(nodeInstance.getId(), nodeInstance);
+        if (previous != null && previous != nodeInstance) {
+            displaced.add(previous);
+        }
+        Map<IdentityKey, NodeInstance> nodeInstances = byNodeId.get(nodeInstance.getNodeId());
+        if (nodeInstances == null) {
+            nodeInstances = new LinkedHashMap<IdentityKey, NodeInstance>(2);
+            byNodeId.put(nodeInstance.getNodeId(), nodeInstances);
+        }
+        nodeInstances.put(new IdentityKey(nodeInstance), nodeInstance);
+    }
+
+    public void remove(NodeInstance nodeInstance) {
+        remove(nodeInstance, nodeInstance.getId(), nodeInstance.getNodeId());
+    }
+
+    /**
+     * Re-indexes given node instance after its id and/or node id changed, node instances
+     * that are not (yet) part of the index are ignored.
+     */
+    public void update(NodeInstance nodeInstance, long previousId, long previousNodeId) {
+        // every indexed node instance is either mapped by its id or displaced, checking that first
+        // avoids scanning node instances of its node when it is not indexed yet (e.g. id set while being added)
+        if (byId.get(previousId) != nodeInstance && (displaced.isEmpty() || !displaced.contains(nodeInstance))) {
+            return;
+        }
+        if (remove(nodeInstance, previousId, previousNodeId)) {
+            add(nodeInstance);
+        }
+    }
+
+    public NodeInstance get(long nodeInstanceId) {
+        return byId.get(nodeInstanceId);
+    }
+
+    public Collection<NodeInstance> getByNodeId(long nodeId) {
+        Map<IdentityKey, NodeInstance> nodeInstances = byNodeId.get(nodeId);
+        if (nodeInstances == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableCollection(nodeInstances.values());
+    }
+
+    private boolean remove(NodeInstance nodeInstance, long id, long nodeId) {
+        boolean removed = false;
+        if (byId.get(id) == nodeInstance) {
+            byId.remove(id);
+            removed = true;
+            restoreDisplaced(id);
+        } else if (removeIdentical(displaced, nodeInstance)) {
+            removed = true;
+        }
+        Map<IdentityKey, NodeInstance> nodeInstances = byNodeId.get(nodeId);
+        if (nodeInstances != null) {
+            removed |= nodeInstances.remove(new IdentityKey(nodeInstance)) != null;
+            if (nodeInstances.isEmpty()) {
+                byNodeId.remove(nodeId);
+            }
+        }
+        return removed;
+    }
+
+    private void restoreDisplaced(long id) {
+        for (int i = 0; i < displaced.size(); i++) {
+            if (displaced.get(i).getId() == id) {
+                byId.put(id, displaced.remove(i));
+                return;
+            }
+        }
+    }
+
+    private static boolean removeIdentical(List<NodeInstance> nodeInstances, NodeInstance nodeInstance) {
+        for (int i = 0; i < nodeInstances.size(); i++) {
+            if (nodeInstances.get(i) == nodeInstance) {
+                nodeInstances.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Key that compares node instances by identity, node instances do not override equals.
+     */
+    private static class IdentityKey implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final NodeInstance nodeInstance;
+
+        IdentityKey(NodeInstance nodeInstance) {
+            this.nodeInstance = nodeInstance;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(nodeInstance);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey) obj).nodeInstance == nodeInstance;
+        }
+    }
+}
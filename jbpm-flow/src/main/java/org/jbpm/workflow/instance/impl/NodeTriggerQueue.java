@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.jbpm.workflow.instance.NodeInstance;
+import org.jbpm.workflow.instance.NodeInstanceContainer;
+import org.kie.api.definition.process.Connection;
+import org.kie.api.runtime.process.ProcessInstance;
+
+/**
+ * Per process instance work queue (trampoline) used to trigger the next node instances
+ * without recursing through the Java stack, so that a path of any length is executed in
+ * constant stack depth.
+ * <br/>
+ * The first trigger is executed right away and keeps executing queued triggers until none are left,
+ * triggers requested meanwhile are queued. Triggers requested while executing a trigger are executed
+ * right after it, before any trigger that was already queued, which preserves the depth first order
+ * in which nodes are triggered in the recursive mode (and so the ordering of joins and boundary events).
+ * Completing a trigger (recording the connection taken and the after node left event) is queued behind
+ * the triggers it requested so process event listeners see the same order of events as in the recursive mode.
+ * Queued triggers of a node instance whose container (or process instance) is no longer active are dropped.
+ * <br/>
+ * The remaining differences compared to the recursive mode are that other code following a trigger request
+ * is executed before the triggered node instance instead of after it and that exceptions are thrown
+ * from the first trigger.
+ * <br/>
+ * Enabled with the <code>org.jbpm.node.trigger.queue</code> system property (read once), disabled by default,
+ * see {@link #setEnabled(boolean)} to switch the mode at runtime.
+ */
+public class NodeTriggerQueue {
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty("org.jbpm.node.trigger.queue", "false"));
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Overrides the mode configured by the system property, applies to node triggers requested afterwards
+     * by any process instance. Triggers requested while the queue of a process instance is executing
+     * are still queued until it is done.
+     */
+    public static void setEnabled(boolean enabled) {
+        NodeTriggerQueue.enabled = enabled;
+    }
+
+    private final Deque<Task> pending = new ArrayDeque<Task>();
+    // triggers requested by the trigger being executed, in the order they were requested
+    private final List<Task> requested = new ArrayList<Task>();
+    private boolean running;
+
+    public void triggerNodeInstance(NodeInstanceImpl from, NodeInstance nodeInstance, String type) {
+        execute(new Trigger(from, nodeInstance, null, type));
+    }
+
+    public void triggerConnection(NodeInstanceImpl from, Connection connection) {
+        // node instance is only created once the trigger is executed, as done in the recursive mode
+        execute(new Trigger(from, null, connection, connection.getToType()));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void execute(Task task) {
+        if (running) {
+            requested.add(task);
+            return;
+        }
+        running = true;
+        try {
+            run(task);
+            while (!pending.isEmpty()) {
+                Task next = pending.pollFirst();
+                if (next.isActive()) {
+                    run(next);
+                }
+            }
+        } finally {
+            pending.clear();
+            requested.clear();
+            running = false;
+        }
+    }
+
+    private void run(Task task) {
+        Task completion = task.execute();
+        if (completion != null) {
+            pending.addFirst(completion);
+        }
+        for (int i = requested.size() - 1; i >= 0; i--) {
+            pending.addFirst(requested.get(i));
+        }
+        requested.clear();
+    }
+
+    private abstract static class Task {
+
+        boolean isActive() {
+            return true;
+        }
+
+        /**
+         * Executes this task and returns the task to execute once all tasks it requested are done, if any.
+         */
+        abstract Task execute();
+    }
+
+    private static class Trigger extends Task {
+
+        private final NodeInstanceImpl from;
+        private final NodeInstance nodeInstance;
+        private final Connection connection;
+        private final String type;
+
+        Trigger(NodeInstanceImpl from, NodeInstance nodeInstance, Connection connection, String type) {
+            this.from = from;
+            this.nodeInstance = nodeInstance;
+            this.connection = connection;
+            this.type = type;
+        }
+
+        @Override
+        boolean isActive() {
+            return ((NodeInstanceContainer) from.getNodeInstanceContainer()).getState() == ProcessInstance.STATE_ACTIVE
+                    && from.getProcessInstance().getState() == ProcessInstance.STATE_ACTIVE;
+        }
+
+        @Override
+        Task execute() {
+            NodeInstance target = nodeInstance;
+            if (target == null) {
+                target = from.followConnection(connection);
+            }
+            from.beforeNodeLeft();
+            target.trigger(from, type);
+            return new NodeLeft(from, target, type);
+        }
+    }
+
+    private static class NodeLeft extends Task {
+
+        private final NodeInstanceImpl from;
+        private final NodeInstance nodeInstance;
+        private final String type;
+
+        NodeLeft(NodeInstanceImpl from, NodeInstance nodeInstance, String type) {
+            this.from = from;
+            this.nodeInstance = nodeInstance;
+            this.type = type;
+        }
+
+        @Override
+        Task execute() {
+            // executed regardless of the state, as the recursive mode does when unwinding
+            from.afterNodeLeft(nodeInstance, type);
+            return null;
+        }
+    }
+}
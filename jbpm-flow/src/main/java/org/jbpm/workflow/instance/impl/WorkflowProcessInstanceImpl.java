@@ -19,6 +19,7 @@ package org.jbpm.workflow.instance.impl;
 import static org.jbpm.workflow.instance.impl.DummyEventListener.EMPTY_EVENT_LISTENER;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,7 +39,9 @@ import org.jbpm.process.instance.ProcessInstance;
 import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.core.DroolsAction;
+import org.jbpm.workflow.core.impl.EventNodeIndex;
 import org.jbpm.workflow.core.impl.NodeImpl;
+import org.jbpm.workflow.core.impl.WorkflowProcessImpl;
 import org.jbpm.workflow.core.node.AsyncEventNode;
 import org.jbpm.workflow.core.node.EventNode;
 import org.jbpm.workflow.core.node.EventNodeInterface;
@@ -73,6 +76,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	private static final long serialVersionUID = 510l;
 
 	private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();;
+	private final NodeInstanceIndex nodeInstanceIndex = new NodeInstanceIndex();
+	private transient NodeTriggerQueue nodeTriggerQueue;
 
 	private AtomicLong singleNodeInstanceCounter = new AtomicLong(0);
 
@@ -97,6 +102,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	    id = singleNodeInstanceCounter.getAndIncrement();
 		((NodeInstanceImpl) nodeInstance).setId(id);
 		this.nodeInstances.add(nodeInstance);
+		this.nodeInstanceIndex.add(nodeInstance);
 	}
 
     @Override
@@ -124,6 +130,29 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 					getKnowledgeRuntime().getFactHandle(nodeInstance));
 		}
 		this.nodeInstances.remove(nodeInstance);
+		this.nodeInstanceIndex.remove(nodeInstance);
+	}
+
+	public NodeInstanceIndex internalGetNodeInstanceIndex() {
+		return this.nodeInstanceIndex;
+	}
+
+	/**
+	 * Returns the queue used to trigger node instances of this process instance
+	 * or null when node instances are triggered recursively. The mode is checked on every
+	 * trigger, except while the queue is executing as its pending triggers must be completed.
+	 */
+	public NodeTriggerQueue internalGetNodeTriggerQueue() {
+		if (this.nodeTriggerQueue != null && this.nodeTriggerQueue.isRunning()) {
+			return this.nodeTriggerQueue;
+		}
+		if (!NodeTriggerQueue.isEnabled()) {
+			return null;
+		}
+		if (this.nodeTriggerQueue == null) {
+			this.nodeTriggerQueue = new NodeTriggerQueue();
+		}
+		return this.nodeTriggerQueue;
 	}
 
 	public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -148,21 +177,22 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId) {
-		for (NodeInstance nodeInstance: nodeInstances) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
-			}
-		}
-		return null;
+		return nodeInstanceIndex.get(nodeInstanceId);
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId, boolean recursive) {
-		for (NodeInstance nodeInstance: getNodeInstances(recursive)) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
+		NodeInstance result = nodeInstanceIndex.get(nodeInstanceId);
+		if (result == null && recursive) {
+			for (NodeInstance nodeInstance: nodeInstances) {
+				if (nodeInstance instanceof org.jbpm.workflow.instance.NodeInstanceContainer) {
+					result = ((org.jbpm.workflow.instance.NodeInstanceContainer) nodeInstance).getNodeInstance(nodeInstanceId, true);
+					if (result != null) {
+						return result;
+					}
+				}
 			}
 		}
-		return null;
+		return result;
 	}
 
 	public List<String> getActiveNodeIds() {
@@ -181,10 +211,8 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public NodeInstance getFirstNodeInstance(final long nodeId) {
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId && nodeInstance.getLevel() == getCurrentLevel()) {
+		for (NodeInstance nodeInstance : nodeInstanceIndex.getByNodeId(nodeId)) {
+			if (nodeInstance.getLevel() == getCurrentLevel()) {
 				return nodeInstance;
 			}
 		}
@@ -192,15 +220,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId) {
-		List<NodeInstance> result = new ArrayList<NodeInstance>();
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId) {
-				result.add(nodeInstance);
-			}
-		}
-		return result;
+		return new ArrayList<NodeInstance>(nodeInstanceIndex.getByNodeId(nodeId));
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId, final List<NodeInstance> currentView) {
@@ -454,7 +474,18 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 			if (getState() != ProcessInstance.STATE_ACTIVE) {
 				return;
 			}
-			List<NodeInstance> currentView = new ArrayList<NodeInstance>(this.nodeInstances);
+			List<Node> candidates;
+			boolean attachedCandidates;
+			if (getWorkflowProcess() instanceof WorkflowProcessImpl) {
+				EventNodeIndex eventNodeIndex = ((WorkflowProcessImpl) getWorkflowProcess()).getEventNodeIndex();
+				candidates = eventNodeIndex.getCandidates(type);
+				attachedCandidates = eventNodeIndex.hasAttachedCandidates(type);
+			} else {
+				candidates = Arrays.asList(getWorkflowProcess().getNodes());
+				attachedCandidates = true;
+			}
+			// snapshot of node instances is only needed when existing node instances are going to be signaled
+			List<NodeInstance> currentView = attachedCandidates ? new ArrayList<NodeInstance>(this.nodeInstances) : null;
 
 			try {
 				this.activatingNodeIds = new ArrayList<String>();
@@ -470,7 +501,7 @@ public abstract class WorkflowProcessInstanceImpl extends ProcessInstanceImpl
 						listener.signalEvent(type, event);
 					}
 				}
-				for (Node node : getWorkflowProcess().getNodes()) {
+				for (Node node : candidates) {
 			        if (node instanceof EventNodeInterface) {
 			            if (((EventNodeInterface) node).acceptsEvent(type, event)) {
 			                if (node instanceof EventNode && ((EventNode) node).getFrom() == null) {
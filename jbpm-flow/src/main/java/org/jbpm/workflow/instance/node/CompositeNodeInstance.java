@@ -40,6 +40,7 @@ import org.jbpm.workflow.instance.WorkflowProcessInstance;
 import org.jbpm.workflow.instance.impl.NodeInstanceFactory;
 import org.jbpm.workflow.instance.impl.NodeInstanceFactoryRegistry;
 import org.jbpm.workflow.instance.impl.NodeInstanceImpl;
+import org.jbpm.workflow.instance.impl.NodeInstanceIndex;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.kie.api.definition.process.Connection;
 import org.kie.api.definition.process.Node;
@@ -54,6 +55,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
     private static final long serialVersionUID = 510l;
 
     private final List<NodeInstance> nodeInstances = new ArrayList<NodeInstance>();
+    private final NodeInstanceIndex nodeInstanceIndex = new NodeInstanceIndex();
 
     private AtomicLong singleNodeInstanceCounter = null; // set during NodeInstance creation (*NodeFactory)
     private int state = ProcessInstance.STATE_ACTIVE;
@@ -183,10 +185,16 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
         long id = singleNodeInstanceCounter.incrementAndGet();
         ((NodeInstanceImpl) nodeInstance).setId(id);
         this.nodeInstances.add(nodeInstance);
+        this.nodeInstanceIndex.add(nodeInstance);
     }
 
     public void removeNodeInstance(final NodeInstance nodeInstance) {
         this.nodeInstances.remove(nodeInstance);
+        this.nodeInstanceIndex.remove(nodeInstance);
+    }
+
+    public NodeInstanceIndex internalGetNodeInstanceIndex() {
+        return this.nodeInstanceIndex;
     }
 
     public Collection<org.kie.api.runtime.process.NodeInstance> getNodeInstances() {
@@ -209,27 +217,27 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
     }
 
 	public NodeInstance getNodeInstance(long nodeInstanceId) {
-		for (NodeInstance nodeInstance: nodeInstances) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
-			}
-		}
-		return null;
+		return nodeInstanceIndex.get(nodeInstanceId);
 	}
 
 	public NodeInstance getNodeInstance(long nodeInstanceId, boolean recursive) {
-		for (NodeInstance nodeInstance: getNodeInstances(recursive)) {
-			if (nodeInstance.getId() == nodeInstanceId) {
-				return nodeInstance;
+		NodeInstance result = nodeInstanceIndex.get(nodeInstanceId);
+		if (result == null && recursive) {
+			for (NodeInstance nodeInstance: nodeInstances) {
+				if (nodeInstance instanceof NodeInstanceContainer) {
+					result = ((NodeInstanceContainer) nodeInstance).getNodeInstance(nodeInstanceId, true);
+					if (result != null) {
+						return result;
+					}
+				}
 			}
 		}
-		return null;
+		return result;
 	}
 
     public NodeInstance getFirstNodeInstance(final long nodeId) {
-        for ( final Iterator<NodeInstance> iterator = this.nodeInstances.iterator(); iterator.hasNext(); ) {
-            final NodeInstance nodeInstance = iterator.next();
-            if ( nodeInstance.getNodeId() == nodeId && nodeInstance.getLevel() == getCurrentLevel()) {
+        for (NodeInstance nodeInstance : nodeInstanceIndex.getByNodeId(nodeId)) {
+            if (nodeInstance.getLevel() == getCurrentLevel()) {
                 return nodeInstance;
             }
         }
@@ -298,15 +306,7 @@ public class CompositeNodeInstance extends StateBasedNodeInstance implements Nod
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId) {
-		List<NodeInstance> result = new ArrayList<NodeInstance>();
-		for (final Iterator<NodeInstance> iterator = this.nodeInstances
-				.iterator(); iterator.hasNext();) {
-			final NodeInstance nodeInstance = iterator.next();
-			if (nodeInstance.getNodeId() == nodeId) {
-				result.add(nodeInstance);
-			}
-		}
-		return result;
+		return new ArrayList<NodeInstance>(nodeInstanceIndex.getByNodeId(nodeId));
 	}
 
 	public List<NodeInstance> getNodeInstances(final long nodeId, List<NodeInstance> currentView) {
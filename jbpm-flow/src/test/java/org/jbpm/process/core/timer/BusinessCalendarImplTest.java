@@ -21,11 +21,14 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.Properties;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.drools.core.time.SessionPseudoClock;
 import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.slf4j.LoggerFactory;
 
@@ -311,6 +314,141 @@ public class BusinessCalendarImplTest extends AbstractBaseTest {
 		assertEquals(expectedDate, formatDate("yyyy-MM-dd HH:mm", result));
     }
     
+    @Test
+    public void testSameResultsAsLegacyCalendar() {
+        Random random = new Random(20160101);
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        for (int i = 0; i < 300; i++) {
+            Properties config = randomConfiguration(random, currentYear);
+            StaticPseudoClock clock = new StaticPseudoClock(0);
+            BusinessCalendarImpl businessCal = new BusinessCalendarImpl(config, clock);
+            LegacyBusinessCalendar legacyCal = new LegacyBusinessCalendar(config, clock);
+            // the same calendar is used for several dates and expressions so cached expressions are used as well
+            for (int j = 0; j < 30; j++) {
+                clock.currentTime = randomTime(random, currentYear);
+                String expression = randomTimeExpression(random);
+                assertEquals(config + " " + new Date(clock.currentTime) + " " + expression,
+                        legacyCal.calculateBusinessTimeAsDate(expression), businessCal.calculateBusinessTimeAsDate(expression));
+            }
+        }
+    }
+    
+    @Test
+    public void testSameResultsAsLegacyCalendarWithOverlappingHolidays() {
+        Properties config = new Properties();
+        // overlapping and adjacent holidays, first matching holiday determines where calculation continues
+        config.setProperty(BusinessCalendarImpl.HOLIDAYS, "2012-05-10:2012-05-20,2012-05-08:2012-05-30,2012-05-15,2012-05-21:2012-05-22,2012-05-22");
+        StaticPseudoClock clock = new StaticPseudoClock(0);
+        BusinessCalendarImpl businessCal = new BusinessCalendarImpl(config, clock);
+        LegacyBusinessCalendar legacyCal = new LegacyBusinessCalendar(config, clock);
+        
+        Calendar start = new GregorianCalendar();
+        start.setTime(parseToDate("2012-05-01"));
+        for (int i = 0; i < 40 * 24; i++) {
+            clock.currentTime = start.getTimeInMillis();
+            for (String expression : new String[] {"1h", "3d", "2d 5h 30m", "1w", "25h"}) {
+                assertEquals(new Date(clock.currentTime) + " " + expression,
+                        legacyCal.calculateBusinessTimeAsDate(expression), businessCal.calculateBusinessTimeAsDate(expression));
+            }
+            start.add(Calendar.HOUR_OF_DAY, 1);
+        }
+    }
+    
+    /**
+     * Compares the time to calculate due dates with the legacy calendar for a calendar with many holidays.
+     */
+    @Test
+    @Ignore
+    public void testBusinessCalendarBenchmark() {
+        Properties config = new Properties();
+        StringBuilder holidays = new StringBuilder();
+        Calendar day = new GregorianCalendar(2010, Calendar.JANUARY, 1);
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        for (int i = 0; i < 200; i++) {
+            holidays.append(holidays.length() > 0 ? "," : "").append(sdf.format(day.getTime()));
+            day.add(Calendar.DAY_OF_YEAR, 17);
+        }
+        config.setProperty(BusinessCalendarImpl.HOLIDAYS, holidays.toString());
+        StaticPseudoClock clock = new StaticPseudoClock(parseToDateWithTime("2012-05-04 13:45").getTime());
+        BusinessCalendar[] calendars = new BusinessCalendar[] {new LegacyBusinessCalendar(config, clock), new BusinessCalendarImpl(config, clock)};
+        int iterations = 100000;
+        for (int round = 0; round < 3; round++) {
+            for (BusinessCalendar calendar : calendars) {
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    clock.currentTime += 60000;
+                    calendar.calculateBusinessTimeAsDate("30d");
+                }
+                logger.info("{}: {} calculations in {} ms", calendar.getClass().getSimpleName(), iterations, (System.nanoTime() - start) / 1000000);
+            }
+        }
+    }
+    
+    private Properties randomConfiguration(Random random, int currentYear) {
+        Properties config = new Properties();
+        int startHour = 6 + random.nextInt(5);
+        int hoursPerDay = 4 + random.nextInt(7);
+        config.setProperty(BusinessCalendarImpl.START_HOUR, String.valueOf(startHour));
+        config.setProperty(BusinessCalendarImpl.END_HOUR, String.valueOf(startHour + hoursPerDay + random.nextInt(3) - 1));
+        config.setProperty(BusinessCalendarImpl.HOURS_PER_DAY, String.valueOf(hoursPerDay));
+        config.setProperty(BusinessCalendarImpl.DAYS_PER_WEEK, String.valueOf(4 + random.nextInt(3)));
+        if (random.nextBoolean()) {
+            int weekendDay = 1 + random.nextInt(7);
+            config.setProperty(BusinessCalendarImpl.WEEKEND_DAYS, weekendDay + "," + (weekendDay % 7 + 1));
+        }
+        if (random.nextInt(4) == 0) {
+            String[] timezones = new String[] {"UTC", "America/New_York", "Europe/Prague", "Asia/Tokyo"};
+            config.setProperty(BusinessCalendarImpl.TIMEZONE, timezones[random.nextInt(timezones.length)]);
+        }
+        
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+        StringBuilder holidays = new StringBuilder();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            Calendar from = new GregorianCalendar();
+            from.setTimeInMillis(randomTime(random, currentYear));
+            String holiday = sdf.format(from.getTime());
+            if (random.nextBoolean()) {
+                from.add(Calendar.DAY_OF_YEAR, random.nextInt(15));
+                holiday += ":" + sdf.format(from.getTime());
+            }
+            if (random.nextInt(5) == 0) {
+                holiday = "*" + holiday.substring(4);
+            }
+            holidays.append(i > 0 ? "," : "").append(holiday);
+        }
+        if (count > 0) {
+            config.setProperty(BusinessCalendarImpl.HOLIDAYS, holidays.toString());
+        }
+        return config;
+    }
+    
+    private long randomTime(Random random, int currentYear) {
+        Calendar c = new GregorianCalendar(currentYear - 1, Calendar.JANUARY, 1);
+        c.add(Calendar.MINUTE, random.nextInt(3 * 365 * 24 * 60));
+        c.add(Calendar.MILLISECOND, random.nextInt(60000));
+        return c.getTimeInMillis();
+    }
+    
+    private String randomTimeExpression(Random random) {
+        switch (random.nextInt(4)) {
+        case 0:
+            return "P" + random.nextInt(20) + "DT" + random.nextInt(30) + "H" + random.nextInt(60) + "M";
+        case 1:
+            return random.nextInt(100) + "h";
+        default:
+            StringBuilder expression = new StringBuilder();
+            String[] units = new String[] {"w", "d", "h", "m", "s"};
+            int[] limits = new int[] {5, 40, 30, 200, 200};
+            for (int i = 0; i < units.length; i++) {
+                if (random.nextBoolean()) {
+                    expression.append(random.nextInt(limits[i])).append(units[i]).append(" ");
+                }
+            }
+            return expression.toString();
+        }
+    }
+    
     private Date parseToDate(String dateString) {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
         
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.core.time.JobHandle;
+import org.drools.core.time.impl.IntervalTrigger;
+import org.drools.core.time.impl.ThreadSafeTrackableTimeJobFactoryManager;
+import org.jbpm.process.instance.timer.TimerInstance;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJob;
+import org.jbpm.process.instance.timer.TimerManager.ProcessJobContext;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class GlobalTimerServiceTest extends AbstractBaseTest {
+
+    private static final long SESSION_ID = 1;
+
+    private TimingWheelSchedulerService schedulerService;
+    private GlobalTimerService timerService;
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Before
+    public void setUp() {
+        schedulerService = new TimingWheelSchedulerService(1);
+        timerService = new GlobalTimerService(null, schedulerService);
+        timerService.jobFactoryManager = new ThreadSafeTrackableTimeJobFactoryManager();
+    }
+
+    @After
+    public void tearDown() {
+        schedulerService.shutdown();
+    }
+
+    @Test
+    public void testScheduleAndRemoveTimersOfOneSession() {
+        int timers = 20000;
+        List<JobHandle> handles = scheduleTimers(0, timers);
+        assertEquals(timers, timerService.getTimerJobInstances(SESSION_ID).size());
+
+        // already scheduled timer is not scheduled again
+        assertSame(handles.get(100), scheduleTimer(100));
+        assertEquals(timers, schedulerService.getPendingTimers());
+
+        for (int i = 0; i < timers; i += 2) {
+            assertTrue(timerService.removeJob(handles.get(i)));
+        }
+        assertEquals(timers / 2, timerService.getTimerJobInstances(SESSION_ID).size());
+        assertEquals(timers / 2, schedulerService.getPendingTimers());
+
+        timerService.destroy();
+        assertEquals(0, schedulerService.getPendingTimers());
+    }
+
+    @Test
+    public void testConcurrentScheduleAndRemove() throws Exception {
+        final int threads = 4;
+        final int timersPerThread = 5000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * timersPerThread;
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        List<JobHandle> handles = scheduleTimers(offset, timersPerThread);
+                        // remove every other timer while other threads keep scheduling
+                        for (int i = 0; i < handles.size(); i += 2) {
+                            timerService.removeJob(handles.get(i));
+                        }
+                    } catch (Throwable e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertEquals(threads * timersPerThread / 2, timerService.getTimerJobInstances(SESSION_ID).size());
+    }
+
+    /**
+     * Schedules, lists and removes 500k timers of a single session (as with the singleton strategy).
+     */
+    @Test
+    @Ignore
+    public void testManyTimersOnOneSessionStress() {
+        int timers = 500000;
+        long start = System.nanoTime();
+        List<JobHandle> handles = scheduleTimers(0, timers);
+        logger.info("Scheduled {} timers in {} ms", timers, (System.nanoTime() - start) / 1000000);
+
+        start = System.nanoTime();
+        assertEquals(timers, timerService.getTimerJobInstances(SESSION_ID).size());
+        logger.info("Listed {} timers in {} ms", timers, (System.nanoTime() - start) / 1000000);
+
+        start = System.nanoTime();
+        for (JobHandle handle : handles) {
+            timerService.removeJob(handle);
+        }
+        logger.info("Removed {} timers in {} ms", timers, (System.nanoTime() - start) / 1000000);
+        assertEquals(0, timerService.getTimerJobInstances(SESSION_ID).size());
+        assertEquals(0, schedulerService.getPendingTimers());
+    }
+
+    private List<JobHandle> scheduleTimers(int offset, int count) {
+        List<JobHandle> handles = new ArrayList<JobHandle>(count);
+        for (int i = offset; i < offset + count; i++) {
+            handles.add(scheduleTimer(i));
+        }
+        return handles;
+    }
+
+    private JobHandle scheduleTimer(long id) {
+        TimerInstance timer = new TimerInstance();
+        timer.setId(id);
+        timer.setProcessInstanceId(id);
+        timer.setSessionId(SESSION_ID);
+        timer.setDelay(TimeUnit.HOURS.toMillis(1));
+        IntervalTrigger trigger = new IntervalTrigger(timerService.getCurrentTime(), null, null, -1, timer.getDelay(), 0, null, null);
+        ProcessJobContext ctx = new ProcessJobContext(timer, trigger, id, null);
+        return timerService.scheduleJob(new ProcessJob(), ctx, trigger);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.core.timer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.jbpm.process.core.timer.impl.TimingWheel.Timeout;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class TimingWheelTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testTimeoutsFireAtTheirDeadline() {
+        TimingWheel<Long> wheel = new TimingWheel<Long>(1, 0);
+        // deadlines in every level of the wheel and on the level boundaries
+        long[] deadlines = new long[] { 1, 2, 255, 256, 257, 1000, 65535, 65536, 65537, 100000, 16777215, 16777216, 16777300 };
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(deadlines.length, wheel.size());
+
+        for (long deadline : deadlines) {
+            assertTrue(wheel.advance(deadline - 1).isEmpty());
+            List<Timeout<Long>> expired = wheel.advance(deadline);
+            assertEquals(1, expired.size());
+            assertEquals(deadline, expired.get(0).getTask().longValue());
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testTimeoutsFireWithinOneTick() {
+        TimingWheel<Long> wheel = new TimingWheel<Long>(10, 1000);
+        wheel.schedule(1500, 1500L);
+        wheel.schedule(1505, 1505L);
+        // deadline in the past is due on next tick
+        wheel.schedule(500, 500L);
+
+        List<Timeout<Long>> expired = wheel.advance(1010);
+        assertEquals(1, expired.size());
+        assertEquals(500L, expired.get(0).getTask().longValue());
+
+        expired = wheel.advance(1500);
+        assertEquals(1, expired.size());
+        assertEquals(1500L, expired.get(0).getTask().longValue());
+
+        assertTrue(wheel.advance(1509).isEmpty());
+        expired = wheel.advance(1510);
+        assertEquals(1, expired.size());
+        assertEquals(1505L, expired.get(0).getTask().longValue());
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel<Long> wheel = new TimingWheel<Long>(1, 0);
+        Timeout<Long> first = wheel.schedule(100, 1L);
+        Timeout<Long> second = wheel.schedule(100, 2L);
+        Timeout<Long> third = wheel.schedule(100000, 3L);
+
+        assertTrue(wheel.cancel(second));
+        assertFalse(wheel.cancel(second));
+        assertTrue(wheel.cancel(third));
+        assertEquals(1, wheel.size());
+
+        List<Timeout<Long>> expired = wheel.advance(200000);
+        assertEquals(1, expired.size());
+        assertEquals(first, expired.get(0));
+        // already fired
+        assertFalse(wheel.cancel(first));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRandomTimeouts() {
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<Long>(1, 0);
+        List<Timeout<Long>> cancelled = new ArrayList<Timeout<Long>>();
+        int scheduled = 0;
+        for (int i = 0; i < 10000; i++) {
+            long deadline = 1 + random.nextInt(200000);
+            Timeout<Long> timeout = wheel.schedule(deadline, deadline);
+            if (random.nextBoolean()) {
+                cancelled.add(timeout);
+            } else {
+                scheduled++;
+            }
+        }
+        for (Timeout<Long> timeout : cancelled) {
+            assertTrue(wheel.cancel(timeout));
+        }
+
+        int fired = 0;
+        for (long now = 0; now <= 200000; now += 1 + random.nextInt(500)) {
+            for (Timeout<Long> timeout : wheel.advance(now)) {
+                assertTrue(timeout.getDeadline() <= now);
+                assertTrue(timeout.getDeadline() > now - 500);
+                fired++;
+            }
+        }
+        fired += wheel.advance(200000).size();
+        assertEquals(scheduled, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Schedule, cancel and fire rates with 1M pending timers of which 90% are cancelled before they fire,
+     * compared to ScheduledThreadPoolExecutor used by ThreadPoolSchedulerService.
+     */
+    @Test
+    @Ignore
+    public void testTimingWheelBenchmark() {
+        int timers = 1000000;
+        Random random = new Random(42);
+        long[] deadlines = new long[timers];
+        for (int i = 0; i < timers; i++) {
+            deadlines[i] = 1000 + random.nextInt(3600000);
+        }
+
+        TimingWheel<Integer> wheel = new TimingWheel<Integer>(10, 0);
+        List<Timeout<Integer>> timeouts = new ArrayList<Timeout<Integer>>(timers);
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            timeouts.add(wheel.schedule(deadlines[i], i));
+        }
+        logRate("Timing wheel schedule", timers, start);
+        start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            if (i % 10 != 0) {
+                wheel.cancel(timeouts.get(i));
+            }
+        }
+        logRate("Timing wheel cancel", timers - timers / 10, start);
+        start = System.nanoTime();
+        int fired = 0;
+        for (long now = 0; now <= 3601000; now += 100) {
+            fired += wheel.advance(now).size();
+        }
+        logRate("Timing wheel fire", fired, start);
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        List<ScheduledFuture<?>> futures = new ArrayList<ScheduledFuture<?>>(timers);
+        Runnable task = new Runnable() {
+            public void run() {
+            }
+        };
+        start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            futures.add(executor.schedule(task, deadlines[i], TimeUnit.MILLISECONDS));
+        }
+        logRate("ScheduledThreadPoolExecutor schedule", timers, start);
+        start = System.nanoTime();
+        // cancel a sample only, remove is linear in the number of pending timers
+        int sample = 1000;
+        for (int i = 1; i <= sample; i++) {
+            executor.remove((Runnable) futures.get(i));
+        }
+        logRate("ScheduledThreadPoolExecutor cancel", sample, start);
+        executor.shutdownNow();
+    }
+
+    private void logRate(String operation, int count, long start) {
+        long duration = System.nanoTime() - start;
+        logger.info("{}: {} timers in {} ms, {} per second", operation, count, duration / 1000000,
+                (long) (count / (duration / 1000000000.0)));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.process.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.kie.internal.process.CorrelationKey;
+import org.kie.internal.process.CorrelationProperty;
+import org.slf4j.LoggerFactory;
+
+public class DefaultProcessInstanceManagerTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testRemoveProcessInstanceRemovesCorrelationKey() {
+        DefaultProcessInstanceManager manager = new DefaultProcessInstanceManager();
+
+        ProcessInstance first = new RuleFlowProcessInstance();
+        ProcessInstance second = new RuleFlowProcessInstance();
+        manager.addProcessInstance(first, new TestCorrelationKey("first"));
+        manager.addProcessInstance(second, new TestCorrelationKey("second"));
+
+        assertNotNull(manager.getProcessInstance(new TestCorrelationKey("first")));
+        assertNotNull(manager.getProcessInstance(new TestCorrelationKey("second")));
+
+        manager.removeProcessInstance(first);
+
+        assertNull(manager.getProcessInstance(first.getId()));
+        assertNull(manager.getProcessInstance(new TestCorrelationKey("first")));
+        assertEquals(second, manager.getProcessInstance(new TestCorrelationKey("second")));
+
+        // key can be reused once the owning instance is gone
+        ProcessInstance third = new RuleFlowProcessInstance();
+        manager.addProcessInstance(third, new TestCorrelationKey("first"));
+        assertEquals(third, manager.getProcessInstance(new TestCorrelationKey("first")));
+    }
+
+    @Test
+    public void testRemoveProcessInstanceWithoutCorrelationKey() {
+        DefaultProcessInstanceManager manager = new DefaultProcessInstanceManager();
+
+        ProcessInstance correlated = new RuleFlowProcessInstance();
+        ProcessInstance plain = new RuleFlowProcessInstance();
+        manager.addProcessInstance(correlated, new TestCorrelationKey("correlated"));
+        manager.addProcessInstance(plain, null);
+
+        manager.removeProcessInstance(plain);
+
+        assertNull(manager.getProcessInstance(plain.getId()));
+        assertEquals(correlated, manager.getProcessInstance(new TestCorrelationKey("correlated")));
+    }
+
+    /**
+     * Start/complete throughput should not depend on the number of live correlated instances.
+     */
+    @Test
+    @Ignore
+    public void testCorrelatedStartCompleteThroughput() {
+        int operations = 10000;
+        for (int live = 1000; live <= 1000000; live *= 10) {
+            DefaultProcessInstanceManager manager = new DefaultProcessInstanceManager();
+            for (int i = 0; i < live; i++) {
+                manager.addProcessInstance(new RuleFlowProcessInstance(), new TestCorrelationKey("live-" + i));
+            }
+            List<ProcessInstance> batch = new ArrayList<ProcessInstance>(operations);
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                ProcessInstance processInstance = new RuleFlowProcessInstance();
+                manager.addProcessInstance(processInstance, new TestCorrelationKey("op-" + i));
+                batch.add(processInstance);
+            }
+            for (ProcessInstance processInstance : batch) {
+                manager.removeProcessInstance(processInstance);
+            }
+            long duration = System.nanoTime() - start;
+            logger.info("{} live correlated instances: {} start/complete per second",
+                    live, (long) (operations / (duration / 1000000000.0)));
+        }
+    }
+
+    private static class TestCorrelationKey implements CorrelationKey {
+
+        private final String name;
+
+        TestCorrelationKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<CorrelationProperty<?>> getProperties() {
+            return new ArrayList<CorrelationProperty<?>>();
+        }
+
+        @Override
+        public String toExternalForm() {
+            return name;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof TestCorrelationKey && name.equals(((TestCorrelationKey) obj).name);
+        }
+    }
+}
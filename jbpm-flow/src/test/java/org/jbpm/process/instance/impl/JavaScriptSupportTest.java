@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.process.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.drools.core.process.core.datatype.impl.type.StringDataType;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.ruleflow.core.RuleFlowProcessFactory;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.instance.WorkflowProcessInstance;
+import org.junit.Test;
+import org.kie.api.runtime.KieSession;
+import org.slf4j.LoggerFactory;
+
+public class JavaScriptSupportTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testVariablesAndContextResolvedOnAccess() {
+        KieSession ksession = createKieSession(createProcess("kcontext.setVariable('y', x + '!');"));
+
+        assertEquals("value!", run(ksession, "value"));
+        // same compiled script sees the variables of the next evaluation
+        assertEquals("other!", run(ksession, "other"));
+    }
+
+    @Test
+    public void testGlobalResolvedOnAccess() {
+        KieSession ksession = createKieSession(createProcess("list.add(x); kcontext.setVariable('y', 'added');"));
+        List<String> list = new ArrayList<String>();
+        ksession.getGlobals().set("list", list);
+
+        assertEquals("added", run(ksession, "value"));
+        assertEquals(Collections.singletonList("value"), list);
+    }
+
+    @Test
+    public void testVariableTakesPrecedenceOverGlobal() {
+        KieSession ksession = createKieSession(createProcess("kcontext.setVariable('y', '' + x);"));
+        ksession.getGlobals().set("x", "global");
+
+        assertEquals("variable", run(ksession, "variable"));
+    }
+
+    @Test
+    public void testScriptStateNotSharedBetweenEvaluations() {
+        KieSession ksession = createKieSession(createProcess(
+                "kcontext.setVariable('y', typeof counter === 'undefined' && typeof leaked === 'undefined' ? 'clean' : 'dirty');"
+                + "var counter = 1; leaked = x;"));
+
+        assertEquals("clean", run(ksession, "first"));
+        assertEquals("clean", run(ksession, "second"));
+    }
+
+    @Test
+    public void testScriptStateNotSharedBetweenThreads() throws Exception {
+        final RuleFlowProcess process = createProcess(
+                "var value = x; for (var i = 0; i < 1000; i++) { shared = value; } "
+                + "kcontext.setVariable('y', value == shared ? value : 'dirty');");
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < 4; t++) {
+                final String prefix = "thread" + t + "-";
+                results.add(threads.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() throws Exception {
+                        KieSession ksession = createKieSession(process);
+                        List<String> values = new ArrayList<String>();
+                        for (int i = 0; i < 50; i++) {
+                            String value = prefix + i;
+                            if (!value.equals(run(ksession, value))) {
+                                values.add(value);
+                            }
+                        }
+                        ksession.dispose();
+                        return values;
+                    }
+                }));
+            }
+            for (Future<List<String>> result : results) {
+                // evaluations that saw a value of another evaluation
+                assertTrue(result.get().toString(), result.get().isEmpty());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEngineAndScriptsPerClassLoader() throws Exception {
+        ClassLoader parent = getClass().getClassLoader();
+        ClassLoader first = new URLClassLoader(new URL[0], parent);
+        ClassLoader second = new URLClassLoader(new URL[0], parent);
+
+        JavaScriptSupport.EngineHolder engine = JavaScriptSupport.getEngine(first);
+        assertSame(engine, JavaScriptSupport.getEngine(first));
+        JavaScriptSupport.EngineHolder other = JavaScriptSupport.getEngine(second);
+        assertNotSame(engine, other);
+
+        String expr = "1 + 1";
+        assertSame(engine.getCompiledScript(expr), engine.getCompiledScript(expr));
+        if (engine.getCompiledScript(expr) != null) {
+            // same script text compiled against a different class loader
+            assertNotSame(engine.getCompiledScript(expr), other.getCompiledScript(expr));
+        }
+    }
+
+    @Test
+    public void testClassLoaderOfKieBase() {
+        KieSession ksession = createKieSession(createProcess(
+                "kcontext.setVariable('y', '' + new Packages.org.jbpm.process.instance.impl.JavaScriptSupport().getClass().getSimpleName());"));
+        ClassLoader current = Thread.currentThread().getContextClassLoader();
+        // context class loader of the caller does not see the classes of the process
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[0], null));
+        try {
+            assertEquals("JavaScriptSupport", run(ksession, "value"));
+        } finally {
+            Thread.currentThread().setContextClassLoader(current);
+        }
+    }
+
+    private RuleFlowProcess createProcess(String script) {
+        RuleFlowProcessFactory factory = RuleFlowProcessFactory.createProcess("org.jbpm.javascript");
+        factory
+            // header
+            .name("JavaScript").packageName("org.jbpm")
+            .variable("x", new StringDataType())
+            .variable("y", new StringDataType())
+            // nodes
+            .startNode(1).name("Start").done()
+            .actionNode(2).name("Script").action(new JavaScriptAction(script)).done()
+            .endNode(3).name("End").done()
+            // connections
+            .connection(1, 2)
+            .connection(2, 3);
+        return factory.validate().getProcess();
+    }
+
+    private Object run(KieSession ksession, String x) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("x", x);
+        WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.startProcess("org.jbpm.javascript", params);
+        return processInstance.getVariable("y");
+    }
+}
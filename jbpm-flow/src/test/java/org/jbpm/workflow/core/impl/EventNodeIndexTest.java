@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.workflow.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.jbpm.process.core.event.BroadcastEventTypeFilter;
+import org.jbpm.process.core.event.EventTypeFilter;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.node.ActionNode;
+import org.jbpm.workflow.core.node.EventNode;
+import org.jbpm.workflow.core.node.EventNodeInterface;
+import org.jbpm.workflow.core.node.EventSubProcessNode;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.definition.process.Node;
+import org.slf4j.LoggerFactory;
+
+public class EventNodeIndexTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testCandidatesByExactType() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.addNode(eventNode(1, "signalA", false));
+        process.addNode(eventNode(2, "signalB", false));
+        process.addNode(eventSubProcess(3, "signalA"));
+        ActionNode actionNode = new ActionNode();
+        actionNode.setId(4);
+        process.addNode(actionNode);
+
+        EventNodeIndex index = process.getEventNodeIndex();
+        assertCandidates(process, index, "signalA");
+        assertCandidates(process, index, "signalB");
+        assertCandidates(process, index, "unknown");
+        assertEquals(2, index.getCandidates("signalA").size());
+        assertEquals(1, index.getCandidates("signalB").size());
+        assertTrue(index.getCandidates("unknown").isEmpty());
+        assertFalse(index.hasAttachedCandidates("signalA"));
+    }
+
+    @Test
+    public void testFallbackCandidates() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.addNode(eventNode(1, "signalA", true));
+
+        EventNode broadcast = new EventNode();
+        broadcast.setId(2);
+        BroadcastEventTypeFilter broadcastFilter = new BroadcastEventTypeFilter();
+        broadcastFilter.setType("Escalation");
+        broadcast.addEventFilter(broadcastFilter);
+        process.addNode(broadcast);
+
+        process.addNode(eventNode(3, "#{signalName}", false));
+
+        EventNodeIndex index = process.getEventNodeIndex();
+        assertCandidates(process, index, "signalA");
+        assertCandidates(process, index, "Escalation-1");
+        assertCandidates(process, index, "#{signalName}");
+        assertEquals(3, index.getCandidates("signalA").size());
+        assertEquals(2, index.getCandidates("other").size());
+        assertTrue(index.hasAttachedCandidates("signalA"));
+        assertFalse(index.hasAttachedCandidates("other"));
+    }
+
+    @Test
+    public void testIndexRebuiltOnNodeChange() {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.addNode(eventNode(1, "signalA", false));
+        assertEquals(1, process.getEventNodeIndex().getCandidates("signalA").size());
+
+        EventNode second = eventNode(2, "signalA", false);
+        process.addNode(second);
+        assertEquals(2, process.getEventNodeIndex().getCandidates("signalA").size());
+
+        process.removeNode(second);
+        assertEquals(1, process.getEventNodeIndex().getCandidates("signalA").size());
+    }
+
+    /**
+     * Compares selection of accepting event nodes by scanning all nodes with the index based lookup.
+     */
+    @Test
+    @Ignore
+    public void testDispatchPerformance() {
+        int signals = 100000;
+        for (int nodes = 100; nodes <= 10000; nodes *= 10) {
+            RuleFlowProcess process = new RuleFlowProcess();
+            for (int i = 0; i < nodes; i++) {
+                if (i % 3 == 0) {
+                    process.addNode(eventNode(i, "signal" + i, false));
+                } else {
+                    ActionNode actionNode = new ActionNode();
+                    actionNode.setId(i);
+                    process.addNode(actionNode);
+                }
+            }
+            long start = System.nanoTime();
+            int accepted = 0;
+            for (int i = 0; i < signals; i++) {
+                String type = "signal" + ((i * 3) % nodes);
+                for (Node node : process.getNodes()) {
+                    if (node instanceof EventNodeInterface && ((EventNodeInterface) node).acceptsEvent(type, null)) {
+                        accepted++;
+                    }
+                }
+            }
+            long scan = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < signals; i++) {
+                String type = "signal" + ((i * 3) % nodes);
+                for (Node node : process.getEventNodeIndex().getCandidates(type)) {
+                    if (((EventNodeInterface) node).acceptsEvent(type, null)) {
+                        accepted--;
+                    }
+                }
+            }
+            long indexed = System.nanoTime() - start;
+            assertEquals(0, accepted);
+            logger.info("{} nodes: scan {} ms, index {} ms for {} signals", nodes, scan / 1000000, indexed / 1000000, signals);
+        }
+    }
+
+    private void assertCandidates(RuleFlowProcess process, EventNodeIndex index, String type) {
+        List<Node> candidates = index.getCandidates(type);
+        for (Node node : process.getNodes()) {
+            if (node instanceof EventNodeInterface && ((EventNodeInterface) node).acceptsEvent(type, null)) {
+                assertTrue("Missing candidate " + node.getId() + " for " + type, candidates.contains(node));
+            }
+        }
+    }
+
+    private EventNode eventNode(long id, String type, boolean attached) {
+        EventNode eventNode = new EventNode();
+        eventNode.setId(id);
+        EventTypeFilter filter = new EventTypeFilter();
+        filter.setType(type);
+        eventNode.addEventFilter(filter);
+        if (attached) {
+            ActionNode attachedTo = new ActionNode();
+            attachedTo.setId(id + 100000);
+            new ConnectionImpl(attachedTo, org.jbpm.workflow.core.Node.CONNECTION_DEFAULT_TYPE,
+                    eventNode, org.jbpm.workflow.core.Node.CONNECTION_DEFAULT_TYPE);
+        }
+        return eventNode;
+    }
+
+    private EventSubProcessNode eventSubProcess(long id, String type) {
+        EventSubProcessNode eventSubProcess = new EventSubProcessNode();
+        eventSubProcess.setId(id);
+        EventTypeFilter filter = new EventTypeFilter();
+        filter.setType(type);
+        eventSubProcess.addEvent(filter);
+        return eventSubProcess;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jbpm.workflow.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbpm.ruleflow.instance.RuleFlowProcessInstance;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.instance.NodeInstance;
+import org.jbpm.workflow.instance.node.ActionNodeInstance;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class NodeInstanceIndexTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @Test
+    public void testLookupByIdAndNodeId() {
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        NodeInstance first = createNodeInstance(processInstance, 1);
+        NodeInstance second = createNodeInstance(processInstance, 2);
+        NodeInstance third = createNodeInstance(processInstance, 1);
+
+        assertSame(first, processInstance.getNodeInstance(first.getId()));
+        assertSame(second, processInstance.getNodeInstance(second.getId()));
+        assertSame(third, processInstance.getNodeInstance(third.getId()));
+
+        List<NodeInstance> nodeInstances = processInstance.getNodeInstances(1);
+        assertEquals(2, nodeInstances.size());
+        assertSame(first, nodeInstances.get(0));
+        assertSame(third, nodeInstances.get(1));
+        assertSame(first, processInstance.getFirstNodeInstance(1));
+
+        processInstance.internalGetNodeInstanceIndex().remove(first);
+        assertNull(processInstance.getNodeInstance(first.getId()));
+        assertEquals(1, processInstance.getNodeInstances(1).size());
+        assertTrue(processInstance.getNodeInstances(3).isEmpty());
+    }
+
+    @Test
+    public void testIdsRestoredAfterAdding() {
+        // mimics unmarshalling, node instances get their persisted ids after being added to the container
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        NodeInstance first = createNodeInstance(processInstance, 1);
+        ((NodeInstanceImpl) first).setId(1);
+        NodeInstance second = createNodeInstance(processInstance, 2);
+        ((NodeInstanceImpl) second).setId(0);
+
+        assertSame(first, processInstance.getNodeInstance(1));
+        assertSame(second, processInstance.getNodeInstance(0));
+        assertSame(second, processInstance.getNodeInstances(2).get(0));
+
+        // node id changes, e.g. on migration
+        ((NodeInstanceImpl) second).setNodeId(3);
+        assertTrue(processInstance.getNodeInstances(2).isEmpty());
+        assertSame(second, processInstance.getNodeInstances(3).get(0));
+    }
+
+    @Test
+    public void testUpdateIgnoresNodeInstanceNotIndexed() {
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        NodeInstance indexed = createNodeInstance(processInstance, 1);
+
+        ActionNodeInstance notIndexed = new ActionNodeInstance();
+        notIndexed.setNodeId(1);
+        notIndexed.setId(indexed.getId());
+        NodeInstanceIndex index = processInstance.internalGetNodeInstanceIndex();
+        index.update(notIndexed, indexed.getId(), 1);
+
+        assertSame(indexed, processInstance.getNodeInstance(indexed.getId()));
+        assertEquals(1, processInstance.getNodeInstances(1).size());
+        assertSame(indexed, processInstance.getNodeInstances(1).get(0));
+    }
+
+    @Test
+    public void testRemoveKeepsOrderOfNodeInstances() {
+        // mimics a for each with many node instances of the same node
+        RuleFlowProcessInstance processInstance = new RuleFlowProcessInstance();
+        List<NodeInstance> created = new ArrayList<NodeInstance>();
+        for (int i = 0; i < 1000; i++) {
+            created.add(createNodeInstance(processInstance, 1));
+        }
+        NodeInstanceIndex index = processInstance.internalGetNodeInstanceIndex();
+        for (int i = 0; i < created.size(); i += 2) {
+            index.remove(created.get(i));
+        }
+        // removing again is ignored
+        index.remove(created.get(0));
+
+        List<NodeInstance> nodeInstances = processInstance.getNodeInstances(1);
+        assertEquals(500, nodeInstances.size());
+        for (int i = 0; i < nodeInstances.size(); i++) {
+            assertSame(created.get(2 * i + 1), nodeInstances.get(i));
+        }
+        assertSame(created.get(1), processInstance.getFirstNodeInstance(1));
+    }
+
+    private NodeInstance createNodeInstance(RuleFlowProcessInstance processInstance, long nodeId) {
+        ActionNodeInstance nodeInstance = new ActionNodeInstance();
+        nodeInstance.setNodeId(nodeId);
+        nodeInstance.setProcessInstance(processInstance);
+        nodeInstance.setNodeInstanceContainer(processInstance);
+        return nodeInstance;
+    }
+}
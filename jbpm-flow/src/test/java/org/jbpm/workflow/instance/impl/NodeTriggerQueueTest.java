@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.workflow.instance.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbpm.process.instance.impl.Action;
+import org.jbpm.ruleflow.core.RuleFlowProcess;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.jbpm.workflow.core.DroolsAction;
+import org.jbpm.workflow.core.Node;
+import org.jbpm.workflow.core.impl.ConnectionImpl;
+import org.jbpm.workflow.core.impl.DroolsConsequenceAction;
+import org.jbpm.workflow.core.node.ActionNode;
+import org.jbpm.workflow.core.node.EndNode;
+import org.jbpm.workflow.core.node.Join;
+import org.jbpm.workflow.core.node.Split;
+import org.jbpm.workflow.core.node.StartNode;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.process.ProcessContext;
+import org.kie.api.runtime.process.ProcessInstance;
+import org.slf4j.LoggerFactory;
+
+public class NodeTriggerQueueTest extends AbstractBaseTest {
+
+    public void addLogger() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @After
+    public void disableQueue() {
+        NodeTriggerQueue.setEnabled(false);
+    }
+
+    @Test
+    public void testLongSequentialProcess() {
+        NodeTriggerQueue.setEnabled(true);
+        List<String> executed = new ArrayList<String>();
+        KieSession ksession = createKieSession(createSequentialProcess(10000, executed));
+
+        ProcessInstance processInstance = ksession.startProcess("org.jbpm.sequential");
+
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+        assertEquals(10000, executed.size());
+        assertEquals("Action0", executed.get(0));
+        assertEquals("Action9999", executed.get(9999));
+    }
+
+    @Test
+    public void testSplitJoinOrderMatchesRecursiveMode() {
+        List<String> recursive = new ArrayList<String>();
+        ProcessInstance processInstance = createKieSession(createSplitJoinProcess(recursive)).startProcess("org.jbpm.splitjoin");
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+
+        NodeTriggerQueue.setEnabled(true);
+        List<String> queued = new ArrayList<String>();
+        processInstance = createKieSession(createSplitJoinProcess(queued)).startProcess("org.jbpm.splitjoin");
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+
+        // branches are triggered in no particular order but each one runs to the join before the next one starts
+        assertDepthFirst(recursive);
+        assertDepthFirst(queued);
+    }
+
+    @Test
+    public void testModeToggledWhileProcessInstanceActive() {
+        List<String> executed = new ArrayList<String>();
+        RuleFlowProcess process = createProcess("org.jbpm.toggle");
+        StartNode startNode = new StartNode();
+        startNode.setName("Start");
+        startNode.setId(1);
+        process.addNode(startNode);
+
+        Node previous = startNode;
+        Boolean[] toggles = new Boolean[] { true, null, false, null };
+        for (int i = 0; i < toggles.length; i++) {
+            ActionNode actionNode = createModeRecordingNode("Action" + i, executed, toggles[i]);
+            actionNode.setId(i + 2);
+            process.addNode(actionNode);
+            connect(previous, actionNode);
+            previous = actionNode;
+        }
+
+        EndNode endNode = new EndNode();
+        endNode.setName("End");
+        endNode.setId(toggles.length + 2);
+        process.addNode(endNode);
+        connect(previous, endNode);
+
+        ProcessInstance processInstance = createKieSession(process).startProcess("org.jbpm.toggle");
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+
+        // enabled mode applies to the next trigger of the same process instance, disabling it
+        // keeps the queue that is already executing until it is done
+        assertEquals("Action0:false", executed.get(0));
+        assertEquals("Action1:true", executed.get(1));
+        assertEquals("Action2:true", executed.get(2));
+        assertEquals("Action3:true", executed.get(3));
+        assertFalse(NodeTriggerQueue.isEnabled());
+        assertNull(((WorkflowProcessInstanceImpl) processInstance).internalGetNodeTriggerQueue());
+    }
+
+    /**
+     * Compares the recursive and the queued mode for a 10k node sequential process,
+     * the recursive mode is expected to fail with StackOverflowError on default stack sizes.
+     */
+    @Test
+    @Ignore
+    public void testSequentialProcessBenchmark() {
+        int nodes = 10000;
+        int iterations = 100;
+        for (boolean queue : new boolean[] { false, true }) {
+            NodeTriggerQueue.setEnabled(queue);
+            List<String> executed = new ArrayList<String>();
+            KieSession ksession = createKieSession(createSequentialProcess(nodes, executed));
+            try {
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    executed.clear();
+                    ksession.startProcess("org.jbpm.sequential");
+                }
+                long duration = System.nanoTime() - start;
+                logger.info("Trigger queue {}: {} nodes per second", queue,
+                        (long) (((long) nodes * iterations) / (duration / 1000000000.0)));
+            } catch (StackOverflowError e) {
+                logger.info("Trigger queue {}: stack overflow after {} nodes", queue, executed.size());
+            }
+            ksession.dispose();
+        }
+    }
+
+    private void assertDepthFirst(List<String> executed) {
+        assertEquals(10, executed.size());
+        for (int i = 0; i < 9; i += 3) {
+            String branch = executed.get(i).substring(0, 1);
+            assertEquals(branch + "0", executed.get(i));
+            assertEquals(branch + "1", executed.get(i + 1));
+            assertEquals(branch + "2", executed.get(i + 2));
+        }
+        assertEquals("After join", executed.get(9));
+    }
+
+    private RuleFlowProcess createSequentialProcess(int length, List<String> executed) {
+        RuleFlowProcess process = createProcess("org.jbpm.sequential");
+        long id = 1;
+        StartNode startNode = new StartNode();
+        startNode.setName("Start");
+        startNode.setId(id++);
+        process.addNode(startNode);
+
+        Node previous = startNode;
+        for (int i = 0; i < length; i++) {
+            ActionNode actionNode = createActionNode("Action" + i, executed);
+            actionNode.setId(id++);
+            process.addNode(actionNode);
+            connect(previous, actionNode);
+            previous = actionNode;
+        }
+
+        EndNode endNode = new EndNode();
+        endNode.setName("End");
+        endNode.setId(id++);
+        process.addNode(endNode);
+        connect(previous, endNode);
+        return process;
+    }
+
+    private RuleFlowProcess createSplitJoinProcess(List<String> executed) {
+        RuleFlowProcess process = createProcess("org.jbpm.splitjoin");
+        StartNode startNode = new StartNode();
+        startNode.setName("Start");
+        startNode.setId(1);
+        process.addNode(startNode);
+
+        Split split = new Split();
+        split.setName("Split");
+        split.setType(Split.TYPE_AND);
+        split.setId(2);
+        process.addNode(split);
+        connect(startNode, split);
+
+        Join join = new Join();
+        join.setName("Join");
+        join.setType(Join.TYPE_AND);
+        join.setId(3);
+        process.addNode(join);
+
+        long id = 4;
+        for (String branch : new String[] { "A", "B", "C" }) {
+            Node previous = split;
+            for (int i = 0; i < 3; i++) {
+                ActionNode actionNode = createActionNode(branch + i, executed);
+                actionNode.setId(id++);
+                process.addNode(actionNode);
+                connect(previous, actionNode);
+                previous = actionNode;
+            }
+            connect(previous, join);
+        }
+
+        ActionNode afterJoin = createActionNode("After join", executed);
+        afterJoin.setId(id++);
+        process.addNode(afterJoin);
+        connect(join, afterJoin);
+
+        EndNode endNode = new EndNode();
+        endNode.setName("End");
+        endNode.setId(id++);
+        process.addNode(endNode);
+        connect(afterJoin, endNode);
+        return process;
+    }
+
+    private RuleFlowProcess createProcess(String processId) {
+        RuleFlowProcess process = new RuleFlowProcess();
+        process.setId(processId);
+        process.setName(processId);
+        process.setPackageName("org.jbpm");
+        return process;
+    }
+
+    private ActionNode createActionNode(final String name, final List<String> executed) {
+        ActionNode actionNode = new ActionNode();
+        actionNode.setName(name);
+        DroolsAction action = new DroolsConsequenceAction("java", null);
+        action.setMetaData("Action", new Action() {
+            public void execute(ProcessContext context) throws Exception {
+                executed.add(name);
+            }
+        });
+        actionNode.setAction(action);
+        return actionNode;
+    }
+
+    private ActionNode createModeRecordingNode(final String name, final List<String> executed, final Boolean enable) {
+        ActionNode actionNode = new ActionNode();
+        actionNode.setName(name);
+        DroolsAction action = new DroolsConsequenceAction("java", null);
+        action.setMetaData("Action", new Action() {
+            public void execute(ProcessContext context) throws Exception {
+                NodeTriggerQueue queue = ((WorkflowProcessInstanceImpl) context.getProcessInstance()).internalGetNodeTriggerQueue();
+                executed.add(name + ":" + (queue != null && queue.isRunning()));
+                if (enable != null) {
+                    NodeTriggerQueue.setEnabled(enable);
+                }
+            }
+        });
+        actionNode.setAction(action);
+        return actionNode;
+    }
+
+    private void connect(Node from, Node to) {
+        new ConnectionImpl(from, Node.CONNECTION_DEFAULT_TYPE, to, Node.CONNECTION_DEFAULT_TYPE);
+    }
+}
@@ -21,6 +21,7 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
 
+import org.jbpm.services.task.impl.TaskDeadlinesServiceImpl;
 import org.jbpm.services.task.utils.ClassUtil;
 import org.kie.internal.command.Context;
 import org.kie.internal.task.api.TaskDeadlinesService;
@@ -48,6 +49,12 @@ public class InitDeadlinesCommand extends TaskCommand<Void> {
 		TaskDeadlinesService deadlineService = ctx.getTaskDeadlinesService();
 		
         try {
+        	if (deadlineService instanceof TaskDeadlinesServiceImpl) {
+        		// loads deadlines together with task data instead of looking up every task
+        		((TaskDeadlinesServiceImpl) deadlineService).scheduleAll(DeadlineType.START);
+        		((TaskDeadlinesServiceImpl) deadlineService).scheduleAll(DeadlineType.END);
+        		return null;
+        	}
 	        long now = System.currentTimeMillis();
 	        List<DeadlineSummary> resultList = persistenceContext.queryInTransaction("UnescalatedStartDeadlines",
 	        										ClassUtil.<List<DeadlineSummary>>castClass(List.class));
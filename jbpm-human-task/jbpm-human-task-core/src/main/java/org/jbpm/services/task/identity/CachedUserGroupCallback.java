@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jbpm.services.task.identity.UserGroupInfoCache.CacheEntry;
+import org.kie.api.task.UserGroupCallback;
+
+/**
+ * <code>UserGroupCallback</code> decorator that caches results of the given callback so that task operations
+ * and queries do not call remote identity stores (LDAP, data base) every time.
+ * <br/>
+ * Groups of a user are cached per user id regardless of the group ids given as argument, which matches
+ * all callbacks provided by jBPM. Unknown users and groups, as well as users without groups, are cached
+ * with the (shorter) negative time to live. Failures of the given callback are not cached.
+ * <br/>
+ * Following system properties are supported:
+ * <ul>
+ *  <li>org.jbpm.ht.identity.cache.size - maximum number of cached entries (default 1000)</li>
+ *  <li>org.jbpm.ht.identity.cache.ttl - time in milliseconds entries are kept (default 60000)</li>
+ *  <li>org.jbpm.ht.identity.cache.negative.ttl - time in milliseconds negative entries are kept (default 10000)</li>
+ * </ul>
+ */
+public class CachedUserGroupCallback implements UserGroupCallback {
+
+    private static final String USER = "user:";
+    private static final String GROUP = "group:";
+    private static final String USER_GROUPS = "groups:";
+
+    private final UserGroupCallback delegate;
+    private final UserGroupInfoCache cache;
+
+    public CachedUserGroupCallback(UserGroupCallback delegate) {
+        this(delegate, UserGroupInfoCache.getCacheSize(), UserGroupInfoCache.getCacheTtl(),
+                UserGroupInfoCache.getCacheNegativeTtl());
+    }
+
+    public CachedUserGroupCallback(UserGroupCallback delegate, int maxSize, long ttl, long negativeTtl) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("UserGroupCallback to be cached cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = new UserGroupInfoCache(maxSize, ttl, negativeTtl);
+    }
+
+    @Override
+    public boolean existsUser(String userId) {
+        return exists(USER, userId, false);
+    }
+
+    @Override
+    public boolean existsGroup(String groupId) {
+        return exists(GROUP, groupId, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<String> getGroupsForUser(String userId, List<String> groupIds, List<String> allExistingGroupIds) {
+        if (userId == null) {
+            return delegate.getGroupsForUser(userId, groupIds, allExistingGroupIds);
+        }
+        String key = USER_GROUPS + userId;
+        CacheEntry entry = cache.get(key);
+        List<String> groups;
+        if (entry != null) {
+            groups = (List<String>) entry.value;
+        } else {
+            groups = delegate.getGroupsForUser(userId, groupIds, allExistingGroupIds);
+            if (groups != null) {
+                groups = new ArrayList<String>(groups);
+            }
+            cache.put(key, groups, groups == null || groups.isEmpty());
+        }
+        // callers are free to modify returned list
+        return groups == null ? null : new ArrayList<String>(groups);
+    }
+
+    private boolean exists(String kind, String id, boolean group) {
+        if (id == null) {
+            return group ? delegate.existsGroup(id) : delegate.existsUser(id);
+        }
+        String key = kind + id;
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            return (Boolean) entry.value;
+        }
+        boolean exists = group ? delegate.existsGroup(id) : delegate.existsUser(id);
+        cache.put(key, exists, !exists);
+        return exists;
+    }
+
+    /**
+     * Removes all cached information about given user or group, e.g. after it was changed in the identity store.
+     */
+    public void invalidate(String userOrGroupId) {
+        cache.remove(USER + userOrGroupId);
+        cache.remove(GROUP + userOrGroupId);
+        cache.remove(USER_GROUPS + userOrGroupId);
+    }
+
+    /**
+     * Removes all cached information.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public UserGroupCallback getDelegate() {
+        return delegate;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /**
+     * Returns ratio of lookups answered from the cache, between 0 and 1.
+     */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+}
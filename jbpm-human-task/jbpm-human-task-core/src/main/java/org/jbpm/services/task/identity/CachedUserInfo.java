@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jbpm.services.task.identity.UserGroupInfoCache.CacheEntry;
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.OrganizationalEntity;
+import org.kie.internal.task.api.UserInfo;
+
+/**
+ * <code>UserInfo</code> decorator that caches results of the given user info, see <code>CachedUserGroupCallback</code>
+ * for supported system properties. Entities without the requested information are cached with the negative
+ * time to live, failures of the given user info (e.g. no email address found) are not cached.
+ */
+public class CachedUserInfo implements UserInfo {
+
+    private static final String DISPLAY_NAME = "name:";
+    private static final String MEMBERS = "members:";
+    private static final String HAS_EMAIL = "hasEmail:";
+    private static final String EMAIL = "email:";
+    private static final String LANGUAGE = "language:";
+
+    private static final String[] KINDS = new String[] {DISPLAY_NAME, MEMBERS, HAS_EMAIL, EMAIL, LANGUAGE};
+
+    private final UserInfo delegate;
+    private final UserGroupInfoCache cache;
+
+    public CachedUserInfo(UserInfo delegate) {
+        this(delegate, UserGroupInfoCache.getCacheSize(), UserGroupInfoCache.getCacheTtl(),
+                UserGroupInfoCache.getCacheNegativeTtl());
+    }
+
+    public CachedUserInfo(UserInfo delegate, int maxSize, long ttl, long negativeTtl) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("UserInfo to be cached cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = new UserGroupInfoCache(maxSize, ttl, negativeTtl);
+    }
+
+    @Override
+    public String getDisplayName(OrganizationalEntity entity) {
+        String key = key(DISPLAY_NAME, entity);
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            return (String) entry.value;
+        }
+        String displayName = delegate.getDisplayName(entity);
+        cache.put(key, displayName, displayName == null);
+        return displayName;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<OrganizationalEntity> getMembersForGroup(Group group) {
+        String key = key(MEMBERS, group);
+        CacheEntry entry = cache.get(key);
+        List<OrganizationalEntity> members;
+        if (entry != null) {
+            members = (List<OrganizationalEntity>) entry.value;
+        } else {
+            Iterator<OrganizationalEntity> iterator = delegate.getMembersForGroup(group);
+            members = null;
+            if (iterator != null) {
+                members = new ArrayList<OrganizationalEntity>();
+                while (iterator.hasNext()) {
+                    members.add(iterator.next());
+                }
+            }
+            cache.put(key, members, members == null || members.isEmpty());
+        }
+        return members == null ? null : new ArrayList<OrganizationalEntity>(members).iterator();
+    }
+
+    @Override
+    public boolean hasEmail(Group group) {
+        String key = key(HAS_EMAIL, group);
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            return (Boolean) entry.value;
+        }
+        boolean hasEmail = delegate.hasEmail(group);
+        cache.put(key, hasEmail, !hasEmail);
+        return hasEmail;
+    }
+
+    @Override
+    public String getEmailForEntity(OrganizationalEntity entity) {
+        String key = key(EMAIL, entity);
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            return (String) entry.value;
+        }
+        String email = delegate.getEmailForEntity(entity);
+        cache.put(key, email, email == null);
+        return email;
+    }
+
+    @Override
+    public String getLanguageForEntity(OrganizationalEntity entity) {
+        String key = key(LANGUAGE, entity);
+        CacheEntry entry = cache.get(key);
+        if (entry != null) {
+            return (String) entry.value;
+        }
+        String language = delegate.getLanguageForEntity(entity);
+        cache.put(key, language, language == null);
+        return language;
+    }
+
+    private String key(String kind, OrganizationalEntity entity) {
+        // users and groups may share the same id
+        return kind + (entity instanceof Group ? "g:" : "u:") + entity.getId();
+    }
+
+    /**
+     * Removes all cached information about given user or group, e.g. after it was changed in the identity store.
+     */
+    public void invalidate(String userOrGroupId) {
+        for (String kind : KINDS) {
+            cache.remove(kind + "u:" + userOrGroupId);
+            cache.remove(kind + "g:" + userOrGroupId);
+        }
+    }
+
+    /**
+     * Removes all cached information.
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public UserInfo getDelegate() {
+        return delegate;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /**
+     * Returns ratio of lookups answered from the cache, between 0 and 1.
+     */
+    public double getHitRate() {
+        return cache.getHitRate();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, least recently used cache of user and group information shared by <code>CachedUserGroupCallback</code>
+ * and <code>CachedUserInfo</code>. Entries expire after the time to live, negative entries (unknown user or group,
+ * no value) after the negative time to live which is usually shorter so newly created users are picked up soon.
+ */
+class UserGroupInfoCache {
+
+    static final String CACHE_SIZE = "org.jbpm.ht.identity.cache.size";
+    static final String CACHE_TTL = "org.jbpm.ht.identity.cache.ttl";
+    static final String CACHE_NEGATIVE_TTL = "org.jbpm.ht.identity.cache.negative.ttl";
+
+    private final long ttl;
+    private final long negativeTtl;
+    private final Map<String, CacheEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    UserGroupInfoCache(final int maxSize, long ttl, long negativeTtl) {
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns cached entry for given key or null when not cached or expired.
+     */
+    synchronized CacheEntry get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, Object value, boolean negative) {
+        long entryTtl = negative ? negativeTtl : ttl;
+        if (entryTtl > 0) {
+            entries.put(key, new CacheEntry(value, System.currentTimeMillis() + entryTtl));
+        }
+    }
+
+    synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    static int getCacheSize() {
+        return Integer.parseInt(System.getProperty(CACHE_SIZE, "1000"));
+    }
+
+    static long getCacheTtl() {
+        return Long.parseLong(System.getProperty(CACHE_TTL, "60000"));
+    }
+
+    static long getCacheNegativeTtl() {
+        return Long.parseLong(System.getProperty(CACHE_NEGATIVE_TTL, "10000"));
+    }
+
+    static class CacheEntry {
+
+        final Object value;
+        final long expiresAt;
+
+        CacheEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
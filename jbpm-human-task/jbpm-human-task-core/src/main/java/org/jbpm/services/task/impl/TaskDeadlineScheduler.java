@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jbpm.services.task.impl.TaskDeadlinesServiceImpl.ScheduledTaskDeadline;
+import org.kie.internal.task.api.TaskDeadlinesService.DeadlineType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Schedules task deadlines that are not handled by a <code>GlobalTimerService</code>.
+ * <br/>
+ * Timing and execution are separated: timer threads only wait for deadlines to become due and hand them over
+ * to the execution threads that run escalations and notifications (e.g. sending emails), so slow deadlines
+ * do not delay others from firing. Scheduled deadlines are tracked per task so they can be unscheduled by task id
+ * without scanning all scheduled deadlines.
+ * <br/>
+ * Lateness (time between the deadline being due and its execution starting) is recorded for every executed deadline.
+ * <br/>
+ * Following system properties are supported:
+ * <ul>
+ *  <li>org.jbpm.ht.deadlines.timer.threads - number of threads that wait for deadlines (default 1)</li>
+ *  <li>org.jbpm.ht.deadlines.executor.threads - number of threads that execute deadlines (default 5)</li>
+ * </ul>
+ */
+public class TaskDeadlineScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskDeadlineScheduler.class);
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<Long, ScheduledDeadlines> scheduledDeadlines = new ConcurrentHashMap<Long, ScheduledDeadlines>();
+
+    private final AtomicLong executedDeadlines = new AtomicLong();
+    private final AtomicLong totalLateness = new AtomicLong();
+    private final AtomicLong maxLateness = new AtomicLong();
+
+    public TaskDeadlineScheduler() {
+        this(Integer.parseInt(System.getProperty("org.jbpm.ht.deadlines.timer.threads", "1")),
+                Integer.parseInt(System.getProperty("org.jbpm.ht.deadlines.executor.threads", "5")));
+    }
+
+    public TaskDeadlineScheduler(int timerThreads, int executorThreads) {
+        this.timer = new ScheduledThreadPoolExecutor(Math.max(timerThreads, 1), new DeadlineThreadFactory("jBPM-DeadlineTimer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        this.executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Math.max(executorThreads, 1),
+                new DeadlineThreadFactory("jBPM-DeadlineExecutor"));
+    }
+
+    public void schedule(long taskId, long deadlineId, long delay, DeadlineType type) {
+        ScheduledTaskDeadline deadline = new ScheduledTaskDeadline(taskId, deadlineId, type);
+        long dueTime = System.currentTimeMillis() + Math.max(delay, 0);
+
+        while (true) {
+            ScheduledDeadlines deadlines = scheduledDeadlines.get(taskId);
+            if (deadlines == null) {
+                ScheduledDeadlines created = new ScheduledDeadlines();
+                deadlines = scheduledDeadlines.putIfAbsent(taskId, created);
+                if (deadlines == null) {
+                    deadlines = created;
+                }
+            }
+            synchronized (deadlines) {
+                if (deadlines.removed) {
+                    // concurrently unscheduled, retry with new entry
+                    continue;
+                }
+                DeadlineTrigger trigger = new DeadlineTrigger(deadline, dueTime);
+                ScheduledFuture<?> scheduled = timer.schedule(trigger, delay, TimeUnit.MILLISECONDS);
+                // assigned while holding the monitor of the deadlines, completion reads it under the same monitor
+                trigger.future = scheduled;
+                ScheduledFuture<?> previous = deadlines.get(type).put(deadlineId, scheduled);
+                if (previous != null) {
+                    // same deadline scheduled again, e.g. on initialization, keep only the latest
+                    previous.cancel(false);
+                }
+                return;
+            }
+        }
+    }
+
+    public void unschedule(long taskId, DeadlineType type) {
+        ScheduledDeadlines deadlines = scheduledDeadlines.get(taskId);
+        if (deadlines == null) {
+            return;
+        }
+        synchronized (deadlines) {
+            Map<Long, ScheduledFuture<?>> futures = deadlines.get(type);
+            for (ScheduledFuture<?> scheduled : futures.values()) {
+                try {
+                    if (!scheduled.isDone()) {
+                        scheduled.cancel(true);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error while cancelling scheduled deadline task for Task with id {} -> {}", taskId, e);
+                }
+            }
+            futures.clear();
+            removeIfEmpty(taskId, deadlines);
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        executor.shutdownNow();
+        scheduledDeadlines.clear();
+    }
+
+    /**
+     * Returns number of deadlines waiting to become due.
+     */
+    public int getScheduledDeadlines() {
+        return timer.getQueue().size();
+    }
+
+    /**
+     * Returns number of due deadlines waiting for an execution thread.
+     */
+    public int getPendingDeadlines() {
+        return executor.getQueue().size();
+    }
+
+    public long getExecutedDeadlines() {
+        return executedDeadlines.get();
+    }
+
+    /**
+     * Returns average time in milliseconds between deadlines being due and their execution starting.
+     */
+    public long getAverageLateness() {
+        long executed = executedDeadlines.get();
+        return executed == 0 ? 0 : totalLateness.get() / executed;
+    }
+
+    /**
+     * Returns maximum time in milliseconds between a deadline being due and its execution starting.
+     */
+    public long getMaxLateness() {
+        return maxLateness.get();
+    }
+
+    private void recordLateness(long lateness) {
+        executedDeadlines.incrementAndGet();
+        totalLateness.addAndGet(lateness);
+        long max = maxLateness.get();
+        while (lateness > max && !maxLateness.compareAndSet(max, lateness)) {
+            max = maxLateness.get();
+        }
+    }
+
+    private void completed(DeadlineTrigger trigger) {
+        ScheduledTaskDeadline deadline = trigger.deadline;
+        ScheduledDeadlines deadlines = scheduledDeadlines.get(deadline.getTaskId());
+        if (deadlines != null) {
+            synchronized (deadlines) {
+                Map<Long, ScheduledFuture<?>> futures = deadlines.get(deadline.getType());
+                // deadline might have been scheduled again while this run was executing, keep the new one
+                if (futures.get(deadline.getDeadlineId()) == trigger.future) {
+                    futures.remove(deadline.getDeadlineId());
+                    removeIfEmpty(deadline.getTaskId(), deadlines);
+                }
+            }
+        }
+    }
+
+    private void removeIfEmpty(long taskId, ScheduledDeadlines deadlines) {
+        if (deadlines.isEmpty()) {
+            deadlines.removed = true;
+            scheduledDeadlines.remove(taskId, deadlines);
+        }
+    }
+
+    private class DeadlineTrigger implements Runnable {
+
+        private final ScheduledTaskDeadline deadline;
+        private final long dueTime;
+        private ScheduledFuture<?> future;
+
+        DeadlineTrigger(ScheduledTaskDeadline deadline, long dueTime) {
+            this.deadline = deadline;
+            this.dueTime = dueTime;
+        }
+
+        @Override
+        public void run() {
+            executor.execute(new DeadlineExecution(this));
+        }
+    }
+
+    private class DeadlineExecution implements Runnable {
+
+        private final DeadlineTrigger trigger;
+        private final ScheduledTaskDeadline deadline;
+        private final long dueTime;
+
+        DeadlineExecution(DeadlineTrigger trigger) {
+            this.trigger = trigger;
+            this.deadline = trigger.deadline;
+            this.dueTime = trigger.dueTime;
+        }
+
+        @Override
+        public void run() {
+            long lateness = Math.max(System.currentTimeMillis() - dueTime, 0);
+            recordLateness(lateness);
+            if (lateness > 1000) {
+                logger.debug("Deadline {} of task {} executed {} ms late", deadline.getDeadlineId(), deadline.getTaskId(), lateness);
+            }
+            try {
+                deadline.call();
+            } catch (Exception e) {
+                logger.error("Error while executing deadline {} of task {}", deadline.getDeadlineId(), deadline.getTaskId(), e);
+            } finally {
+                completed(trigger);
+            }
+        }
+    }
+
+    /**
+     * Deadlines scheduled for one task, guarded by its own monitor.
+     */
+    private static class ScheduledDeadlines {
+
+        private final Map<Long, ScheduledFuture<?>> start = new HashMap<Long, ScheduledFuture<?>>();
+        private final Map<Long, ScheduledFuture<?>> end = new HashMap<Long, ScheduledFuture<?>>();
+        private boolean removed;
+
+        Map<Long, ScheduledFuture<?>> get(DeadlineType type) {
+            return type == DeadlineType.START ? start : end;
+        }
+
+        boolean isEmpty() {
+            return start.isEmpty() && end.isEmpty();
+        }
+    }
+
+    private static class DeadlineThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        DeadlineThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -16,15 +16,11 @@
 package org.jbpm.services.task.impl;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.time.Job;
@@ -59,10 +55,8 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
     
     protected static NotificationListener notificationListener;
 
-	// use single ThreadPoolExecutor for all instances of task services within same JVM
-    private volatile static ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(3);
-    private volatile static Map<Long, List<ScheduledFuture<ScheduledTaskDeadline>>> startScheduledTaskDeadlines = new ConcurrentHashMap<Long, List<ScheduledFuture<ScheduledTaskDeadline>>>();
-    private volatile static Map<Long, List<ScheduledFuture<ScheduledTaskDeadline>>> endScheduledTaskDeadlines = new ConcurrentHashMap<Long, List<ScheduledFuture<ScheduledTaskDeadline>>>();
+	// use single scheduler for all instances of task services within same JVM
+    private volatile static TaskDeadlineScheduler scheduler = new TaskDeadlineScheduler();
     private volatile static Map<String, JobHandle> jobHandles = new ConcurrentHashMap<String, JobHandle>();
 
     private TaskPersistenceContext persistenceContext;
@@ -82,8 +76,25 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
 
     public void schedule(long taskId, long deadlineId, long delay, DeadlineType type) {
         Task task = persistenceContext.findTask(taskId);
-        String deploymentId = task.getTaskData().getDeploymentId();
+        schedule(taskId, deadlineId, delay, type, task.getTaskData().getDeploymentId(), task.getTaskData().getProcessInstanceId());
+    }
+
+    /**
+     * Schedules all unescalated deadlines of given type of all active tasks, loading
+     * deadlines together with the task data required for scheduling in a single query.
+     */
+    public void scheduleAll(DeadlineType type) {
+        String queryName = type == DeadlineType.START ? "UnescalatedStartDeadlinesWithTaskData" : "UnescalatedEndDeadlinesWithTaskData";
+        List<Object[]> resultList = persistenceContext.queryInTransaction(queryName,
+                ClassUtil.<List<Object[]>>castClass(List.class));
+        long now = System.currentTimeMillis();
+        for (Object[] row : resultList) {
+            long delay = ((Date) row[2]).getTime() - now;
+            schedule((Long) row[0], (Long) row[1], delay, type, (String) row[3], (Long) row[4]);
+        }
+    }
 
+    protected void schedule(long taskId, long deadlineId, long delay, DeadlineType type, String deploymentId, Long processInstanceId) {
         TimerService timerService = TimerServiceRegistry.getInstance().get(deploymentId + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
         if (timerService != null && timerService instanceof GlobalTimerService) {
             TaskDeadlineJob deadlineJob = new TaskDeadlineJob(taskId, deadlineId, type);
@@ -95,30 +106,12 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
                     0,
                     null,
                     null ) ;
-            JobHandle handle = timerService.scheduleJob(deadlineJob, new TaskDeadlineJobContext(deadlineJob.getId(), task.getTaskData().getProcessInstanceId()), trigger);
+            JobHandle handle = timerService.scheduleJob(deadlineJob, new TaskDeadlineJobContext(deadlineJob.getId(), processInstanceId), trigger);
             logger.debug( "scheduling timer job for deadline {} and task {}  using timer service {}", deadlineJob.getId(), taskId, timerService);
             jobHandles.put(deadlineJob.getId(), handle);
 
         } else {
-            ScheduledFuture<ScheduledTaskDeadline> scheduled = scheduler.schedule(new ScheduledTaskDeadline(taskId, deadlineId, type), delay, TimeUnit.MILLISECONDS);
-            
-            List<ScheduledFuture<ScheduledTaskDeadline>> knownFutures = null;
-            if (type == DeadlineType.START) {
-                knownFutures = startScheduledTaskDeadlines.get(taskId);
-            } else if (type == DeadlineType.END) {
-                knownFutures = endScheduledTaskDeadlines.get(taskId);
-            }
-            if (knownFutures == null) {
-                knownFutures = new CopyOnWriteArrayList<ScheduledFuture<ScheduledTaskDeadline>>();
-            }
-
-            knownFutures.add(scheduled);
-                        
-            if (type == DeadlineType.START) {
-                startScheduledTaskDeadlines.put(taskId, knownFutures);
-            } else if (type == DeadlineType.END) {
-                endScheduledTaskDeadlines.put(taskId, knownFutures);
-            }
+            scheduler.schedule(taskId, deadlineId, delay, type);
         }
 
     }
@@ -176,27 +169,7 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
             }
             
         } else {
-            List<ScheduledFuture<ScheduledTaskDeadline>> knownFutures = null;
-            if (type == DeadlineType.START) {
-                knownFutures = startScheduledTaskDeadlines.get(taskId);
-            } else if (type == DeadlineType.END) {
-                knownFutures = endScheduledTaskDeadlines.get(taskId);
-            }
-            if (knownFutures == null) {
-                return;
-            }
-            Iterator<ScheduledFuture<ScheduledTaskDeadline>> it = knownFutures.iterator();
-            while (it.hasNext()) {
-                ScheduledFuture<ScheduledTaskDeadline> scheduled = it.next();
-                try {
-                    if (!scheduled.isDone() && !scheduled.isCancelled()) {
-                        scheduled.cancel(true);
-                    }
-    
-                } catch (Exception e) {
-                    logger.error("Error while cancelling scheduled deadline task for Task with id {} -> {}", taskId, e);
-                }
-            }
+            scheduler.unschedule(taskId, type);
         }
     }
 
@@ -368,18 +341,23 @@ public class TaskDeadlinesServiceImpl implements TaskDeadlinesService {
     	}        
     }
     
+    /**
+     * Returns scheduler of deadlines that are not handled by a <code>GlobalTimerService</code>, e.g. to read its metrics.
+     */
+    public static TaskDeadlineScheduler getScheduler() {
+        return scheduler;
+    }
+
     public static synchronized void reset() {
     	dispose();
-        scheduler = new ScheduledThreadPoolExecutor(3);        
+        scheduler = new TaskDeadlineScheduler();        
     }
 
     public static synchronized void dispose() {
         try {
             if (scheduler != null) {
-                scheduler.shutdownNow();
+                scheduler.shutdown();
             }        
-            startScheduledTaskDeadlines.clear();
-            endScheduledTaskDeadlines.clear();
             jobHandles.clear();
             notificationListener = null;
             TaskDeadlinesServiceImpl.instance = null;
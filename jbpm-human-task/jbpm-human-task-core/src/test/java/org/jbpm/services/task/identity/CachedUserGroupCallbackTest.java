@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.kie.api.task.UserGroupCallback;
+import org.kie.api.task.model.Group;
+import org.kie.api.task.model.User;
+import org.kie.internal.task.api.TaskModelProvider;
+
+public class CachedUserGroupCallbackTest {
+
+    @Test
+    public void testGroupsForUserCached() {
+        CountingUserGroupCallback delegate = new CountingUserGroupCallback();
+        CachedUserGroupCallback callback = new CachedUserGroupCallback(delegate, 100, 60000, 60000);
+
+        for (int i = 0; i < 10; i++) {
+            List<String> groups = callback.getGroupsForUser("john", null, null);
+            assertTrue(groups.contains("Knights Templer"));
+            // returned list can be modified without affecting cached value
+            groups.clear();
+            assertTrue(callback.existsUser("john"));
+            assertTrue(callback.existsGroup("Knights Templer"));
+        }
+        assertEquals(3, delegate.calls);
+        assertEquals(27, callback.getHitCount());
+        assertEquals(3, callback.getMissCount());
+        assertEquals(0.9, callback.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testUnknownUserNegativelyCached() throws Exception {
+        CountingUserGroupCallback delegate = new CountingUserGroupCallback();
+        CachedUserGroupCallback callback = new CachedUserGroupCallback(delegate, 100, 60000, 50);
+
+        assertFalse(callback.existsUser("unknown"));
+        assertFalse(callback.existsUser("unknown"));
+        assertEquals(1, delegate.calls);
+
+        Thread.sleep(100);
+        assertFalse(callback.existsUser("unknown"));
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    public void testInvalidateAndEviction() {
+        CountingUserGroupCallback delegate = new CountingUserGroupCallback();
+        CachedUserGroupCallback callback = new CachedUserGroupCallback(delegate, 2, 60000, 60000);
+
+        callback.existsUser("john");
+        callback.getGroupsForUser("john", null, null);
+        callback.invalidate("john");
+        assertEquals(0, callback.getCacheSize());
+        callback.existsUser("john");
+        assertEquals(3, delegate.calls);
+
+        callback.existsUser("mary");
+        callback.existsUser("Administrator");
+        assertEquals(2, callback.getCacheSize());
+        // least recently used entry was evicted
+        callback.existsUser("john");
+        assertEquals(6, delegate.calls);
+
+        callback.invalidateAll();
+        assertEquals(0, callback.getCacheSize());
+    }
+
+    @Test
+    public void testUserInfoCached() {
+        Properties registry = new Properties();
+        registry.setProperty("john", "john@domain.com:en-UK:John");
+        registry.setProperty("PM", "pm@domain.com:en-UK:PM:[john]");
+        CachedUserInfo userInfo = new CachedUserInfo(new DefaultUserInfo(registry), 100, 60000, 60000);
+
+        User john = TaskModelProvider.getFactory().newUser("john");
+        Group pm = TaskModelProvider.getFactory().newGroup("PM");
+        for (int i = 0; i < 5; i++) {
+            assertEquals("John", userInfo.getDisplayName(john));
+            assertEquals("john@domain.com", userInfo.getEmailForEntity(john));
+            assertEquals("en-UK", userInfo.getLanguageForEntity(john));
+            assertTrue(userInfo.hasEmail(pm));
+            assertTrue(userInfo.getMembersForGroup(pm).hasNext());
+            assertNull(userInfo.getDisplayName(TaskModelProvider.getFactory().newUser("unknown")));
+        }
+        assertEquals(6, userInfo.getMissCount());
+        assertEquals(24, userInfo.getHitCount());
+    }
+
+    private static class CountingUserGroupCallback implements UserGroupCallback {
+
+        private final UserGroupCallback delegate = new MvelUserGroupCallbackImpl(true);
+        private int calls;
+
+        @Override
+        public boolean existsUser(String userId) {
+            calls++;
+            return delegate.existsUser(userId);
+        }
+
+        @Override
+        public boolean existsGroup(String groupId) {
+            calls++;
+            return delegate.existsGroup(groupId);
+        }
+
+        @Override
+        public List<String> getGroupsForUser(String userId, List<String> groupIds, List<String> allExistingGroupIds) {
+            calls++;
+            return delegate.getGroupsForUser(userId, groupIds, allExistingGroupIds);
+        }
+    }
+}
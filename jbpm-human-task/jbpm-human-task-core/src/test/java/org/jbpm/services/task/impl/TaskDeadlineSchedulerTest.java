@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.services.task.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jbpm.services.task.commands.ExecuteDeadlinesCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.command.Command;
+import org.kie.api.runtime.CommandExecutor;
+import org.kie.internal.task.api.TaskDeadlinesService.DeadlineType;
+
+public class TaskDeadlineSchedulerTest {
+
+    private TaskDeadlineScheduler scheduler;
+    private RecordingCommandExecutor commandExecutor;
+
+    @Before
+    public void setup() {
+        commandExecutor = new RecordingCommandExecutor();
+        TaskDeadlinesServiceImpl.initialize(commandExecutor);
+    }
+
+    @After
+    public void cleanup() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        TaskDeadlinesServiceImpl.reset();
+    }
+
+    @Test
+    public void testSlowDeadlinesDoNotDelayOthers() throws Exception {
+        scheduler = new TaskDeadlineScheduler(1, 4);
+        commandExecutor.executionTime = 500;
+        commandExecutor.latch = new CountDownLatch(4);
+
+        long start = System.currentTimeMillis();
+        for (long taskId = 1; taskId <= 4; taskId++) {
+            scheduler.schedule(taskId, taskId, 10, DeadlineType.START);
+        }
+        assertTrue(commandExecutor.latch.await(5, TimeUnit.SECONDS));
+        // all deadlines executed in parallel instead of one after another
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertEquals(4, scheduler.getExecutedDeadlines());
+        assertTrue(scheduler.getMaxLateness() < 400);
+    }
+
+    @Test
+    public void testUnscheduleByTaskId() throws Exception {
+        scheduler = new TaskDeadlineScheduler(1, 2);
+        commandExecutor.latch = new CountDownLatch(1);
+
+        scheduler.schedule(1, 1, 300, DeadlineType.START);
+        scheduler.schedule(1, 2, 300, DeadlineType.START);
+        scheduler.schedule(1, 3, 300, DeadlineType.END);
+        scheduler.schedule(2, 4, 300, DeadlineType.START);
+        assertEquals(4, scheduler.getScheduledDeadlines());
+
+        scheduler.unschedule(1, DeadlineType.START);
+        scheduler.unschedule(2, DeadlineType.START);
+        assertEquals(1, scheduler.getScheduledDeadlines());
+
+        assertTrue(commandExecutor.latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(1, commandExecutor.executed.size());
+        // only end deadline of task 1 is left
+        assertEquals(1L, commandExecutor.executed.get(0).longValue());
+        assertEquals(0, scheduler.getScheduledDeadlines());
+    }
+
+    @Test
+    public void testRescheduleKeepsLatest() throws Exception {
+        scheduler = new TaskDeadlineScheduler(1, 2);
+        commandExecutor.latch = new CountDownLatch(1);
+
+        scheduler.schedule(1, 1, 100, DeadlineType.START);
+        scheduler.schedule(1, 1, 100, DeadlineType.START);
+        assertEquals(1, scheduler.getScheduledDeadlines());
+
+        assertTrue(commandExecutor.latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(1, commandExecutor.executed.size());
+    }
+
+    @Test
+    public void testRescheduleWhileExecutingKeepsLatest() throws Exception {
+        scheduler = new TaskDeadlineScheduler(1, 2);
+        commandExecutor.executionTime = 500;
+        commandExecutor.started = new CountDownLatch(1);
+        commandExecutor.latch = new CountDownLatch(1);
+
+        scheduler.schedule(1, 1, 10, DeadlineType.START);
+        assertTrue(commandExecutor.started.await(5, TimeUnit.SECONDS));
+        // scheduled again while the first run is executing
+        scheduler.schedule(1, 1, 1000, DeadlineType.START);
+        assertTrue(commandExecutor.latch.await(5, TimeUnit.SECONDS));
+
+        // completion of the first run must not forget the new one so it can still be unscheduled
+        scheduler.unschedule(1, DeadlineType.START);
+        assertEquals(0, scheduler.getScheduledDeadlines());
+        Thread.sleep(1200);
+        assertEquals(1, commandExecutor.executed.size());
+    }
+
+    private static class RecordingCommandExecutor implements CommandExecutor {
+
+        private final List<Long> executed = new CopyOnWriteArrayList<Long>();
+        private volatile long executionTime;
+        private volatile CountDownLatch latch;
+        private volatile CountDownLatch started;
+
+        @Override
+        public <T> T execute(Command<T> command) {
+            if (command instanceof ExecuteDeadlinesCommand) {
+                if (started != null) {
+                    started.countDown();
+                }
+                try {
+                    Thread.sleep(executionTime);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                executed.add(((ExecuteDeadlinesCommand) command).getTaskId());
+                latch.countDown();
+            }
+            return null;
+        }
+    }
+}
@@ -252,6 +252,13 @@
         primary key (id)
     );
 
+    create table ProcessInstanceVariables (
+        InstanceId bigint not null,
+        segment blob,
+        variableName varchar(255) not null,
+        primary key (InstanceId, variableName)
+    );
+
     create table QueryDefinitionStore (
         id bigint generated by default as identity,
         qExpression clob,
@@ -280,6 +287,7 @@
         businessKey varchar(255),
         message varchar(255),
         owner varchar(255),
+        priority integer not null,
         requestData blob,
         responseData blob,
         retries integer not null,
@@ -476,6 +484,11 @@
         foreign key (InstanceId) 
         references ProcessInstanceInfo;
 
+    alter table ProcessInstanceVariables 
+        add constraint FK_ProcInstVars_InstanceId 
+        foreign key (InstanceId) 
+        references ProcessInstanceInfo;
+
     alter table I18NText 
         add constraint FK_k16jpgrh67ti9uedf6konsu1p 
         foreign key (Task_Subjects_Id) 
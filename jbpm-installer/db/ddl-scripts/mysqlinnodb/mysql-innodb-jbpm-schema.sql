@@ -252,6 +252,13 @@
         primary key (id)
     ) ENGINE=InnoDB;
 
+    create table ProcessInstanceVariables (
+        InstanceId bigint not null,
+        segment longblob,
+        variableName varchar(255) not null,
+        primary key (InstanceId, variableName)
+    ) ENGINE=InnoDB;
+
     create table QueryDefinitionStore (
         id bigint not null auto_increment,
         qExpression longtext,
@@ -280,6 +287,7 @@
         businessKey varchar(255),
         message varchar(255),
         owner varchar(255),
+        priority integer not null,
         requestData longblob,
         responseData longblob,
         retries integer not null,
@@ -487,6 +495,12 @@
         foreign key (InstanceId) 
         references ProcessInstanceInfo (InstanceId);
 
+    alter table ProcessInstanceVariables 
+        add index FK_ProcInstVars_InstanceId (InstanceId), 
+        add constraint FK_ProcInstVars_InstanceId 
+        foreign key (InstanceId) 
+        references ProcessInstanceInfo (InstanceId);
+
     alter table I18NText 
         add index FK_k16jpgrh67ti9uedf6konsu1p (Task_Subjects_Id), 
         add constraint FK_k16jpgrh67ti9uedf6konsu1p 
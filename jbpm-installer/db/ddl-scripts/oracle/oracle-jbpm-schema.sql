@@ -252,6 +252,13 @@
         primary key (id)
     );
 
+    create table ProcessInstanceVariables (
+        InstanceId number(19,0) not null,
+        segment blob,
+        variableName varchar2(255 char) not null,
+        primary key (InstanceId, variableName)
+    );
+
     create table QueryDefinitionStore (
         id number(19,0) not null,
         qExpression clob,
@@ -280,6 +287,7 @@
         businessKey varchar2(255 char),
         message varchar2(255 char),
         owner varchar2(255 char),
+        priority number(10,0) not null,
         requestData blob,
         responseData blob,
         retries number(10,0) not null,
@@ -476,6 +484,11 @@
         foreign key (InstanceId) 
         references ProcessInstanceInfo;
 
+    alter table ProcessInstanceVariables 
+        add constraint FK_ProcInstVars_InstanceId 
+        foreign key (InstanceId) 
+        references ProcessInstanceInfo;
+
     alter table I18NText 
         add constraint FK_k16jpgrh67ti9uedf6konsu1p 
         foreign key (Task_Subjects_Id) 
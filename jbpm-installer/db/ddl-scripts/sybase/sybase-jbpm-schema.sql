@@ -280,6 +280,14 @@
     ) lock datarows
     go
 
+    create table ProcessInstanceVariables (
+        InstanceId numeric(19,0) not null,
+        segment image null,
+        variableName varchar(255) not null,
+        primary key (InstanceId, variableName)
+    ) lock datarows
+    go
+
     create table QueryDefinitionStore (
         id numeric(19,0) identity not null,
         qExpression text null,
@@ -311,6 +319,7 @@
         businessKey varchar(255) null,
         message varchar(255) null,
         owner varchar(255) null,
+        priority int not null,
         requestData image null,
         responseData image null,
         retries int not null,
@@ -523,6 +532,12 @@
         references ProcessInstanceInfo
     go
 
+    alter table ProcessInstanceVariables
+        add constraint FK_ProcInstVars_InstanceId
+        foreign key (InstanceId)
+        references ProcessInstanceInfo
+    go
+
     alter table I18NText
         add constraint FK2349686BF4ACCD69
         foreign key (Task_Subjects_Id)
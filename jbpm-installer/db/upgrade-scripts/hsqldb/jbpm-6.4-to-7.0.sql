@@ -0,0 +1,14 @@
+create table ProcessInstanceVariables (
+    InstanceId bigint not null,
+    segment longvarbinary,
+    variableName varchar(255) not null,
+    primary key (InstanceId, variableName)
+);
+
+alter table ProcessInstanceVariables 
+    add constraint FK_ProcInstVars_InstanceId 
+    foreign key (InstanceId) 
+    references ProcessInstanceInfo;
+
+-- executor request priority, existing requests get the default priority
+alter table RequestInfo add column priority integer default 5 not null;
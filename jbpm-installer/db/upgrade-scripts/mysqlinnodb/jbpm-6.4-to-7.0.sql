@@ -0,0 +1,15 @@
+create table ProcessInstanceVariables (
+    InstanceId bigint not null,
+    segment longblob,
+    variableName varchar(255) not null,
+    primary key (InstanceId, variableName)
+) ENGINE=InnoDB;
+
+alter table ProcessInstanceVariables 
+    add index FK_ProcInstVars_InstanceId (InstanceId), 
+    add constraint FK_ProcInstVars_InstanceId 
+    foreign key (InstanceId) 
+    references ProcessInstanceInfo (InstanceId);
+
+-- executor request priority, existing requests get the default priority
+alter table RequestInfo add column priority integer not null default 5;
@@ -0,0 +1,14 @@
+create table ProcessInstanceVariables (
+    InstanceId number(19,0) not null,
+    segment blob,
+    variableName varchar2(255 char) not null,
+    primary key (InstanceId, variableName)
+);
+
+alter table ProcessInstanceVariables 
+    add constraint FK_ProcInstVars_InstanceId 
+    foreign key (InstanceId) 
+    references ProcessInstanceInfo;
+
+-- executor request priority, existing requests get the default priority
+alter table RequestInfo add priority number(10,0) default 5 not null;
@@ -0,0 +1,17 @@
+create table ProcessInstanceVariables (
+    InstanceId numeric(19,0) not null,
+    segment image null,
+    variableName varchar(255) not null,
+    primary key (InstanceId, variableName)
+) lock datarows
+go
+
+alter table ProcessInstanceVariables
+    add constraint FK_ProcInstVars_InstanceId
+    foreign key (InstanceId)
+    references ProcessInstanceInfo
+go
+
+-- executor request priority, existing requests get the default priority
+alter table RequestInfo add priority int default 5 not null
+go
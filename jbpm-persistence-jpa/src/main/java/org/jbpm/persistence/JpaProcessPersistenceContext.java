@@ -67,6 +67,24 @@ public class JpaProcessPersistenceContext extends JpaPersistenceContext
         return em.find( ProcessInstanceInfo.class, processId );
     }
 
+    /**
+     * Loads all given {@link ProcessInstanceInfo} instances with a single query so that they end up in the
+     * persistence context, subsequent lookups by id are then served without additional round trips to the data base.
+     * </p>
+     * Process instance infos that do not exist (anymore) are simply not part of the returned list.
+     */
+    public List<ProcessInstanceInfo> findProcessInstanceInfos(List<Long> processIds) {
+        if (processIds == null || processIds.isEmpty()) {
+            return new ArrayList<ProcessInstanceInfo>();
+        }
+        Query processInstancesByIds = getEntityManager().createNamedQuery( "ProcessInstancesByIds" );
+        processInstancesByIds.setParameter( "ids", processIds );
+        if( this.pessimisticLocking ) {
+            processInstancesByIds.setLockMode( LockModeType.PESSIMISTIC_FORCE_INCREMENT );
+        }
+        return (List<ProcessInstanceInfo>) processInstancesByIds.getResultList();
+    }
+
     public void remove(ProcessInstanceInfo processInstanceInfo) {
         getEntityManager().remove( processInstanceInfo );
         TransactionManagerHelper.removeFromUpdatableSet(txm, processInstanceInfo);
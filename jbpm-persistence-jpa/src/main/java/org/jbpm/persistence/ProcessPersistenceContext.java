@@ -32,6 +32,8 @@ public interface ProcessPersistenceContext
     
     ProcessInstanceInfo findProcessInstanceInfo(Long processId);
     
+    List<ProcessInstanceInfo> findProcessInstanceInfos(List<Long> processIds);
+    
     void remove(ProcessInstanceInfo processInstanceInfo);
 
     List<Long> getProcessInstancesWaitingForEvent(String type);
@@ -15,6 +15,7 @@
 
 package org.jbpm.persistence.processinstance;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.drools.core.common.InternalKnowledgeRuntime;
@@ -32,6 +33,8 @@ import org.slf4j.LoggerFactory;
 public class JPASignalManager extends DefaultSignalManager {
     private static final String ASYNC_SIGNAL_PREFIX = "ASYNC-";
     private static final Logger logger = LoggerFactory.getLogger(JPASignalManager.class);
+    // when greater than 0 waiting process instances are loaded and (async) signaled in chunks of given size
+    protected int signalBatchSize = Integer.parseInt(System.getProperty("org.jbpm.signal.batch.size", "0"));
 
     public JPASignalManager(InternalKnowledgeRuntime kruntime) {
         super(kruntime);
@@ -50,6 +53,20 @@ public class JPASignalManager extends DefaultSignalManager {
             ExecutorService executorService = (ExecutorService) getKnowledgeRuntime().getEnvironment().get("ExecutorService");
             if (runtimeManager != null && executorService != null) {
                 
+                if (signalBatchSize > 0) {
+                    // one request per chunk so every chunk is delivered in its own transaction by the executor threads
+                    for (List<Long> chunk : partition(processInstancesToSignalList)) {
+                        CommandContext ctx = new CommandContext();
+                        ctx.setData("DeploymentId", runtimeManager.getIdentifier());
+                        ctx.setData("ProcessInstanceIds", chunk);
+                        ctx.setData("Signal", actualSignalType);
+                        ctx.setData("Event", event);
+                        
+                        executorService.scheduleRequest(AsyncSignalEventCommand.class.getName(), ctx);
+                    }
+                    
+                    return;
+                }
                 for (Long processInstanceId : processInstancesToSignalList) {
                     CommandContext ctx = new CommandContext();
                     ctx.setData("DeploymentId", runtimeManager.getIdentifier());
@@ -66,20 +83,47 @@ public class JPASignalManager extends DefaultSignalManager {
             }
         }
         
-        
-        for ( long id : processInstancesToSignalList ) {
+        if (signalBatchSize > 0) {
+            List<List<Long>> chunks = partition(processInstancesToSignalList);
+            for (int i = 0; i < chunks.size(); i++) {
+                List<Long> chunk = chunks.get(i);
+                // bulk load the chunk so the process instance lookups below are served from the persistence context
+                context.findProcessInstanceInfos(chunk);
+                int failed = loadProcessInstances(chunk);
+                logger.debug("Loaded chunk {} of {} for signal '{}': {} process instances, {} failures",
+                        i + 1, chunks.size(), actualSignalType, chunk.size(), failed);
+            }
+        } else {
+            loadProcessInstances(processInstancesToSignalList);
+        }
+        super.signalEvent( actualSignalType,
+                           event );
+    }
+
+    protected int loadProcessInstances(List<Long> processInstanceIds) {
+        int failed = 0;
+        for ( long id : processInstanceIds ) {
             try {
                 getKnowledgeRuntime().getProcessInstance( id );
             } catch (IllegalStateException e) {
                 // IllegalStateException can be thrown when using RuntimeManager
                 // and invalid ksession was used for given context
             } catch (RuntimeException e) {
+                failed++;
                 logger.warn("Exception when loading process instance for signal '{}', instance with id {} will not be signaled",
                         e.getMessage(), id);
             }
         }
-        super.signalEvent( actualSignalType,
-                           event );
+        return failed;
+    }
+
+    protected List<List<Long>> partition(List<Long> processInstanceIds) {
+        List<List<Long>> chunks = new ArrayList<List<Long>>();
+        for (int i = 0; i < processInstanceIds.size(); i += signalBatchSize) {
+            int end = Math.min(i + signalBatchSize, processInstanceIds.size());
+            chunks.add(new ArrayList<Long>(processInstanceIds.subList(i, end)));
+        }
+        return chunks;
     }
 
 }
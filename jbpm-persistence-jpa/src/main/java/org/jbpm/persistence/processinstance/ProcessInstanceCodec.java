@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package org.jbpm.persistence.processinstance;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.kie.api.runtime.Environment;
+
+/**
+ * Compression applied to the marshalled process instances (and variable segments) stored by
+ * {@link ProcessInstanceInfo}.
+ * <br/>
+ * Compressed data starts with a marker byte followed by the codec id so that it can always be read back,
+ * whatever codec is currently configured, data without marker (e.g. stored before compression was enabled)
+ * is read as it is. <code>NONE</code> stores data without marker, exactly as without compression.
+ * <br/>
+ * The codec is selected by the <code>ProcessInstanceCompression</code> environment entry (so per deployment
+ * when using the runtime manager), given as codec or name, or by the <code>org.jbpm.pi.compression</code>
+ * system property otherwise: <code>none</code> (default), <code>fast</code> or <code>deflate</code>.
+ */
+public enum ProcessInstanceCodec {
+
+    NONE((byte) 0, Deflater.NO_COMPRESSION),
+    /**
+     * Favors speed over size, for frequently updated process instances.
+     */
+    FAST((byte) 1, Deflater.BEST_SPEED),
+    DEFLATE((byte) 2, Deflater.DEFAULT_COMPRESSION);
+
+    public static final String ENVIRONMENT_ENTRY = "ProcessInstanceCompression";
+
+    // marshalled data starts with the java serialization stream magic (0xACED), so never with this marker
+    private static final byte MARKER = (byte) 0xC0;
+    private static final int BUFFER_SIZE = 4096;
+
+    private final byte id;
+    private final int level;
+
+    private ProcessInstanceCodec(byte id, int level) {
+        this.id = id;
+        this.level = level;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public byte[] encode(byte[] data) {
+        if (this == NONE || data == null) {
+            return data;
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            out.write(MARKER);
+            out.write(id);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns given data decoded with the codec it was encoded with, data that was not encoded is returned as it is.
+     */
+    public static byte[] decode(byte[] data) {
+        if (data == null || data.length < 2 || data[0] != MARKER) {
+            return data;
+        }
+        ProcessInstanceCodec codec = getById(data[1]);
+        if (codec == NONE) {
+            throw new IllegalArgumentException("Unexpected codec header for uncompressed data");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 2, data.length - 2);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated " + codec + " encoded data");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Unable to decode " + codec + " encoded data: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public static ProcessInstanceCodec getById(byte id) {
+        for (ProcessInstanceCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown process instance codec " + id);
+    }
+
+    public static ProcessInstanceCodec getByName(String name) {
+        if (name == null || name.trim().length() == 0) {
+            return NONE;
+        }
+        return valueOf(name.trim().toUpperCase());
+    }
+
+    public static ProcessInstanceCodec get(Environment env) {
+        Object codec = env == null ? null : env.get(ENVIRONMENT_ENTRY);
+        if (codec instanceof ProcessInstanceCodec) {
+            return (ProcessInstanceCodec) codec;
+        } else if (codec != null) {
+            return getByName(codec.toString());
+        }
+        return getByName(System.getProperty("org.jbpm.pi.compression"));
+    }
+}
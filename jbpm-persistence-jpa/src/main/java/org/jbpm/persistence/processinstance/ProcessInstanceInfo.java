@@ -20,9 +20,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.CollectionTable;
@@ -34,6 +37,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
+import javax.persistence.MapKeyColumn;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Transient;
 import javax.persistence.Version;
@@ -46,16 +50,23 @@ import org.drools.core.marshalling.impl.MarshallerWriteContext;
 import org.drools.core.marshalling.impl.PersisterHelper;
 import org.drools.core.marshalling.impl.ProcessMarshallerWriteContext;
 import org.drools.core.marshalling.impl.ProtobufMarshaller;
+import org.drools.core.marshalling.impl.ProtobufMessages.Header;
 import org.drools.persistence.Transformable;
+import org.jbpm.marshalling.impl.AbstractProtobufProcessInstanceMarshaller;
 import org.jbpm.marshalling.impl.JBPMMessages;
 import org.jbpm.marshalling.impl.ProcessInstanceMarshaller;
 import org.jbpm.marshalling.impl.ProcessMarshallerRegistry;
+import org.jbpm.marshalling.impl.ProtobufProcessMarshaller;
 import org.jbpm.marshalling.impl.ProtobufRuleFlowProcessInstanceMarshaller;
+import org.jbpm.process.core.context.variable.VariableScope;
+import org.jbpm.process.instance.context.variable.VariableScopeInstance;
 import org.jbpm.process.instance.impl.ProcessInstanceImpl;
 import org.jbpm.workflow.instance.impl.WorkflowProcessInstanceImpl;
 import org.kie.api.runtime.Environment;
 import org.kie.api.runtime.process.ProcessInstance;
 
+import com.google.protobuf.ExtensionRegistry;
+
 @Entity
 @SequenceGenerator(name="processInstanceInfoIdSeq", sequenceName="PROCESS_INSTANCE_INFO_ID_SEQ")
 public class ProcessInstanceInfo implements Transformable {
@@ -83,9 +94,25 @@ public class ProcessInstanceInfo implements Transformable {
     @CollectionTable(name="EventTypes", joinColumns=@JoinColumn(name="InstanceId"))
     @Column(name="element")
     private Set<String>                       eventTypes         = new HashSet<String>();
+
+    /**
+     * Process instance variables stored separately from <code>processInstanceByteArray</code>,
+     * one segment per variable, see {@link #isVariableSegmentsEnabled()}. Lazily loaded, never
+     * holds variables that are also stored in <code>processInstanceByteArray</code>.
+     */
+    @ElementCollection
+    @CollectionTable(name="ProcessInstanceVariables", joinColumns=@JoinColumn(name="InstanceId"))
+    @MapKeyColumn(name="variableName")
+    @Lob
+    @Column(name="segment", length=2147483647)
+    private Map<String, byte[]>               variableSegments   = new HashMap<String, byte[]>();
     
     @Transient
     ProcessInstance                           processInstance;
+
+    // decoded processInstanceByteArray, only kept when stored compressed
+    @Transient
+    byte[]                                    processInstanceRawByteArray;
     
     @Transient
     Environment                               env;
@@ -93,6 +120,26 @@ public class ProcessInstanceInfo implements Transformable {
     protected ProcessInstanceInfo() {
     }
 
+    /**
+     * When enabled (<code>org.jbpm.pi.variable.segments</code> system property) the variables of the process
+     * instance are stored as one segment per variable next to the rest of the process instance. Only variables
+     * set since the process instance was last stored (see {@link VariableScopeInstance#getChangedVariables()})
+     * and variables without a segment yet are marshalled and written. Values modified in place without being
+     * set again are only stored when <code>org.jbpm.pi.variable.segments.compare</code> is enabled as well,
+     * all variables are then marshalled and the segments whose content changed are written.
+     * <br/>
+     * Segments are read whenever a process instance has them, regardless of this setting. Process instances
+     * stored while the mode is disabled get their variables folded back into the process instance and their
+     * segments removed.
+     */
+    public static boolean isVariableSegmentsEnabled() {
+        return Boolean.parseBoolean(System.getProperty("org.jbpm.pi.variable.segments", "false"));
+    }
+
+    private static boolean isVariableSegmentsCompareEnabled() {
+        return Boolean.parseBoolean(System.getProperty("org.jbpm.pi.variable.segments.compare", "false"));
+    }
+
     public ProcessInstanceInfo(ProcessInstance processInstance) {
         this.processInstance = processInstance;
         this.processId = processInstance.getProcessId();
@@ -172,7 +219,9 @@ public class ProcessInstanceInfo implements Transformable {
         this.env = env;
         if ( processInstance == null ) {        	
             try {
-                ByteArrayInputStream bais = new ByteArrayInputStream( processInstanceByteArray );
+                byte[] rawByteArray = ProcessInstanceCodec.decode( processInstanceByteArray );
+                this.processInstanceRawByteArray = rawByteArray != processInstanceByteArray ? rawByteArray : null;
+                ByteArrayInputStream bais = new ByteArrayInputStream( rawByteArray );
                 MarshallerReaderContext context = new MarshallerReaderContext( bais,
                                                                                (InternalKnowledgeBase) kruntime.getKieBase(),
                                                                                null,
@@ -182,7 +231,14 @@ public class ProcessInstanceInfo implements Transformable {
                                                                               );
                 ProcessInstanceMarshaller marshaller = getMarshallerFromContext( context );
             	context.wm = ((StatefulKnowledgeSessionImpl) kruntime).getInternalWorkingMemory();
-                processInstance = marshaller.readProcessInstance(context);
+                // segments are read whatever the current mode is, variables would be lost otherwise
+                if ( marshaller instanceof AbstractProtobufProcessInstanceMarshaller
+                        && !variableSegments.isEmpty() ) {
+                    processInstance = ((AbstractProtobufProcessInstanceMarshaller) marshaller).readProcessInstance( context,
+                                                                                                                   readVariableSegments( kruntime ) );
+                } else {
+                    processInstance = marshaller.readProcessInstance(context);
+                }
                 ((WorkflowProcessInstanceImpl) processInstance).setPersisted(false);
                 if (readOnly) {
                     ((WorkflowProcessInstanceImpl) processInstance).disconnect();
@@ -197,6 +253,82 @@ public class ProcessInstanceInfo implements Transformable {
         return processInstance;
     }
    
+    private Map<String, Object> readVariableSegments(InternalKnowledgeRuntime kruntime) throws IOException {
+        Map<String, Object> variables = new HashMap<String, Object>();
+        for ( Map.Entry<String, byte[]> segment : variableSegments.entrySet() ) {
+            MarshallerReaderContext context = new MarshallerReaderContext( new ByteArrayInputStream( ProcessInstanceCodec.decode( segment.getValue() ) ),
+                                                                           (InternalKnowledgeBase) kruntime.getKieBase(),
+                                                                           null,
+                                                                           null,
+                                                                           ProtobufMarshaller.TIMER_READERS,
+                                                                           this.env
+                                                                          );
+            context.wm = ((StatefulKnowledgeSessionImpl) kruntime).getInternalWorkingMemory();
+            try {
+                ExtensionRegistry registry = PersisterHelper.buildRegistry( context, null );
+                Header _header = PersisterHelper.readFromStreamWithHeaderPreloaded( context, registry );
+                JBPMMessages.Variable _variable = JBPMMessages.Variable.parseFrom( _header.getPayload(), registry );
+                variables.put( _variable.getName(),
+                               ProtobufProcessMarshaller.unmarshallVariableValue( context, _variable ) );
+            } catch ( ClassNotFoundException e ) {
+                throw new IllegalArgumentException( "Could not reload variable " + segment.getKey(), e );
+            }
+            context.close();
+        }
+        return variables;
+    }
+
+    private byte[] writeVariableSegment(String name,
+                                        Object value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ProcessMarshallerWriteContext context = new ProcessMarshallerWriteContext( baos,
+                                                                                   null,
+                                                                                   null,
+                                                                                   null,
+                                                                                   null,
+                                                                                   this.env );
+        context.setProcessInstanceId(processInstance.getId());
+        context.setState(processInstance.getState() == ProcessInstance.STATE_ACTIVE ?
+                ProcessMarshallerWriteContext.STATE_ACTIVE:ProcessMarshallerWriteContext.STATE_COMPLETED);
+        PersisterHelper.writeToStreamWithHeader( context,
+                                                 ProtobufProcessMarshaller.marshallVariable( context, name, value ) );
+        context.close();
+        return ProcessInstanceCodec.get( this.env ).encode( baos.toByteArray() );
+    }
+
+    /*
+     * Marshals the variables that were set since last stored and the ones without segment (or all of them
+     * when comparing is enabled) and replaces the segments whose content differs, returns true if any segment
+     * was modified
+     */
+    private boolean updateVariableSegments(VariableScopeInstance variableScopeInstance) throws IOException {
+        Map<String, Object> variables = variableScopeInstance.getVariables();
+        Set<String> changedVariables = variableScopeInstance.getChangedVariables();
+        boolean compare = isVariableSegmentsCompareEnabled();
+        boolean changed = false;
+        for ( Map.Entry<String, Object> variable : variables.entrySet() ) {
+            if ( variable.getValue() == null ) {
+                continue;
+            }
+            if ( !compare && !changedVariables.contains( variable.getKey() )
+                    && variableSegments.containsKey( variable.getKey() ) ) {
+                continue;
+            }
+            byte[] segment = writeVariableSegment( variable.getKey(), variable.getValue() );
+            if ( !Arrays.equals( segment, variableSegments.get( variable.getKey() ) ) ) {
+                variableSegments.put( variable.getKey(), segment );
+                changed = true;
+            }
+        }
+        for ( String name : new ArrayList<String>( variableSegments.keySet() ) ) {
+            if ( variables.get( name ) == null ) {
+                variableSegments.remove( name );
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
     private ProcessInstanceMarshaller getMarshallerFromContext(MarshallerReaderContext context) throws IOException {
         ObjectInputStream stream = context.stream;
         String processInstanceType = stream.readUTF();
@@ -233,9 +365,28 @@ public class ProcessInstanceInfo implements Transformable {
                                      processInstance,
                                      processType );
             ProcessInstanceMarshaller marshaller = ProcessMarshallerRegistry.INSTANCE.getMarshaller( processType );
+            VariableScopeInstance variableScopeInstance = (VariableScopeInstance)
+                    ((ProcessInstanceImpl) processInstance).getContextInstance( VariableScope.VARIABLE_SCOPE );
             
-            Object result = marshaller.writeProcessInstance( context,
-                                                             processInstance);
+            Object result;
+            if ( isVariableSegmentsEnabled() && marshaller instanceof AbstractProtobufProcessInstanceMarshaller
+                    && variableScopeInstance != null ) {
+                result = ((AbstractProtobufProcessInstanceMarshaller) marshaller).writeProcessInstance( context,
+                                                                                                       processInstance,
+                                                                                                       false );
+                variablesChanged = updateVariableSegments( variableScopeInstance );
+            } else {
+                result = marshaller.writeProcessInstance( context,
+                                                          processInstance);
+                if ( !variableSegments.isEmpty() ) {
+                    // mode was disabled, variables are now part of the process instance
+                    variableSegments.clear();
+                    variablesChanged = true;
+                }
+            }
+            if ( variableScopeInstance != null ) {
+                variableScopeInstance.clearChangedVariables();
+            }
             if( marshaller instanceof ProtobufRuleFlowProcessInstanceMarshaller && result != null ) {
                 JBPMMessages.ProcessInstance _instance = (JBPMMessages.ProcessInstance)result;
                 PersisterHelper.writeToStreamWithHeader( context, 
@@ -247,11 +398,15 @@ public class ProcessInstanceInfo implements Transformable {
         		+ processInstance.getId() + ": " + e.getMessage(), e );
         }
         byte[] newByteArray = baos.toByteArray();
+        byte[] currentByteArray = processInstanceRawByteArray != null ?
+                processInstanceRawByteArray : ProcessInstanceCodec.decode( processInstanceByteArray );
         if ( variablesChanged || !Arrays.equals( newByteArray,
-                                                 processInstanceByteArray ) ) {
+                                                 currentByteArray ) ) {
+            ProcessInstanceCodec codec = ProcessInstanceCodec.get( this.env );
             this.state = processInstance.getState();
             this.lastModificationDate = new Date();
-            this.processInstanceByteArray = newByteArray;
+            this.processInstanceByteArray = codec.encode( newByteArray );
+            this.processInstanceRawByteArray = codec != ProcessInstanceCodec.NONE ? newByteArray : null;
             this.eventTypes.clear();
             for ( String type : processInstance.getEventTypes() ) {
                 eventTypes.add( type );
@@ -336,6 +491,10 @@ public class ProcessInstanceInfo implements Transformable {
         return eventTypes;
     }
 
+    public Map<String, byte[]> getVariableSegments() {
+        return variableSegments;
+    }
+
     public byte [] getProcessInstanceByteArray() { 
         return processInstanceByteArray;
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.jbpm.process.core.async.AsyncSignalEventCommand;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutionResults;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.manager.Context;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeManager;
+import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
+import org.mockito.ArgumentCaptor;
+
+public class AsyncSignalEventCommandTest {
+
+    private static final String DEPLOYMENT_ID = "async-signal-test";
+
+    private RuntimeManager manager;
+    private KieSession ksession;
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() {
+        manager = mock(RuntimeManager.class);
+        RuntimeEngine engine = mock(RuntimeEngine.class);
+        ksession = mock(KieSession.class);
+        Environment environment = mock(Environment.class);
+        executorService = mock(ExecutorService.class);
+
+        when(manager.getIdentifier()).thenReturn(DEPLOYMENT_ID);
+        when(manager.getRuntimeEngine(any(Context.class))).thenReturn(engine);
+        when(engine.getKieSession()).thenReturn(ksession);
+        when(ksession.getEnvironment()).thenReturn(environment);
+        when(environment.get("ExecutorService")).thenReturn(executorService);
+
+        RuntimeManagerRegistry.get().register(manager);
+    }
+
+    @After
+    public void teardown() {
+        RuntimeManagerRegistry.get().remove(DEPLOYMENT_ID);
+    }
+
+    @Test
+    public void testSignalChunk() throws Exception {
+        ExecutionResults results = new AsyncSignalEventCommand().execute(context(Arrays.asList(1L, 2L, 3L)));
+
+        assertEquals(3, results.getData("Signaled"));
+        assertEquals(0, results.getData("Failed"));
+        verify(ksession, times(3)).signalEvent(eq("MySignal"), any(), anyLong());
+        verify(manager, times(3)).disposeRuntimeEngine(any(RuntimeEngine.class));
+        verify(executorService, never()).scheduleRequest(anyString(), any(CommandContext.class));
+    }
+
+    @Test
+    public void testSignalChunkPartialFailureRetriesFailedOnly() throws Exception {
+        doThrow(new RuntimeException("failed on purpose")).when(ksession).signalEvent("MySignal", null, 2L);
+
+        ExecutionResults results = new AsyncSignalEventCommand().execute(context(Arrays.asList(1L, 2L, 3L)));
+
+        assertEquals(2, results.getData("Signaled"));
+        assertEquals(1, results.getData("Failed"));
+        assertEquals(Arrays.asList(2L), results.getData("FailedProcessInstanceIds"));
+
+        ArgumentCaptor<CommandContext> retryCtx = ArgumentCaptor.forClass(CommandContext.class);
+        verify(executorService).scheduleRequest(eq(AsyncSignalEventCommand.class.getName()), retryCtx.capture());
+        assertEquals(Arrays.asList(2L), retryCtx.getValue().getData("ProcessInstanceIds"));
+        assertEquals(DEPLOYMENT_ID, retryCtx.getValue().getData("DeploymentId"));
+        assertEquals("MySignal", retryCtx.getValue().getData("Signal"));
+    }
+
+    @Test
+    public void testSignalChunkFailureOfAllFailsCommand() throws Exception {
+        doThrow(new RuntimeException("failed on purpose")).when(ksession).signalEvent(eq("MySignal"), any(), anyLong());
+
+        try {
+            new AsyncSignalEventCommand().execute(context(Arrays.asList(1L, 2L)));
+            fail("Command should fail when no process instance was signaled");
+        } catch (RuntimeException e) {
+            // expected, executor retries the request
+        }
+        verify(executorService, never()).scheduleRequest(anyString(), any(CommandContext.class));
+    }
+
+    @Test
+    public void testProcessInstanceIdsConversion() throws Exception {
+        ExecutionResults results = new AsyncSignalEventCommand().execute(context(Arrays.asList(1, "2")));
+
+        assertEquals(2, results.getData("Signaled"));
+        verify(ksession).signalEvent("MySignal", null, 1L);
+        verify(ksession).signalEvent("MySignal", null, 2L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProcessInstanceIds() throws Exception {
+        new AsyncSignalEventCommand().execute(context("1,2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProcessInstanceId() throws Exception {
+        new AsyncSignalEventCommand().execute(context(Arrays.asList(1L, "two")));
+    }
+
+    private CommandContext context(Object processInstanceIds) {
+        CommandContext ctx = new CommandContext();
+        ctx.setData("DeploymentId", DEPLOYMENT_ID);
+        ctx.setData("ProcessInstanceIds", processInstanceIds);
+        ctx.setData("Signal", "MySignal");
+        return ctx;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package org.jbpm.persistence.processinstance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.drools.core.impl.EnvironmentFactory;
+import org.jbpm.test.util.AbstractBaseTest;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.api.runtime.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ProcessInstanceCodecTest extends AbstractBaseTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessInstanceCodecTest.class);
+
+    @After
+    public void clearProperty() {
+        System.clearProperty("org.jbpm.pi.compression");
+    }
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        byte[] data = createProcessInstanceLikeData(100);
+        for (ProcessInstanceCodec codec : ProcessInstanceCodec.values()) {
+            byte[] encoded = codec.encode(data);
+            assertArrayEquals(codec.name(), data, ProcessInstanceCodec.decode(encoded));
+            if (codec != ProcessInstanceCodec.NONE) {
+                assertTrue(codec.name(), encoded.length < data.length);
+                assertEquals(codec.getId(), encoded[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testUncompressedDataIsReadAsIs() throws Exception {
+        byte[] data = createProcessInstanceLikeData(10);
+        assertSame(data, ProcessInstanceCodec.NONE.encode(data));
+        assertSame(data, ProcessInstanceCodec.decode(data));
+        assertSame(null, ProcessInstanceCodec.decode(null));
+    }
+
+    @Test
+    public void testCodecSelection() {
+        assertEquals(ProcessInstanceCodec.NONE, ProcessInstanceCodec.get(null));
+
+        System.setProperty("org.jbpm.pi.compression", "fast");
+        assertEquals(ProcessInstanceCodec.FAST, ProcessInstanceCodec.get(null));
+
+        Environment env = EnvironmentFactory.newEnvironment();
+        env.set(ProcessInstanceCodec.ENVIRONMENT_ENTRY, "deflate");
+        assertEquals(ProcessInstanceCodec.DEFLATE, ProcessInstanceCodec.get(env));
+        env.set(ProcessInstanceCodec.ENVIRONMENT_ENTRY, ProcessInstanceCodec.NONE);
+        assertEquals(ProcessInstanceCodec.NONE, ProcessInstanceCodec.get(env));
+    }
+
+    /**
+     * Reports size reduction and encode (store) / decode (load) cost per process instance
+     * for variable heavy process instances.
+     */
+    @Test
+    @Ignore
+    public void testCodecBenchmark() throws Exception {
+        int iterations = 2000;
+        for (int variables : new int[] { 10, 100, 1000 }) {
+            byte[] data = createProcessInstanceLikeData(variables);
+            for (ProcessInstanceCodec codec : ProcessInstanceCodec.values()) {
+                byte[] encoded = null;
+                long start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    encoded = codec.encode(data);
+                }
+                long encodeTime = (System.nanoTime() - start) / iterations;
+                start = System.nanoTime();
+                for (int i = 0; i < iterations; i++) {
+                    ProcessInstanceCodec.decode(encoded);
+                }
+                long decodeTime = (System.nanoTime() - start) / iterations;
+                logger.info("{} variables, {}: {} -> {} bytes ({}%), store {} us, load {} us",
+                        variables, codec, data.length, encoded.length, (encoded.length * 100) / data.length,
+                        encodeTime / 1000, decodeTime / 1000);
+            }
+        }
+    }
+
+    private byte[] createProcessInstanceLikeData(int variables) throws IOException {
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (int i = 0; i < variables; i++) {
+            Map<String, Object> value = new HashMap<String, Object>();
+            value.put("id", Long.valueOf(i));
+            value.put("name", "customer-" + i);
+            value.put("description", "Order placed by customer " + i + " awaiting approval of the manager");
+            values.put("variable" + i, value);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream stream = new ObjectOutputStream(baos);
+        stream.writeUTF("RuleFlow");
+        stream.writeObject(values);
+        stream.close();
+        return baos.toByteArray();
+    }
+}
@@ -48,6 +48,7 @@ import org.drools.core.process.core.Work;
 import org.drools.core.process.core.datatype.impl.type.ObjectDataType;
 import org.drools.core.process.core.impl.WorkImpl;
 import org.drools.persistence.jpa.marshaller.JPAPlaceholderResolverStrategy;
+import org.jbpm.persistence.processinstance.ProcessInstanceInfo;
 import org.jbpm.persistence.session.objects.MyEntity;
 import org.jbpm.persistence.session.objects.MyEntityMethods;
 import org.jbpm.persistence.session.objects.MyEntityOnlyFields;
@@ -75,6 +76,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import org.kie.api.event.process.DefaultProcessEventListener;
+import org.kie.api.event.process.ProcessNodeTriggeredEvent;
 import org.kie.api.io.ResourceType;
 import org.kie.api.marshalling.ObjectMarshallingStrategy;
 import org.kie.api.runtime.Environment;
@@ -388,6 +391,163 @@ public class VariablePersistenceStrategyTest extends AbstractBaseTest {
         assertNull( processInstance );
     }
     
+    @Test
+    public void testPersistenceVariablesInSegments() throws Exception {
+        System.setProperty("org.jbpm.pi.variable.segments", "true");
+        // values modified in place are only detected when comparing all variables
+        System.setProperty("org.jbpm.pi.variable.segments.compare", "true");
+        try {
+            Environment env = createEnvironment();
+            KnowledgeBase kbase = createKnowledgeBase( "VariablePersistenceStrategyProcess.rf" );
+            StatefulKnowledgeSession ksession = createSession( kbase, env );
+
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("x", "SomeString");
+            parameters.put("z", new MyVariableSerializable("This is a test SerializableObject"));
+            long processInstanceId = ksession.startProcess( "com.sample.ruleflow", parameters ).getId();
+
+            TestWorkItemHandler handler = TestWorkItemHandler.getInstance();
+            WorkItem workItem = handler.getWorkItem();
+            assertNotNull( workItem );
+
+            Map<String, byte[]> segments = getVariableSegments( processInstanceId );
+            assertEquals( 2, segments.size() );
+            byte[] x = segments.get( "x" );
+            assertNotNull( x );
+            byte[] z = segments.get( "z" );
+            assertNotNull( z );
+
+            // sets a, b and c, x is left as it is and z is modified in place
+            ksession = reloadSession( ksession, kbase, env );
+            ksession.addEventListener( new DefaultProcessEventListener() {
+                @Override
+                public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
+                    ((MyVariableSerializable) ((WorkflowProcessInstance) event.getProcessInstance()).getVariable( "z" ))
+                            .setText( "This is a test SerializableObject modified in place" );
+                }
+            } );
+            ksession.getWorkItemManager().completeWorkItem( workItem.getId(), null );
+            assertNotNull( handler.getWorkItem() );
+
+            segments = getVariableSegments( processInstanceId );
+            assertEquals( 5, segments.size() );
+            assertTrue( Arrays.equals( x, segments.get( "x" ) ) );
+            assertFalse( Arrays.equals( z, segments.get( "z" ) ) );
+
+            ksession = reloadSession( ksession, kbase, env );
+            WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId );
+            assertEquals( "SomeString", processInstance.getVariable( "x" ) );
+            assertEquals( "Some new String", processInstance.getVariable( "a" ) );
+            assertEquals( "This is a new test SerializableObject",
+                          ((MyVariableSerializable) processInstance.getVariable( "c" )).getText() );
+            assertEquals( "This is a test SerializableObject modified in place",
+                          ((MyVariableSerializable) processInstance.getVariable( "z" )).getText() );
+            ksession.dispose();
+        } finally {
+            System.clearProperty("org.jbpm.pi.variable.segments");
+            System.clearProperty("org.jbpm.pi.variable.segments.compare");
+        }
+    }
+
+    @Test
+    public void testPersistenceVariablesInSegmentsOnlyChangedWritten() throws Exception {
+        System.setProperty("org.jbpm.pi.variable.segments", "true");
+        try {
+            Environment env = createEnvironment();
+            KnowledgeBase kbase = createKnowledgeBase( "VariablePersistenceStrategyProcess.rf" );
+            StatefulKnowledgeSession ksession = createSession( kbase, env );
+
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("x", "SomeString");
+            parameters.put("z", new MyVariableSerializable("This is a test SerializableObject"));
+            long processInstanceId = ksession.startProcess( "com.sample.ruleflow", parameters ).getId();
+
+            TestWorkItemHandler handler = TestWorkItemHandler.getInstance();
+            WorkItem workItem = handler.getWorkItem();
+            assertNotNull( workItem );
+            Map<String, byte[]> segments = getVariableSegments( processInstanceId );
+            byte[] z = segments.get( "z" );
+            assertNotNull( z );
+
+            // z is modified in place without being set again so it is not marshalled
+            ksession = reloadSession( ksession, kbase, env );
+            ksession.addEventListener( new DefaultProcessEventListener() {
+                @Override
+                public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
+                    ((MyVariableSerializable) ((WorkflowProcessInstance) event.getProcessInstance()).getVariable( "z" ))
+                            .setText( "This is a test SerializableObject modified in place" );
+                }
+            } );
+            ksession.getWorkItemManager().completeWorkItem( workItem.getId(), null );
+            assertNotNull( handler.getWorkItem() );
+
+            segments = getVariableSegments( processInstanceId );
+            assertEquals( 5, segments.size() );
+            assertTrue( Arrays.equals( z, segments.get( "z" ) ) );
+
+            ksession = reloadSession( ksession, kbase, env );
+            WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId );
+            assertEquals( "Some new String", processInstance.getVariable( "a" ) );
+            assertEquals( "This is a test SerializableObject",
+                          ((MyVariableSerializable) processInstance.getVariable( "z" )).getText() );
+            ksession.dispose();
+        } finally {
+            System.clearProperty("org.jbpm.pi.variable.segments");
+        }
+    }
+
+    @Test
+    public void testPersistenceVariableSegmentsModeToggled() throws Exception {
+        System.setProperty("org.jbpm.pi.variable.segments", "true");
+        try {
+            Environment env = createEnvironment();
+            KnowledgeBase kbase = createKnowledgeBase( "VariablePersistenceStrategyProcess.rf" );
+            StatefulKnowledgeSession ksession = createSession( kbase, env );
+
+            Map<String, Object> parameters = new HashMap<String, Object>();
+            parameters.put("x", "SomeString");
+            parameters.put("z", new MyVariableSerializable("This is a test SerializableObject"));
+            long processInstanceId = ksession.startProcess( "com.sample.ruleflow", parameters ).getId();
+
+            TestWorkItemHandler handler = TestWorkItemHandler.getInstance();
+            WorkItem workItem = handler.getWorkItem();
+            assertNotNull( workItem );
+            assertEquals( 2, getVariableSegments( processInstanceId ).size() );
+
+            // instance stored in segments is still read with the mode disabled, and stored without segments
+            System.clearProperty("org.jbpm.pi.variable.segments");
+            ksession = reloadSession( ksession, kbase, env );
+            WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId );
+            assertEquals( "SomeString", processInstance.getVariable( "x" ) );
+            ksession.getWorkItemManager().completeWorkItem( workItem.getId(), null );
+            workItem = handler.getWorkItem();
+            assertNotNull( workItem );
+            assertTrue( getVariableSegments( processInstanceId ).isEmpty() );
+
+            // enabled again, the latest values are read from the process instance instead of old segments
+            System.setProperty("org.jbpm.pi.variable.segments", "true");
+            ksession = reloadSession( ksession, kbase, env );
+            processInstance = (WorkflowProcessInstance) ksession.getProcessInstance( processInstanceId );
+            assertEquals( "SomeString", processInstance.getVariable( "x" ) );
+            assertEquals( "Some new String", processInstance.getVariable( "a" ) );
+            assertEquals( "This is a new test SerializableObject",
+                          ((MyVariableSerializable) processInstance.getVariable( "c" )).getText() );
+            ksession.dispose();
+        } finally {
+            System.clearProperty("org.jbpm.pi.variable.segments");
+        }
+    }
+
+    private Map<String, byte[]> getVariableSegments(long processInstanceId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            ProcessInstanceInfo processInstanceInfo = em.find( ProcessInstanceInfo.class, processInstanceId );
+            return new HashMap<String, byte[]>( processInstanceInfo.getVariableSegments() );
+        } finally {
+            em.close();
+        }
+    }
+
     @Test
     public void testPersistenceVariablesSubProcess() throws NamingException, NotSupportedException, SystemException, RollbackException, HeuristicMixedException, HeuristicRollbackException {
         
@@ -30,6 +30,7 @@ import org.jbpm.process.core.timer.TimerServiceRegistry;
 import org.jbpm.process.core.timer.impl.GlobalTimerService;
 import org.jbpm.runtime.manager.api.SchedulerProvider;
 import org.jbpm.runtime.manager.impl.deploy.DeploymentDescriptorManager;
+import org.jbpm.runtime.manager.impl.deploy.ObjectModelResolverCache;
 import org.jbpm.services.task.impl.TaskContentRegistry;
 import org.jbpm.services.task.wih.ExternalTaskEventListener;
 import org.kie.api.event.process.ProcessEventListener;
@@ -200,6 +201,8 @@ public abstract class AbstractRuntimeManager implements InternalRuntimeManager {
     
     public void close(boolean removeJobs) {
     	cacheManager.dispose();
+    	// deployment is being removed, release what resolvers kept for its class loader
+    	ObjectModelResolverCache.evict(getEnvironment().getClassLoader());
         environment.close();
         registry.remove(identifier);
         TimerService timerService = TimerServiceRegistry.getInstance().remove(getIdentifier() + TimerServiceRegistry.TIMER_SERVICE_SUFFIX);
@@ -21,6 +21,7 @@ import javax.persistence.EntityManagerFactory;
 import org.jbpm.process.core.timer.GlobalSchedulerService;
 import org.jbpm.process.core.timer.impl.QuartzSchedulerService;
 import org.jbpm.process.core.timer.impl.ThreadPoolSchedulerService;
+import org.jbpm.process.core.timer.impl.TimingWheelSchedulerService;
 import org.jbpm.runtime.manager.impl.identity.UserDataServiceProvider;
 import org.jbpm.runtime.manager.impl.jpa.EntityManagerFactoryManager;
 import org.jbpm.runtime.manager.impl.mapper.InMemoryMapper;
@@ -38,7 +39,8 @@ import org.slf4j.LoggerFactory;
  *  <li>uses <code>DefaultRegisterableItemsFactory</code> to provide work item handlers and event listeners instances</li>
  *  <li>EntityManagerFactory - if non given uses persistence unit with "org.jbpm.persistence.jpa" name</li>
  *  <li>SchedulerService - if non given tries to discover if Quartz based scheduler shall be used by checking if 
- *  "org.quartz.properties" system property is given, if not uses ThreadPool based scheduler with thread pool size set to 3</li>
+ *  "org.quartz.properties" system property is given, if not uses ThreadPool based scheduler with thread pool size set to 3
+ *  or timing wheel based scheduler instead when "org.jbpm.timer.wheel" system property is set to true</li>
  *  <li>uses simple MVEL based UserGroupCallback that requires mvel files for users and groups to be present on classpath</li>
  * </ul>
  *
@@ -82,6 +84,7 @@ public class DefaultRuntimeEnvironment extends SimpleRuntimeEnvironment {
                 this.mapper = new InMemoryMapper();
             }
         }
+        initIdentityCache();
     }
     
     protected static GlobalSchedulerService discoverSchedulerService() {
@@ -100,6 +103,9 @@ public class DefaultRuntimeEnvironment extends SimpleRuntimeEnvironment {
 	        	}
         	}
         }
+        if ("true".equalsIgnoreCase(System.getProperty("org.jbpm.timer.wheel"))) {
+            return new TimingWheelSchedulerService(3);
+        }
         return new ThreadPoolSchedulerService(3);
         
     }
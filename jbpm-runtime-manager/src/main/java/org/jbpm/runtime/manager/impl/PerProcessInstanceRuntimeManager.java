@@ -15,9 +15,15 @@
  */
 package org.jbpm.runtime.manager.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.drools.core.command.CommandService;
 import org.drools.core.command.SingleSessionCommandService;
@@ -68,6 +74,12 @@ import org.slf4j.LoggerFactory;
  * <br/>
  * This manager will ensure that as soon as the process instance completes, the ksession will be disposed of and destroyed.
  * <br/>
+ * Signals that are delivered to all waiting process instances can be dispatched concurrently by setting 
+ * the number of dispatch threads, either with the "org.jbpm.rm.signal.threads" system property or the 
+ * "SignalDispatchThreads" environment entry. Each process instance is then signaled on one of the dispatch threads
+ * in its own transaction, see {@link #signalEventConcurrently(String, Object)}. Signals sent within an active 
+ * transaction are always delivered by the calling thread so that all process instances take part in that transaction.
+ * <br/>
  * This implementation supports the following <code>Context</code> implementations:
  * <ul>
  *  <li>ProcessInstanceIdContext</li>
@@ -86,11 +98,18 @@ public class PerProcessInstanceRuntimeManager extends AbstractRuntimeManager {
     
     private Mapper mapper;
     
+    private int signalThreads = Integer.parseInt(System.getProperty("org.jbpm.rm.signal.threads", "0"));
+    private volatile ExecutorService signalExecutor;
+    
     public PerProcessInstanceRuntimeManager(RuntimeEnvironment environment, SessionFactory factory, TaskServiceFactory taskServiceFactory, String identifier) {
         super(environment, identifier);
         this.factory = factory;
         this.taskServiceFactory = taskServiceFactory;
         this.mapper = ((org.kie.internal.runtime.manager.RuntimeEnvironment)environment).getMapper();
+        String dispatchThreads = (String)((SimpleRuntimeEnvironment)environment).getEnvironmentTemplate().get("SignalDispatchThreads");
+        if (dispatchThreads != null) {
+            this.signalThreads = Integer.parseInt(dispatchThreads);
+        }
         this.registry.register(this);
     }
     
@@ -158,16 +177,163 @@ public class PerProcessInstanceRuntimeManager extends AbstractRuntimeManager {
         
         disposeRuntimeEngine(runtimeEngine);
     
-        // next find out all instances waiting for given event type
+        if (signalThreads > 0) {
+            SignalEventResult result = signalWaitingInstancesConcurrently(type, event);
+            if (result.hasFailures()) {
+                // deliver to active engines anyway, failures are isolated per process instance
+                signalActiveEngines(type, event);
+                throw new SignalEventException(result);
+            }
+        } else {
+            // next find out all instances waiting for given event type
+            List<String> processInstances = ((InternalMapper) mapper).findContextIdForEvent(type, getIdentifier());
+            for (String piId : processInstances) {
+                runtimeEngine = getRuntimeEngine(ProcessInstanceIdContext.get(Long.parseLong(piId)));        
+                runtimeEngine.getKieSession().signalEvent(type, event);        
+                
+                disposeRuntimeEngine(runtimeEngine);
+                
+            }
+        }
+        
+        signalActiveEngines(type, event);
+    }
+    
+    /**
+     * Signals all process instances waiting for given event type by dispatching them over a bounded pool of threads.
+     * Every process instance is signaled with its own runtime engine and transaction, failure of an individual 
+     * process instance does not abort the delivery to the others but is recorded in the returned result.
+     * <br/>
+     * Process instances that have a runtime engine active in the calling thread are signaled by the calling thread
+     * to take part in its transaction. When the calling thread has an active transaction all process instances
+     * are signaled by it within that transaction, failures are then thrown right away as with 
+     * {@link #signalEvent(String, Object)}.
+     * @param type signal type
+     * @param event event data
+     * @return aggregated result including per process instance failures
+     */
+    public SignalEventResult signalEventConcurrently(String type, Object event) {
+        RuntimeEngine runtimeEngine = getRuntimeEngine(ProcessInstanceIdContext.get());        
+        runtimeEngine.getKieSession().signalEvent(type, event);  
+        
+        disposeRuntimeEngine(runtimeEngine);
+        
+        SignalEventResult result = signalWaitingInstancesConcurrently(type, event);
+        signalActiveEngines(type, event);
+        
+        return result;
+    }
+    
+    protected SignalEventResult signalWaitingInstancesConcurrently(final String type, final Object event) {
+        final SignalEventResult result = new SignalEventResult(type);
+        
         List<String> processInstances = ((InternalMapper) mapper).findContextIdForEvent(type, getIdentifier());
+        Map<Object, RuntimeEngine> currentlyActive = local.get();
+        List<Long> processInstanceIds = new ArrayList<Long>(processInstances.size());
         for (String piId : processInstances) {
-            runtimeEngine = getRuntimeEngine(ProcessInstanceIdContext.get(Long.parseLong(piId)));        
-            runtimeEngine.getKieSession().signalEvent(type, event);        
-            
-            disposeRuntimeEngine(runtimeEngine);
-            
+            Long processInstanceId = Long.parseLong(piId);
+            // active engines of the calling thread are signaled by it
+            if (currentlyActive == null || !currentlyActive.containsKey(processInstanceId)) {
+                processInstanceIds.add(processInstanceId);
+            }
+        }
+        if (processInstanceIds.isEmpty()) {
+            return result;
+        }
+        if (isTransactionActive()) {
+            // dispatch threads would run in their own transactions, keep all process instances in the one of the caller
+            for (Long processInstanceId : processInstanceIds) {
+                RuntimeEngine runtimeEngine = getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+                runtimeEngine.getKieSession().signalEvent(type, event, processInstanceId);
+                
+                disposeRuntimeEngine(runtimeEngine);
+                result.signaled(processInstanceId);
+            }
+            return result;
+        }
+        
+        int threads = Math.max(1, signalThreads);
+        int batchSize = (processInstanceIds.size() + threads - 1) / threads;
+        List<Callable<Void>> batches = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < processInstanceIds.size(); i += batchSize) {
+            final List<Long> batch = processInstanceIds.subList(i, Math.min(i + batchSize, processInstanceIds.size()));
+            batches.add(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    for (Long processInstanceId : batch) {
+                        signalProcessInstance(processInstanceId, type, event, result);
+                    }
+                    return null;
+                }
+            });
         }
+        try {
+            getSignalExecutor().invokeAll(batches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while signaling '" + type + "' to process instances", e);
+        }
+        logger.debug("Signal '{}' delivered to {} process instances, {} failed", type, result.getSignaledCount(), result.getFailedCount());
         
+        return result;
+    }
+    
+    protected void signalProcessInstance(Long processInstanceId, String type, Object event, SignalEventResult result) {
+        RuntimeEngine runtimeEngine = null;
+        boolean signaled = false;
+        try {
+            runtimeEngine = getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            runtimeEngine.getKieSession().signalEvent(type, event, processInstanceId);
+            signaled = true;
+        } catch (Throwable e) {
+            logger.debug("Error when signaling '{}' to process instance {}", type, processInstanceId, e);
+            result.failed(processInstanceId, e);
+        } finally {
+            if (runtimeEngine != null) {
+                try {
+                    disposeRuntimeEngine(runtimeEngine);
+                } catch (RuntimeException e) {
+                    // signal is only delivered once its transaction completed
+                    signaled = false;
+                    result.failed(processInstanceId, e);
+                }
+            }
+        }
+        if (signaled) {
+            result.signaled(processInstanceId);
+        }
+    }
+    
+    protected boolean isTransactionActive() {
+        TransactionManager tm = getTransactionManager(null);
+        return tm.getStatus() != TransactionManager.STATUS_NO_TRANSACTION
+                && tm.getStatus() != TransactionManager.STATUS_ROLLEDBACK
+                && tm.getStatus() != TransactionManager.STATUS_COMMITTED;
+    }
+    
+    protected ExecutorService getSignalExecutor() {
+        if (signalExecutor == null) {
+            synchronized (this) {
+                if (signalExecutor == null) {
+                    final String threadPrefix = "jbpm-signal-" + identifier + "-";
+                    signalExecutor = Executors.newFixedThreadPool(Math.max(1, signalThreads), new ThreadFactory() {
+                        private final AtomicInteger counter = new AtomicInteger(0);
+                        
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, threadPrefix + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return signalExecutor;
+    }
+    
+    protected void signalActiveEngines(String type, Object event) {
         // process currently active runtime engines
         Map<Object, RuntimeEngine> currentlyActive = local.get();
         if (currentlyActive != null && !currentlyActive.isEmpty()) {
@@ -243,6 +409,9 @@ public class PerProcessInstanceRuntimeManager extends AbstractRuntimeManager {
         }
         super.close();
         factory.close();
+        if (signalExecutor != null) {
+            signalExecutor.shutdownNow();
+        }
     }
 
     
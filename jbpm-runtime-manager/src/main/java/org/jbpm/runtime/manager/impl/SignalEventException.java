@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl;
+
+/**
+ * Thrown when a signal dispatched concurrently failed for some of the process instances.
+ * The signal has been delivered to all other process instances, see {@link #getResult()} for the details.
+ */
+public class SignalEventException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SignalEventResult result;
+
+    public SignalEventException(SignalEventResult result) {
+        super("Signal '" + result.getType() + "' failed for process instances " + result.getFailures().keySet(),
+                result.getFailures().isEmpty() ? null : result.getFailures().values().iterator().next());
+        this.result = result;
+    }
+
+    public SignalEventResult getResult() {
+        return result;
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aggregated outcome of a signal delivered to multiple process instances.
+ * Keeps track of the number of signaled process instances and of the failures per process instance
+ * so that a single failing instance does not prevent others from being signaled.
+ */
+public class SignalEventResult {
+
+    private final String type;
+    private final AtomicInteger signaled = new AtomicInteger(0);
+    private final Map<Long, Throwable> failures = new ConcurrentHashMap<Long, Throwable>();
+
+    public SignalEventResult(String type) {
+        this.type = type;
+    }
+
+    public void signaled(Long processInstanceId) {
+        signaled.incrementAndGet();
+    }
+
+    public void failed(Long processInstanceId, Throwable error) {
+        failures.put(processInstanceId, error);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getSignaledCount() {
+        return signaled.get();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public Map<Long, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    @Override
+    public String toString() {
+        return "SignalEventResult [type=" + type + ", signaled=" + signaled.get() + ", failed=" + failures.size() + "]";
+    }
+
+}
@@ -31,6 +31,8 @@ import org.jbpm.marshalling.impl.ProcessInstanceResolverStrategy;
 import org.jbpm.process.core.timer.GlobalSchedulerService;
 import org.jbpm.runtime.manager.api.SchedulerProvider;
 import org.jbpm.runtime.manager.impl.mapper.InMemoryMapper;
+import org.jbpm.services.task.identity.CachedUserGroupCallback;
+import org.jbpm.services.task.identity.CachedUserInfo;
 import org.kie.api.KieBase;
 import org.kie.api.KieServices;
 import org.kie.api.io.Resource;
@@ -51,6 +53,7 @@ import org.kie.internal.io.ResourceTypeImpl;
 import org.kie.internal.runtime.conf.ForceEagerActivationOption;
 import org.kie.internal.runtime.manager.Mapper;
 import org.kie.internal.runtime.manager.RuntimeEnvironment;
+import org.kie.internal.task.api.UserInfo;
 
 /**
  * The most basic implementation of the <code>RuntimeEnvironment</code> that, at the same time, serves as base 
@@ -63,7 +66,7 @@ import org.kie.internal.runtime.manager.RuntimeEnvironment;
  *  <li>KieBase - resulting knowledge base build on given assets or returned if it was preset</li>
  *  <li>RegisterableItemsFactory - factory used to provide listeners and work item handlers</li>
  *  <li>Mapper - mapper used to keep context information</li>
- *  <li>UserGroupCallback - user group callback, if not given null will be returned</li>
+ *  <li>UserGroupCallback - user group callback, if not given null will be returned, optionally cached (see <code>initIdentityCache</code>)</li>
  *  <li>GlobalSchedulerService - since this environment implements <code>SchedulerProvider</code>
  *  it allows to get <code>GlobalTimerService</code> if available</li>
  * </ul>
@@ -103,6 +106,38 @@ public class SimpleRuntimeEnvironment implements RuntimeEnvironment, SchedulerPr
         if (this.mapper == null) {
             this.mapper = new InMemoryMapper();
         }
+        initIdentityCache();
+    }
+
+    /**
+     * Decorates user group callback and user info (when given as environment entry) with caching
+     * when enabled by <code>org.jbpm.ht.identity.cache</code> environment entry or system property.
+     * Cache size and time to live can be configured the same way with <code>org.jbpm.ht.identity.cache.size</code>,
+     * <code>org.jbpm.ht.identity.cache.ttl</code> and <code>org.jbpm.ht.identity.cache.negative.ttl</code>.
+     */
+    protected void initIdentityCache() {
+        if (!Boolean.parseBoolean(getIdentityCacheProperty("org.jbpm.ht.identity.cache", "false"))) {
+            return;
+        }
+        int size = Integer.parseInt(getIdentityCacheProperty("org.jbpm.ht.identity.cache.size", "1000"));
+        long ttl = Long.parseLong(getIdentityCacheProperty("org.jbpm.ht.identity.cache.ttl", "60000"));
+        long negativeTtl = Long.parseLong(getIdentityCacheProperty("org.jbpm.ht.identity.cache.negative.ttl", "10000"));
+
+        if (this.userGroupCallback != null && !(this.userGroupCallback instanceof CachedUserGroupCallback)) {
+            this.userGroupCallback = new CachedUserGroupCallback(this.userGroupCallback, size, ttl, negativeTtl);
+        }
+        Object userInfo = this.environmentEntries.get(EnvironmentName.TASK_USER_INFO);
+        if (userInfo instanceof UserInfo && !(userInfo instanceof CachedUserInfo)) {
+            addToEnvironment(EnvironmentName.TASK_USER_INFO, new CachedUserInfo((UserInfo) userInfo, size, ttl, negativeTtl));
+        }
+    }
+
+    private String getIdentityCacheProperty(String name, String defaultValue) {
+        Object value = this.environmentEntries.get(name);
+        if (value != null) {
+            return value.toString();
+        }
+        return System.getProperty(name, defaultValue);
     }
     
     /**
@@ -126,7 +126,7 @@ public class EjbObjectModelResolver extends ReflectionObjectModelResolver {
 			try {	
 				logger.debug("Creating instance of class {} with parameter types {} and parameter instances {}",
 						clazz, parameterTypes, paramInstances);
-				Constructor<?> constructor = clazz.getConstructor(parameterTypes);
+				Constructor<?> constructor = getConstructor(clazz, parameterTypes, cl);
 				instance = constructor.newInstance(paramInstances);
 			} catch (Exception e) {
 				throw new IllegalArgumentException("Unable to create instance (" + parameterTypes + " constructor) of type "
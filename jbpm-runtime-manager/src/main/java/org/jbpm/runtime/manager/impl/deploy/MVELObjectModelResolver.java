@@ -17,6 +17,7 @@
 package org.jbpm.runtime.manager.impl.deploy;
 
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.drools.core.util.MVELSafeHelper;
 import org.kie.internal.runtime.Cacheable;
@@ -46,16 +47,22 @@ public class MVELObjectModelResolver implements ObjectModelResolver {
 				return instance;
 			}
 		}
-		ParserConfiguration config = new ParserConfiguration();
-        config.setClassLoader(cl);
-        ParserContext ctx = new ParserContext(config);
-        if (contextParams != null) {
-            for (Map.Entry<String, Object> entry : contextParams.entrySet()) {
-                ctx.addVariable(entry.getKey(), entry.getValue().getClass());
-            }
-        }
-
-        Object compiledExpression = MVEL.compileExpression(model.getIdentifier(), ctx);
+		// compiled expression depends on types of context parameters so they are part of the key
+		String cacheKey = getCacheKey(model, contextParams);
+		Object compiledExpression = ObjectModelResolverCache.get(cl, cacheKey);
+		if (compiledExpression == null) {
+			ParserConfiguration config = new ParserConfiguration();
+	        config.setClassLoader(cl);
+	        ParserContext ctx = new ParserContext(config);
+	        if (contextParams != null) {
+	            for (Map.Entry<String, Object> entry : contextParams.entrySet()) {
+	                ctx.addVariable(entry.getKey(), entry.getValue().getClass());
+	            }
+	        }
+	
+	        compiledExpression = MVEL.compileExpression(model.getIdentifier(), ctx);
+	        ObjectModelResolverCache.put(cl, cacheKey, compiledExpression);
+		}
         instance = MVELSafeHelper.getEvaluator().executeExpression( compiledExpression, contextParams );
         
         if (manager != null && instance instanceof Cacheable) {
@@ -64,6 +71,17 @@ public class MVELObjectModelResolver implements ObjectModelResolver {
         return instance;
 	}
 
+	protected String getCacheKey(ObjectModel model, Map<String, Object> contextParams) {
+		StringBuilder key = new StringBuilder(ID).append(':').append(model.getIdentifier());
+		if (contextParams != null) {
+			for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(contextParams).entrySet()) {
+				key.append('|').append(entry.getKey()).append('=')
+					.append(entry.getValue() == null ? null : entry.getValue().getClass().getName());
+			}
+		}
+		return key.toString();
+	}
+
 	@Override
 	public boolean accept(String resolverId) {
 		if (ID.equals(resolverId)) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.deploy;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps what object model resolvers can reuse between instances they create - compiled MVEL expressions,
+ * classes and constructors - so it is not recomputed for every <code>KieSession</code> built from the deployment
+ * descriptor (which happens on every request with PerRequest and PerProcessInstance strategies).
+ * <br/>
+ * Entries are kept per class loader, as that is what distinguishes deployments, and must be evicted when
+ * the deployment is removed, see <code>evict(ClassLoader)</code>.
+ */
+public class ObjectModelResolverCache {
+
+    private static final ConcurrentMap<ClassLoader, ConcurrentMap<String, Object>> caches =
+            new ConcurrentHashMap<ClassLoader, ConcurrentMap<String, Object>>();
+
+    private ObjectModelResolverCache() {
+    }
+
+    static Object get(ClassLoader cl, String key) {
+        if (cl == null) {
+            return null;
+        }
+        ConcurrentMap<String, Object> cache = caches.get(cl);
+        if (cache == null) {
+            return null;
+        }
+        return cache.get(key);
+    }
+
+    static void put(ClassLoader cl, String key, Object value) {
+        if (cl == null || value == null) {
+            return;
+        }
+        ConcurrentMap<String, Object> cache = caches.get(cl);
+        if (cache == null) {
+            ConcurrentMap<String, Object> created = new ConcurrentHashMap<String, Object>();
+            cache = caches.putIfAbsent(cl, created);
+            if (cache == null) {
+                cache = created;
+            }
+        }
+        cache.put(key, value);
+    }
+
+    /**
+     * Removes all entries kept for given class loader, must be called when deployment using it is removed
+     * to not keep its classes in memory.
+     */
+    public static void evict(ClassLoader cl) {
+        if (cl != null) {
+            caches.remove(cl);
+        }
+    }
+
+    /**
+     * Returns number of entries kept for given class loader.
+     */
+    public static int size(ClassLoader cl) {
+        if (cl == null) {
+            return 0;
+        }
+        ConcurrentMap<String, Object> cache = caches.get(cl);
+        return cache == null ? 0 : cache.size();
+    }
+}
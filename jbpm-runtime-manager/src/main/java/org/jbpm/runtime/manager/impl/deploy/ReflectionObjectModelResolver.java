@@ -115,7 +115,7 @@ public class ReflectionObjectModelResolver implements ObjectModelResolver {
 			try {	
 				logger.debug("Creating instance of class {} with parameter types {} and parameter instances {}",
 						clazz, parameterTypes, paramInstances);
-				Constructor<?> constructor = clazz.getConstructor(parameterTypes);
+				Constructor<?> constructor = getConstructor(clazz, parameterTypes, cl);
 				instance = constructor.newInstance(paramInstances);
 			} catch (Exception e) {
 				throw new IllegalArgumentException("Unable to create instance (" + parameterTypes + " constructor) of type "
@@ -140,12 +140,32 @@ public class ReflectionObjectModelResolver implements ObjectModelResolver {
 	}
 	
 	protected Class<?> getClassObject(String classname, ClassLoader cl) {
+		String cacheKey = ID + ":class:" + classname;
+		Class<?> clazz = (Class<?>) ObjectModelResolverCache.get(cl, cacheKey);
+		if (clazz != null) {
+			return clazz;
+		}
 		try {
-			Class<?> clazz = Class.forName(classname, true, cl);
+			clazz = Class.forName(classname, true, cl);
+			ObjectModelResolverCache.put(cl, cacheKey, clazz);
 			return clazz;
 		} catch (Exception e) {
 			throw new IllegalArgumentException("Unable to create class of type "+ classname + " due to " + e.getMessage(), e);
 		}
 	}
 
+	protected Constructor<?> getConstructor(Class<?> clazz, Class<?>[] parameterTypes, ClassLoader cl) throws NoSuchMethodException {
+		StringBuilder cacheKey = new StringBuilder(ID).append(":constructor:").append(clazz.getName()).append('(');
+		for (Class<?> parameterType : parameterTypes) {
+			cacheKey.append(parameterType.getName()).append(',');
+		}
+		cacheKey.append(')');
+		Constructor<?> constructor = (Constructor<?>) ObjectModelResolverCache.get(cl, cacheKey.toString());
+		if (constructor == null) {
+			constructor = clazz.getConstructor(parameterTypes);
+			ObjectModelResolverCache.put(cl, cacheKey.toString(), constructor);
+		}
+		return constructor;
+	}
+
 }
@@ -20,11 +20,14 @@ import javax.persistence.EntityManagerFactory;
 import org.jbpm.runtime.manager.impl.SimpleRuntimeEnvironment;
 import org.jbpm.services.task.HumanTaskConfigurator;
 import org.jbpm.services.task.HumanTaskServiceFactory;
+import org.kie.api.runtime.Environment;
+import org.kie.api.runtime.EnvironmentName;
 import org.kie.api.runtime.manager.RegisterableItemsFactory;
 import org.kie.api.runtime.manager.RuntimeEnvironment;
 import org.kie.api.task.TaskLifeCycleEventListener;
 import org.kie.api.task.TaskService;
 import org.kie.internal.runtime.manager.TaskServiceFactory;
+import org.kie.internal.task.api.UserInfo;
 
 /**
  * A regular <code>TaskServiceFactory</code> implementation that is intended to be used in non CDI environments.
@@ -52,10 +55,12 @@ public class LocalTaskServiceFactory implements TaskServiceFactory {
         EntityManagerFactory emf = ((SimpleRuntimeEnvironment)runtimeEnvironment).getEmf();
         if (emf != null) {
         	
+        	Environment environment = runtimeEnvironment.getEnvironment();
         	HumanTaskConfigurator configurator = HumanTaskServiceFactory.newTaskServiceConfigurator()
-            		.environment(runtimeEnvironment.getEnvironment())
+            		.environment(environment)
             		.entityManagerFactory(emf)                     
-                    .userGroupCallback(runtimeEnvironment.getUserGroupCallback());
+                    .userGroupCallback(runtimeEnvironment.getUserGroupCallback())
+                    .userInfo((UserInfo) environment.get(EnvironmentName.TASK_USER_INFO));
         	
             TaskService internalTaskService = configurator.getTaskService();
                                   
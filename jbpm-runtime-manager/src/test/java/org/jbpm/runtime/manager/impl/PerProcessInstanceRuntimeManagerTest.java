@@ -20,6 +20,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,6 +30,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.naming.InitialContext;
@@ -49,6 +54,7 @@ import org.kie.api.event.process.DefaultProcessEventListener;
 import org.kie.api.event.process.ProcessCompletedEvent;
 import org.kie.api.event.process.ProcessEventListener;
 import org.kie.api.event.process.ProcessNodeLeftEvent;
+import org.kie.api.event.process.ProcessNodeTriggeredEvent;
 import org.kie.api.event.process.ProcessStartedEvent;
 import org.kie.api.io.ResourceType;
 import org.kie.api.runtime.KieSession;
@@ -1287,4 +1293,161 @@ public class PerProcessInstanceRuntimeManagerTest extends AbstractBaseTest {
         
         manager.close();
     }
+
+    @Test
+    public void testSignalEventConcurrently() {
+        RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get()
+                .newDefaultBuilder()
+                .userGroupCallback(userGroupCallback)
+                .addAsset(ResourceFactory.newClassPathResource("BPMN2-IntermediateCatchEventSignal.bpmn2"), ResourceType.BPMN2)
+                .addEnvironmentEntry("SignalDispatchThreads", "4")
+                .get();
+
+        manager = RuntimeManagerFactory.Factory.get().newPerProcessInstanceRuntimeManager(environment);
+        assertNotNull(manager);
+
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for (int i = 0; i < 10; i++) {
+            RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+            ProcessInstance processInstance = runtime.getKieSession().startProcess("IntermediateCatchEvent");
+            assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+            processInstanceIds.add(processInstance.getId());
+            manager.disposeRuntimeEngine(runtime);
+        }
+
+        SignalEventResult result = ((PerProcessInstanceRuntimeManager) manager).signalEventConcurrently("MyMessage", "concurrent");
+        assertEquals(10, result.getSignaledCount());
+        assertEquals(0, result.getFailedCount());
+
+        RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+        AuditService auditService = runtime.getAuditService();
+        for (Long processInstanceId : processInstanceIds) {
+            ProcessInstanceLog log = auditService.findProcessInstance(processInstanceId);
+            assertNotNull(log);
+            assertEquals(ProcessInstance.STATE_COMPLETED, log.getStatus().intValue());
+        }
+        manager.disposeRuntimeEngine(runtime);
+
+        manager.close();
+    }
+
+    @Test
+    public void testSignalEventConcurrentlyWithFailure() {
+        final Set<Long> failing = new CopyOnWriteArraySet<Long>();
+        manager = RuntimeManagerFactory.Factory.get().newPerProcessInstanceRuntimeManager(createSignalEnvironment(failing, null));
+        assertNotNull(manager);
+
+        List<Long> processInstanceIds = startSignalProcesses(10);
+        Long failingId = processInstanceIds.get(3);
+        failing.add(failingId);
+
+        try {
+            manager.signalEvent("MyMessage", "concurrent");
+            fail("Failure of a process instance should be reported");
+        } catch (SignalEventException e) {
+            SignalEventResult result = e.getResult();
+            assertEquals(9, result.getSignaledCount());
+            assertEquals(1, result.getFailedCount());
+            assertEquals(Collections.singleton(failingId), result.getFailures().keySet());
+        }
+
+        RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+        AuditService auditService = runtime.getAuditService();
+        for (Long processInstanceId : processInstanceIds) {
+            ProcessInstanceLog log = auditService.findProcessInstance(processInstanceId);
+            assertNotNull(log);
+            int expected = processInstanceId.equals(failingId) ? ProcessInstance.STATE_ACTIVE : ProcessInstance.STATE_COMPLETED;
+            assertEquals(expected, log.getStatus().intValue());
+        }
+        manager.disposeRuntimeEngine(runtime);
+    }
+
+    @Test
+    public void testSignalEventConcurrentlyDisposeFailure() {
+        manager = RuntimeManagerFactory.Factory.get().newPerProcessInstanceRuntimeManager(createSignalEnvironment(null, null));
+        assertNotNull(manager);
+
+        Long processInstanceId = startSignalProcesses(1).get(0);
+
+        PerProcessInstanceRuntimeManager failingDispose = spy((PerProcessInstanceRuntimeManager) manager);
+        doThrow(new IllegalStateException("dispose failed")).when(failingDispose).disposeRuntimeEngine(any(RuntimeEngine.class));
+
+        SignalEventResult result = new SignalEventResult("MyMessage");
+        failingDispose.signalProcessInstance(processInstanceId, "MyMessage", "concurrent", result);
+        assertEquals(0, result.getSignaledCount());
+        assertEquals(1, result.getFailedCount());
+        assertTrue(result.getFailures().get(processInstanceId) instanceof IllegalStateException);
+
+        // engine is still active in this thread
+        manager.disposeRuntimeEngine(manager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId)));
+    }
+
+    @Test
+    public void testSignalEventConcurrentlyWithinTransaction() throws Exception {
+        final Set<Thread> threads = new CopyOnWriteArraySet<Thread>();
+        manager = RuntimeManagerFactory.Factory.get().newPerProcessInstanceRuntimeManager(createSignalEnvironment(null, threads));
+        assertNotNull(manager);
+
+        List<Long> processInstanceIds = startSignalProcesses(10);
+
+        UserTransaction ut = InitialContext.doLookup("java:comp/UserTransaction");
+        ut.begin();
+        manager.signalEvent("MyMessage", "transactional");
+        ut.rollback();
+
+        // all process instances were signaled by this thread within its transaction
+        assertEquals(Collections.singleton(Thread.currentThread()), threads);
+        RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+        AuditService auditService = runtime.getAuditService();
+        for (Long processInstanceId : processInstanceIds) {
+            ProcessInstanceLog log = auditService.findProcessInstance(processInstanceId);
+            assertNotNull(log);
+            assertEquals(ProcessInstance.STATE_ACTIVE, log.getStatus().intValue());
+        }
+        manager.disposeRuntimeEngine(runtime);
+    }
+
+    private RuntimeEnvironment createSignalEnvironment(final Set<Long> failing, final Set<Thread> threads) {
+        return RuntimeEnvironmentBuilder.Factory.get()
+                .newDefaultBuilder()
+                .userGroupCallback(userGroupCallback)
+                .addAsset(ResourceFactory.newClassPathResource("BPMN2-IntermediateCatchEventSignal.bpmn2"), ResourceType.BPMN2)
+                .addEnvironmentEntry("SignalDispatchThreads", "4")
+                .registerableItemsFactory(new DefaultRegisterableItemsFactory() {
+
+                    @Override
+                    public List<ProcessEventListener> getProcessEventListeners(RuntimeEngine runtime) {
+                        List<ProcessEventListener> listeners = super.getProcessEventListeners(runtime);
+                        listeners.add(new DefaultProcessEventListener() {
+
+                            @Override
+                            public void beforeNodeTriggered(ProcessNodeTriggeredEvent event) {
+                                if (!"EndProcess".equals(event.getNodeInstance().getNodeName())) {
+                                    return;
+                                }
+                                if (threads != null) {
+                                    threads.add(Thread.currentThread());
+                                }
+                                if (failing != null && failing.contains(event.getProcessInstance().getId())) {
+                                    throw new IllegalStateException("Failing process instance " + event.getProcessInstance().getId());
+                                }
+                            }
+                        });
+                        return listeners;
+                    }
+                })
+                .get();
+    }
+
+    private List<Long> startSignalProcesses(int count) {
+        List<Long> processInstanceIds = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            RuntimeEngine runtime = manager.getRuntimeEngine(ProcessInstanceIdContext.get());
+            ProcessInstance processInstance = runtime.getKieSession().startProcess("IntermediateCatchEvent");
+            assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+            processInstanceIds.add(processInstance.getId());
+            manager.disposeRuntimeEngine(runtime);
+        }
+        return processInstanceIds;
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.runtime.manager.impl.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.kie.internal.runtime.conf.ObjectModel;
+import org.kie.internal.runtime.conf.ObjectModelResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ObjectModelResolverCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObjectModelResolverCacheTest.class);
+
+    // dedicated class loader, so cache entries are not shared with other tests
+    private ClassLoader classLoader;
+
+    @Before
+    public void setup() {
+        classLoader = new URLClassLoader(new URL[0], this.getClass().getClassLoader());
+    }
+
+    @After
+    public void cleanup() {
+        ObjectModelResolverCache.evict(classLoader);
+    }
+
+    @Test
+    public void testMVELCompiledExpressionCached() {
+        ObjectModel model = new ObjectModel("new org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject(name)");
+        ObjectModelResolver resolver = new MVELObjectModelResolver();
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("name", "john");
+        SimpleCustomObject first = (SimpleCustomObject) resolver.getInstance(model, classLoader, params);
+        assertEquals(1, ObjectModelResolverCache.size(classLoader));
+
+        params.put("name", "mary");
+        SimpleCustomObject second = (SimpleCustomObject) resolver.getInstance(model, classLoader, params);
+        assertEquals(1, ObjectModelResolverCache.size(classLoader));
+        // cached is the expression, not the instance
+        assertNotSame(first, second);
+        assertEquals("john", first.getName());
+        assertEquals("mary", second.getName());
+
+        // different context parameters are compiled separately
+        params.put("name", "james");
+        params.put("other", 1);
+        resolver.getInstance(model, classLoader, params);
+        assertEquals(2, ObjectModelResolverCache.size(classLoader));
+    }
+
+    @Test
+    public void testReflectionClassAndConstructorCached() {
+        ObjectModel model = new ObjectModel("org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject", new Object[]{"john"});
+        ObjectModelResolver resolver = new ReflectionObjectModelResolver();
+
+        Object first = resolver.getInstance(model, classLoader, new HashMap<String, Object>());
+        Object second = resolver.getInstance(model, classLoader, new HashMap<String, Object>());
+        assertNotSame(first, second);
+        assertEquals("john", ((SimpleCustomObject) second).getName());
+        // class and constructor
+        assertEquals(2, ObjectModelResolverCache.size(classLoader));
+    }
+
+    @Test
+    public void testEvict() {
+        ObjectModelResolver resolver = new ReflectionObjectModelResolver();
+        resolver.getInstance(new ObjectModel("org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject"),
+                classLoader, new HashMap<String, Object>());
+        assertTrue(ObjectModelResolverCache.size(classLoader) > 0);
+
+        ObjectModelResolverCache.evict(classLoader);
+        assertEquals(0, ObjectModelResolverCache.size(classLoader));
+    }
+
+    @Test
+    @Ignore("benchmark, run manually")
+    public void testSessionBootstrapBenchmark() {
+        int handlers = 20;
+        int sessions = 10000;
+        Map<String, ObjectModel> mvelModels = new HashMap<String, ObjectModel>();
+        Map<String, ObjectModel> reflectionModels = new HashMap<String, ObjectModel>();
+        for (int i = 0; i < handlers; i++) {
+            mvelModels.put("Handler" + i, new ObjectModel("new org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject(\"" + i + "\")"));
+            reflectionModels.put("Handler" + i, new ObjectModel("org.jbpm.runtime.manager.impl.deploy.testobject.SimpleCustomObject", new Object[]{"" + i}));
+        }
+        benchmark("mvel", new MVELObjectModelResolver(), mvelModels, sessions);
+        benchmark("reflection", new ReflectionObjectModelResolver(), reflectionModels, sessions);
+    }
+
+    private void benchmark(String name, ObjectModelResolver resolver, Map<String, ObjectModel> models, int sessions) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("classLoader", classLoader);
+
+        // every session resolves all handlers of the descriptor, evicting simulates resolvers without cache
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            ObjectModelResolverCache.evict(classLoader);
+            for (ObjectModel model : models.values()) {
+                resolver.getInstance(model, classLoader, params);
+            }
+        }
+        long uncached = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            for (ObjectModel model : models.values()) {
+                resolver.getInstance(model, classLoader, params);
+            }
+        }
+        long cached = System.nanoTime() - start;
+        logger.info("{} resolver, {} handlers per session: uncached {} us per session, cached {} us per session",
+                name, models.size(), uncached / 1000 / sessions, cached / 1000 / sessions);
+    }
+}
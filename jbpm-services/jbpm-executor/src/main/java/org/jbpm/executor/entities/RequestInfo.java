@@ -46,6 +46,10 @@ public class RequestInfo implements org.kie.internal.executor.api.RequestInfo, S
 
     private static final long serialVersionUID = 5823083735663566537L;
     
+    public static final int MIN_PRIORITY = 0;
+    public static final int MAX_PRIORITY = 9;
+    public static final int DEFAULT_PRIORITY = 5;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator="requestInfoIdSeq")
     private Long id;
@@ -66,6 +70,8 @@ public class RequestInfo implements org.kie.internal.executor.api.RequestInfo, S
     private String deploymentId;
     // owning component of this request, meaning when set only same component can execute it 
     private String owner;
+    // requests with higher priority are executed first, from 0 (lowest) to 9 (highest)
+    private int priority = DEFAULT_PRIORITY;
     
     @Lob
     @Column(length=2147483647)
@@ -184,11 +190,39 @@ public class RequestInfo implements org.kie.internal.executor.api.RequestInfo, S
 		this.owner = owner;
 	}
 
+	public int getPriority() {
+		return priority;
+	}
+
+	public void setPriority(int priority) {
+		this.priority = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+	}
+
+	/**
+	 * Converts given priority (number or numeric string) to a request priority, values out of
+	 * range are limited to MIN_PRIORITY - MAX_PRIORITY.
+	 * @throws IllegalArgumentException when given value is not a number
+	 */
+	public static int toPriority(Object value) {
+		int priority;
+		if (value instanceof Number) {
+			priority = ((Number) value).intValue();
+		} else {
+			try {
+				priority = Integer.parseInt(String.valueOf(value).trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid priority '" + value + "', expected a number from "
+						+ MIN_PRIORITY + " to " + MAX_PRIORITY);
+			}
+		}
+		return Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+	}
+
 
 	@Override
     public String toString() {
         return "RequestInfo{" + "id=" + id + ", time=" + time 
-        		+ ", status=" + status + ", commandName=" + commandName + ", message=" + message + ", owner=" + owner
+        		+ ", status=" + status + ", commandName=" + commandName + ", message=" + message + ", owner=" + owner + ", priority=" + priority
         		+ ", key=" + key + ", requestData=" + requestData + ", responseData=" + responseData 
         		+ ", error=" + errorInfo + '}';
     }
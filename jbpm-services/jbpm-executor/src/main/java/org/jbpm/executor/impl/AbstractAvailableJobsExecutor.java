@@ -253,6 +253,9 @@ public abstract class AbstractAvailableJobsExecutor {
                 } else {
                     requestInfo.setRetries(retries);
                 }
+                if (ctx.getData("priority") != null) {
+                    requestInfo.setPriority(RequestInfo.toPriority(ctx.getData("priority")));
+                }
                 if (ctx != null) {
                     try {
                         // remove transient data
@@ -16,6 +16,13 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jbpm.executor.BatchClaimAware;
 import org.jbpm.executor.entities.RequestInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,14 +31,38 @@ import org.slf4j.LoggerFactory;
  * Heart of the executor component - executes the actual tasks.
  * Handles retries and error management. Based on results of execution notifies
  * defined callbacks about the execution results.
- *
+ * <br/>
+ * When batch size (system property org.kie.executor.batch.size) is greater than 1 and the query service
+ * supports it, up to batch size jobs are claimed at once and handed over to the worker pool (or executed
+ * one after another when there is no worker pool). As long as full batches are claimed claiming continues
+ * right away, when no jobs are found following polls are skipped, doubling up to
+ * org.kie.executor.batch.idle.backoff polls (default 4).
  */
 public class AvailableJobsExecutor extends AbstractAvailableJobsExecutor {
 
     private static final Logger logger = LoggerFactory.getLogger(AvailableJobsExecutor.class);
     
+    private int batchSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.size", "1"));
+    private int maxIdleBackoff = Integer.parseInt(System.getProperty("org.kie.executor.batch.idle.backoff", "4"));
+    
+    private ExecutorService workerPool;
+    private int idleBackoff = 0;
+    private int pollsToSkip = 0;
+    
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+    
+    public void setWorkerPool(ExecutorService workerPool) {
+        this.workerPool = workerPool;
+    }
+    
     public void executeJob() {
         logger.debug("Executor Thread {} Waking Up!!!", this.toString());
+        if (batchSize > 1 && queryService instanceof BatchClaimAware) {
+            executeJobs();
+            return;
+        }
         try {
             RequestInfo request = (RequestInfo) queryService.getRequestForProcessing();
             if (request != null) {
@@ -42,5 +73,69 @@ public class AvailableJobsExecutor extends AbstractAvailableJobsExecutor {
         }
     }
 
-
+    protected void executeJobs() {
+        synchronized (this) {
+            if (pollsToSkip > 0) {
+                pollsToSkip--;
+                logger.debug("Executor Thread {} idle, skipping poll ({} left)", this.toString(), pollsToSkip);
+                return;
+            }
+        }
+        int claimed = 0;
+        try {
+            do {
+                List<org.kie.api.executor.RequestInfo> requests = ((BatchClaimAware) queryService).getRequestsForProcessing(batchSize);
+                claimed = requests.size();
+                logger.debug("Claimed {} jobs for execution", claimed);
+                executeGivenJobs(requests);
+            } while (claimed == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (Exception e) {
+            logger.warn("Unexpected error while processin executor's jobs {}", e.getMessage(), e);
+        }
+        synchronized (this) {
+            if (claimed == 0) {
+                idleBackoff = Math.min(idleBackoff == 0 ? 1 : idleBackoff * 2, maxIdleBackoff);
+                pollsToSkip = idleBackoff;
+            } else {
+                idleBackoff = 0;
+            }
+        }
+    }
+    
+    protected void executeGivenJobs(List<org.kie.api.executor.RequestInfo> requests) {
+        if (workerPool == null || requests.size() < 2) {
+            for (org.kie.api.executor.RequestInfo request : requests) {
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.warn("Executor Thread {} interrupted, {} claimed jobs left unprocessed", this.toString(),
+                            requests.size() - requests.indexOf(request));
+                    return;
+                }
+                executeGivenJob((RequestInfo) request);
+            }
+            return;
+        }
+        List<Future<?>> executions = new ArrayList<Future<?>>(requests.size());
+        for (final org.kie.api.executor.RequestInfo request : requests) {
+            executions.add(workerPool.submit(new Runnable() {
+                
+                @Override
+                public void run() {
+                    executeGivenJob((RequestInfo) request);
+                }
+            }));
+        }
+        // wait for the batch to complete so jobs are not claimed faster than they can be executed
+        for (Future<?> execution : executions) {
+            try {
+                execution.get();
+            } catch (ExecutionException e) {
+                logger.warn("Unexpected error while processin executor's job {}", e.getMessage(), e);
+            } catch (InterruptedException e) {
+                // submitted jobs are left to the worker pool, stop waiting for them and claiming more
+                logger.warn("Executor Thread {} interrupted while waiting for jobs to complete", this.toString());
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
 }
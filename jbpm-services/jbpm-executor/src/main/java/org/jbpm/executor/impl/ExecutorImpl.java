@@ -22,6 +22,7 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -56,7 +57,15 @@ import org.slf4j.LoggerFactory;
  *  <li>thread pool size - default 1 - use system property org.kie.executor.pool.size</li>
  *  <li>retry count - default 3 retries - use system property org.kie.executor.retry.count</li>
  *  <li>execution interval - default 3 seconds - use system property org.kie.executor.interval</li>
+ *  <li>batch size - default 1 - number of jobs claimed at once by every executor thread and executed by
+ *  a shared worker pool - use system property org.kie.executor.batch.size</li>
+ *  <li>worker pool size - default batch size - used when batch size is greater than 1 - use system property
+ *  org.kie.executor.batch.workers</li>
+ *  <li>fair share window - default 1 (disabled) - when greater than 1, number of pending jobs among which jobs
+ *  are selected so that deployments share the executor fairly - use system property org.kie.executor.fairshare.window</li>
  * </ul>
+ * Jobs are executed in order of priority (given as <code>priority</code> in the command context, from 0 to 9,
+ * default 5, values out of range are limited to it) and then in order of their scheduled time.
  * Additionally executor can be disable to not start at all when system property org.kie.executor.disabled is 
  * set to true
  * Executor can be used with JMS as the medium to notify about jobs to be executed instead of relying strictly 
@@ -82,6 +91,8 @@ public class ExecutorImpl implements Executor {
     private int interval = Integer.parseInt(System.getProperty("org.kie.executor.interval", "3"));
     private int initialDelay = Integer.parseInt(System.getProperty("org.kie.executor.initial.delay", "100"));
     private TimeUnit timeunit = TimeUnit.valueOf(System.getProperty("org.kie.executor.timeunit", "SECONDS"));
+    private int batchSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.size", "1"));
+    private int workerPoolSize = Integer.parseInt(System.getProperty("org.kie.executor.batch.workers", String.valueOf(batchSize)));
     
     
     // jms related instances
@@ -93,6 +104,7 @@ public class ExecutorImpl implements Executor {
     private Queue queue;
 
 	private ScheduledExecutorService scheduler;
+	private ExecutorService workerPool;
 	
 	private ExecutorEventSupport eventSupport = new ExecutorEventSupport();
 
@@ -206,6 +218,22 @@ public class ExecutorImpl implements Executor {
 	public void setTimeunit(TimeUnit timeunit) {
 		this.timeunit = timeunit;
 	}
+	
+	public int getBatchSize() {
+	    return batchSize;
+	}
+	
+	public void setBatchSize(int batchSize) {
+	    this.batchSize = batchSize;
+	}
+	
+	public int getWorkerPoolSize() {
+	    return workerPoolSize;
+	}
+	
+	public void setWorkerPoolSize(int workerPoolSize) {
+	    this.workerPoolSize = workerPoolSize;
+	}
 
     /**
      * {@inheritDoc}
@@ -213,17 +241,20 @@ public class ExecutorImpl implements Executor {
     public void init() {
         if (!"true".equalsIgnoreCase(System.getProperty("org.kie.executor.disabled"))) {
             logger.info("Starting Executor Component ...\n" + " \t - Thread Pool Size: {}" + "\n"
-                    + " \t - Interval: {} {} \n" + " \t - Retries per Request: {}\n",
-                    threadPoolSize, interval, timeunit.toString(), retries);
+                    + " \t - Interval: {} {} \n" + " \t - Retries per Request: {}\n" + " \t - Batch Size: {}\n",
+                    threadPoolSize, interval, timeunit.toString(), retries, batchSize);
             
             int delayIncremental = 0;
             
             scheduler = Executors.newScheduledThreadPool(threadPoolSize);
+            if (batchSize > 1) {
+                workerPool = Executors.newFixedThreadPool(workerPoolSize);
+            }
             for (int i = 0; i < threadPoolSize; i++) {
                 long delay = 2000 + delayIncremental;
                 long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
                 logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
+                handle.add(scheduler.scheduleAtFixedRate(buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
                                
                 delayIncremental += this.initialDelay;
                 
@@ -260,12 +291,15 @@ public class ExecutorImpl implements Executor {
             int delayIncremental = 0;
             
             scheduler = Executors.newScheduledThreadPool(threadPoolSize, threadFactory);
+            if (batchSize > 1) {
+                workerPool = Executors.newFixedThreadPool(workerPoolSize, threadFactory);
+            }
             for (int i = 0; i < threadPoolSize; i++) {
                 
                 long delay = 2000 + delayIncremental;
                 long interval = TimeUnit.MILLISECONDS.convert(this.interval, timeunit);
                 logger.debug("Starting executor thread with initial delay {} interval {} and time unit {}", delay, interval, TimeUnit.MILLISECONDS);
-                handle.add(scheduler.scheduleAtFixedRate(executorStoreService.buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
+                handle.add(scheduler.scheduleAtFixedRate(buildExecutorRunnable(), delay, interval, TimeUnit.MILLISECONDS));
                 
                 delayIncremental += this.initialDelay;
             }
@@ -287,6 +321,18 @@ public class ExecutorImpl implements Executor {
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+    }
+    
+    protected Runnable buildExecutorRunnable() {
+        Runnable runnable = executorStoreService.buildExecutorRunnable();
+        if (runnable instanceof ExecutorRunnable) {
+            ((ExecutorRunnable) runnable).setBatchSize(batchSize);
+            ((ExecutorRunnable) runnable).setWorkerPool(workerPool);
+        }
+        return runnable;
     }
 
     /**
@@ -320,6 +366,9 @@ public class ExecutorImpl implements Executor {
         } else {
             requestInfo.setRetries(retries);
         }
+        if (ctx.getData("priority") != null) {
+            requestInfo.setPriority(RequestInfo.toPriority(ctx.getData("priority")));
+        }
         
         if (ctx.getData("retryDelay") != null) {
             List<Long> retryDelay = new ArrayList<Long>();
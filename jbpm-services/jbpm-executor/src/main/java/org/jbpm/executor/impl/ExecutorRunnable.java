@@ -16,6 +16,8 @@
 
 package org.jbpm.executor.impl;
 
+import java.util.concurrent.ExecutorService;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -34,6 +36,14 @@ public class ExecutorRunnable implements Runnable {
     public void setAvailableJobsExecutor(AvailableJobsExecutor availableJobsExecutor) {
 		this.availableJobsExecutor = availableJobsExecutor;
 	}
+    
+    public void setBatchSize(int batchSize) {
+        this.availableJobsExecutor.setBatchSize(batchSize);
+    }
+    
+    public void setWorkerPool(ExecutorService workerPool) {
+        this.availableJobsExecutor.setWorkerPool(workerPool);
+    }
 
     public void run() {
     	try {
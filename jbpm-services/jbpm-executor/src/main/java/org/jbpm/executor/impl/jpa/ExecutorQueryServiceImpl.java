@@ -16,15 +16,19 @@
 
 package org.jbpm.executor.impl.jpa;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.persistence.NoResultException;
 
 import org.drools.core.command.CommandService;
 import org.drools.core.command.impl.GenericCommand;
+import org.jbpm.executor.BatchClaimAware;
 import org.jbpm.shared.services.impl.JpaPersistenceContext;
 import org.jbpm.shared.services.impl.QueryManager;
 import org.kie.api.executor.ErrorInfo;
@@ -42,9 +46,14 @@ import org.kie.internal.executor.api.ExecutorQueryService;
  * IMPORTANT: please keep all classes from package org.jbpm.shared.services.impl as FQCN
  * inside method body to avoid exception logged by CDI when used with in memory mode
  */
-public class ExecutorQueryServiceImpl implements ExecutorQueryService {
+public class ExecutorQueryServiceImpl implements ExecutorQueryService, BatchClaimAware {
 
     private CommandService commandService;
+    
+    // number of candidates among which requests are selected by fair share, 1 (default) to claim in queue order only
+    private int fairShareWindow = Integer.parseInt(System.getProperty("org.kie.executor.fairshare.window", "1"));
+    private FairShareRequestSelector fairShareSelector = new FairShareRequestSelector();
+    private final Map<Integer, ExecutorQueueMetrics> queueMetrics = new TreeMap<Integer, ExecutorQueueMetrics>(Collections.<Integer>reverseOrder());
    
     public ExecutorQueryServiceImpl(boolean active) {
         QueryManager.get().addNamedQueries("META-INF/Executor-orm.xml");
@@ -54,6 +63,10 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
         this.commandService = commandService;
     }
 
+    public void setFairShareWindow(int fairShareWindow) {
+        this.fairShareWindow = fairShareWindow;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -213,6 +226,46 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
         return request;
     }
     
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RequestInfo> getRequestsForProcessing(int batchSize) {
+        
+        // lock all claimed rows at once, skipping these being claimed by other executors
+        List<RequestInfo> requests = commandService.execute(new LockAndUpdateRequestInfosCommand(batchSize));
+        
+        return requests;
+    }
+    
+    /**
+     * Returns metrics per priority class (highest priority first): current queue depth and waiting time of
+     * the oldest request that is ready to be executed, as well as number and waiting time of requests claimed by
+     * this executor since it was created.
+     */
+    public List<ExecutorQueueMetrics> getQueueMetrics() {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("now", new Date());
+        List<Object[]> queue = commandService.execute(new org.jbpm.shared.services.impl.commands.QueryNameCommand<List<Object[]>>("PendingRequestsCountByPriority", params));
+        
+        long now = System.currentTimeMillis();
+        List<ExecutorQueueMetrics> metrics = new ArrayList<ExecutorQueueMetrics>();
+        synchronized (queueMetrics) {
+            for (ExecutorQueueMetrics priorityMetrics : queueMetrics.values()) {
+                priorityMetrics.setQueue(0, 0);
+            }
+            for (Object[] row : queue) {
+                Date oldest = (Date) row[2];
+                getQueueMetrics(((Number) row[0]).intValue()).setQueue(((Number) row[1]).longValue(), 
+                        oldest == null ? 0 : Math.max(0, now - oldest.getTime()));
+            }
+            for (ExecutorQueueMetrics priorityMetrics : queueMetrics.values()) {
+                metrics.add(priorityMetrics.copy());
+            }
+        }
+        return metrics;
+    }
+    
     public RequestInfo getRequestForProcessing(Long requestId) {
         
         // need to do the lock here to avoid many executor services fetch the same element
@@ -227,6 +280,10 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
 
 		@Override
 		public RequestInfo execute(Context context) {
+			if (fairShareWindow > 1) {
+				List<RequestInfo> requests = claimRequests(context, 1, fairShareWindow);
+				return requests.isEmpty() ? null : requests.get(0);
+			}
 			Map<String, Object> params = new HashMap<String, Object>();
 	    	params.put("now", new Date());
 	    	params.put("firstResult", 0);
@@ -238,6 +295,7 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
 				request = ctx.queryAndLockWithParametersInTransaction("PendingRequestsForProcessing",params, true, RequestInfo.class);
 				
 				if (request != null) {
+					recordClaim((org.jbpm.executor.entities.RequestInfo) request, new Date());
 	                request.setStatus(STATUS.RUNNING);
 	                // update date on when it was started to be executed
 	                ((org.jbpm.executor.entities.RequestInfo)request).setTime(new Date());
@@ -251,6 +309,76 @@ public class ExecutorQueryServiceImpl implements ExecutorQueryService {
     	
     }
     
+    private class LockAndUpdateRequestInfosCommand implements GenericCommand<List<RequestInfo>> {
+
+        private static final long serialVersionUID = -3491618474406421870L;
+        
+        private int batchSize;
+        
+        LockAndUpdateRequestInfosCommand(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public List<RequestInfo> execute(Context context) {
+            int candidates = batchSize;
+            if (fairShareWindow > 1) {
+                candidates = Math.max(batchSize * 2, fairShareWindow);
+            }
+            return claimRequests(context, batchSize, candidates);
+        }
+        
+    }
+    
+    /*
+     * Locks up to given number of candidates (skipping these being claimed by other executors), selects the ones
+     * to be claimed among them and moves these to running state, candidates that are not selected are left as they are
+     */
+    @SuppressWarnings("unchecked")
+    protected List<RequestInfo> claimRequests(Context context, int count, int candidates) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("now", new Date());
+        params.put("firstResult", 0);
+        params.put("maxResults", candidates);
+        params.put("owner", ExecutorService.EXECUTOR_ID);
+        
+        org.jbpm.shared.services.impl.JpaPersistenceContext ctx = (org.jbpm.shared.services.impl.JpaPersistenceContext) context;
+        List<org.jbpm.executor.entities.RequestInfo> found = ctx.queryAndLockWithParametersInTransaction("PendingRequestsForProcessing", params, false, true, List.class);
+        List<RequestInfo> requests = new ArrayList<RequestInfo>();
+        if (found == null || found.isEmpty()) {
+            return requests;
+        }
+        if (candidates > count) {
+            found = fairShareSelector.select(found, count);
+        }
+        Date started = new Date();
+        for (org.jbpm.executor.entities.RequestInfo request : found) {
+            recordClaim(request, started);
+            request.setStatus(STATUS.RUNNING);
+            // update date on when it was started to be executed
+            request.setTime(started);
+            ctx.merge(request);
+            requests.add(request);
+        }
+        return requests;
+    }
+    
+    protected void recordClaim(org.jbpm.executor.entities.RequestInfo request, Date claimed) {
+        long waitTime = request.getTime() == null ? 0 : Math.max(0, claimed.getTime() - request.getTime().getTime());
+        synchronized (queueMetrics) {
+            getQueueMetrics(request.getPriority()).recordClaim(waitTime);
+        }
+    }
+    
+    private ExecutorQueueMetrics getQueueMetrics(int priority) {
+        ExecutorQueueMetrics metrics = queueMetrics.get(priority);
+        if (metrics == null) {
+            metrics = new ExecutorQueueMetrics(priority);
+            queueMetrics.put(priority, metrics);
+        }
+        return metrics;
+    }
+    
     private class LockAndUpdateRequestInfoByIdCommand implements GenericCommand<RequestInfo> {
 
         private static final long serialVersionUID = 8670412133363766161L;
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.jpa;
+
+import java.io.Serializable;
+
+/**
+ * Metrics of the executor queue for a single priority class: number of requests ready to be executed
+ * and how long the oldest one is already waiting, as well as number of requests claimed by this executor
+ * and how long they have waited (from the time they were due until they were claimed).
+ */
+public class ExecutorQueueMetrics implements Serializable {
+
+    private static final long serialVersionUID = 6392817564398115214L;
+
+    private final int priority;
+    private long queueDepth;
+    private long oldestWaitTime;
+    private long claimed;
+    private long totalWaitTime;
+    private long maxWaitTime;
+
+    public ExecutorQueueMetrics(int priority) {
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Number of requests of this priority that are ready to be executed.
+     */
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Time in milliseconds the oldest request of this priority that is ready to be executed is waiting.
+     */
+    public long getOldestWaitTime() {
+        return oldestWaitTime;
+    }
+
+    /**
+     * Number of requests of this priority claimed by this executor.
+     */
+    public long getClaimed() {
+        return claimed;
+    }
+
+    /**
+     * Average time in milliseconds requests of this priority waited before being claimed by this executor.
+     */
+    public long getAverageWaitTime() {
+        if (claimed == 0) {
+            return 0;
+        }
+        return totalWaitTime / claimed;
+    }
+
+    /**
+     * Longest time in milliseconds a request of this priority waited before being claimed by this executor.
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    void setQueue(long queueDepth, long oldestWaitTime) {
+        this.queueDepth = queueDepth;
+        this.oldestWaitTime = oldestWaitTime;
+    }
+
+    void recordClaim(long waitTime) {
+        claimed++;
+        totalWaitTime += waitTime;
+        maxWaitTime = Math.max(maxWaitTime, waitTime);
+    }
+
+    ExecutorQueueMetrics copy() {
+        ExecutorQueueMetrics copy = new ExecutorQueueMetrics(priority);
+        copy.queueDepth = queueDepth;
+        copy.oldestWaitTime = oldestWaitTime;
+        copy.claimed = claimed;
+        copy.totalWaitTime = totalWaitTime;
+        copy.maxWaitTime = maxWaitTime;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorQueueMetrics{" + "priority=" + priority + ", queueDepth=" + queueDepth
+                + ", oldestWaitTime=" + oldestWaitTime + ", claimed=" + claimed
+                + ", averageWaitTime=" + getAverageWaitTime() + ", maxWaitTime=" + maxWaitTime + '}';
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.jbpm.executor.entities.RequestInfo;
+
+/**
+ * Selects the requests to be claimed out of the candidates that are ready to be executed so that
+ * deployments share the executor fairly.
+ * <br/>
+ * Candidates are expected in execution order (highest priority first, oldest first within the same priority).
+ * Requests with higher priority are always selected first, among the requests of the same priority the oldest
+ * request of the deployment that was least recently served is selected, so that a flood of requests of one
+ * deployment does not delay requests of other deployments by more than one request per deployment.
+ */
+public class FairShareRequestSelector {
+
+    private final Map<String, Long> lastServed = new HashMap<String, Long>();
+    private long sequence = 0;
+
+    public synchronized List<RequestInfo> select(List<RequestInfo> candidates, int count) {
+        List<RequestInfo> selected = new ArrayList<RequestInfo>(Math.min(count, candidates.size()));
+        List<RequestInfo> remaining = new LinkedList<RequestInfo>(candidates);
+        while (selected.size() < count && !remaining.isEmpty()) {
+            int priority = remaining.get(0).getPriority();
+            RequestInfo next = null;
+            long nextServed = Long.MAX_VALUE;
+            for (RequestInfo candidate : remaining) {
+                if (candidate.getPriority() != priority) {
+                    break;
+                }
+                long served = getLastServed(candidate.getDeploymentId());
+                if (served < nextServed) {
+                    next = candidate;
+                    nextServed = served;
+                }
+            }
+            remaining.remove(next);
+            selected.add(next);
+            lastServed.put(next.getDeploymentId(), ++sequence);
+        }
+        return selected;
+    }
+
+    private long getLastServed(String deploymentId) {
+        Long served = lastServed.get(deploymentId);
+        if (served == null) {
+            return 0;
+        }
+        return served;
+    }
+}
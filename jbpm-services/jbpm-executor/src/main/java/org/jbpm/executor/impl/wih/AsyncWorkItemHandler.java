@@ -106,6 +106,9 @@ public class AsyncWorkItemHandler implements WorkItemHandler {
         if (workItem.getParameter("Owner") != null) {
             ctxCMD.setData("owner", workItem.getParameter("Owner"));
         }
+        if (workItem.getParameter("Priority") != null) {
+            ctxCMD.setData("priority", org.jbpm.executor.entities.RequestInfo.toPriority(workItem.getParameter("Priority")));
+        }
         
         if (workItem.getParameter("RetryDelay") != null) {
      
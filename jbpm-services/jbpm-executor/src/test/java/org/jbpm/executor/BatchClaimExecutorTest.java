@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.executor.test.CountDownAsyncJobListener;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+import org.kie.api.executor.STATUS;
+import org.kie.api.runtime.query.QueryContext;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+
+public class BatchClaimExecutorTest {
+    
+	protected ExecutorService executorService;
+    
+	private PoolingDataSource pds;
+	private EntityManagerFactory emf = null;
+    
+    @Before
+    public void setUp() {
+        System.setProperty("org.kie.executor.batch.size", "5");
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        executorService.setThreadPoolSize(1);
+        executorService.setInterval(1000);
+        executorService.setTimeunit(TimeUnit.MILLISECONDS);
+    }
+    
+    @After
+    public void tearDown() {
+        System.clearProperty("org.kie.executor.batch.size");
+    	executorService.clearAllRequests();
+        executorService.clearAllErrors();
+        
+        executorService.destroy();
+        // not reset by destroy when the executor was not started
+        ExecutorServiceFactory.resetExecutorService(executorService);
+        if (emf != null) {
+        	emf.close();
+        }
+        pds.close();
+    }
+   
+    @Test
+    public void batchClaimTest() throws InterruptedException {
+        for (int i = 0; i < 7; i++) {
+            scheduleRequest(new Date());
+        }
+        scheduleRequest(new Date(System.currentTimeMillis() + 60000));
+        
+        BatchClaimAware claimService = (BatchClaimAware) ((ExecutorServiceImpl) executorService).getQueryService();
+        List<RequestInfo> claimed = claimService.getRequestsForProcessing(5);
+        assertEquals(5, claimed.size());
+        for (RequestInfo request : claimed) {
+            assertEquals(STATUS.RUNNING, request.getStatus());
+        }
+        assertEquals(5, executorService.getRunningRequests(new QueryContext()).size());
+        
+        // only the remaining ones that are due are claimed
+        claimed = claimService.getRequestsForProcessing(5);
+        assertEquals(2, claimed.size());
+        assertEquals(0, claimService.getRequestsForProcessing(5).size());
+        assertEquals(7, executorService.getRunningRequests(new QueryContext()).size());
+    }
+    
+    @Test
+    public void batchExecutionTest() throws InterruptedException {
+        CountDownAsyncJobListener countDownListener = new CountDownAsyncJobListener(12);
+        ((ExecutorServiceImpl) executorService).addAsyncJobListener(countDownListener);
+        for (int i = 0; i < 12; i++) {
+            scheduleRequest(new Date());
+        }
+        executorService.init();
+
+        countDownListener.waitTillCompleted(10000);
+
+        List<RequestInfo> inErrorRequests = executorService.getInErrorRequests(new QueryContext());
+        assertEquals(0, inErrorRequests.size());
+        List<RequestInfo> queuedRequests = executorService.getQueuedRequests(new QueryContext());
+        assertEquals(0, queuedRequests.size());
+        List<RequestInfo> executedRequests = executorService.getCompletedRequests(new QueryContext());
+        assertEquals(12, executedRequests.size());
+    }
+    
+    private void scheduleRequest(Date date) {
+        CommandContext ctxCMD = new CommandContext();
+        ctxCMD.setData("businessKey", UUID.randomUUID().toString());
+        executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", date, ctxCMD);
+    }
+}
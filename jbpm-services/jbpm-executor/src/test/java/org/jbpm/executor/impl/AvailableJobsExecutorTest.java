@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jbpm.executor.entities.RequestInfo;
+import org.junit.After;
+import org.junit.Test;
+
+public class AvailableJobsExecutorTest {
+
+    private final AtomicInteger executed = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ExecutorService workerPool;
+
+    @After
+    public void tearDown() {
+        // clears the flag in case an assertion failed before
+        Thread.interrupted();
+        release.countDown();
+        if (workerPool != null) {
+            workerPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptedWhileWaitingForBatch() throws Exception {
+        workerPool = Executors.newFixedThreadPool(2);
+        AvailableJobsExecutor executor = new BlockingJobsExecutor();
+        executor.setWorkerPool(workerPool);
+
+        Thread.currentThread().interrupt();
+        executor.executeGivenJobs(requests(2));
+
+        // interrupt is restored and the batch is not waited for
+        assertTrue(Thread.interrupted());
+        release.countDown();
+        workerPool.shutdown();
+        assertTrue(workerPool.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(2, executed.get());
+    }
+
+    @Test
+    public void testInterruptedStopsSequentialBatch() {
+        AvailableJobsExecutor executor = new BlockingJobsExecutor();
+        release.countDown();
+
+        Thread.currentThread().interrupt();
+        executor.executeGivenJobs(requests(3));
+
+        assertTrue(Thread.interrupted());
+        assertEquals(0, executed.get());
+    }
+
+    private List<org.kie.api.executor.RequestInfo> requests(int count) {
+        List<org.kie.api.executor.RequestInfo> requests = new ArrayList<org.kie.api.executor.RequestInfo>();
+        for (int i = 0; i < count; i++) {
+            RequestInfo request = new RequestInfo();
+            request.setId((long) i);
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    private class BlockingJobsExecutor extends AvailableJobsExecutor {
+
+        @Override
+        public void executeGivenJob(RequestInfo request) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.incrementAndGet();
+        }
+    }
+}
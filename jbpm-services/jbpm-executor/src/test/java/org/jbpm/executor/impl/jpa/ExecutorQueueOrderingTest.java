@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.executor.impl.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.jbpm.executor.ExecutorServiceFactory;
+import org.jbpm.executor.impl.ExecutorServiceImpl;
+import org.jbpm.test.util.ExecutorTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.executor.CommandContext;
+import org.kie.api.executor.ExecutorService;
+import org.kie.api.executor.RequestInfo;
+
+import bitronix.tm.resource.jdbc.PoolingDataSource;
+
+public class ExecutorQueueOrderingTest {
+
+    private ExecutorService executorService;
+    private ExecutorQueryServiceImpl queryService;
+    
+    private PoolingDataSource pds;
+    private EntityManagerFactory emf = null;
+    
+    @Before
+    public void setUp() {
+        pds = ExecutorTestUtil.setupPoolingDataSource();
+        emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
+
+        executorService = ExecutorServiceFactory.newExecutorService(emf);
+        queryService = (ExecutorQueryServiceImpl) ((ExecutorServiceImpl) executorService).getQueryService();
+    }
+    
+    @After
+    public void tearDown() {
+        executorService.clearAllRequests();
+        executorService.clearAllErrors();
+        
+        executorService.destroy();
+        ExecutorServiceFactory.resetExecutorService(executorService);
+        if (emf != null) {
+            emf.close();
+        }
+        pds.close();
+    }
+    
+    @Test
+    public void testHigherPriorityClaimedFirst() {
+        scheduleRequest("org.jbpm:low:1.0", 1, 3000);
+        scheduleRequest("org.jbpm:default:1.0", null, 2000);
+        scheduleRequest("org.jbpm:high:1.0", 9, 1000);
+        
+        assertEquals(9, getPriority(queryService.getRequestForProcessing()));
+        assertEquals(5, getPriority(queryService.getRequestForProcessing()));
+        assertEquals(1, getPriority(queryService.getRequestForProcessing()));
+        assertNull(queryService.getRequestForProcessing());
+    }
+    
+    @Test
+    public void testDeploymentsShareExecutor() {
+        queryService.setFairShareWindow(10);
+        for (int i = 0; i < 6; i++) {
+            scheduleRequest("org.jbpm:bulk:1.0", null, 10000 - i);
+        }
+        scheduleRequest("org.jbpm:interactive:1.0", null, 1000);
+        
+        // the interactive request is picked although all bulk requests are older 
+        List<RequestInfo> claimed = queryService.getRequestsForProcessing(2);
+        Set<String> deployments = new HashSet<String>();
+        for (RequestInfo request : claimed) {
+            deployments.add(request.getDeploymentId());
+        }
+        assertEquals(2, deployments.size());
+        
+        assertEquals("org.jbpm:bulk:1.0", queryService.getRequestForProcessing().getDeploymentId());
+    }
+    
+    @Test
+    public void testQueueOrderWithoutFairShare() {
+        for (int i = 0; i < 3; i++) {
+            scheduleRequest("org.jbpm:bulk:1.0", null, 10000 - i);
+        }
+        scheduleRequest("org.jbpm:interactive:1.0", null, 1000);
+        
+        // fair share is opt-in, by default requests are claimed in queue order
+        List<RequestInfo> claimed = queryService.getRequestsForProcessing(2);
+        assertEquals(2, claimed.size());
+        for (RequestInfo request : claimed) {
+            assertEquals("org.jbpm:bulk:1.0", request.getDeploymentId());
+        }
+    }
+    
+    @Test
+    public void testPriorityOutOfRangeIsLimited() {
+        scheduleRequest("org.jbpm:low:1.0", -3, 2000);
+        scheduleRequest("org.jbpm:high:1.0", "42", 1000);
+        
+        assertEquals(9, getPriority(queryService.getRequestForProcessing()));
+        assertEquals(0, getPriority(queryService.getRequestForProcessing()));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPriority() {
+        scheduleRequest("org.jbpm:invalid:1.0", "high", 1000);
+    }
+    
+    @Test
+    public void testQueueMetrics() {
+        scheduleRequest("org.jbpm:default:1.0", null, 2000);
+        scheduleRequest("org.jbpm:default:1.0", null, 2000);
+        scheduleRequest("org.jbpm:high:1.0", 9, 1000);
+        
+        List<ExecutorQueueMetrics> metrics = queryService.getQueueMetrics();
+        assertEquals(2, metrics.size());
+        assertEquals(9, metrics.get(0).getPriority());
+        assertEquals(1, metrics.get(0).getQueueDepth());
+        assertEquals(5, metrics.get(1).getPriority());
+        assertEquals(2, metrics.get(1).getQueueDepth());
+        
+        queryService.getRequestForProcessing();
+        metrics = queryService.getQueueMetrics();
+        assertEquals(0, metrics.get(0).getQueueDepth());
+        assertEquals(1, metrics.get(0).getClaimed());
+        assertEquals(true, metrics.get(0).getMaxWaitTime() >= 1000);
+        assertEquals(0, metrics.get(1).getClaimed());
+    }
+    
+    private void scheduleRequest(String deploymentId, Object priority, long dueSince) {
+        CommandContext ctxCMD = new CommandContext();
+        ctxCMD.setData("businessKey", deploymentId);
+        ctxCMD.setData("deploymentId", deploymentId);
+        if (priority != null) {
+            ctxCMD.setData("priority", priority);
+        }
+        executorService.scheduleRequest("org.jbpm.executor.commands.PrintOutCommand", new Date(System.currentTimeMillis() - dueSince), ctxCMD);
+    }
+    
+    private int getPriority(RequestInfo request) {
+        return ((org.jbpm.executor.entities.RequestInfo) request).getPriority();
+    }
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -188,6 +189,44 @@ public class AsyncThrowSignalEventTest extends AbstractExecutorBaseTest {
         assertNull(processInstance);
     } 
     
+    @Test(timeout=10000)
+    public void testAsyncThrowManualEventInChunks() throws Exception {
+        System.setProperty("org.jbpm.signal.batch.size", "2");
+        try {
+            // 5 waiting process instances in chunks of 2 are signaled by 3 jobs
+            CountDownAsyncJobListener countDownListener = configureListener(3);
+            RuntimeEnvironment environment = RuntimeEnvironmentBuilder.Factory.get().newDefaultBuilder()
+                    .userGroupCallback(userGroupCallback)
+                    .addAsset(ResourceFactory.newClassPathResource("BPMN2-WaitForEvent.bpmn2"), ResourceType.BPMN2)
+                    .addEnvironmentEntry("ExecutorService", executorService)
+                    .get();
+
+            manager = RuntimeManagerFactory.Factory.get().newSingletonRuntimeManager(environment);
+            assertNotNull(manager);
+
+            RuntimeEngine runtime = manager.getRuntimeEngine(EmptyContext.get());
+            KieSession ksession = runtime.getKieSession();
+            assertNotNull(ksession);
+
+            List<Long> processInstanceIds = new ArrayList<Long>();
+            for (int i = 0; i < 5; i++) {
+                ProcessInstance processInstance = ksession.startProcess("WaitForEvent");
+                assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+                processInstanceIds.add(processInstance.getId());
+            }
+
+            ksession.signalEvent("ASYNC-MySignal", null);
+
+            countDownListener.waitTillCompleted();
+
+            for (Long processInstanceId : processInstanceIds) {
+                assertNull(runtime.getKieSession().getProcessInstance(processInstanceId));
+            }
+        } finally {
+            System.clearProperty("org.jbpm.signal.batch.size");
+        }
+    }
+
     private ExecutorService buildExecutorService() {        
         emf = Persistence.createEntityManagerFactory("org.jbpm.executor");
 
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
+import org.jbpm.services.api.model.ProcessDefinition;
+
+/**
+ * In memory catalog of deployed process definitions used by <code>RuntimeDataServiceImpl</code>.
+ * <br/>
+ * Definitions are indexed by deployment id and by process id (the two together identify a definition) so lookups
+ * do not scan all deployed processes. Each entry keeps lower cased id and name for filtering and its roles as a set
+ * so access checks do not need to compare lists.
+ * <br/>
+ * Reads do not lock, modifications (which happen only on deployment changes) are serialized.
+ */
+public class ProcessDefinitionCatalog {
+
+    private static final Pattern REGEX_CHARS = Pattern.compile("[\\\\\\[\\](){}*+?^$|]");
+
+    // deployment id -> process id -> entry
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> byDeploymentId =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Entry>>();
+    // process id -> deployment id -> entry
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> byProcessId =
+            new ConcurrentHashMap<String, ConcurrentMap<String, Entry>>();
+    private final ConcurrentMap<Entry, Boolean> entries = new ConcurrentHashMap<Entry, Boolean>();
+
+    public synchronized void add(ProcessAssetDesc process) {
+        Entry entry = new Entry(process);
+        Entry previous = index(byDeploymentId, process.getDeploymentId(), process.getId(), entry);
+        index(byProcessId, process.getId(), process.getDeploymentId(), entry);
+        if (previous != null) {
+            entries.remove(previous);
+        }
+        entries.put(entry, Boolean.TRUE);
+    }
+
+    /**
+     * Removes all process definitions of given deployment and returns them.
+     */
+    public synchronized Collection<ProcessAssetDesc> removeDeployment(String deploymentId) {
+        ConcurrentMap<String, Entry> processes = byDeploymentId.remove(deploymentId);
+        if (processes == null) {
+            return Collections.emptyList();
+        }
+        List<ProcessAssetDesc> removed = new ArrayList<ProcessAssetDesc>(processes.size());
+        for (Entry entry : processes.values()) {
+            ConcurrentMap<String, Entry> deployments = byProcessId.get(entry.process.getId());
+            if (deployments != null) {
+                deployments.remove(deploymentId, entry);
+                if (deployments.isEmpty()) {
+                    byProcessId.remove(entry.process.getId());
+                }
+            }
+            entries.remove(entry);
+            removed.add(entry.process);
+        }
+        return removed;
+    }
+
+    public synchronized void setActive(String deploymentId, boolean active) {
+        ConcurrentMap<String, Entry> processes = byDeploymentId.get(deploymentId);
+        if (processes != null) {
+            for (Entry entry : processes.values()) {
+                entry.process.setActive(active);
+            }
+        }
+    }
+
+    /**
+     * Returns all active process definitions accessible with given roles.
+     */
+    public List<ProcessDefinition> getProcesses(List<String> roles) {
+        List<ProcessDefinition> result = new ArrayList<ProcessDefinition>();
+        for (Entry entry : entries.keySet()) {
+            if (entry.isActive() && entry.hasAccess(roles)) {
+                result.add(entry.process);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns active process definitions of given deployment accessible with given roles.
+     */
+    public List<ProcessDefinition> getProcessesByDeploymentId(String deploymentId, List<String> roles) {
+        List<ProcessDefinition> result = new ArrayList<ProcessDefinition>();
+        if (deploymentId == null) {
+            return result;
+        }
+        ConcurrentMap<String, Entry> processes = byDeploymentId.get(deploymentId);
+        if (processes != null) {
+            for (Entry entry : processes.values()) {
+                if (entry.isActive() && entry.hasAccess(roles)) {
+                    result.add(entry.process);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns active process definitions with given process id, from any deployment, accessible with given roles.
+     */
+    public List<ProcessDefinition> getProcessesById(String processId, List<String> roles) {
+        List<ProcessDefinition> result = new ArrayList<ProcessDefinition>();
+        if (processId == null) {
+            return result;
+        }
+        ConcurrentMap<String, Entry> deployments = byProcessId.get(processId);
+        if (deployments != null) {
+            for (Entry entry : deployments.values()) {
+                if (entry.isActive() && entry.hasAccess(roles)) {
+                    result.add(entry.process);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns process definition with given process id from given deployment, regardless if it is active,
+     * when it is accessible with given roles.
+     */
+    public ProcessDefinition getProcess(String deploymentId, String processId, List<String> roles) {
+        if (deploymentId == null || processId == null) {
+            return null;
+        }
+        ConcurrentMap<String, Entry> processes = byDeploymentId.get(deploymentId);
+        if (processes == null) {
+            return null;
+        }
+        Entry entry = processes.get(processId);
+        if (entry != null && entry.hasAccess(roles)) {
+            return entry.process;
+        }
+        return null;
+    }
+
+    /**
+     * Returns active process definitions accessible with given roles whose id or name contains given filter,
+     * ignoring case. Filters that contain regular expression constructs (other than '.') are evaluated
+     * as regular expressions.
+     */
+    public List<ProcessDefinition> getProcessesByFilter(String filter, List<String> roles) {
+        List<ProcessDefinition> result = new ArrayList<ProcessDefinition>();
+        if (filter == null) {
+            filter = "";
+        }
+        Pattern pattern = null;
+        String lowerFilter = null;
+        if (REGEX_CHARS.matcher(filter).find()) {
+            pattern = Pattern.compile("(?i)^.*" + filter + ".*$");
+        } else {
+            lowerFilter = filter.toLowerCase(Locale.ROOT);
+        }
+        for (Entry entry : entries.keySet()) {
+            if (!entry.isActive() || !entry.hasAccess(roles)) {
+                continue;
+            }
+            boolean matches;
+            if (pattern != null) {
+                matches = (entry.process.getId() != null && pattern.matcher(entry.process.getId()).matches())
+                        || (entry.process.getName() != null && pattern.matcher(entry.process.getName()).matches());
+            } else {
+                matches = entry.lowerId.contains(lowerFilter) || entry.lowerName.contains(lowerFilter);
+            }
+            if (matches) {
+                result.add(entry.process);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns ids of active processes of given deployment, not checking roles.
+     */
+    public List<String> getProcessIds(String deploymentId) {
+        List<String> result = new ArrayList<String>();
+        if (deploymentId == null) {
+            return result;
+        }
+        ConcurrentMap<String, Entry> processes = byDeploymentId.get(deploymentId);
+        if (processes != null) {
+            for (Entry entry : processes.values()) {
+                if (entry.isActive()) {
+                    result.add(entry.process.getId());
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static Entry index(ConcurrentMap<String, ConcurrentMap<String, Entry>> index, String key, String subKey, Entry entry) {
+        ConcurrentMap<String, Entry> indexed = index.get(key);
+        if (indexed == null) {
+            indexed = new ConcurrentHashMap<String, Entry>();
+            index.put(key, indexed);
+        }
+        return indexed.put(subKey, entry);
+    }
+
+    private static class Entry {
+
+        private final ProcessAssetDesc process;
+        private final Set<String> roles;
+        private final String lowerId;
+        private final String lowerName;
+
+        Entry(ProcessAssetDesc process) {
+            this.process = process;
+            this.roles = process.getRoles() == null ? Collections.<String>emptySet() : new HashSet<String>(process.getRoles());
+            this.lowerId = process.getId() == null ? "" : process.getId().toLowerCase(Locale.ROOT);
+            this.lowerName = process.getName() == null ? "" : process.getName().toLowerCase(Locale.ROOT);
+        }
+
+        boolean isActive() {
+            return process.isActive();
+        }
+
+        boolean hasAccess(List<String> userRoles) {
+            if (userRoles == null || userRoles.isEmpty() || roles.isEmpty()) {
+                return true;
+            }
+            for (String role : userRoles) {
+                if (roles.contains(role)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -24,13 +24,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Predicate;
 import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
 import org.jbpm.kie.services.impl.security.DeploymentRolesManager;
 import org.jbpm.services.api.DeploymentEvent;
@@ -63,7 +59,7 @@ import org.kie.internal.task.query.TaskSummaryQueryBuilder;
 
 public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEventListener {
 
-    protected Set<ProcessDefinition> availableProcesses = new HashSet<ProcessDefinition>();
+    protected ProcessDefinitionCatalog availableProcesses = new ProcessDefinitionCatalog();
 
 
     private TransactionalCommandService commandService;
@@ -125,33 +121,19 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     }
 
     public void onUnDeploy(DeploymentEvent event) {
-        Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        availableProcesses.removeAll(outputCollection);
+        availableProcesses.removeDeployment(event.getDeploymentId());
         deploymentRolesManager.removeRolesForDeployment(event.getDeploymentId());
     }
 
 
 	@Override
 	public void onActivate(DeploymentEvent event) {
-		Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        for (ProcessAssetDesc process : outputCollection) {
-        	process.setActive(true);
-        }
-
+		availableProcesses.setActive(event.getDeploymentId(), true);
 	}
 
 	@Override
 	public void onDeactivate(DeploymentEvent event) {
-		Collection<ProcessAssetDesc> outputCollection = new HashSet<ProcessAssetDesc>();
-        CollectionUtils.select(availableProcesses, new UnsecureByDeploymentIdPredicate(event.getDeploymentId()), outputCollection);
-
-        for (ProcessAssetDesc process : outputCollection) {
-        	process.setActive(false);
-        }
+		availableProcesses.setActive(event.getDeploymentId(), false);
 	}
 
     protected void applyQueryContext(Map<String, Object> params, QueryContext queryContext) {
@@ -232,26 +214,18 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
      * process definition methods
      */
 	public Collection<ProcessDefinition> getProcessesByDeploymentId(String deploymentId, QueryContext queryContext) {
-        List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByDeploymentIdPredicate(deploymentId, identityProvider.getRoles()), outputCollection);
+        List<ProcessDefinition> outputCollection = availableProcesses.getProcessesByDeploymentId(deploymentId, identityProvider.getRoles());
 
         applySorting(outputCollection, queryContext);
         return applyPaginition(outputCollection, queryContext);
     }
 
     public ProcessDefinition getProcessesByDeploymentIdProcessId(String deploymentId, String processId) {
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByDeploymentIdProcessIdPredicate(deploymentId, processId, identityProvider.getRoles(), true), outputCollection);
-
-        if (!outputCollection.isEmpty()) {
-            return outputCollection.iterator().next();
-        }
-        return null;
+        return availableProcesses.getProcess(deploymentId, processId, identityProvider.getRoles());
     }
 
     public Collection<ProcessDefinition> getProcessesByFilter(String filter, QueryContext queryContext) {
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new RegExPredicate("(?i)^.*"+filter+".*$", identityProvider.getRoles()), outputCollection);
+    	List<ProcessDefinition> outputCollection = availableProcesses.getProcessesByFilter(filter, identityProvider.getRoles());
 
         applySorting(outputCollection, queryContext);
         return applyPaginition(outputCollection, queryContext);
@@ -271,15 +245,11 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
 
     public Collection<ProcessDefinition> getProcessesById(String processId){
 
-        Collection<ProcessDefinition> outputCollection = new HashSet<ProcessDefinition>();
-        CollectionUtils.select(availableProcesses, new ByProcessIdPredicate(processId, identityProvider.getRoles()), outputCollection);
-
-        return outputCollection;
+        return availableProcesses.getProcessesById(processId, identityProvider.getRoles());
     }
 
     public Collection<ProcessDefinition> getProcesses(QueryContext queryContext) {
-    	List<ProcessDefinition> outputCollection = new ArrayList<ProcessDefinition>();
-    	CollectionUtils.select(availableProcesses, new SecurePredicate(identityProvider.getRoles(), false), outputCollection);
+    	List<ProcessDefinition> outputCollection = availableProcesses.getProcesses(identityProvider.getRoles());
 
     	applySorting(outputCollection, queryContext);
     	return applyPaginition(outputCollection, queryContext);
@@ -287,15 +257,10 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
 
     @Override
     public Collection<String> getProcessIds(String deploymentId, QueryContext queryContext) {
-        List<String> processIds = new ArrayList<String>(availableProcesses.size());
         if( deploymentId == null || deploymentId.isEmpty() ) {
-            return processIds;
-        }
-        for( ProcessDefinition procAssetDesc : availableProcesses ) {
-            if( ((ProcessAssetDesc)procAssetDesc).getDeploymentId().equals(deploymentId) && ((ProcessAssetDesc)procAssetDesc).isActive()) {
-                processIds.add(procAssetDesc.getId());
-            }
+            return new ArrayList<String>();
         }
+        List<String> processIds = availableProcesses.getProcessIds(deploymentId);
         return applyPaginition(processIds, queryContext);
     }
     /*
@@ -946,190 +911,6 @@ public class RuntimeDataServiceImpl implements RuntimeDataService, DeploymentEve
     *  task audit queries
     */
 
-    /*
-     * start
-     * predicates for collection filtering
-     */
-
-    private class RegExPredicate extends SecurePredicate {
-        private String pattern;
-
-        private RegExPredicate(String pattern, List<String> roles) {
-        	super(roles, false);
-            this.pattern = pattern;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().matches(pattern)
-                        || pDesc.getName().matches(pattern)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByDeploymentIdPredicate extends SecurePredicate {
-        private String deploymentId;
-
-        private ByDeploymentIdPredicate(String deploymentId, List<String> roles) {
-        	super(roles, false);
-            this.deploymentId = deploymentId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getDeploymentId().equals(deploymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByProcessIdPredicate extends SecurePredicate {
-        private String processId;
-
-        private ByProcessIdPredicate(String processId, List<String> roles) {
-        	super(roles, false);
-            this.processId = processId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().equals(processId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ByDeploymentIdProcessIdPredicate extends SecurePredicate {
-        private String processId;
-        private String depoymentId;
-
-        private ByDeploymentIdProcessIdPredicate(String depoymentId, String processId, List<String> roles) {
-            super(roles, false);
-        	this.depoymentId = depoymentId;
-            this.processId = processId;
-        }
-
-        private ByDeploymentIdProcessIdPredicate(String depoymentId, String processId, List<String> roles, boolean skipActiveCheck) {
-            super(roles, skipActiveCheck);
-        	this.depoymentId = depoymentId;
-            this.processId = processId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                boolean hasAccess = super.evaluate(object);
-                if (!hasAccess) {
-                	return false;
-                }
-                if (pDesc.getId().equals(processId) && pDesc.getDeploymentId().equals(depoymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-    }
-
-    private class SecurePredicate extends ActiveOnlyPredicate {
-    	private List<String> roles;
-    	private boolean skipActivCheck;
-
-    	private SecurePredicate(List<String> roles, boolean skipActivCheck) {
-    		this.roles = roles;
-    		this.skipActivCheck = skipActivCheck;
-    	}
-
-    	public boolean evaluate(Object object) {
-    		if (!skipActivCheck) {
-	    		boolean isActive = super.evaluate(object);
-	    		if (!isActive) {
-	    			return false;
-    		}
-    		}
-    		ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-    		if (this.roles == null || this.roles.isEmpty() || pDesc.getRoles() == null || pDesc.getRoles().isEmpty()) {
-    			return true;
-    		}
-
-
-    		return CollectionUtils.containsAny(roles, pDesc.getRoles());
-    	}
-    }
-
-
-    private class UnsecureByDeploymentIdPredicate implements Predicate {
-        private String deploymentId;
-
-        private UnsecureByDeploymentIdPredicate(String deploymentId) {
-            this.deploymentId = deploymentId;
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                if (pDesc.getDeploymentId().equals(deploymentId)) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-    private class ActiveOnlyPredicate implements Predicate {
-
-        private ActiveOnlyPredicate() {
-        }
-
-        @Override
-        public boolean evaluate(Object object) {
-            if (object instanceof ProcessAssetDesc) {
-                ProcessAssetDesc pDesc = (ProcessAssetDesc) object;
-                if (pDesc.isActive()) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-    }
-
-
-    /*
-     * end
-     * predicates for collection filtering
-     */
-
      protected void applyQueryFilter(Map<String, Object> params, QueryFilter queryFilter) {
     	if (queryFilter != null) {
     	    applyQueryContext(params, queryFilter);
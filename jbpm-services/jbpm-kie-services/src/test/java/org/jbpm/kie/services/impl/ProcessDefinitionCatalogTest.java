@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jbpm.kie.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jbpm.kie.services.impl.model.ProcessAssetDesc;
+import org.jbpm.services.api.model.ProcessDefinition;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessDefinitionCatalogTest {
+
+    private static final List<String> NO_ROLES = Collections.emptyList();
+
+    private ProcessDefinitionCatalog catalog;
+
+    @Before
+    public void setup() {
+        catalog = new ProcessDefinitionCatalog();
+        catalog.add(process("org.jbpm.writedocument", "Write Document", "org.jbpm:test:1.0"));
+        catalog.add(process("org.jbpm.customtask", "Custom Task", "org.jbpm:test:1.0"));
+        catalog.add(process("org.jbpm.writedocument", "Write Document", "org.jbpm:test:2.0", "HR"));
+    }
+
+    @Test
+    public void testLookups() {
+        assertEquals(3, catalog.size());
+        assertEquals(3, catalog.getProcesses(NO_ROLES).size());
+        assertEquals(2, catalog.getProcessesByDeploymentId("org.jbpm:test:1.0", NO_ROLES).size());
+        assertEquals(2, catalog.getProcessesById("org.jbpm.writedocument", NO_ROLES).size());
+        assertEquals(0, catalog.getProcessesById("unknown", NO_ROLES).size());
+
+        ProcessDefinition definition = catalog.getProcess("org.jbpm:test:2.0", "org.jbpm.writedocument", NO_ROLES);
+        assertNotNull(definition);
+        assertEquals("org.jbpm:test:2.0", definition.getDeploymentId());
+        assertNull(catalog.getProcess("org.jbpm:test:2.0", "org.jbpm.customtask", NO_ROLES));
+
+        assertEquals(2, catalog.getProcessIds("org.jbpm:test:1.0").size());
+    }
+
+    @Test
+    public void testFilter() {
+        assertEquals(1, catalog.getProcessesByFilter("custom", NO_ROLES).size());
+        assertEquals(1, catalog.getProcessesByFilter("CUSTOM task", NO_ROLES).size());
+        assertEquals(3, catalog.getProcessesByFilter("org.jbpm", NO_ROLES).size());
+        // regular expressions are still supported
+        assertEquals(3, catalog.getProcessesByFilter("(write|custom)", NO_ROLES).size());
+        assertEquals(0, catalog.getProcessesByFilter("missing", NO_ROLES).size());
+    }
+
+    @Test
+    public void testRoles() {
+        List<String> hr = Arrays.asList("HR");
+        List<String> it = Arrays.asList("IT");
+
+        assertEquals(3, catalog.getProcesses(hr).size());
+        assertEquals(2, catalog.getProcesses(it).size());
+        assertEquals(1, catalog.getProcessesById("org.jbpm.writedocument", it).size());
+        assertNull(catalog.getProcess("org.jbpm:test:2.0", "org.jbpm.writedocument", it));
+        assertEquals(1, catalog.getProcessesByFilter("write", it).size());
+    }
+
+    @Test
+    public void testActivation() {
+        catalog.setActive("org.jbpm:test:1.0", false);
+        assertEquals(1, catalog.getProcesses(NO_ROLES).size());
+        assertEquals(0, catalog.getProcessesByDeploymentId("org.jbpm:test:1.0", NO_ROLES).size());
+        assertEquals(0, catalog.getProcessIds("org.jbpm:test:1.0").size());
+        // inactive processes can still be found by deployment and process id
+        assertNotNull(catalog.getProcess("org.jbpm:test:1.0", "org.jbpm.customtask", NO_ROLES));
+
+        catalog.setActive("org.jbpm:test:1.0", true);
+        assertEquals(3, catalog.getProcesses(NO_ROLES).size());
+    }
+
+    @Test
+    public void testRemoveDeployment() {
+        assertEquals(2, catalog.removeDeployment("org.jbpm:test:1.0").size());
+        assertEquals(1, catalog.size());
+        assertEquals(1, catalog.getProcessesById("org.jbpm.writedocument", NO_ROLES).size());
+        assertEquals(0, catalog.getProcessesById("org.jbpm.customtask", NO_ROLES).size());
+        assertEquals(0, catalog.getProcessesByFilter("custom", NO_ROLES).size());
+        assertTrue(catalog.removeDeployment("org.jbpm:test:1.0").isEmpty());
+    }
+
+    private ProcessAssetDesc process(String id, String name, String deploymentId, String... roles) {
+        ProcessAssetDesc process = new ProcessAssetDesc(id, name, "1.0", "org.jbpm", "RuleFlow", "PROCESS", "org.jbpm", deploymentId);
+        process.setRoles(Arrays.asList(roles));
+        return process;
+    }
+}
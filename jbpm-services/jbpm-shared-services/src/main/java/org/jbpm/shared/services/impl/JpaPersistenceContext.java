@@ -29,6 +29,9 @@ public class JpaPersistenceContext implements Context {
 
 	public final static String FIRST_RESULT = "firstResult";
     public final static String MAX_RESULTS = "maxResults";
+    
+    // lock timeout understood as skip locked rows (e.g. FOR UPDATE SKIP LOCKED) by hibernate
+    private final static int SKIP_LOCKED_TIMEOUT = -2;
 	
 	private EntityManager em;
 	
@@ -65,6 +68,21 @@ public class JpaPersistenceContext implements Context {
 		return queryStringWithParameters(params, singleResult, LockModeType.PESSIMISTIC_WRITE, clazz, query);
 	}
 
+	/**
+	 * Same as {@link #queryAndLockWithParametersInTransaction(String, Map, boolean, Class)} but when <code>skipLocked</code>
+	 * is set rows already locked by other transactions are skipped instead of waited for, on databases that do not
+	 * support it rows are locked as usual.
+	 */
+	public <T> T queryAndLockWithParametersInTransaction(String queryName,
+			Map<String, Object> params, boolean singleResult, boolean skipLocked, Class<T> clazz) {
+		check();
+		Query query = getQueryByName(queryName, params);
+		if (skipLocked) {
+			query.setHint("javax.persistence.lock.timeout", SKIP_LOCKED_TIMEOUT);
+		}
+		return queryStringWithParameters(params, singleResult, LockModeType.PESSIMISTIC_WRITE, clazz, query);
+	}
+
 	
 	@SuppressWarnings("unchecked")
 	public <T> T queryInTransaction(String queryName, Class<T> clazz) {
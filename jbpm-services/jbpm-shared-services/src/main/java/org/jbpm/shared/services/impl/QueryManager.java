@@ -18,6 +18,8 @@ package org.jbpm.shared.services.impl;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -31,7 +33,13 @@ public class QueryManager {
 	public static final String DESCENDING_KEY = "desc";
 	public static final String FILTER = "filter";
 	
+	private static final int CACHE_SIZE = Integer.parseInt(System.getProperty("org.jbpm.query.cache.size", "1000"));
+
 	private Map<String, String> queries = new ConcurrentHashMap<String, String>();
+
+	private final ConcurrentMap<String, String> queryTemplates = new ConcurrentHashMap<String, String>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
 	
 	private static QueryManager instance;
 	
@@ -50,42 +58,130 @@ public class QueryManager {
 	public void addNamedQueries(String ormFile) {
 		try {
 			parse(ormFile);
+			// queries might have been redefined
+			queryTemplates.clear();
 		} catch (XMLStreamException e) {
 			throw new RuntimeException("Unable to read orm file due to " + e.getMessage(), e);
 		}
 	}
 	
+	/**
+	 * Returns query with filter and order by clauses applied, or null when there is nothing to apply and named
+	 * query should be used as is.
+	 * <br/>
+	 * Built queries are cached by query name, filter and order by. Filters are canonicalized first (white space
+	 * outside of quoted literals is collapsed), so filters that differ only in formatting return the very same
+	 * query and the persistence provider can reuse its parsed form. Filters are expected to reference values as
+	 * parameters (e.g. <code>:deployments</code>), the values are bound by the persistence context and never
+	 * become part of the cached query. The cache holds at most <code>org.jbpm.query.cache.size</code> queries
+	 * (default 1000), it is emptied when full.
+	 */
 	public String getQuery(String name, Map<String, Object> params) {
-		StringBuffer query = null;
 		if (!queries.containsKey(name)) {
 			return null;
 		}
+		String filter = null;
+		String orderBy = null;
+		String direction = null;
+		boolean ordered = params != null && params.containsKey(ORDER_BY_KEY);
+		if (params != null && params.containsKey(FILTER)) {
+			filter = canonicalize(String.valueOf(params.get(FILTER)));
+		}
+		if (ordered) {
+			orderBy = adaptOrderBy((String) params.get(ORDER_BY_KEY));
+			if (params.containsKey(ASCENDING_KEY)) {
+				direction = " ASC";
+			} else if (params.containsKey(DESCENDING_KEY)) {
+				direction = " DESC";
+			}
+		}
+		if (filter == null && !ordered) {
+			return null;
+		}
+
+		String key = name + '\0' + filter + '\0' + orderBy + '\0' + direction;
+		String query = queryTemplates.get(key);
+		if (query != null) {
+			hits.incrementAndGet();
+			return query;
+		}
+		misses.incrementAndGet();
+
 		String operand = " and ";
-		
 		StringBuffer buf = new StringBuffer(queries.get(name));
 		if (buf.indexOf("where") == -1) {
 			operand = " where ";
 		}
-		if (params != null && params.containsKey(FILTER)) {
-			
-            buf.append(operand + params.get(FILTER));
-            query = buf;
+		if (filter != null) {
+            buf.append(operand + filter);
         }
-		
-		if (params != null && params.containsKey(ORDER_BY_KEY)) {
-			 
-			buf.append(" \n ORDER BY " + adaptOrderBy((String)params.get("orderby")));
-			if (params.containsKey(ASCENDING_KEY)) {
-				buf.append(" ASC");
-			} else if (params.containsKey(DESCENDING_KEY)) {
-				buf.append(" DESC");
+		if (ordered) {
+			buf.append(" \n ORDER BY " + orderBy);
+			if (direction != null) {
+				buf.append(direction);
 			}
-			query = buf;
 		}
-		
-		 return (query == null ? null : query.toString() );
+		query = buf.toString();
+		if (queryTemplates.size() >= CACHE_SIZE) {
+			// bounded without any global lock, filters are expected to come in a limited number of shapes
+			queryTemplates.clear();
+		}
+		String existing = queryTemplates.putIfAbsent(key, query);
+		return existing != null ? existing : query;
 	}
-	
+
+	/**
+	 * Collapses white spaces outside of quoted literals, literals are kept as they are.
+	 */
+	static String canonicalize(String filter) {
+		StringBuilder canonical = new StringBuilder(filter.length());
+		boolean inLiteral = false;
+		boolean pendingSpace = false;
+		for (int i = 0; i < filter.length(); i++) {
+			char c = filter.charAt(i);
+			if (inLiteral) {
+				canonical.append(c);
+				// quotes within literals are escaped by doubling them, which ends and reopens the literal
+				if (c == '\'') {
+					inLiteral = false;
+				}
+			} else if (Character.isWhitespace(c)) {
+				pendingSpace = canonical.length() > 0;
+			} else {
+				if (pendingSpace) {
+					canonical.append(' ');
+					pendingSpace = false;
+				}
+				canonical.append(c);
+				if (c == '\'') {
+					inLiteral = true;
+				}
+			}
+		}
+		return canonical.toString();
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns ratio of queries served from the cache, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public int getCacheSize() {
+		return queryTemplates.size();
+	}
+
 	protected void parse(String ormFile) throws XMLStreamException {
 		String name = null;
 		StringBuffer tagContent = new StringBuffer();
@@ -16,8 +16,11 @@
 
 package org.jbpm.shared.services.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
@@ -77,4 +80,58 @@ public class QueryManagerTest {
 		assertNotNull(query);
 		assertTrue(query.endsWith("ORDER BY log.date DESC"));
 	}
+	
+	@Test
+	public void testFilterLiteralsPreserved() {
+		QueryManager manager = new QueryManager();
+		
+		manager.addNamedQueries("test-orm.xml");
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("filter", "log.processName  =\t'two  spaces' or log.processName = 'it''s  quoted'");
+		params.put("orderby", "log.date");
+		params.put("asc", "true");
+		String query = manager.getQuery("test-query-3", params);
+		assertNotNull(query);
+		// white space of literals is not rewritten
+		assertTrue(query.contains("log.processName = 'two  spaces' or log.processName = 'it''s  quoted'"));
+		assertTrue(query.endsWith("ORDER BY log.date ASC"));
+		
+		// different literals are different queries
+		params.put("filter", "log.processName = 'two spaces' or log.processName = 'it''s  quoted'");
+		assertNotSame(query, manager.getQuery("test-query-3", params));
+		assertEquals(2, manager.getMissCount());
+		assertEquals(0, manager.getHitCount());
+	}
+	
+	@Test
+	public void testQueryCached() {
+		QueryManager manager = new QueryManager();
+		
+		manager.addNamedQueries("test-orm.xml");
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("filter", " log.externalId in (:deployments) ");
+		params.put("orderby", "log.date");
+		String query = manager.getQuery("test-query-3", params);
+		assertNotNull(query);
+		assertTrue(query.contains("log.externalId in (:deployments)"));
+		
+		params.put("filter", "log.externalId  in\n (:deployments)");
+		assertSame(query, manager.getQuery("test-query-3", params));
+		assertSame(query, manager.getQuery("test-query-3", params));
+		
+		params.put("desc", "true");
+		String descending = manager.getQuery("test-query-3", params);
+		assertTrue(descending.endsWith("ORDER BY log.date DESC"));
+		
+		assertEquals(2, manager.getHitCount());
+		assertEquals(2, manager.getMissCount());
+		assertEquals(0.5, manager.getHitRate(), 0.0);
+		assertEquals(2, manager.getCacheSize());
+		
+		// redefined queries are built again
+		manager.addNamedQueries("test-orm.xml");
+		assertEquals(0, manager.getCacheSize());
+	}
 }
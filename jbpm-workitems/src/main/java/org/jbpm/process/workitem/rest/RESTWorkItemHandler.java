@@ -25,6 +25,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBContext;
 
@@ -56,18 +60,25 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.CoreConnectionPNames;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
+import org.drools.core.process.instance.impl.WorkItemImpl;
 import org.drools.core.util.StringUtils;
 import org.jbpm.process.workitem.AbstractLogOrThrowWorkItemHandler;
+import org.kie.api.runtime.manager.RuntimeEngine;
+import org.kie.api.runtime.manager.RuntimeManager;
 import org.kie.api.runtime.process.WorkItem;
 import org.kie.api.runtime.process.WorkItemManager;
+import org.kie.internal.runtime.manager.RuntimeManagerRegistry;
+import org.kie.internal.runtime.manager.context.ProcessInstanceIdContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -96,6 +107,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  *  of non successful response codes (other than 2XX)</li>
  *  <li>ResultClass - fully qualified class name of the class that response should be transformed to, 
  *  if not given string format will be returned</li>
+ *  <li>Mode - SYNC (default) completes work item before returning, ASYNC returns right away and completes 
+ *  work item once the response is received, the work item is aborted if the request fails</li>
+ * </ul>
+ * With http client 4.3 api all handlers share a single client with pooled connections that are kept alive between
+ * work items. Pool and asynchronous mode can be configured with following system properties:
+ * <ul>
+ *  <li>org.jbpm.rest.pool.max.total - maximum number of connections in the pool (default 200)</li>
+ *  <li>org.jbpm.rest.pool.max.per.route - maximum number of connections to a single host (default 20)</li>
+ *  <li>org.jbpm.rest.async.threads - number of threads that execute requests in ASYNC mode (default 10)</li>
  * </ul>
  */
 public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
@@ -109,6 +129,14 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
 	
 	private ClassLoader classLoader;
 	
+	private static final int POOL_MAX_TOTAL = Integer.parseInt(System.getProperty("org.jbpm.rest.pool.max.total", "200"));
+	private static final int POOL_MAX_PER_ROUTE = Integer.parseInt(System.getProperty("org.jbpm.rest.pool.max.per.route", "20"));
+	private static final int ASYNC_THREADS = Integer.parseInt(System.getProperty("org.jbpm.rest.async.threads", "10"));
+	private static final int DEFAULT_TIMEOUT = 60000;
+
+	private static volatile CloseableHttpClient pooledHttpClient;
+	private static volatile ExecutorService asyncExecutor;
+
 	// protected for test purpose
 	protected static boolean HTTP_CLIENT_API_43 = true;
 	
@@ -199,13 +227,14 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
 		return authUrl;
 	}
 
-	public void executeWorkItem(WorkItem workItem, WorkItemManager manager) {
+	public void executeWorkItem(WorkItem workItem, final WorkItemManager manager) {
 		boolean handleException = false;
     	// extract required parameters
-        String urlStr = (String) workItem.getParameter("Url");
+        final String urlStr = (String) workItem.getParameter("Url");
         String method = (String) workItem.getParameter("Method");
         String handleExceptionStr = (String) workItem.getParameter("HandleResponseErrors");
-        String resultClass = (String) workItem.getParameter("ResultClass");
+        final String resultClass = (String) workItem.getParameter("ResultClass");
+        String modeStr = (String) workItem.getParameter("Mode");
         if (urlStr == null) {
             throw new IllegalArgumentException("Url is a required parameter");
         }
@@ -215,7 +244,8 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         if (handleExceptionStr != null) {
         	handleException = Boolean.parseBoolean(handleExceptionStr);
         }
-        Map<String,Object> params = workItem.getParameters();
+        RESTMode mode = RESTMode.valueOf(modeStr == null ? "SYNC" : modeStr.toUpperCase());
+        final Map<String,Object> params = workItem.getParameters();
         
         // authentication type from parameters
         AuthenticationType authType = type;
@@ -225,19 +255,79 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
 
         // optional timeout config parameters, defaulted to 60 seconds
         Integer connectTimeout = getParamAsInt(params.get("ConnectTimeout"));
-        if (connectTimeout==null) connectTimeout = 60000;
+        if (connectTimeout==null) connectTimeout = DEFAULT_TIMEOUT;
         Integer readTimeout = getParamAsInt(params.get("ReadTimeout"));
-        if (readTimeout==null) readTimeout = 60000;
+        if (readTimeout==null) readTimeout = DEFAULT_TIMEOUT;
 
-        HttpClient httpClient = getHttpClient(readTimeout, connectTimeout);
+        final HttpClient httpClient = getHttpClient(readTimeout, connectTimeout);
 	        
-        Object methodObject = configureRequest(method, urlStr, params);
+        final Object methodObject = configureRequest(method, urlStr, params);
+        if (methodObject instanceof RequestBuilder) {
+            // shared client is used so timeouts are given per request
+            ((RequestBuilder) methodObject).setConfig(getRequestConfig(readTimeout, connectTimeout));
+        }
+
+        if (mode == RESTMode.ASYNC) {
+            final long workItemId = workItem.getId();
+            final String deploymentId = nonNull(((WorkItemImpl) workItem).getDeploymentId());
+            final long processInstanceId = workItem.getProcessInstanceId();
+            final AuthenticationType asyncAuthType = authType;
+            final boolean asyncHandleException = handleException;
+
+            getAsyncExecutor().execute(new Runnable() {
+
+                public void run() {
+                    Map<String, Object> results = null;
+                    try {
+                        results = doRequest(httpClient, methodObject, params, asyncAuthType, urlStr, resultClass, asyncHandleException);
+                        logger.debug("Received async response from {}, completing work item {}", urlStr, workItemId);
+                    } catch (Throwable e) {
+                        logger.error("Error encountered while invoking REST endpoint {} asynchronously, aborting work item {}",
+                                urlStr, workItemId, e);
+                    } finally {
+                        closeQuietly(httpClient, methodObject);
+                    }
+                    if (results != null) {
+                        try {
+                            notifyWorkItemManager(manager, deploymentId, processInstanceId, workItemId, results, true);
+                            return;
+                        } catch (Throwable e) {
+                            logger.error("Error encountered while completing work item {} with async REST response, aborting it", workItemId, e);
+                        }
+                    }
+                    // work item would otherwise stay active forever
+                    try {
+                        notifyWorkItemManager(manager, deploymentId, processInstanceId, workItemId, null, false);
+                    } catch (Throwable e) {
+                        logger.error("Error encountered while aborting work item {}", workItemId, e);
+                    }
+                }
+            });
+            return;
+        }
+
+        try {
+            Map<String, Object> results = doRequest(httpClient, methodObject, params, authType, urlStr, resultClass, handleException);
+	        // notify manager that work item has been completed
+	        manager.completeWorkItem(workItem.getId(), results);
+    	} catch (Exception e) {
+    		handleException(e);
+    	} finally {
+    	    closeQuietly(httpClient, methodObject);
+    	}
+    }
+
+    /**
+     * Executes the request and reads the response, returning results for the work item.
+     */
+    protected Map<String, Object> doRequest(HttpClient httpClient, Object methodObject, Map<String, Object> params,
+            AuthenticationType authType, String urlStr, String resultClass, boolean handleException) throws Exception {
+        HttpResponse response = doRequestWithAuthorization(httpClient, methodObject, params, authType);
+        HttpEntity respEntity = response.getEntity();
         try {
-            HttpResponse response = doRequestWithAuthorization(httpClient, methodObject, params, authType);
         	StatusLine statusLine = response.getStatusLine();
         	int responseCode = statusLine.getStatusCode();
 	        Map<String, Object> results = new HashMap<String, Object>();
-	        HttpEntity respEntity = response.getEntity();
 	        String responseBody = null;
 	        String contentType = null;
 	        if( respEntity != null ) { 
@@ -260,20 +350,59 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
 	        	}
 	        }
             results.put("Status", responseCode);
-            
-	        // notify manager that work item has been completed
-	        manager.completeWorkItem(workItem.getId(), results);
-    	} catch (Exception e) {
-    		handleException(e);
-    	} finally {
-    	    try { 
-    	        close(httpClient, methodObject);
-    	    } catch( Exception e ) { 
-    	        // no idea if this throws something, but we still don't care!
-    	    }
-    	}
+
+            return results;
+        } finally {
+            // makes sure pooled connection is released even if response was not read
+            EntityUtils.consumeQuietly(respEntity);
+        }
     }
-	
+
+    /**
+     * Completes or aborts the work item of an asynchronous request, through the <code>RuntimeManager</code> of
+     * the deployment with the owning process instance context. As this happens on a thread of the handler
+     * without a transaction, the work item is completed in a new transaction.
+     */
+    protected void notifyWorkItemManager(WorkItemManager manager, String deploymentId, long processInstanceId, long workItemId,
+            Map<String, Object> results, boolean complete) {
+        RuntimeManager runtimeManager = RuntimeManagerRegistry.get().getManager(deploymentId);
+        if (runtimeManager != null) {
+            RuntimeEngine engine = runtimeManager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+            try {
+                if (complete) {
+                    engine.getKieSession().getWorkItemManager().completeWorkItem(workItemId, results);
+                } else {
+                    engine.getKieSession().getWorkItemManager().abortWorkItem(workItemId);
+                }
+            } finally {
+                runtimeManager.disposeRuntimeEngine(engine);
+            }
+        } else {
+            // in case there is no RuntimeManager available use given work item manager,
+            // as it might be used without runtime manager at all
+            if (complete) {
+                manager.completeWorkItem(workItemId, results);
+            } else {
+                manager.abortWorkItem(workItemId);
+            }
+        }
+    }
+
+    private void closeQuietly(HttpClient httpClient, Object methodObject) {
+        try { 
+            close(httpClient, methodObject);
+        } catch( Exception e ) { 
+            // no idea if this throws something, but we still don't care!
+        }
+    }
+
+    protected String nonNull(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value;
+    }
+
 	protected Integer getParamAsInt(Object param) {
 		if (param == null) {
 			return null;
@@ -398,7 +527,7 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
     	if (type == null || type == AuthenticationType.NONE) {
     	    HttpUriRequest request = requestBuilder.build();
     	    try {
-                return httpclient.execute(request);
+                return httpclient.execute(request, createClientContext());
             } catch( Exception e ) {
                 throw new RuntimeException("Could not execute request [" + request.getMethod() + "] " + request.getURI(), e);
             }
@@ -431,7 +560,7 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         	authCache.put(targetHost, basicAuth);
 
         	// - add AuthCache to the execution context:
-        	HttpClientContext clientContext = HttpClientContext.create();
+        	HttpClientContext clientContext = createClientContext();
             CredentialsProvider credsProvider = new BasicCredentialsProvider();
         	credsProvider.setCredentials(
         	    // specify host and port, since that is safer/more secure
@@ -451,11 +580,14 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
         } else if (type == AuthenticationType.FORM_BASED) {
             // form auth
             
+            // session cookies are kept in the context, shared client must not keep them between work items
+            HttpClientContext clientContext = createClientContext();
+
             // 1. do initial request to trigger authentication 
         	HttpUriRequest request = requestBuilder.build();
         	int statusCode = -1;
         	try {
-        	    HttpResponse initialResponse = httpclient.execute(request);
+        	    HttpResponse initialResponse = httpclient.execute(request, clientContext);
         	    statusCode = initialResponse.getStatusLine().getStatusCode();
         	} catch (IOException e) {
         		throw new RuntimeException("Could not execute request for form-based authentication", e);
@@ -490,8 +622,12 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
                 throw new RuntimeException("Could not encode authentication parameters into request body", uee);
             }
             authMethod.setEntity(formEntity);
+            if (requestBuilder.getConfig() != null) {
+                // same timeouts as the request that is authenticated
+                authMethod.setConfig(requestBuilder.getConfig());
+            }
             try {
-                httpclient.execute(authMethod);
+                httpclient.execute(authMethod, clientContext);
             } catch (IOException e) {
         		throw new RuntimeException("Could not initialize form-based authentication", e);
             } finally {
@@ -501,7 +637,7 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
             // 3. rebuild request and execute
             request = requestBuilder.build();
             try {
-                return httpclient.execute(request);
+                return httpclient.execute(request, clientContext);
             } catch( Exception e ) {
                 throw new RuntimeException("Could not execute request [" + request.getMethod() + "] " + request.getURI(), e);
             }
@@ -605,23 +741,16 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
     	FORM_BASED
     }
 
+    public enum RESTMode {
+        SYNC,
+        ASYNC
+    }
+
     
     protected HttpClient getHttpClient(Integer readTimeout, Integer connectTimeout) {
     	
     	if (HTTP_CLIENT_API_43) {
-            RequestConfig config = RequestConfig.custom()
-                    .setSocketTimeout(readTimeout)
-                    .setConnectTimeout(connectTimeout)
-                    .setConnectionRequestTimeout(connectTimeout)
-                    .build();
-
-            HttpClientBuilder clientBuilder = HttpClientBuilder.create()
-                    .setDefaultRequestConfig(config);
-            
-            HttpClient httpClient = clientBuilder.build();
-            
-            return httpClient;
-
+    	    return getPooledHttpClient();
     	} else {
 	        DefaultHttpClient httpClient = new DefaultHttpClient();
 	        httpClient.getParams().setIntParameter(CoreConnectionPNames.SO_TIMEOUT, readTimeout);
@@ -631,9 +760,75 @@ public class RESTWorkItemHandler extends AbstractLogOrThrowWorkItemHandler {
     	}
     }
     
+    /**
+     * Returns the client shared by all handlers, connections are pooled and kept alive between work items.
+     */
+    protected static CloseableHttpClient getPooledHttpClient() {
+        if (pooledHttpClient == null) {
+            synchronized (RESTWorkItemHandler.class) {
+                if (pooledHttpClient == null) {
+                    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setMaxTotal(POOL_MAX_TOTAL);
+                    connectionManager.setDefaultMaxPerRoute(POOL_MAX_PER_ROUTE);
+
+                    pooledHttpClient = HttpClientBuilder.create()
+                            .setConnectionManager(connectionManager)
+                            // requests without their own config (e.g. form authentication) must not wait forever
+                            .setDefaultRequestConfig(RequestConfig.custom()
+                                    .setSocketTimeout(DEFAULT_TIMEOUT)
+                                    .setConnectTimeout(DEFAULT_TIMEOUT)
+                                    .setConnectionRequestTimeout(DEFAULT_TIMEOUT)
+                                    .build())
+                            .build();
+                }
+            }
+        }
+        return pooledHttpClient;
+    }
+
+    protected RequestConfig getRequestConfig(Integer readTimeout, Integer connectTimeout) {
+        return RequestConfig.custom()
+                .setSocketTimeout(readTimeout)
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * Creates context for a single work item, with its own cookie store so cookies (e.g. sessions of form based
+     * authentication) are not shared between work items through the pooled client.
+     */
+    protected HttpClientContext createClientContext() {
+        HttpClientContext clientContext = HttpClientContext.create();
+        clientContext.setCookieStore(new BasicCookieStore());
+        return clientContext;
+    }
+
+    protected static ExecutorService getAsyncExecutor() {
+        if (asyncExecutor == null) {
+            synchronized (RESTWorkItemHandler.class) {
+                if (asyncExecutor == null) {
+                    asyncExecutor = Executors.newFixedThreadPool(ASYNC_THREADS, new ThreadFactory() {
+                        private final AtomicInteger counter = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "jBPM-RESTWorkItemHandler-" + counter.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return asyncExecutor;
+    }
+
     protected void close(HttpClient httpClient, Object httpMethod) throws IOException {
     	if (HTTP_CLIENT_API_43) {
-    		((CloseableHttpClient) httpClient).close();
+    	    // pooled client is shared, only clients created by subclasses are closed
+    	    if (httpClient != pooledHttpClient) {
+    	        ((CloseableHttpClient) httpClient).close();
+    	    }
     	} else {
     		((HttpRequestBase)httpMethod).releaseConnection();
     	}
@@ -21,7 +21,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.xml.namespace.QName;
 
@@ -57,6 +63,11 @@ public class WebServiceWorkItemHandler extends AbstractLogOrThrowWorkItemHandler
     private int asyncTimeout = 10;
     private ClassLoader classLoader;
 
+    // limits asynchronous calls in flight across all handlers
+    private static final int MAX_IN_FLIGHT = Integer.parseInt(System.getProperty("org.jbpm.ws.async.max.inflight", "100"));
+    private static final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+    private static volatile ScheduledExecutorService timeoutScheduler;
+
 	enum WSMode {
         SYNC,
         ASYNC,
@@ -126,50 +137,24 @@ public class WebServiceWorkItemHandler extends AbstractLogOrThrowWorkItemHandler
                     manager.completeWorkItem(workItem.getId(), output);
                     break;
                 case ASYNC:
-                    final ClientCallback callback = new ClientCallback();
-                    final long workItemId = workItem.getId();
-                    final String deploymentId = nonNull(((WorkItemImpl)workItem).getDeploymentId());
-                    final long processInstanceId = workItem.getProcessInstanceId();
-                    
-                    client.invoke(callback, operationRef, parameters);
-                    new Thread(new Runnable() {
-                       
-                       public void run() {
-                           
-                           try {
-                              
-                               Object[] result = callback.get(asyncTimeout, TimeUnit.SECONDS);
-                               Map<String, Object> output = new HashMap<String, Object>();          
-                               if (callback.isDone()) {
-                                   if (result == null) {
-                                     output.put("Result", null);
-                               } else {
-                                 output.put("Result", result[0]);
-                               }
-                           }
-                           logger.debug("Received async response {} completeing work item {}", result, workItemId);
-                           
-                           RuntimeManager manager = RuntimeManagerRegistry.get().getManager(deploymentId);
-                           if (manager != null) {
-                               RuntimeEngine engine = manager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
-                               
-                               engine.getKieSession().getWorkItemManager().completeWorkItem(workItemId, output);
-                               
-                               manager.disposeRuntimeEngine(engine);
-                           } else {
-                        	   // in case there is no RuntimeManager available use available ksession, 
-                        	   // as it might be used without runtime manager at all 
-                        	   ksession.getWorkItemManager().completeWorkItem(workItemId, output);
-                           }
-                       } catch (Exception e) {
-                    	   e.printStackTrace();
-                           throw new RuntimeException("Error encountered while invoking ws operation asynchronously", e);
-                       }
-                       
-                       
-                   }
-               }).start();
-                break;
+                    // bounded number of calls in flight, engine thread must not wait for a free slot so the
+                    // work item fails right away (handled as any other invocation error) when the limit is reached
+                    if (!inFlight.tryAcquire()) {
+                        throw new IllegalStateException("Unable to invoke ws operation " + operationRef + " asynchronously, "
+                                + MAX_IN_FLIGHT + " calls already in flight");
+                    }
+                    AsyncResponseCallback callback = new AsyncResponseCallback(workItem.getId(),
+                            nonNull(((WorkItemImpl)workItem).getDeploymentId()), workItem.getProcessInstanceId());
+                    try {
+                        client.invoke(callback, operationRef, parameters);
+                    } catch (Exception e) {
+                        callback.finish();
+                        throw e;
+                    }
+                    callback.scheduleTimeout(asyncTimeout);
+                    logger.debug("Invoked async operation {}, work item {} will be completed once response is received",
+                            operationRef, workItem.getId());
+                    break;
             case ONEWAY:
                 ClientCallback callbackFF = new ClientCallback();
                 
@@ -260,6 +245,138 @@ public class WebServiceWorkItemHandler extends AbstractLogOrThrowWorkItemHandler
 		return value;
 	}
 	
+	/**
+	 * Completes or aborts the work item of an asynchronous call, through the <code>RuntimeManager</code> of
+	 * the deployment with the owning process instance context. As this happens on a CXF thread without a transaction,
+	 * the work item is completed in a new transaction.
+	 */
+	protected void notifyWorkItemManager(String deploymentId, long processInstanceId, long workItemId,
+	        Map<String, Object> output, boolean complete) {
+	    RuntimeManager manager = RuntimeManagerRegistry.get().getManager(deploymentId);
+	    if (manager != null) {
+	        RuntimeEngine engine = manager.getRuntimeEngine(ProcessInstanceIdContext.get(processInstanceId));
+	        try {
+	            if (complete) {
+	                engine.getKieSession().getWorkItemManager().completeWorkItem(workItemId, output);
+	            } else {
+	                engine.getKieSession().getWorkItemManager().abortWorkItem(workItemId);
+	            }
+	        } finally {
+	            manager.disposeRuntimeEngine(engine);
+	        }
+	    } else {
+	        // in case there is no RuntimeManager available use available ksession,
+	        // as it might be used without runtime manager at all
+	        if (complete) {
+	            ksession.getWorkItemManager().completeWorkItem(workItemId, output);
+	        } else {
+	            ksession.getWorkItemManager().abortWorkItem(workItemId);
+	        }
+	    }
+	}
+
+	/**
+	 * Callback of an asynchronous call, invoked by CXF when response or fault is received. Work item stays active
+	 * while the call is in flight, and is aborted when no response is received within the async timeout.
+	 */
+	private class AsyncResponseCallback extends ClientCallback {
+
+	    private final long workItemId;
+	    private final String deploymentId;
+	    private final long processInstanceId;
+	    private final AtomicBoolean finished = new AtomicBoolean();
+	    private volatile ScheduledFuture<?> timeout;
+
+	    AsyncResponseCallback(long workItemId, String deploymentId, long processInstanceId) {
+	        this.workItemId = workItemId;
+	        this.deploymentId = deploymentId;
+	        this.processInstanceId = processInstanceId;
+	    }
+
+	    @Override
+	    public void handleResponse(Map<String, Object> ctx, Object[] res) {
+	        super.handleResponse(ctx, res);
+	        if (!finish()) {
+	            return;
+	        }
+	        Map<String, Object> output = new HashMap<String, Object>();
+	        if (res == null || res.length == 0) {
+	            output.put("Result", null);
+	        } else {
+	            output.put("Result", res[0]);
+	        }
+	        logger.debug("Received async response {} completing work item {}", res, workItemId);
+	        try {
+	            notifyWorkItemManager(deploymentId, processInstanceId, workItemId, output, true);
+	        } catch (Exception e) {
+	            logger.error("Error encountered while completing work item {} with async ws response", workItemId, e);
+	        }
+	    }
+
+	    @Override
+	    public void handleException(Map<String, Object> ctx, Throwable ex) {
+	        super.handleException(ctx, ex);
+	        if (finish()) {
+	            logger.error("Error encountered while invoking ws operation asynchronously, aborting work item {}", workItemId, ex);
+	            abort();
+	        }
+	    }
+
+	    void scheduleTimeout(int seconds) {
+	        timeout = getTimeoutScheduler().schedule(new Runnable() {
+
+	            public void run() {
+	                if (finish()) {
+	                    cancel(true);
+	                    logger.warn("No async ws response received within {} seconds, aborting work item {}", asyncTimeout, workItemId);
+	                    abort();
+	                }
+	            }
+	        }, seconds, TimeUnit.SECONDS);
+	    }
+
+	    /**
+	     * Marks the call as finished, returns false if it was already finished (e.g. timed out before response arrived).
+	     */
+	    boolean finish() {
+	        if (!finished.compareAndSet(false, true)) {
+	            return false;
+	        }
+	        inFlight.release();
+	        ScheduledFuture<?> scheduled = timeout;
+	        if (scheduled != null) {
+	            scheduled.cancel(false);
+	        }
+	        return true;
+	    }
+
+	    private void abort() {
+	        try {
+	            notifyWorkItemManager(deploymentId, processInstanceId, workItemId, null, false);
+	        } catch (Exception e) {
+	            logger.error("Error encountered while aborting work item {}", workItemId, e);
+	        }
+	    }
+	}
+
+	private static ScheduledExecutorService getTimeoutScheduler() {
+	    if (timeoutScheduler == null) {
+	        synchronized (WebServiceWorkItemHandler.class) {
+	            if (timeoutScheduler == null) {
+	                timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+	                    public Thread newThread(Runnable r) {
+	                        Thread thread = new Thread(r, "jBPM-WebServiceWorkItemHandler-Timeout");
+	                        thread.setDaemon(true);
+	                        return thread;
+	                    }
+	                });
+	            }
+	        }
+	    }
+	    return timeoutScheduler;
+	}
+
 	@Override
 	public void close() {
 		if (clients != null) {
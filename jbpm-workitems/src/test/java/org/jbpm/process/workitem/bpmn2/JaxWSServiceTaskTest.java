@@ -226,6 +226,50 @@ public class JaxWSServiceTaskTest extends AbstractBaseTest {
         assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
     }
 
+    @Test(timeout=10000)
+    public void testAsyncServiceInvocationProcessWSHandler() throws Exception {
+        CountDownProcessEventListener countDownListener = new CountDownProcessEventListener("Service Task 2", 1);
+        KnowledgeBaseFactory.setKnowledgeBaseServiceFactory(new KnowledgeBaseFactoryServiceImpl());
+        KnowledgeBase kbase = readKnowledgeBase();
+        StatefulKnowledgeSession ksession = createSession(kbase);
+        ksession.addEventListener(countDownListener);
+        ksession.getWorkItemManager().registerWorkItemHandler("Service Task", new WebServiceWorkItemHandler(ksession));
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("s", "john");
+        params.put("mode", "async");
+        
+        WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.startProcess("org.jboss.qa.jbpm.CallWS", params);
+        // work item stays active while the call is in flight
+        assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+        logger.info("Service invoked async...waiting to get reponse back");
+        countDownListener.waitTillCompleted();
+        String variable = (String) processInstance.getVariable("s");
+        assertEquals("Hello john", variable);
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+    }
+    
+    @Test(timeout=10000)
+    public void testAsyncServiceInvocationTimeoutProcessWSHandler() throws Exception {
+        CountDownProcessEventListener countDownListener = new CountDownProcessEventListener("Service Task 2", 1);
+        KnowledgeBaseFactory.setKnowledgeBaseServiceFactory(new KnowledgeBaseFactoryServiceImpl());
+        KnowledgeBase kbase = readKnowledgeBase();
+        StatefulKnowledgeSession ksession = createSession(kbase);
+        ksession.addEventListener(countDownListener);
+        // service responds after 3 seconds
+        ksession.getWorkItemManager().registerWorkItemHandler("Service Task", new WebServiceWorkItemHandler(ksession, 1));
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("s", "john");
+        params.put("mode", "async");
+        
+        WorkflowProcessInstance processInstance = (WorkflowProcessInstance) ksession.startProcess("org.jboss.qa.jbpm.CallWS", params);
+        assertEquals(ProcessInstance.STATE_ACTIVE, processInstance.getState());
+        countDownListener.waitTillCompleted();
+        // work item was aborted so no result was mapped
+        String variable = (String) processInstance.getVariable("s");
+        assertEquals("john", variable);
+        assertEquals(ProcessInstance.STATE_COMPLETED, processInstance.getState());
+    }
+
     private void startWebService() {
         this.service = new SimpleService();
         this.endpoint = Endpoint.publish("http://127.0.0.1:9876/HelloService/greeting", service);
@@ -17,11 +17,15 @@ package org.jbpm.process.workitem.rest;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.ext.RuntimeDelegate;
 
@@ -453,9 +457,72 @@ public class RestWorkItemHandlerTest {
         assertEquals("request to endpoint " + workItem.getParameter("Url") +" successfully completed OK", responseMsg);
     }
     
+    @Test
+    public void testGETOperationAsync() throws Exception {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        
+        WorkItemImpl workItem = new WorkItemImpl();
+        workItem.setParameter( "Url", serverURL);
+        workItem.setParameter( "Method", "GET" );
+        workItem.setParameter( "Mode", "ASYNC" );
+        
+        TestWorkItemManager manager = new TestWorkItemManager(workItem);
+        handler.executeWorkItem(workItem, manager);
+        
+        assertTrue("work item was not completed", manager.completed.await(10, TimeUnit.SECONDS));
+        String result = (String) workItem.getResult("Result");
+        assertNotNull("result cannot be null", result);
+        assertEquals("Hello from REST", result);
+        int responseCode = (Integer) workItem.getResult("Status");
+        assertEquals(200, responseCode);
+    }
+    
+    @Test
+    public void testGETOperationAsyncAbortedOnError() throws Exception {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        
+        WorkItemImpl workItem = new WorkItemImpl();
+        workItem.setParameter( "Url", serverURL+"/notexisting");
+        workItem.setParameter( "Method", "GET" );
+        workItem.setParameter( "Mode", "ASYNC" );
+        workItem.setParameter("HandleResponseErrors", "true");
+        
+        TestWorkItemManager manager = new TestWorkItemManager(workItem);
+        handler.executeWorkItem(workItem, manager);
+        
+        assertTrue("work item was not aborted", manager.aborted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, manager.completed.getCount());
+    }
+    
+    @Test
+    public void testGETOperationWithPooledClient() {
+        RESTWorkItemHandler handler = new RESTWorkItemHandler();
+        RESTWorkItemHandler otherHandler = new RESTWorkItemHandler();
+        if (httpClient43) {
+            // all handlers share one client
+            assertSame(handler.getHttpClient(60000, 60000), otherHandler.getHttpClient(30000, 30000));
+        }
+        
+        // more requests than connections per route, connections must be released back to the pool
+        for (int i = 0; i < 50; i++) {
+            WorkItemImpl workItem = new WorkItemImpl();
+            workItem.setParameter( "Url", serverURL);
+            workItem.setParameter( "Method", "GET" );
+            workItem.setParameter( "ConnectTimeout", "5000" );
+            
+            WorkItemManager manager = new TestWorkItemManager(workItem);
+            (i % 2 == 0 ? handler : otherHandler).executeWorkItem(workItem, manager);
+            
+            assertEquals("Hello from REST", workItem.getResult("Result"));
+            assertEquals(200, workItem.getResult("Status"));
+        }
+    }
+    
     private class TestWorkItemManager implements WorkItemManager {
         
         private WorkItem workItem;
+        private CountDownLatch completed = new CountDownLatch(1);
+        private CountDownLatch aborted = new CountDownLatch(1);
         
         TestWorkItemManager(WorkItem workItem) {
             this.workItem = workItem;
@@ -464,12 +531,12 @@ public class RestWorkItemHandlerTest {
         @Override
         public void completeWorkItem(long id, Map<String, Object> results) {
             ((WorkItemImpl)workItem).setResults(results);
-            
+            completed.countDown();
         }
 
         @Override
         public void abortWorkItem(long id) {
-            
+            aborted.countDown();
         }
 
         @Override